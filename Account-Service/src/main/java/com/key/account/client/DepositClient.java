@@ -1,14 +1,29 @@
 package com.key.account.client;
 
 import com.key.account.dto.ValidationResponse;
+import com.key.events.reconcile.BalanceRow;
+import com.key.events.reconcile.KeyRange;
+import com.key.events.reconcile.RangeDigest;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 
+import java.util.List;
 import java.util.Map;
 
-@FeignClient(name = "Deposit-Service")
+@FeignClient(name = "Deposit-Service", url = "${feign.deposit-service.url:http://localhost:8082}")
 public interface DepositClient {
     @PostMapping("/deposits/validate/{accountId}")
     ValidationResponse validateAccount(@RequestBody Map<String, Object> request);
+
+    // Balance reconciliation, see BalanceReconciler
+    @PostMapping("/deposits/reconcile/boundaries")
+    List<String> reconcileBoundaries(@RequestBody KeyRange range, @RequestParam("parts") int parts);
+
+    @PostMapping("/deposits/reconcile/digests")
+    List<RangeDigest> reconcileDigests(@RequestBody List<KeyRange> ranges);
+
+    @PostMapping("/deposits/reconcile/balances")
+    List<BalanceRow> reconcileBalances(@RequestBody List<KeyRange> ranges);
 }
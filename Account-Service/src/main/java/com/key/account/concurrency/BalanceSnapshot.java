@@ -0,0 +1,10 @@
+package com.key.account.concurrency;
+
+import com.key.account.enums.AccountStatus;
+import com.key.account.enums.AccountType;
+
+import java.math.BigDecimal;
+
+/** Balance, version, status and type read straight from the database, bypassing the persistence context. */
+public record BalanceSnapshot(BigDecimal balance, long version, AccountStatus status, AccountType type) {
+}
@@ -0,0 +1,13 @@
+package com.key.account.concurrency;
+
+/**
+ * How {@link BalanceUpdater} protects the read-modify-write of an account balance.
+ */
+public enum BalanceUpdateStrategy {
+    /** One conditional UPDATE; the database applies the delta and the guard under its row lock. */
+    ATOMIC,
+    /** Read balance and version, write back only if the version is unchanged, retry on conflict. */
+    OPTIMISTIC,
+    /** SELECT ... FOR UPDATE, then modify the locked entity. */
+    PESSIMISTIC
+}
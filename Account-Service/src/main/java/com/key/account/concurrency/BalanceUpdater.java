@@ -0,0 +1,138 @@
+package com.key.account.concurrency;
+
+import com.key.account.entity.Account;
+import com.key.account.enums.AccountStatus;
+import com.key.account.exception.AccountDeactivatedException;
+import com.key.account.repository.AccountRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+/**
+ * Applies balance deltas with the concurrency control selected by
+ * {@code account.balance.update-strategy}. Joins the caller's transaction if there is one.
+ * <p>
+ * Metrics, tagged with the strategy: {@code balance.update} (whole update),
+ * {@code balance.update.lock.wait} (the statement that takes the row lock),
+ * {@code balance.update.retries} and {@code balance.update.conflicts} (retries exhausted).
+ */
+@Component
+public class BalanceUpdater {
+
+    private final AccountRepository repository;
+    private final BalanceUpdateStrategy strategy;
+    private final int maxAttempts;
+
+    private final Timer updateTimer;
+    private final Timer lockWait;
+    private final Counter retries;
+    private final Counter conflicts;
+
+    public BalanceUpdater(AccountRepository repository, MeterRegistry meterRegistry,
+                          @Value("${account.balance.update-strategy:ATOMIC}") BalanceUpdateStrategy strategy,
+                          @Value("${account.balance.optimistic.max-attempts:5}") int maxAttempts) {
+        this.repository = repository;
+        this.strategy = strategy;
+        this.maxAttempts = maxAttempts;
+
+        String tag = strategy.name();
+        this.updateTimer = meterRegistry.timer("balance.update", "strategy", tag);
+        this.lockWait = meterRegistry.timer("balance.update.lock.wait", "strategy", tag);
+        this.retries = meterRegistry.counter("balance.update.retries", "strategy", tag);
+        this.conflicts = meterRegistry.counter("balance.update.conflicts", "strategy", tag);
+    }
+
+    public BalanceUpdateStrategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Adds {@code delta} to the account balance.
+     *
+     * @param guarded when true the account must be ACTIVE and the balance must not go negative
+     * @return the account after the update, or empty if the account does not exist or is deleted
+     */
+    @Transactional
+    public Optional<BalanceSnapshot> addToBalance(String accountId, BigDecimal delta, boolean guarded) {
+        return updateTimer.record(() -> switch (strategy) {
+            case ATOMIC -> atomic(accountId, delta, guarded);
+            case OPTIMISTIC -> optimistic(accountId, delta, guarded);
+            case PESSIMISTIC -> pessimistic(accountId, delta, guarded);
+        });
+    }
+
+    private Optional<BalanceSnapshot> atomic(String accountId, BigDecimal delta, boolean guarded) {
+        for (int attempt = 1; ; attempt++) {
+            int updated = lockWait.record(() -> guarded
+                    ? repository.addToBalanceIfAllowed(accountId, delta)
+                    : repository.addToBalance(accountId, delta));
+            if (updated == 1) {
+                // our UPDATE holds the row lock until commit, so this reads our own write
+                return repository.findBalanceSnapshot(accountId);
+            }
+            Optional<BalanceSnapshot> current = repository.findBalanceSnapshot(accountId);
+            if (current.isEmpty() || !guarded) {
+                return Optional.empty();
+            }
+            verify(accountId, current.get(), delta);
+            // the guard failed against a row that has changed since; try again
+            retryOrFail(accountId, attempt);
+        }
+    }
+
+    private Optional<BalanceSnapshot> optimistic(String accountId, BigDecimal delta, boolean guarded) {
+        for (int attempt = 1; ; attempt++) {
+            Optional<BalanceSnapshot> current = repository.findBalanceSnapshot(accountId);
+            if (current.isEmpty()) {
+                return Optional.empty();
+            }
+            BalanceSnapshot snapshot = current.get();
+            if (guarded) {
+                verify(accountId, snapshot, delta);
+            }
+            BigDecimal newBalance = snapshot.balance().add(delta);
+            if (repository.compareAndSetBalance(accountId, newBalance, snapshot.version()) == 1) {
+                return Optional.of(new BalanceSnapshot(newBalance, snapshot.version() + 1, snapshot.status(), snapshot.type()));
+            }
+            retryOrFail(accountId, attempt);
+        }
+    }
+
+    private Optional<BalanceSnapshot> pessimistic(String accountId, BigDecimal delta, boolean guarded) {
+        Optional<Account> locked = lockWait.record(() -> repository.lockByAccountId(accountId));
+        if (locked.isEmpty()) {
+            return Optional.empty();
+        }
+        Account account = locked.get();
+        if (guarded) {
+            verify(accountId, new BalanceSnapshot(account.getBalance(), account.getVersion(), account.getStatus(), account.getType()), delta);
+        }
+        account.setBalance(account.getBalance().add(delta));  // flushed at commit, which bumps the version
+        return Optional.of(new BalanceSnapshot(account.getBalance(), account.getVersion() + 1, account.getStatus(), account.getType()));
+    }
+
+    private void verify(String accountId, BalanceSnapshot snapshot, BigDecimal delta) {
+        if (snapshot.status() != AccountStatus.ACTIVE) {
+            throw new AccountDeactivatedException("Account is not active:  " + accountId);
+        }
+        if (snapshot.balance().add(delta).signum() < 0) {
+            throw new RuntimeException("New balance cannot be negative");
+        }
+    }
+
+    private void retryOrFail(String accountId, int attempt) {
+        if (attempt >= maxAttempts) {
+            conflicts.increment();
+            throw new OptimisticLockingFailureException(
+                    "Balance of " + accountId + " kept changing, gave up after " + attempt + " attempts");
+        }
+        retries.increment();
+    }
+}
@@ -0,0 +1,133 @@
+package com.key.account.concurrency;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Fans one poll of records out over a fixed set of single-threaded lanes. Every record with the
+ * same key lands on the same lane and is handled in offset order, so per-account ordering holds
+ * while different accounts from the same partition are handled in parallel. Records without a
+ * key are laned by partition.
+ * <p>
+ * {@link #dispatch} returns only after every lane has finished the poll, so the container
+ * commits offsets exactly as it would for a sequential batch listener. When a record fails, its
+ * lane skips the rest of its records (they may depend on it) and the earliest failure is reported
+ * as a {@link BatchListenerFailedException}: offsets before it are committed and the remainder of
+ * the poll is redelivered, including records other lanes had already handled.
+ * <p>
+ * Handlers must therefore be idempotent. Offsets are per partition and one partition's records
+ * are spread over every lane, so there is no way to commit just the lanes that succeeded; a
+ * handler that applies each record in its own transaction has to recognise the records it
+ * already applied when they come back (as {@code EventDeduplicator.processOnce} does).
+ */
+public class KeyOrderedDispatcher<K, V> implements AutoCloseable {
+
+    private final ExecutorService[] lanes;
+
+    public KeyOrderedDispatcher(String name, int workers) {
+        this.lanes = new ExecutorService[workers];
+        for (int i = 0; i < workers; i++) {
+            String threadName = name + "-" + i;
+            lanes[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, threadName);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public int workers() {
+        return lanes.length;
+    }
+
+    /** @param handler applied to each record on its key's lane; must be idempotent, see the class doc */
+    public void dispatch(List<ConsumerRecord<K, V>> records, Consumer<ConsumerRecord<K, V>> handler) {
+        List<List<Integer>> byLane = new ArrayList<>(lanes.length);
+        for (int i = 0; i < lanes.length; i++) {
+            byLane.add(new ArrayList<>());
+        }
+        for (int i = 0; i < records.size(); i++) {
+            byLane.get(laneOf(records.get(i))).add(i);
+        }
+
+        AtomicInteger firstFailure = new AtomicInteger(Integer.MAX_VALUE);
+        RuntimeException[] failures = new RuntimeException[records.size()];
+        List<Future<?>> running = new ArrayList<>(lanes.length);
+        for (int lane = 0; lane < lanes.length; lane++) {
+            List<Integer> indexes = byLane.get(lane);
+            if (!indexes.isEmpty()) {
+                running.add(lanes[lane].submit(() -> runLane(records, indexes, handler, failures, firstFailure)));
+            }
+        }
+        awaitAll(running);
+
+        int failed = firstFailure.get();
+        if (failed != Integer.MAX_VALUE) {
+            throw new BatchListenerFailedException("Record " + failed + " of the poll failed", failures[failed], records.get(failed));
+        }
+    }
+
+    private int laneOf(ConsumerRecord<K, V> record) {
+        Object key = record.key() != null ? record.key() : record.partition();
+        return Math.floorMod(Objects.hashCode(key), lanes.length);
+    }
+
+    private void runLane(List<ConsumerRecord<K, V>> records, List<Integer> indexes, Consumer<ConsumerRecord<K, V>> handler,
+                         RuntimeException[] failures, AtomicInteger firstFailure) {
+        for (int index : indexes) {
+            try {
+                handler.accept(records.get(index));
+            } catch (RuntimeException e) {
+                failures[index] = e;
+                firstFailure.accumulateAndGet(index, Math::min);
+                return;
+            }
+        }
+    }
+
+    private static void awaitAll(List<Future<?>> running) {
+        boolean interrupted = false;
+        for (Future<?> future : running) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    // the poll is only done once every lane is; finish waiting, then restore the flag
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Lane task failed", e.getCause());
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+        for (ExecutorService lane : lanes) {
+            try {
+                lane.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
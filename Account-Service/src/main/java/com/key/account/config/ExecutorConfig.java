@@ -0,0 +1,114 @@
+package com.key.account.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Named executors for the async saga path and for reconciliation digests, so their blocking
+ * JDBC work never runs on Spring's default executor or the common ForkJoinPool.
+ * <p>
+ * By default it is a bounded {@link ThreadPoolTaskExecutor}. Spring Boot publishes
+ * {@code executor.active}, {@code executor.queued} (queue depth), {@code executor.queue.remaining}
+ * and {@code executor.pool.size} for it, with a name tag of saga or reconcile. With
+ * {@code spring.threads.virtual.enabled=true} (the {@code virtual-threads} profile, Java 21) it
+ * runs on virtual threads instead, and max-size + queue-capacity caps the tasks in flight.
+ * In both modes, work past the bound is rejected and counted in {@code executor.rejected}.
+ */
+@Configuration
+public class ExecutorConfig {
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private final MeterRegistry meterRegistry;
+
+    public ExecutorConfig(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /** {@code @Async} balance-update sagas. */
+    @Bean
+    public Executor sagaExecutor(@Value("${account.executors.saga.core-size:16}") int coreSize,
+                                 @Value("${account.executors.saga.max-size:64}") int maxSize,
+                                 @Value("${account.executors.saga.queue-capacity:2000}") int queueCapacity) {
+        return executor("saga", coreSize, maxSize, queueCapacity);
+    }
+
+    /** Range digests for reconciliation, one task per key range; each holds a pooled connection while it reads. */
+    @Bean
+    public Executor reconcileExecutor(@Value("${account.executors.reconcile.core-size:4}") int coreSize,
+                                      @Value("${account.executors.reconcile.max-size:4}") int maxSize,
+                                      @Value("${account.executors.reconcile.queue-capacity:1000}") int queueCapacity) {
+        return executor("reconcile", coreSize, maxSize, queueCapacity);
+    }
+
+    private Executor executor(String name, int coreSize, int maxSize, int queueCapacity) {
+        if (virtualThreads) {
+            return new BoundedVirtualExecutor(name, maxSize + queueCapacity);
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(name + "-");
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            rejected(name);
+            new ThreadPoolExecutor.AbortPolicy().rejectedExecution(task, pool);
+        });
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    private void rejected(String name) {
+        meterRegistry.counter("executor.rejected", "name", name).increment();
+    }
+
+    /** Thread per task on virtual threads, rejecting once {@code limit} tasks are in flight. */
+    private final class BoundedVirtualExecutor implements Executor {
+
+        private final String name;
+        private final Semaphore permits;
+        private final SimpleAsyncTaskExecutor threads;
+
+        private BoundedVirtualExecutor(String name, int limit) {
+            this.name = name;
+            this.permits = new Semaphore(limit);
+            this.threads = new SimpleAsyncTaskExecutor(name + "-");
+            threads.setVirtualThreads(true);
+            Gauge.builder("executor.active", permits, available -> limit - available.availablePermits())
+                    .tag("name", name)
+                    .register(meterRegistry);
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            if (!permits.tryAcquire()) {
+                rejected(name);
+                throw new RejectedExecutionException("Executor " + name + " is at its limit");
+            }
+            try {
+                threads.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        permits.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+    }
+}
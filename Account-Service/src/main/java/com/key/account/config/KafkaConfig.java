@@ -1,21 +1,56 @@
 package com.key.account.config;
 
 
+import com.key.account.outbox.OutboxEventRepository;
+import com.key.events.outbox.OutboxRelay;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.transaction.PlatformTransactionManager;
 
 @Configuration
 public class KafkaConfig {
 
+    @Value("${account.kafka.topics.partitions:3}")
+    private int partitions;
+
+    @Value("${account.kafka.topics.replicas:1}")
+    private int replicas;
+
     @Bean
     public NewTopic accountUpdateTopic() {
-        return TopicBuilder.name("account-updated").partitions(3).replicas(1).build();
+        return TopicBuilder.name("account-updated").partitions(partitions).replicas(replicas).build();
     }
 
     @Bean
     public NewTopic accountRollbackTopic() {
-        return TopicBuilder.name("account-rollback").partitions(3).replicas(1).build();
+        return TopicBuilder.name("account-rollback").partitions(partitions).replicas(replicas).build();
+    }
+
+    // Hands a whole poll to the listener; offsets are committed once the listener returns
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> batchKafkaListenerContainerFactory(
+            ConsumerFactory<Object, Object> consumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        return factory;
+    }
+
+    // Drains this service's outbox table to Kafka; the relay itself is shared, see Banking-Events
+    @Bean
+    public OutboxRelay outboxRelay(OutboxEventRepository repository, KafkaTemplate<String, Object> kafkaTemplate,
+                                   PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                                   @Value("${outbox.relay.batch-size:500}") int batchSize,
+                                   @Value("${outbox.relay.send-timeout-ms:10000}") long sendTimeoutMs) {
+        return new OutboxRelay(repository, kafkaTemplate, transactionManager, meterRegistry, batchSize, sendTimeoutMs);
     }
 }
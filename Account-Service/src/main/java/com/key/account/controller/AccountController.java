@@ -3,14 +3,27 @@ package com.key.account.controller;
 import com.key.account.dto.AccountRequest;
 import com.key.account.dto.AccountResponse;
 import com.key.account.dto.BalanceUpdateRequest;
+import com.key.account.dto.DriftReport;
 import com.key.account.entity.Account;
+import com.key.account.reconcile.BalanceDigestService;
+import com.key.account.reconcile.BalanceReconciler;
+import com.key.account.service.AccountOnboardingService;
 import com.key.account.service.AccountService;
+import com.key.events.reconcile.BalanceRow;
+import com.key.events.reconcile.KeyRange;
+import com.key.events.reconcile.RangeDigest;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
 @RestController
@@ -19,6 +32,15 @@ public class AccountController {
     @Autowired
     private AccountService accountService;
 
+    @Autowired
+    private AccountOnboardingService onboardingService;
+
+    @Autowired
+    private BalanceDigestService balanceDigestService;
+
+    @Autowired
+    private BalanceReconciler balanceReconciler;
+
     // Creates new account
     @PostMapping
     public ResponseEntity<AccountResponse> createAccount(@RequestBody AccountRequest accountRequest) {
@@ -31,6 +53,39 @@ public class AccountController {
 
     }
 
+    // Creates one account per NDJSON line {customerId, type, initialBalance}; streams back a per-line report
+    @PostMapping(value = "/bulk", consumes = "application/x-ndjson")
+    public void createAccounts(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        onboardingService.onboard(request.getInputStream(), response.getOutputStream());
+    }
+
+    // Compares every balance with Deposit Service's copy by range digests; repair=true re-sends drifting accounts
+    @PostMapping("/reconcile")
+    public ResponseEntity<DriftReport> reconcile(@RequestParam(defaultValue = "false") boolean repair) {
+        return balanceReconciler.reconcile(repair)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.CONFLICT).build());
+    }
+
+    // Splits a {from, to} accountId range into parts of about equal size
+    @PostMapping("/reconcile/boundaries")
+    public ResponseEntity<List<String>> getReconcileBoundaries(@RequestBody KeyRange range, @RequestParam int parts) {
+        return ResponseEntity.ok(balanceDigestService.boundaries(range, parts));
+    }
+
+    // Count and hash of the live accounts' balances in each [{from, to}, ...] range, computed in parallel
+    @PostMapping("/reconcile/digests")
+    public ResponseEntity<List<RangeDigest>> getReconcileDigests(@RequestBody List<KeyRange> ranges) {
+        return ResponseEntity.ok(balanceDigestService.digests(ranges));
+    }
+
+    // The balances themselves, for ranges whose digests did not match
+    @PostMapping("/reconcile/balances")
+    public ResponseEntity<List<BalanceRow>> getReconcileBalances(@RequestBody List<KeyRange> ranges) {
+        return ResponseEntity.ok(balanceDigestService.balances(ranges));
+    }
+
     // retrieve all the details of the account
     @GetMapping("/{id}")
     public ResponseEntity<Account> getAccount(@PathVariable String id) {
@@ -43,6 +98,12 @@ public class AccountController {
         return ResponseEntity.ok(accountService.getBalance(id));
     }
 
+    // balances of many accounts at once, e.g. ?ids=KEY1&ids=KEY2 or ?ids=KEY1,KEY2; unknown accounts are left out
+    @GetMapping("/balances")
+    public ResponseEntity<Map<String, BigDecimal>> getBalances(@RequestParam("ids") List<String> ids) {
+        return ResponseEntity.ok(accountService.getBalances(ids));
+    }
+
     @PutMapping("/{id}/balance")
     public CompletableFuture<ResponseEntity<String>> updateBalance(@PathVariable String id, @RequestBody BalanceUpdateRequest request) {
         return accountService.updateBalanceAsync(id, request)
@@ -0,0 +1,136 @@
+package com.key.account.dedup;
+
+import com.key.account.metrics.ListenerMetrics;
+import com.key.events.BankingEvent;
+import com.key.events.dedup.RecentEventIds;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Makes event consumption idempotent by {@link BankingEvent#eventId()}.
+ * <p>
+ * The processed_events table is the record of truth: an event's row is inserted in the same
+ * transaction as its effect, and an insert that finds the row already there means the event
+ * was applied before (by this instance or another one before a rebalance), so the effect is
+ * skipped. In front of it sits {@link RecentEventIds}, filled after each commit: an event the
+ * Bloom filter has never seen goes straight to that transaction, one in the exact window is
+ * dropped without touching the database, and only a Bloom match outside the window costs a
+ * primary-key lookup.
+ * <p>
+ * Metrics: {@code event.dedup.duplicates} (tagged with listener and where it was caught:
+ * window, table or insert) and {@code event.dedup.table.checks} (Bloom matches that had to be
+ * looked up).
+ */
+@Component
+public class EventDeduplicator {
+
+    private static final Logger log = LoggerFactory.getLogger(EventDeduplicator.class);
+
+    private final ProcessedEventRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final RecentEventIds recent;
+
+    @Value("${account.dedup.retention:7d}")
+    private Duration retention;
+
+    public EventDeduplicator(ProcessedEventRepository repository, PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry,
+                             @Value("${account.dedup.bloom.capacity:1000000}") int bloomCapacity,
+                             @Value("${account.dedup.bloom.false-positive-rate:0.001}") double falsePositiveRate,
+                             @Value("${account.dedup.window-size:100000}") int windowSize) {
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.recent = new RecentEventIds(bloomCapacity, falsePositiveRate, windowSize);
+    }
+
+    /**
+     * Runs {@code handler} and records the event in one transaction, unless the event has
+     * already been processed.
+     *
+     * @return the handler's outcome, or {@link ListenerMetrics#DUPLICATE} if it did not run
+     */
+    public String processOnce(String listener, BankingEvent event, Supplier<String> handler) {
+        if (isDuplicate(listener, event.eventId())) {
+            return ListenerMetrics.DUPLICATE;
+        }
+        return transactionTemplate.execute(status -> claim(listener, event) ? handler.get() : ListenerMetrics.DUPLICATE);
+    }
+
+    /**
+     * In-memory check with a table lookup only on a Bloom match; needs no transaction.
+     * A {@code false} is not final: {@link #claim} still has to succeed.
+     */
+    public boolean isDuplicate(String listener, UUID eventId) {
+        switch (recent.lookup(eventId)) {
+            case ABSENT -> {
+                return false;
+            }
+            case SEEN -> {
+                duplicate(listener, "window", eventId);
+                return true;
+            }
+            default -> {
+                meterRegistry.counter("event.dedup.table.checks", "listener", listener).increment();
+                if (repository.existsById(eventId)) {
+                    duplicate(listener, "table", eventId);
+                    return true;
+                }
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Records the event in the caller's transaction.
+     *
+     * @return false if it was already recorded, in which case the caller must not apply it
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean claim(String listener, BankingEvent event) {
+        UUID eventId = event.eventId();
+        if (repository.insertIfAbsent(eventId, listener) == 0) {
+            duplicate(listener, "insert", eventId);
+            return false;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recent.add(eventId);
+            }
+        });
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${account.dedup.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        try {
+            Integer purged = transactionTemplate.execute(status ->
+                    repository.deleteProcessedBefore(LocalDateTime.now().minus(retention)));
+            log.debug("Purged {} processed events older than {}", purged, retention);
+        } catch (RuntimeException e) {
+            log.error("Processed-events purge failed", e);
+        }
+    }
+
+    private void duplicate(String listener, String caughtBy, UUID eventId) {
+        meterRegistry.counter("event.dedup.duplicates", "listener", listener, "caughtBy", caughtBy).increment();
+        log.debug("Skipping duplicate event {} on {} ({})", eventId, listener, caughtBy);
+    }
+}
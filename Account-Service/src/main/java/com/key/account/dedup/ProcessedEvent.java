@@ -0,0 +1,25 @@
+package com.key.account.dedup;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * An event this service has applied, recorded in the same transaction as its effect.
+ * Rows older than {@code account.dedup.retention} are purged by {@link EventDeduplicator}.
+ */
+@Entity
+@Table(name = "processed_events", indexes = @Index(name = "idx_processed_events_processed_at", columnList = "processedAt"))
+@Data
+public class ProcessedEvent {
+    @Id
+    private UUID eventId;
+
+    @Column(nullable = false)
+    private String listener;  // which consumer applied it; diagnostics only
+
+    @Column(nullable = false)
+    private LocalDateTime processedAt;
+}
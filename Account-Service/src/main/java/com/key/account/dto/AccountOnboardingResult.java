@@ -0,0 +1,25 @@
+package com.key.account.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one line of a bulk onboarding file. Line numbers are 1-based positions in the
+ * submitted NDJSON; status is CREATED, REJECTED (invalid line) or FAILED (the chunk holding
+ * the line could not be committed; the line can be submitted again).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountOnboardingResult {
+    public static final String CREATED = "CREATED";
+    public static final String REJECTED = "REJECTED";
+    public static final String FAILED = "FAILED";
+
+    private int line;
+    private String customerId;
+    private String accountId;
+    private String status;
+    private String error;
+}
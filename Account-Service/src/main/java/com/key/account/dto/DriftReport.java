@@ -0,0 +1,35 @@
+package com.key.account.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of one balance reconciliation between Account.balance and Deposit Service's copy.
+ * {@code drifts} lists at most {@code account.reconcile.max-report-drifts} of the
+ * {@code driftCount} accounts found; {@code repaired} is how many got a repair event.
+ */
+@Data
+public class DriftReport {
+    public static final String BALANCE_MISMATCH = "BALANCE_MISMATCH";
+    public static final String MISSING_IN_DEPOSIT = "MISSING_IN_DEPOSIT";
+    public static final String MISSING_IN_ACCOUNT = "MISSING_IN_ACCOUNT";
+
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private long accountServiceAccounts;
+    private long depositServiceAccounts;
+    private int rangesCompared;
+    private int leavesFetched;
+    private long rowsFetched;
+    private int driftCount;
+    private int repaired;
+    private List<Drift> drifts = new ArrayList<>();
+
+    /** A null balance means the account is missing (or deleted) on that side. */
+    public record Drift(String accountId, String kind, BigDecimal accountBalance, BigDecimal depositBalance) {
+    }
+}
@@ -20,7 +20,7 @@ import java.time.LocalDateTime;
 public class Account {
     @Id
     @Column(nullable = false)
-    private String accountId;  // Business ID, e.g., "ACC123"
+    private String accountId;  // Business ID, e.g. "KEY000000012344" (AccountNumbers); older accounts "KEY" + 8 hex
 
     @Column(nullable = false)
     private String customerId;  // External customer ref
@@ -44,4 +44,8 @@ public class Account {
 
     private boolean isDeleted = false;
 
+    @Version
+    @Column(columnDefinition = "bigint default 0 not null")
+    private long version;
+
 }
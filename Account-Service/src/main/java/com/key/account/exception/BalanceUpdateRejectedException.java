@@ -0,0 +1,7 @@
+package com.key.account.exception;
+
+public class BalanceUpdateRejectedException extends RuntimeException {
+    public BalanceUpdateRejectedException(String message) {
+        super(message);
+    }
+}
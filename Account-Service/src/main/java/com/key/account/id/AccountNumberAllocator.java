@@ -0,0 +1,55 @@
+package com.key.account.id;
+
+import com.key.events.id.AccountNumbers;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+
+/**
+ * Issues account numbers ({@link AccountNumbers}: {@code KEY}, 11-digit serial, Luhn digit) from
+ * the database sequence account_number_seq in blocks of {@value #BLOCK_SIZE}, each recorded as an
+ * {@link AccountNumberBlock}: sequence value
+ * {@code n} reserves serials {@code n * BLOCK_SIZE} to {@code n * BLOCK_SIZE + BLOCK_SIZE - 1}
+ * for this instance, so instances never collide and only one in {@value #BLOCK_SIZE} account
+ * creations touches the sequence. Serials rise within an instance, so new Account rows land at
+ * the right edge of the primary-key index. A restart abandons the rest of its block; numbers are
+ * unique, not gapless.
+ */
+@Component
+public class AccountNumberAllocator {
+
+    // fixed: changing it would make new blocks overlap serials already issued
+    static final int BLOCK_SIZE = 100;
+
+    private final AccountNumberBlockRepository blockRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private long next;
+    private long limit;
+
+    public AccountNumberAllocator(AccountNumberBlockRepository blockRepository, PlatformTransactionManager transactionManager) {
+        this.blockRepository = blockRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionTemplate.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public synchronized String next() {
+        if (next == limit) {
+            long block = nextBlock();
+            next = block * BLOCK_SIZE;
+            limit = next + BLOCK_SIZE;
+        }
+        return AccountNumbers.format(next++);
+    }
+
+    // own transaction: a rolled-back account creation must not hand its block out again
+    private long nextBlock() {
+        return transactionTemplate.execute(status -> {
+            AccountNumberBlock block = new AccountNumberBlock();
+            block.setIssuedAt(LocalDateTime.now());
+            return blockRepository.save(block).getBlock();
+        });
+    }
+}
@@ -0,0 +1,25 @@
+package com.key.account.id;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * A block of account numbers issued to an instance by {@link AccountNumberAllocator}. The id
+ * comes from account_number_seq, which this mapping declares so the schema setup creates it
+ * with the other tables.
+ */
+@Entity
+@Table(name = "account_number_blocks")
+@Data
+public class AccountNumberBlock {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "account_number_seq")
+    // one value per block: a pooled allocation would hand out block numbers no other instance can see
+    @SequenceGenerator(name = "account_number_seq", sequenceName = "account_number_seq", initialValue = 1, allocationSize = 1)
+    private Long block;
+
+    @Column(nullable = false)
+    private LocalDateTime issuedAt;
+}
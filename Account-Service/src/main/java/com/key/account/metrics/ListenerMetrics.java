@@ -0,0 +1,47 @@
+package com.key.account.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Kafka listener telemetry: {@code kafka.listener.lag} (record timestamp to receipt) and
+ * {@code kafka.listener.process} (handling time, tagged with outcome), both tagged with the listener.
+ */
+@Component
+public class ListenerMetrics {
+
+    public static final String APPLIED = "applied";
+    public static final String IGNORED = "ignored";
+    public static final String ERROR = "error";
+    public static final String DUPLICATE = "duplicate";
+
+    private final MeterRegistry meterRegistry;
+
+    public ListenerMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public Timer.Sample received(String listener, ConsumerRecord<?, ?> record) {
+        recordLag(listener, record.timestamp());
+        return Timer.start(meterRegistry);
+    }
+
+    public Timer.Sample received(String listener, List<? extends ConsumerRecord<?, ?>> records) {
+        records.forEach(record -> recordLag(listener, record.timestamp()));
+        return Timer.start(meterRegistry);
+    }
+
+    public void processed(Timer.Sample sample, String listener, String outcome) {
+        sample.stop(meterRegistry.timer("kafka.listener.process", "listener", listener, "outcome", outcome));
+    }
+
+    private void recordLag(String listener, long timestamp) {
+        meterRegistry.timer("kafka.listener.lag", "listener", listener)
+                .record(Math.max(0, System.currentTimeMillis() - timestamp), TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,8 @@
+package com.key.account.outbox;
+
+import com.key.events.outbox.OutboxRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OutboxEventRepository extends OutboxRepository<OutboxEvent> {
+}
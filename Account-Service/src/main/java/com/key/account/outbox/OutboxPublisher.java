@@ -0,0 +1,55 @@
+package com.key.account.outbox;
+
+import com.key.events.BankingEvent;
+import com.key.events.codec.EventCodec;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Writes events to the outbox table instead of sending them to Kafka directly. Joins the
+ * caller's transaction, so the event is relayed only if the state change commits.
+ */
+@Component
+public class OutboxPublisher {
+
+    private final OutboxEventRepository repository;
+
+    public OutboxPublisher(OutboxEventRepository repository) {
+        this.repository = repository;
+    }
+
+    @Transactional
+    public void publish(String topic, BankingEvent event) {
+        repository.save(toOutboxEvent(topic, event));
+    }
+
+    /** Writes the events as JDBC batches; ids come from the sequence {@code allocationSize} at a time. */
+    @Transactional
+    public void publishAll(String topic, Collection<? extends BankingEvent> events) {
+        List<OutboxEvent> outboxEvents = new ArrayList<>(events.size());
+        for (BankingEvent event : events) {
+            outboxEvents.add(toOutboxEvent(topic, event));
+        }
+        repository.saveAll(outboxEvents);
+    }
+
+    /** For events that must go out even though the caller's transaction is about to roll back. */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void publishInNewTransaction(String topic, BankingEvent event) {
+        publish(topic, event);
+    }
+
+    private OutboxEvent toOutboxEvent(String topic, BankingEvent event) {
+        OutboxEvent outboxEvent = new OutboxEvent();
+        outboxEvent.setTopic(topic);
+        outboxEvent.setMessageKey(event.accountId());
+        outboxEvent.setAggregateVersion(event.version());
+        outboxEvent.setPayload(EventCodec.encode(event));
+        return outboxEvent;
+    }
+}
@@ -0,0 +1,295 @@
+package com.key.account.reconcile;
+
+import com.key.account.client.DepositClient;
+import com.key.account.concurrency.BalanceSnapshot;
+import com.key.account.dto.DriftReport;
+import com.key.account.outbox.OutboxPublisher;
+import com.key.account.repository.AccountRepository;
+import com.key.events.AccountEvent;
+import com.key.events.reconcile.KeyRange;
+import com.key.events.reconcile.RangeDigest;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Finds accounts whose balance differs between Account.balance and Deposit Service's
+ * DepositAccount.balance without copying either table.
+ * <p>
+ * The key space is split into {@code account.reconcile.fanout} ranges of about equal size and
+ * both services digest each range in parallel ({@link BalanceDigestService}; count plus an
+ * order-independent hash). Ranges whose digests match are done. Mismatching ones are split
+ * again, on the boundaries of whichever side holds more accounts there, until they are down to
+ * {@code account.reconcile.leaf-size} accounts; only those leaves' rows are fetched and diffed.
+ * A nightly run over an agreeing table moves one digest per range, and a drift costs
+ * {@code fanout} digests per level plus one leaf of rows.
+ * <p>
+ * Events still in flight look like drift, so drifting accounts are diffed a second time after
+ * {@code account.reconcile.confirm-delay} and only those drifting both times are reported.
+ * With repair on, Account Service is taken as the source of truth: a mismatched account gets an
+ * UPDATED event and a missing one a CREATED event on account-updated, which Deposit Service
+ * applies as usual. Accounts only Deposit Service has are reported, not repaired.
+ * <p>
+ * Metrics: {@code account.reconcile} (time per run) and {@code account.reconcile.drifts}
+ * (accounts found, tagged with the kind of drift).
+ */
+@Component
+public class BalanceReconciler {
+
+    private static final Logger log = LoggerFactory.getLogger(BalanceReconciler.class);
+
+    private final BalanceDigestService digestService;
+    private final DepositClient depositClient;
+    private final AccountRepository accountRepository;
+    private final OutboxPublisher outboxPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${account.reconcile.enabled:false}")
+    private boolean enabled;
+
+    @Value("${account.reconcile.repair:false}")
+    private boolean repairOnSchedule;
+
+    @Value("${account.reconcile.fanout:64}")
+    private int fanout;
+
+    @Value("${account.reconcile.leaf-size:1000}")
+    private int leafSize;
+
+    // ranges per digests request; at most the services' max-ranges
+    @Value("${account.reconcile.ranges-per-request:256}")
+    private int rangesPerRequest;
+
+    // leaves per balances request; leaves-per-request x leaf-size must stay under the services' max-rows
+    @Value("${account.reconcile.leaves-per-request:64}")
+    private int leavesPerRequest;
+
+    @Value("${account.reconcile.max-depth:16}")
+    private int maxDepth;
+
+    @Value("${account.reconcile.confirm-delay:5s}")
+    private Duration confirmDelay;
+
+    @Value("${account.reconcile.max-report-drifts:1000}")
+    private int maxReportDrifts;
+
+    public BalanceReconciler(BalanceDigestService digestService, DepositClient depositClient,
+                             AccountRepository accountRepository, OutboxPublisher outboxPublisher,
+                             PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.digestService = digestService;
+        this.depositClient = depositClient;
+        this.accountRepository = accountRepository;
+        this.outboxPublisher = outboxPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Scheduled(cron = "${account.reconcile.cron:0 30 2 * * *}")
+    public void reconcileNightly() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (reconcile(repairOnSchedule).isEmpty()) {
+                log.warn("Nightly balance reconciliation skipped: the previous one is still running");
+            }
+        } catch (RuntimeException e) {
+            log.error("Balance reconciliation failed", e);
+        }
+    }
+
+    /** Runs a full reconciliation; empty if one is already running on this instance. */
+    public Optional<DriftReport> reconcile(boolean repair) {
+        if (!running.compareAndSet(false, true)) {
+            return Optional.empty();
+        }
+        long startNanos = System.nanoTime();
+        try {
+            DriftReport report = run(repair);
+            log.info("Balance reconciliation: {} / {} accounts, {} ranges compared, {} leaves ({} rows) fetched, " +
+                            "{} drifting, {} repaired", report.getAccountServiceAccounts(), report.getDepositServiceAccounts(),
+                    report.getRangesCompared(), report.getLeavesFetched(), report.getRowsFetched(), report.getDriftCount(),
+                    report.getRepaired());
+            return Optional.of(report);
+        } finally {
+            meterRegistry.timer("account.reconcile").record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            running.set(false);
+        }
+    }
+
+    private DriftReport run(boolean repair) {
+        DriftReport report = new DriftReport();
+        report.setStartedAt(LocalDateTime.now());
+
+        List<KeyRange> level = split(KeyRange.ALL, digestService.boundaries(KeyRange.ALL, fanout));
+        List<KeyRange> leaves = new ArrayList<>();
+        for (int depth = 0; !level.isEmpty(); depth++) {
+            List<RangeDigest> local = inChunks(level, rangesPerRequest, digestService::digests);
+            List<RangeDigest> remote = inChunks(level, rangesPerRequest, depositClient::reconcileDigests);
+            if (local.size() != level.size() || remote.size() != level.size()) {
+                throw new IllegalStateException("Expected " + level.size() + " range digests, got " + local.size()
+                        + " and " + remote.size());
+            }
+            report.setRangesCompared(report.getRangesCompared() + level.size());
+            if (depth == 0) {
+                report.setAccountServiceAccounts(local.stream().mapToLong(RangeDigest::count).sum());
+                report.setDepositServiceAccounts(remote.stream().mapToLong(RangeDigest::count).sum());
+            }
+
+            List<KeyRange> next = new ArrayList<>();
+            for (int i = 0; i < level.size(); i++) {
+                RangeDigest ours = local.get(i);
+                RangeDigest theirs = remote.get(i);
+                if (ours.matches(theirs)) {
+                    continue;
+                }
+                KeyRange range = level.get(i);
+                if (Math.max(ours.count(), theirs.count()) <= leafSize || depth == maxDepth) {
+                    leaves.add(range);
+                } else {
+                    // boundaries from the side with more rows, so that side's rows are what gets divided
+                    next.addAll(split(range, ours.count() >= theirs.count()
+                            ? digestService.boundaries(range, fanout)
+                            : depositClient.reconcileBoundaries(range, fanout)));
+                }
+            }
+            level = next;
+        }
+
+        Map<String, DriftReport.Drift> drifts = leaves.isEmpty() ? Map.of() : diff(leaves, report);
+        if (!drifts.isEmpty() && !confirmDelay.isZero()) {
+            drifts = confirm(leaves, drifts, report);
+        }
+        drifts.values().forEach(drift -> meterRegistry.counter("account.reconcile.drifts", "kind", drift.kind()).increment());
+
+        report.setDriftCount(drifts.size());
+        drifts.values().stream().limit(maxReportDrifts).forEach(report.getDrifts()::add);
+        if (repair && !drifts.isEmpty()) {
+            report.setRepaired(repair(drifts.values()));
+        }
+        report.setFinishedAt(LocalDateTime.now());
+        if (!drifts.isEmpty()) {
+            log.warn("{} accounts drift between Account and Deposit Service, e.g. {}", drifts.size(),
+                    report.getDrifts().subList(0, Math.min(10, report.getDrifts().size())));
+        }
+        return report;
+    }
+
+    // [from, b1), [b1, b2), ..., [bn, to)
+    private static List<KeyRange> split(KeyRange range, List<String> boundaries) {
+        List<KeyRange> parts = new ArrayList<>(boundaries.size() + 1);
+        String lower = range.from();
+        for (String boundary : boundaries) {
+            parts.add(new KeyRange(lower, boundary));
+            lower = boundary;
+        }
+        parts.add(new KeyRange(lower, range.to()));
+        return parts;
+    }
+
+    private static <T> List<T> inChunks(List<KeyRange> ranges, int chunkSize, Function<List<KeyRange>, List<T>> call) {
+        List<T> results = new ArrayList<>(ranges.size());
+        for (int from = 0; from < ranges.size(); from += chunkSize) {
+            List<KeyRange> chunk = ranges.subList(from, Math.min(from + chunkSize, ranges.size()));
+            results.addAll(call.apply(new ArrayList<>(chunk)));
+        }
+        return results;
+    }
+
+    // Accounts whose balances differ in the leaves, in accountId order
+    private Map<String, DriftReport.Drift> diff(List<KeyRange> leaves, DriftReport report) {
+        Map<String, BigDecimal> ours = new HashMap<>();
+        Map<String, BigDecimal> theirs = new HashMap<>();
+        inChunks(leaves, leavesPerRequest, digestService::balances).forEach(row -> ours.put(row.accountId(), row.balance()));
+        inChunks(leaves, leavesPerRequest, depositClient::reconcileBalances).forEach(row -> theirs.put(row.accountId(), row.balance()));
+        report.setLeavesFetched(report.getLeavesFetched() + leaves.size());
+        report.setRowsFetched(report.getRowsFetched() + ours.size() + theirs.size());
+
+        Map<String, DriftReport.Drift> drifts = new TreeMap<>();
+        TreeSet<String> accountIds = new TreeSet<>(ours.keySet());
+        accountIds.addAll(theirs.keySet());
+        for (String accountId : accountIds) {
+            BigDecimal accountBalance = ours.get(accountId);
+            BigDecimal depositBalance = theirs.get(accountId);
+            String kind;
+            if (depositBalance == null) {
+                kind = DriftReport.MISSING_IN_DEPOSIT;
+            } else if (accountBalance == null) {
+                kind = DriftReport.MISSING_IN_ACCOUNT;
+            } else if (accountBalance.compareTo(depositBalance) != 0) {
+                kind = DriftReport.BALANCE_MISMATCH;
+            } else {
+                continue;
+            }
+            drifts.put(accountId, new DriftReport.Drift(accountId, kind, accountBalance, depositBalance));
+        }
+        return drifts;
+    }
+
+    // Second look at the same leaves; an account counts only if it drifts the same way both times
+    private Map<String, DriftReport.Drift> confirm(List<KeyRange> leaves, Map<String, DriftReport.Drift> first,
+                                                   DriftReport report) {
+        try {
+            Thread.sleep(confirmDelay.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return first;
+        }
+        Map<String, DriftReport.Drift> confirmed = new LinkedHashMap<>();
+        diff(leaves, report).forEach((accountId, drift) -> {
+            DriftReport.Drift earlier = first.get(accountId);
+            if (earlier != null && Objects.equals(earlier.kind(), drift.kind())) {
+                confirmed.put(accountId, drift);
+            }
+        });
+        return confirmed;
+    }
+
+    // Account Service's view goes out again; Deposit Service overwrites or creates its row from it
+    private int repair(Iterable<DriftReport.Drift> drifts) {
+        List<AccountEvent> events = new ArrayList<>();
+        for (DriftReport.Drift drift : drifts) {
+            AccountEvent.Type type = switch (drift.kind()) {
+                case DriftReport.BALANCE_MISMATCH -> AccountEvent.Type.UPDATED;
+                case DriftReport.MISSING_IN_DEPOSIT -> AccountEvent.Type.CREATED;
+                default -> null;
+            };
+            if (type == null) {
+                continue;
+            }
+            // current figures rather than the report's, in case the account moved since
+            BalanceSnapshot snapshot = accountRepository.findBalanceSnapshot(drift.accountId()).orElse(null);
+            if (snapshot != null) {
+                events.add(AccountEvent.of(type, drift.accountId(), null, snapshot.balance(), snapshot.status().name(),
+                        snapshot.version()));
+            }
+        }
+        if (!events.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> outboxPublisher.publishAll("account-updated", events));
+        }
+        return events.size();
+    }
+}
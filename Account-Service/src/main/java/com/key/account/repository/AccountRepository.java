@@ -1,9 +1,19 @@
 package com.key.account.repository;
 
+import com.key.account.concurrency.BalanceSnapshot;
 import com.key.account.entity.Account;
+import com.key.events.reconcile.BalanceRow;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -13,4 +23,49 @@ public interface AccountRepository extends JpaRepository<Account, UUID> {
 
     Optional<Account> findByAccountIdAndIsDeletedFalse(String accountId);
 
+    // Applies a delta in the database without loading the row; returns 0 if the account is missing or deleted
+    @Modifying
+    @Query("UPDATE Account a SET a.balance = a.balance + :delta, a.version = a.version + 1 WHERE a.accountId = :accountId AND a.isDeleted = false")
+    int addToBalance(@Param("accountId") String accountId, @Param("delta") BigDecimal delta);
+
+    // Same, but only for an ACTIVE account whose balance stays non-negative
+    @Modifying
+    @Query("UPDATE Account a SET a.balance = a.balance + :delta, a.version = a.version + 1 WHERE a.accountId = :accountId " +
+            "AND a.isDeleted = false AND a.status = com.key.account.enums.AccountStatus.ACTIVE AND a.balance + :delta >= 0")
+    int addToBalanceIfAllowed(@Param("accountId") String accountId, @Param("delta") BigDecimal delta);
+
+    // Optimistic write: succeeds only if nobody has changed the row since it was read at `version`
+    @Modifying
+    @Query("UPDATE Account a SET a.balance = :balance, a.version = a.version + 1 WHERE a.accountId = :accountId AND a.version = :version")
+    int compareAndSetBalance(@Param("accountId") String accountId, @Param("balance") BigDecimal balance, @Param("version") long version);
+
+    // Balance lookups batched by Deposit Service (GET /accounts/balances): one IN query on the primary key
+    @Query("SELECT new com.key.events.reconcile.BalanceRow(a.accountId, a.balance) FROM Account a " +
+            "WHERE a.accountId IN :accountIds AND a.isDeleted = false")
+    List<BalanceRow> findBalances(@Param("accountIds") Collection<String> accountIds);
+
+    @Query("SELECT new com.key.account.concurrency.BalanceSnapshot(a.balance, a.version, a.status, a.type) FROM Account a " +
+            "WHERE a.accountId = :accountId AND a.isDeleted = false")
+    Optional<BalanceSnapshot> findBalanceSnapshot(@Param("accountId") String accountId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.accountId = :accountId AND a.isDeleted = false")
+    Optional<Account> lockByAccountId(@Param("accountId") String accountId);
+
+    // Reconciliation (BalanceDigestService): live accounts in [from, to), a null bound being open
+    @Query("SELECT COUNT(a) FROM Account a WHERE a.isDeleted = false " +
+            "AND (:from IS NULL OR a.accountId >= :from) AND (:to IS NULL OR a.accountId < :to)")
+    long countInRange(@Param("from") String from, @Param("to") String to);
+
+    // the page's offset is the seek: page n of size 1 is the n-th live accountId from `from`, read off the primary key
+    @Query("SELECT a.accountId FROM Account a WHERE a.isDeleted = false " +
+            "AND (:from IS NULL OR a.accountId >= :from) AND (:to IS NULL OR a.accountId < :to) ORDER BY a.accountId")
+    List<String> findAccountIdsInRange(@Param("from") String from, @Param("to") String to, Pageable pageable);
+
+    // Keyset pages of balances in [from, to) after `after` (null on the first page)
+    @Query("SELECT new com.key.events.reconcile.BalanceRow(a.accountId, a.balance) FROM Account a " +
+            "WHERE a.isDeleted = false AND (:from IS NULL OR a.accountId >= :from) AND (:after IS NULL OR a.accountId > :after) " +
+            "AND (:to IS NULL OR a.accountId < :to) ORDER BY a.accountId")
+    List<BalanceRow> findBalancesInRange(@Param("from") String from, @Param("after") String after, @Param("to") String to,
+                                         Pageable pageable);
 }
@@ -1,63 +1,70 @@
 package com.key.account.saga;
 
 import com.key.account.dto.BalanceUpdateRequest;
-import com.key.account.repository.AccountRepository;
+import com.key.account.cache.BalanceCache;
+import com.key.account.concurrency.BalanceSnapshot;
+import com.key.account.concurrency.BalanceUpdater;
+import com.key.account.dedup.EventDeduplicator;
+import com.key.account.metrics.ListenerMetrics;
 import com.key.account.service.AccountService;
+import com.key.events.DepositEvent;
+import io.micrometer.core.instrument.Timer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
-import java.util.Map;
+import java.util.Optional;
 
 @Component
+@ConditionalOnProperty(name = "account.listener.mode", havingValue = "RECORD", matchIfMissing = true)
 public class AccountEventListener {
 
     private static final Logger log = LoggerFactory.getLogger(AccountEventListener.class);
-    private final AccountRepository accountRepository;
+    private final BalanceUpdater balanceUpdater;
+    private final BalanceCache balanceCache;
+    private final ListenerMetrics listenerMetrics;
+    private final EventDeduplicator deduplicator;
 
-    public AccountEventListener(AccountRepository accountRepository) {
-        this.accountRepository = accountRepository;
+    public AccountEventListener(BalanceUpdater balanceUpdater, BalanceCache balanceCache, ListenerMetrics listenerMetrics,
+                                EventDeduplicator deduplicator) {
+        this.balanceUpdater = balanceUpdater;
+        this.balanceCache = balanceCache;
+        this.listenerMetrics = listenerMetrics;
+        this.deduplicator = deduplicator;
     }
 
-    @KafkaListener(topics = {"deposit-credited", "deposit-debited"}, groupId = "account-group")
-    public void handleDepositOrTransferEvent(ConsumerRecord<String, Object> record) {
-        @SuppressWarnings("unchecked")
-        Map<String, Object> payload = (Map<String, Object>) record.value();
-
-        String accountId = (String) payload.get("accountId");
-        String amountStr = (String) payload.get("amount");          // ← String
-        String type      = (String) payload.get("type");            // CREDITED / DEBITED
-
-        if (accountId == null || amountStr == null || type == null) {
-            log.warn("Invalid payload – missing fields: {}", payload);
-            return;
-        }
-
-        BigDecimal amount = new BigDecimal(amountStr);              // ← safe conversion
-
-        // DEBITED event sends negative amount → make it positive for subtraction
-        if ("DEBITED".equalsIgnoreCase(type)) {
-            amount = amount.abs();   // e.g. "-200.00" → "200.00"
+    @KafkaListener(topics = {"deposit-credited", "deposit-debited"}, groupId = "account-group",
+            concurrency = "${account.listener.concurrency:1}")
+    public void handleDepositOrTransferEvent(ConsumerRecord<String, DepositEvent> record) {
+        Timer.Sample sample = listenerMetrics.received(record.topic(), record);
+        String outcome = ListenerMetrics.ERROR;
+        try {
+            outcome = deduplicator.processOnce(record.topic(), record.value(), () -> handle(record));
+        } finally {
+            listenerMetrics.processed(sample, record.topic(), outcome);
         }
+    }
 
-        updateBalance(accountId, amount, type);
+    private String handle(ConsumerRecord<String, DepositEvent> record) {
+        DepositEvent event = record.value();
+        // credits add, debits subtract whatever sign the amount was published with
+        return updateBalance(event.accountId(), event.balanceDelta(), event.type().name());
     }
 
-    private void updateBalance(String accountId, BigDecimal delta, String operation) {
-        accountRepository.findByAccountIdAndIsDeletedFalse(accountId)
-                .ifPresentOrElse(
-                        account -> {
-                            BigDecimal oldBal = account.getBalance();
-                            BigDecimal newBal = oldBal.add("CREDITED".equalsIgnoreCase(operation) ? delta : delta.negate());
-                            account.setBalance(newBal);
-                            accountRepository.save(account);
-                            log.info("[{}] Account {} balance {} → {}", operation, accountId, oldBal, newBal);
-                        },
-                        () -> log.warn("Account {} not found – ignoring {} event", accountId, operation)
-                );
+    private String updateBalance(String accountId, BigDecimal signedDelta, String operation) {
+        Optional<BalanceSnapshot> updated = balanceUpdater.addToBalance(accountId, signedDelta, false);
+        if (updated.isEmpty()) {
+            log.warn("Account {} not found – ignoring {} event", accountId, operation);
+            return ListenerMetrics.IGNORED;
+        }
+        BigDecimal newBal = updated.get().balance();
+        balanceCache.put(accountId, newBal);
+        log.debug("[{}] Account {} balance {} → {}", operation, accountId, newBal.subtract(signedDelta), newBal);
+        return ListenerMetrics.APPLIED;
     }
-}
\ No newline at end of file
+}
@@ -1,106 +1,305 @@
 package com.key.account.saga;
 
-import com.key.account.entity.Account;
+import com.key.account.cache.BalanceCache;
+import com.key.account.concurrency.BalanceSnapshot;
+import com.key.account.concurrency.BalanceUpdater;
 import com.key.account.enums.AccountStatus;
-import com.key.account.exception.AccountDeactivatedException;
 import com.key.account.exception.AccountNotFoundException;
+import com.key.account.exception.BalanceUpdateRejectedException;
+import com.key.account.metrics.ListenerMetrics;
+import com.key.account.outbox.OutboxPublisher;
 import com.key.account.repository.AccountRepository;
-import jakarta.transaction.Transactional;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.kafka.core.KafkaTemplate;
+import com.key.events.AccountEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Runs each balance update as a saga logged in {@code account_sagas} ({@link BalanceUpdateSaga}):
+ * <ol>
+ * <li>start: the saga is recorded STARTED, due after {@code account.saga.start-timeout};</li>
+ * <li>apply: in one transaction the delta is applied, the saga moves to APPLIED and UPDATED goes to
+ * the outbox with the sagaId as its updateId. A rejection (unknown or inactive account, negative
+ * balance) rolls all of that back and the saga is FAILED; nothing was applied, so nothing is compensated;</li>
+ * <li>confirm: Deposit Service answers with ACCOUNT_SYNCED on deposit-account-synced
+ * ({@link AccountSyncedListener}) and the saga is COMPLETED.</li>
+ * </ol>
+ * The caller's future completes once the saga is APPLIED and no thread waits for the confirmation.
+ * An applied update is never reversed: the caller has been told it succeeded and the balance may
+ * have been spent since. Timeouts are found by {@link #scanTimeouts()} from the table instead: a
+ * STARTED saga past its deadline (its instance stopped mid-way) is applied by whichever instance
+ * scans first, an APPLIED one has UPDATED re-sent with the account's current balance for as long as
+ * it stays unconfirmed, backing off from {@code account.saga.confirm-timeout} up to
+ * {@code account.saga.max-resend-interval}. A saga whose account has been deleted is ABANDONED.
+ * The table is the only state, so sagas carry on where they were after a restart.
+ * <p>
+ * Metrics: {@code account.saga.balance-update} (start to APPLIED or FAILED, tagged outcome and
+ * accountType), {@code account.saga.confirm} (start to COMPLETED), {@code account.saga.resends},
+ * {@code account.saga.abandoned} and the {@code account.saga.overdue} gauge (sagas still
+ * unconfirmed after {@code account.saga.overdue-attempts} re-sends), which is what to alert on.
+ */
 @Component
 public class AccountSagaOrchestrator {
 
-    @Autowired
-    private AccountRepository repository;
+    private static final Logger log = LoggerFactory.getLogger(AccountSagaOrchestrator.class);
 
-    @Autowired
-    private KafkaTemplate<String, Object> kafkaTemplate;
+    private static final List<SagaState> WAITING = List.of(SagaState.STARTED, SagaState.APPLIED);
+    private static final List<SagaState> FINISHED = List.of(SagaState.COMPLETED, SagaState.FAILED, SagaState.COMPENSATED,
+            SagaState.ABANDONED);
+    private static final String ACCOUNT_GONE = "AccountGone";
 
-    @Async
-    @Transactional
-    public CompletableFuture<BigDecimal> orchestrateBalanceUpdateAsync(String updateId, String accountId, BigDecimal amount) {
+    private final BalanceUpdateSagaRepository sagaRepository;
+    private final AccountRepository repository;
+    private final EntityManager entityManager;
+    private final OutboxPublisher outboxPublisher;
+    private final BalanceCache balanceCache;
+    private final BalanceUpdater balanceUpdater;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final AtomicLong overdue = new AtomicLong();
 
-        try {
-            // get the account from DB
-            Optional<Account> optionalAccount = repository.findByAccountIdAndIsDeletedFalse(accountId);
+    @Value("${account.saga.start-timeout:30s}")
+    private Duration startTimeout;
 
+    @Value("${account.saga.confirm-timeout:30s}")
+    private Duration confirmTimeout;
 
-            // Checking is account is present or not. if not throwing the exception
-            if (optionalAccount.isEmpty()) {
-                throw new AccountNotFoundException("Account not found: " + accountId);
-            }
+    @Value("${account.saga.max-resend-interval:15m}")
+    private Duration maxResendInterval;
 
-            // checking account status is active or not
-            Account account = optionalAccount.get();
-            if (account.getStatus() != AccountStatus.ACTIVE) {
-                throw new AccountDeactivatedException("Account is not active:  " + accountId);
-            }
+    // re-sends after which an unconfirmed saga counts in account.saga.overdue
+    @Value("${account.saga.overdue-attempts:5}")
+    private int overdueAttempts;
+
+    @Value("${account.saga.scan-batch-size:500}")
+    private int scanBatchSize;
+
+    @Value("${account.saga.retention:7d}")
+    private Duration retention;
 
+    public AccountSagaOrchestrator(BalanceUpdateSagaRepository sagaRepository, AccountRepository repository,
+                                   EntityManager entityManager, OutboxPublisher outboxPublisher, BalanceCache balanceCache,
+                                   BalanceUpdater balanceUpdater, MeterRegistry meterRegistry,
+                                   PlatformTransactionManager transactionManager) {
+        this.sagaRepository = sagaRepository;
+        this.repository = repository;
+        this.entityManager = entityManager;
+        this.outboxPublisher = outboxPublisher;
+        this.balanceCache = balanceCache;
+        this.balanceUpdater = balanceUpdater;
+        this.meterRegistry = meterRegistry;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        Gauge.builder("account.saga.overdue", overdue, AtomicLong::get).register(meterRegistry);
+    }
+
+    /**
+     * Starts a saga with {@code updateId} as its id and applies it.
+     *
+     * @return the new balance once the delta is applied; fails with {@link BalanceUpdateRejectedException}
+     * if the update was rejected
+     */
+    @Async("sagaExecutor")
+    public CompletableFuture<BigDecimal> orchestrateBalanceUpdateAsync(String updateId, String accountId, BigDecimal amount) {
 //        INR precision: Manual scale=2 for paise
-            BigDecimal preciseAmount = amount.setScale(2, RoundingMode.HALF_UP);
-            BigDecimal newBalance = account.getBalance().add(preciseAmount);
-            if (newBalance.compareTo(BigDecimal.ZERO) < 0) {
-                throw new RuntimeException("New balance cannot be negative");
-            }
+        BigDecimal preciseAmount = amount.setScale(2, RoundingMode.HALF_UP);
+        transactionTemplate.executeWithoutResult(status -> start(updateId, accountId, preciseAmount));
 
-            // update in the database
-            account.setBalance(newBalance);
-            repository.save(account);
+        BalanceUpdateSaga saga = apply(updateId);
+        if (saga.getState() == SagaState.FAILED) {
+            return CompletableFuture.failedFuture(new BalanceUpdateRejectedException("Balance update failed: " + saga.getError()));
+        }
+        return CompletableFuture.completedFuture(saga.getNewBalance());
+    }
 
-            // publish the event
-            publishAccountEvent(updateId, accountId, "UPDATED", newBalance);
+    /**
+     * Step handler for Deposit Service's ACCOUNT_SYNCED; joins the listener's transaction.
+     *
+     * @return the {@link ListenerMetrics} outcome
+     */
+    public String confirm(String sagaId) {
+        Optional<BalanceUpdateSaga> found = sagaRepository.findForUpdate(sagaId);
+        // not one of ours (a reconciliation repair, say), already confirmed, or abandoned before the confirmation arrived
+        if (found.isEmpty() || found.get().getState() != SagaState.APPLIED) {
+            log.debug("Ignoring confirmation of saga {} in state {}", sagaId, found.map(BalanceUpdateSaga::getState).orElse(null));
+            return ListenerMetrics.IGNORED;
+        }
+        BalanceUpdateSaga saga = found.get();
+        saga.setState(SagaState.COMPLETED);
+        meterRegistry.timer("account.saga.confirm").record(Duration.between(saga.getCreatedAt(), LocalDateTime.now()));
+        return ListenerMetrics.APPLIED;
+    }
 
-            return CompletableFuture.completedFuture(newBalance);
+    /** Takes over STARTED and APPLIED sagas whose deadline has passed, oldest first, one page per run. */
+    @Scheduled(fixedDelayString = "${account.saga.scan-interval-ms:1000}")
+    public void scanTimeouts() {
+        try {
+            List<String> due = sagaRepository.findDue(WAITING, LocalDateTime.now(), PageRequest.of(0, scanBatchSize));
+            for (String sagaId : due) {
+                timeout(sagaId);
+            }
+        } catch (RuntimeException e) {
+            log.error("Saga timeout scan failed", e);
+        }
+    }
 
+    @Scheduled(fixedDelayString = "${account.saga.overdue-interval-ms:60000}")
+    public void countOverdue() {
+        try {
+            overdue.set(sagaRepository.countByStateWithAttempts(SagaState.APPLIED, overdueAttempts));
         } catch (RuntimeException e) {
-            compensateBalanceUpdateAsync(updateId, accountId, amount, e.getMessage());
-            throw new RuntimeException("Balance update failed: " + e.getMessage());
+            log.error("Overdue saga count failed", e);
         }
+    }
 
+    @Scheduled(fixedDelayString = "${account.saga.purge-interval-ms:3600000}")
+    public void purgeFinished() {
+        try {
+            Integer purged = transactionTemplate.execute(status ->
+                    sagaRepository.deleteFinishedBefore(FINISHED, LocalDateTime.now().minus(retention)));
+            log.debug("Purged {} finished sagas older than {}", purged, retention);
+        } catch (RuntimeException e) {
+            log.error("Saga purge failed", e);
+        }
     }
 
-    private void publishAccountEvent(String updateId, String accountId, String eventType, BigDecimal newBalance) {
-        Map<String, Object> event = new HashMap<>();
-        event.put("updateId", updateId);
-        event.put("accountId", accountId);
-        event.put("balance", newBalance);
-        event.put("currency", "INR");
-        event.put("type", eventType);
-        event.put("timestamp", LocalDateTime.now().toString());
-        kafkaTemplate.send("account-updated", event);
+    private void start(String sagaId, String accountId, BigDecimal amount) {
+        BalanceUpdateSaga saga = new BalanceUpdateSaga();
+        saga.setSagaId(sagaId);
+        saga.setAccountId(accountId);
+        saga.setAmount(amount);
+        saga.setState(SagaState.STARTED);
+        saga.setDeadline(LocalDateTime.now().plus(startTimeout));
+        entityManager.persist(saga);  // assigned id: save() would merge, and a reused updateId must fail here
+    }
+
+    /** Applies a STARTED saga; returns the saga as it is afterwards, whoever got to it first. */
+    private BalanceUpdateSaga apply(String sagaId) {
+        try {
+            return transactionTemplate.execute(status -> {
+                BalanceUpdateSaga saga = lock(sagaId);
+                if (saga.getState() != SagaState.STARTED) {
+                    return saga;
+                }
+                // status and non-negative checks happen inside the update, under the configured concurrency control
+                BalanceSnapshot updated = balanceUpdater.addToBalance(saga.getAccountId(), saga.getAmount(), true)
+                        .orElseThrow(() -> new AccountNotFoundException("Account not found: " + saga.getAccountId()));
+                saga.setState(SagaState.APPLIED);
+                saga.setNewBalance(updated.balance());
+                saga.setDeadline(LocalDateTime.now().plus(confirmTimeout));
+                balanceCache.put(saga.getAccountId(), updated.balance());
 
+                // the guarded update only succeeds on ACTIVE accounts
+                publishUpdated(sagaId, saga.getAccountId(), AccountStatus.ACTIVE, updated.balance(), updated.version());
+                recordApplied(saga, "applied", String.valueOf(updated.type()));
+                return saga;
+            });
+        } catch (RuntimeException e) {
+            // the delta rolled back with the step, so the saga only has to be marked failed
+            return transactionTemplate.execute(status -> fail(sagaId, e));
+        }
+    }
 
+    private BalanceUpdateSaga fail(String sagaId, RuntimeException e) {
+        BalanceUpdateSaga saga = lock(sagaId);
+        if (saga.getState() != SagaState.STARTED) {
+            return saga;
+        }
+        String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        saga.setState(SagaState.FAILED);
+        saga.setError(error.length() > 255 ? error.substring(0, 255) : error);
+        recordApplied(saga, "failed", accountType(saga.getAccountId()));
+        log.debug("Saga {} failed for account {}: {}", sagaId, saga.getAccountId(), error);
+        return saga;
     }
 
-    private void compensateBalanceUpdateAsync(String updateId, String accountId, BigDecimal amount, String reason) {
-        Optional<Account> optAccount = repository.findByAccountIdAndIsDeletedFalse(accountId);
-        if (optAccount.isEmpty()) {
-            throw new AccountNotFoundException("Account not found: " + accountId);
+    private void timeout(String sagaId) {
+        try {
+            BalanceUpdateSaga saga = sagaRepository.findById(sagaId).orElse(null);
+            if (saga == null) {
+                return;
+            }
+            if (saga.getState() == SagaState.STARTED) {
+                log.info("Resuming saga {} for account {}", sagaId, saga.getAccountId());
+                apply(sagaId);
+            } else if (saga.getState() == SagaState.APPLIED) {
+                transactionTemplate.executeWithoutResult(status -> resend(sagaId));
+            }
+        } catch (RuntimeException e) {
+            log.error("Saga {} timeout handling failed", sagaId, e);
         }
+    }
 
-        if (optAccount.isPresent()) {
-            Account account = optAccount.get();
-            account.setBalance(account.getBalance().subtract(amount));
-            repository.save(account);
+    private void resend(String sagaId) {
+        BalanceUpdateSaga saga = lock(sagaId);
+        // confirmed, or handled by another instance, since the scan read it
+        if (saga.getState() != SagaState.APPLIED || saga.getDeadline().isAfter(LocalDateTime.now())) {
+            return;
         }
+        Optional<BalanceSnapshot> current = repository.findBalanceSnapshot(saga.getAccountId());
+        if (current.isEmpty()) {
+            // deleted since: its CLOSED event supersedes this update, and there is no balance left to send
+            saga.setState(SagaState.ABANDONED);
+            saga.setError(ACCOUNT_GONE);
+            meterRegistry.counter("account.saga.abandoned").increment();
+            log.warn("Saga {} abandoned unconfirmed: account {} no longer exists", sagaId, saga.getAccountId());
+            return;
+        }
+        // the current balance rather than the saga's, so a late delivery cannot roll Deposit Service back
+        BalanceSnapshot snapshot = current.get();
+        publishUpdated(sagaId, saga.getAccountId(), snapshot.status(), snapshot.balance(), snapshot.version());
+        saga.setAttempts(saga.getAttempts() + 1);
+        saga.setDeadline(LocalDateTime.now().plus(resendInterval(saga.getAttempts())));
+        meterRegistry.counter("account.saga.resends").increment();
+        if (saga.getAttempts() == overdueAttempts) {
+            log.warn("Saga {} for account {} still unconfirmed by Deposit Service after {} re-sends", sagaId,
+                    saga.getAccountId(), saga.getAttempts());
+        } else {
+            log.debug("Saga {} unconfirmed, UPDATED re-sent (re-send {})", sagaId, saga.getAttempts());
+        }
+    }
+
+    // doubles per re-send, capped
+    private Duration resendInterval(int attempts) {
+        Duration backoff = confirmTimeout.multipliedBy(1L << Math.min(attempts, 20));
+        return backoff.compareTo(maxResendInterval) < 0 ? backoff : maxResendInterval;
+    }
+
+    private BalanceUpdateSaga lock(String sagaId) {
+        return sagaRepository.findForUpdate(sagaId)
+                .orElseThrow(() -> new IllegalStateException("Saga not found: " + sagaId));
+    }
+
+    private void publishUpdated(String updateId, String accountId, AccountStatus status, BigDecimal balance, long version) {
+        outboxPublisher.publish("account-updated",
+                AccountEvent.of(AccountEvent.Type.UPDATED, accountId, updateId, balance, status.name(), version));
+    }
+
+    private void recordApplied(BalanceUpdateSaga saga, String outcome, String accountType) {
+        meterRegistry.timer("account.saga.balance-update", "outcome", outcome, "accountType", accountType)
+                .record(Duration.between(saga.getCreatedAt(), LocalDateTime.now()));
+    }
 
-        Map<String, Object> rollBackEvent = new HashMap<>();
-        rollBackEvent.put("updateId", updateId);
-        rollBackEvent.put("accountId", accountId);
-        rollBackEvent.put("balance", amount.negate());
-        rollBackEvent.put("reason", reason);
-        kafkaTemplate.send("account-rollback", accountId, rollBackEvent);
+    private String accountType(String accountId) {
+        return repository.findBalanceSnapshot(accountId)
+                .map(snapshot -> String.valueOf(snapshot.type()))
+                .orElse("UNKNOWN");
     }
 }
@@ -0,0 +1,40 @@
+package com.key.account.saga;
+
+import com.key.account.dedup.EventDeduplicator;
+import com.key.account.metrics.ListenerMetrics;
+import com.key.events.DepositEvent;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Feeds Deposit Service's confirmations of saga updates (ACCOUNT_SYNCED, the updateId in referenceId)
+ * to {@link AccountSagaOrchestrator#confirm}. Runs whatever {@code account.listener.mode} is.
+ */
+@Component
+public class AccountSyncedListener {
+
+    private final AccountSagaOrchestrator orchestrator;
+    private final ListenerMetrics listenerMetrics;
+    private final EventDeduplicator deduplicator;
+
+    public AccountSyncedListener(AccountSagaOrchestrator orchestrator, ListenerMetrics listenerMetrics,
+                                 EventDeduplicator deduplicator) {
+        this.orchestrator = orchestrator;
+        this.listenerMetrics = listenerMetrics;
+        this.deduplicator = deduplicator;
+    }
+
+    @KafkaListener(topics = "deposit-account-synced", groupId = "account-group", concurrency = "${account.listener.concurrency:1}")
+    public void onAccountSynced(ConsumerRecord<String, DepositEvent> record) {
+        Timer.Sample sample = listenerMetrics.received(record.topic(), record);
+        String outcome = ListenerMetrics.ERROR;
+        try {
+            DepositEvent event = record.value();
+            outcome = deduplicator.processOnce(record.topic(), event, () -> orchestrator.confirm(event.referenceId()));
+        } finally {
+            listenerMetrics.processed(sample, record.topic(), outcome);
+        }
+    }
+}
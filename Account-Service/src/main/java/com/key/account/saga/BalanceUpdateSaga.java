@@ -0,0 +1,50 @@
+package com.key.account.saga;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Log row of one balance update saga, see {@link AccountSagaOrchestrator}. Every step runs in a
+ * transaction that locks this row, so a step applies at most once however many instances or
+ * threads race for it. Final rows are purged after {@code account.saga.retention}.
+ */
+@Entity
+@Table(name = "account_sagas", indexes = {
+        @Index(name = "idx_account_sagas_state_deadline", columnList = "state, deadline"),
+        @Index(name = "idx_account_sagas_updated_at", columnList = "updatedAt")})
+@Data
+public class BalanceUpdateSaga {
+    @Id
+    private String sagaId;  // the updateId carried by the UPDATED event and echoed back by Deposit Service
+
+    @Column(nullable = false)
+    private String accountId;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private SagaState state;
+
+    @Column(precision = 19, scale = 2)
+    private BigDecimal newBalance;  // once APPLIED
+
+    private String error;
+
+    private int attempts;  // UPDATED events re-sent while APPLIED
+
+    @Column(nullable = false)
+    private LocalDateTime deadline;  // when the scanner takes over a STARTED or APPLIED saga
+
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+}
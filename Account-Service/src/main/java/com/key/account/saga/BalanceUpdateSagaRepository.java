@@ -0,0 +1,36 @@
+package com.key.account.saga;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BalanceUpdateSagaRepository extends JpaRepository<BalanceUpdateSaga, String> {
+
+    // Every step takes the row lock first, then re-checks the state it expects
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM BalanceUpdateSaga s WHERE s.sagaId = :sagaId")
+    Optional<BalanceUpdateSaga> findForUpdate(@Param("sagaId") String sagaId);
+
+    // Served by idx_account_sagas_state_deadline; oldest deadline first
+    @Query("SELECT s.sagaId FROM BalanceUpdateSaga s WHERE s.state IN :states AND s.deadline <= :now ORDER BY s.deadline")
+    List<String> findDue(@Param("states") Collection<SagaState> states, @Param("now") LocalDateTime now, Pageable pageable);
+
+    // Sagas still unconfirmed after `attempts` re-sends, for the account.saga.overdue gauge
+    @Query("SELECT COUNT(s) FROM BalanceUpdateSaga s WHERE s.state = :state AND s.attempts >= :attempts")
+    long countByStateWithAttempts(@Param("state") SagaState state, @Param("attempts") int attempts);
+
+    @Modifying
+    @Query("DELETE FROM BalanceUpdateSaga s WHERE s.state IN :states AND s.updatedAt < :cutoff")
+    int deleteFinishedBefore(@Param("states") Collection<SagaState> states, @Param("cutoff") LocalDateTime cutoff);
+}
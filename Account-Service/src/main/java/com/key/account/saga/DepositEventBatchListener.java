@@ -0,0 +1,74 @@
+package com.key.account.saga;
+
+import com.key.account.dedup.EventDeduplicator;
+import com.key.account.metrics.ListenerMetrics;
+import com.key.account.service.AccountService;
+import com.key.events.DepositEvent;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Batch replacement for {@link AccountEventListener} and {@link DepositEventListener}.
+ * A whole poll of deposit-credited / deposit-debited records is summed per accountId and
+ * applied as one {@code BalanceUpdater} update per account, under the same
+ * {@code account.balance.update-strategy} as per-record mode, inside a single transaction; offsets are committed
+ * only after that transaction, so a failure redelivers the whole poll and nothing is
+ * half-applied. Events already processed are dropped before summing, see {@link EventDeduplicator}.
+ */
+@Component
+@ConditionalOnProperty(name = "account.listener.mode", havingValue = "BATCH")
+public class DepositEventBatchListener {
+
+    private static final Logger log = LoggerFactory.getLogger(DepositEventBatchListener.class);
+
+    private static final String LISTENER = "deposit-events-batch";
+
+    private final AccountService accountService;
+    private final ListenerMetrics listenerMetrics;
+    private final EventDeduplicator deduplicator;
+
+    public DepositEventBatchListener(AccountService accountService, ListenerMetrics listenerMetrics,
+                                     EventDeduplicator deduplicator) {
+        this.accountService = accountService;
+        this.listenerMetrics = listenerMetrics;
+        this.deduplicator = deduplicator;
+    }
+
+    @KafkaListener(topics = {"deposit-credited", "deposit-debited"}, groupId = "account-group",
+            containerFactory = "batchKafkaListenerContainerFactory", concurrency = "${account.listener.concurrency:1}",
+            properties = "max.poll.records=${account.listener.batch.max-poll-records:2000}")
+    public void onDepositEvents(List<ConsumerRecord<String, DepositEvent>> records) {
+        Timer.Sample sample = listenerMetrics.received(LISTENER, records);
+        String outcome = ListenerMetrics.ERROR;
+        try {
+            outcome = apply(records);
+        } finally {
+            listenerMetrics.processed(sample, LISTENER, outcome);
+        }
+    }
+
+    private String apply(List<ConsumerRecord<String, DepositEvent>> records) {
+        List<DepositEvent> events = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, DepositEvent> record : records) {
+            if (!deduplicator.isDuplicate(LISTENER, record.value().eventId())) {
+                events.add(record.value());
+            }
+        }
+
+        if (events.isEmpty()) {
+            return records.isEmpty() ? ListenerMetrics.IGNORED : ListenerMetrics.DUPLICATE;
+        }
+        List<String> missing = accountService.applyDepositEvents(LISTENER, events);
+        missing.forEach(accountId -> log.warn("Account {} not found – ignoring deposit events", accountId));
+        log.debug("Applied {} of {} deposit events", events.size(), records.size());
+        return ListenerMetrics.APPLIED;
+    }
+}
@@ -1,59 +1,76 @@
 package com.key.account.saga;
 
-import com.key.account.repository.AccountRepository;
+import com.key.account.cache.BalanceCache;
+import com.key.account.concurrency.BalanceSnapshot;
+import com.key.account.concurrency.BalanceUpdater;
+import com.key.account.dedup.EventDeduplicator;
+import com.key.account.metrics.ListenerMetrics;
+import com.key.events.DepositEvent;
+import io.micrometer.core.instrument.Timer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
-import java.util.Map;
+import java.util.Optional;
 
 @Component
+@ConditionalOnProperty(name = "account.listener.mode", havingValue = "RECORD", matchIfMissing = true)
 public class DepositEventListener {
 
     private static final Logger log = LoggerFactory.getLogger(DepositEventListener.class);
 
-    private final AccountRepository accountRepository;
+    private final BalanceUpdater balanceUpdater;
+    private final BalanceCache balanceCache;
+    private final ListenerMetrics listenerMetrics;
+    private final EventDeduplicator deduplicator;
 
-    public DepositEventListener(AccountRepository accountRepository) {
-        this.accountRepository = accountRepository;
+    public DepositEventListener(BalanceUpdater balanceUpdater, BalanceCache balanceCache, ListenerMetrics listenerMetrics,
+                                EventDeduplicator deduplicator) {
+        this.balanceUpdater = balanceUpdater;
+        this.balanceCache = balanceCache;
+        this.listenerMetrics = listenerMetrics;
+        this.deduplicator = deduplicator;
     }
 
-    @KafkaListener(topics = "deposit-credited", groupId = "account-group")
-    public void onDepositCredited(ConsumerRecord<String, Object> record) {
-        @SuppressWarnings("unchecked")
-        Map<String, Object> payload = (Map<String, Object>) record.value();
-
-        String accountId = (String) payload.get("accountId");
-        BigDecimal amount = new BigDecimal((String)  payload.get("amount"));
-
-        updateBalance(accountId, amount, "CREDIT");
+    @KafkaListener(topics = "deposit-credited", groupId = "account-group", concurrency = "${account.listener.concurrency:1}")
+    public void onDepositCredited(ConsumerRecord<String, DepositEvent> record) {
+        Timer.Sample sample = listenerMetrics.received(record.topic(), record);
+        String outcome = ListenerMetrics.ERROR;
+        try {
+            DepositEvent event = record.value();
+            outcome = deduplicator.processOnce(record.topic(), event,
+                    () -> updateBalance(event.accountId(), event.balanceDelta(), "CREDIT"));
+        } finally {
+            listenerMetrics.processed(sample, record.topic(), outcome);
+        }
     }
 
-    @KafkaListener(topics = "deposit-debited", groupId = "account-group")
-    public void onDepositDebited(ConsumerRecord<String, Object> record) {
-        @SuppressWarnings("unchecked")
-        Map<String, Object> payload = (Map<String, Object>) record.value();
-
-        String accountId = (String) payload.get("accountId");
-        BigDecimal amount = new BigDecimal(payload.get("amount").toString()).abs();
-
-        updateBalance(accountId, amount.negate(), "DEBIT");
+    @KafkaListener(topics = "deposit-debited", groupId = "account-group", concurrency = "${account.listener.concurrency:1}")
+    public void onDepositDebited(ConsumerRecord<String, DepositEvent> record) {
+        Timer.Sample sample = listenerMetrics.received(record.topic(), record);
+        String outcome = ListenerMetrics.ERROR;
+        try {
+            DepositEvent event = record.value();
+            outcome = deduplicator.processOnce(record.topic(), event,
+                    () -> updateBalance(event.accountId(), event.balanceDelta(), "DEBIT"));
+        } finally {
+            listenerMetrics.processed(sample, record.topic(), outcome);
+        }
     }
 
-    private void updateBalance(String accountId, BigDecimal delta, String operation) {
-        accountRepository.findByAccountIdAndIsDeletedFalse(accountId)
-                .ifPresentOrElse(
-                        account -> {
-                            BigDecimal newBal = account.getBalance().add(delta);
-                            account.setBalance(newBal);
-                            accountRepository.save(account);
-                            log.info("[{}] Account {} balance {} → {}", operation, accountId,
-                                    account.getBalance().subtract(delta), newBal);
-                        },
-                        () -> log.warn("Account {} not found – ignoring {} event", accountId, operation)
-                );
+    private String updateBalance(String accountId, BigDecimal delta, String operation) {
+        Optional<BalanceSnapshot> updated = balanceUpdater.addToBalance(accountId, delta, false);
+        if (updated.isEmpty()) {
+            log.warn("Account {} not found – ignoring {} event", accountId, operation);
+            return ListenerMetrics.IGNORED;
+        }
+        BigDecimal newBal = updated.get().balance();
+        balanceCache.put(accountId, newBal);
+        log.debug("[{}] Account {} balance {} → {}", operation, accountId, newBal.subtract(delta), newBal);
+        return ListenerMetrics.APPLIED;
     }
 }
@@ -0,0 +1,93 @@
+package com.key.account.saga;
+
+import com.key.account.cache.BalanceCache;
+import com.key.account.concurrency.BalanceSnapshot;
+import com.key.account.concurrency.BalanceUpdater;
+import com.key.account.concurrency.KeyOrderedDispatcher;
+import com.key.account.dedup.EventDeduplicator;
+import com.key.account.metrics.ListenerMetrics;
+import com.key.events.DepositEvent;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Replacement for {@link AccountEventListener} and {@link DepositEventListener} that applies
+ * each deposit-credited / deposit-debited record individually, like they do, but spreads a
+ * poll over {@code account.listener.key-ordered.workers} threads with a
+ * {@link KeyOrderedDispatcher}: events for one accountId keep their order, events for
+ * different accounts in the same partition no longer wait for each other.
+ */
+@Component
+@ConditionalOnProperty(name = "account.listener.mode", havingValue = "KEY_ORDERED")
+public class KeyOrderedDepositEventListener {
+
+    private static final Logger log = LoggerFactory.getLogger(KeyOrderedDepositEventListener.class);
+
+    private static final String LISTENER = "deposit-events-key-ordered";
+
+    private final BalanceUpdater balanceUpdater;
+    private final BalanceCache balanceCache;
+    private final ListenerMetrics listenerMetrics;
+    private final EventDeduplicator deduplicator;
+    private final KeyOrderedDispatcher<String, DepositEvent> dispatcher;
+
+    public KeyOrderedDepositEventListener(BalanceUpdater balanceUpdater, BalanceCache balanceCache, ListenerMetrics listenerMetrics,
+                                          EventDeduplicator deduplicator,
+                                          @Value("${account.listener.key-ordered.workers:0}") int workers) {
+        this.balanceUpdater = balanceUpdater;
+        this.balanceCache = balanceCache;
+        this.listenerMetrics = listenerMetrics;
+        this.deduplicator = deduplicator;
+        // 0 = one worker per available core
+        this.dispatcher = new KeyOrderedDispatcher<>("deposit-events",
+                workers > 0 ? workers : Runtime.getRuntime().availableProcessors());
+    }
+
+    @KafkaListener(topics = {"deposit-credited", "deposit-debited"}, groupId = "account-group",
+            containerFactory = "batchKafkaListenerContainerFactory", concurrency = "${account.listener.concurrency:1}",
+            properties = "max.poll.records=${account.listener.key-ordered.max-poll-records:500}")
+    public void onDepositEvents(List<ConsumerRecord<String, DepositEvent>> records) {
+        Timer.Sample sample = listenerMetrics.received(LISTENER, records);
+        String outcome = ListenerMetrics.ERROR;
+        try {
+            dispatcher.dispatch(records, this::apply);
+            outcome = ListenerMetrics.APPLIED;
+        } finally {
+            listenerMetrics.processed(sample, LISTENER, outcome);
+        }
+    }
+
+    // idempotent, as the dispatcher requires: a failed poll redelivers records other lanes already committed
+    private void apply(ConsumerRecord<String, DepositEvent> record) {
+        deduplicator.processOnce(LISTENER, record.value(), () -> update(record));
+    }
+
+    private String update(ConsumerRecord<String, DepositEvent> record) {
+        DepositEvent event = record.value();
+        String accountId = event.accountId();
+        Optional<BalanceSnapshot> updated = balanceUpdater.addToBalance(accountId, event.balanceDelta(), false);
+        if (updated.isEmpty()) {
+            log.warn("Account {} not found – ignoring {} event", accountId, record.topic());
+            return ListenerMetrics.IGNORED;
+        }
+        balanceCache.put(accountId, updated.get().balance());
+        log.debug("[{}] Account {} balance → {}", record.topic(), accountId, updated.get().balance());
+        return ListenerMetrics.APPLIED;
+    }
+
+    @PreDestroy
+    void stop() {
+        dispatcher.close();
+    }
+}
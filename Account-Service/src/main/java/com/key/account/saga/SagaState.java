@@ -0,0 +1,14 @@
+package com.key.account.saga;
+
+/**
+ * States of a {@link BalanceUpdateSaga}. STARTED and APPLIED are waiting on a step and carry a
+ * deadline; the others are final. Stored by name, so values may be added but not removed.
+ */
+public enum SagaState {
+    STARTED,      // recorded, delta not applied yet
+    APPLIED,      // delta applied and UPDATED published, waiting for Deposit Service to confirm
+    COMPLETED,    // Deposit Service confirmed the update
+    FAILED,       // rejected before anything was applied
+    COMPENSATED,  // never confirmed, delta reversed; no longer entered, kept for rows written before
+    ABANDONED     // applied, but the account was deleted before Deposit Service confirmed; nothing left to re-send
+}
@@ -0,0 +1,198 @@
+package com.key.account.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.key.account.dto.AccountOnboardingResult;
+import com.key.account.dto.AccountRequest;
+import com.key.account.entity.Account;
+import com.key.account.enums.AccountStatus;
+import com.key.account.id.AccountNumberAllocator;
+import com.key.account.outbox.OutboxPublisher;
+import com.key.events.AccountEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Creates accounts from a streamed NDJSON file, one {@code {customerId, type, initialBalance}}
+ * per line, e.g. a partner bank's customer base being migrated.
+ * <p>
+ * Lines are read incrementally and handled in chunks of {@code account.bulk.chunk-size}, one
+ * transaction per chunk. Account numbers come from {@link AccountNumberAllocator} in memory, so
+ * the rows are persisted without a lookup each and go out as JDBC batches; the chunk's CREATED
+ * events are written to the outbox in the same transaction, also batched, and reach Deposit
+ * Service through the relay as usual.
+ * <p>
+ * The per-line report is streamed back as each chunk commits. Metric:
+ * {@code account.onboarding.lines}, tagged with the line's status.
+ */
+@Service
+public class AccountOnboardingService {
+
+    private static final Logger log = LoggerFactory.getLogger(AccountOnboardingService.class);
+
+    private final EntityManager entityManager;
+    private final AccountNumberAllocator accountNumbers;
+    private final OutboxPublisher outboxPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${account.bulk.chunk-size:1000}")
+    private int chunkSize;
+
+    public AccountOnboardingService(EntityManager entityManager, AccountNumberAllocator accountNumbers,
+                                    OutboxPublisher outboxPublisher, PlatformTransactionManager transactionManager,
+                                    ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.entityManager = entityManager;
+        this.accountNumbers = accountNumbers;
+        this.outboxPublisher = outboxPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Reads NDJSON account requests from {@code in} and writes
+     * {@code {"results": [...], "total": n, "created": n, "rejected": n, "failed": n}} to {@code out}.
+     */
+    public void onboard(InputStream in, OutputStream out) throws IOException {
+        try (JsonParser parser = objectMapper.createParser(in);
+             JsonGenerator generator = objectMapper.createGenerator(out)) {
+            Map<String, Integer> counts = new LinkedHashMap<>();
+            counts.put(AccountOnboardingResult.CREATED, 0);
+            counts.put(AccountOnboardingResult.REJECTED, 0);
+            counts.put(AccountOnboardingResult.FAILED, 0);
+
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("results");
+            int lineNumber = 0;
+            List<Line> chunk = new ArrayList<>(chunkSize);
+            // NDJSON is a sequence of root-level objects, which the parser reads one after another
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token != JsonToken.START_OBJECT) {
+                    throw new IllegalArgumentException("Expected one JSON object per line, got " + token
+                            + " after line " + lineNumber);
+                }
+                chunk.add(new Line(++lineNumber, parser.readValueAs(AccountRequest.class)));
+                if (chunk.size() == chunkSize) {
+                    writeResults(generator, createChunk(chunk), counts);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                writeResults(generator, createChunk(chunk), counts);
+            }
+            generator.writeEndArray();
+            generator.writeNumberField("total", lineNumber);
+            generator.writeNumberField("created", counts.get(AccountOnboardingResult.CREATED));
+            generator.writeNumberField("rejected", counts.get(AccountOnboardingResult.REJECTED));
+            generator.writeNumberField("failed", counts.get(AccountOnboardingResult.FAILED));
+            generator.writeEndObject();
+            log.info("Bulk onboarding file of {} lines processed: {}", lineNumber, counts);
+        }
+    }
+
+    private void writeResults(JsonGenerator generator, AccountOnboardingResult[] results,
+                              Map<String, Integer> counts) throws IOException {
+        for (AccountOnboardingResult result : results) {
+            generator.writeObject(result);
+            counts.merge(result.getStatus(), 1, Integer::sum);
+            meterRegistry.counter("account.onboarding.lines", "status", result.getStatus().toLowerCase()).increment();
+        }
+        generator.flush();
+    }
+
+    private AccountOnboardingResult[] createChunk(List<Line> chunk) {
+        AccountOnboardingResult[] results = new AccountOnboardingResult[chunk.size()];
+        List<Account> accounts = new ArrayList<>(chunk.size());
+        List<Integer> indexes = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            Line line = chunk.get(i);
+            String error = validate(line.request());
+            if (error != null) {
+                results[i] = new AccountOnboardingResult(line.number(), line.request().getCustomerId(), null,
+                        AccountOnboardingResult.REJECTED, error);
+                continue;
+            }
+            accounts.add(newAccount(line.request()));
+            indexes.add(i);
+        }
+        if (accounts.isEmpty()) {
+            return results;
+        }
+
+        String status = AccountOnboardingResult.CREATED;
+        String error = null;
+        try {
+            transactionTemplate.executeWithoutResult(tx -> persist(accounts));
+        } catch (RuntimeException e) {
+            log.warn("Bulk onboarding chunk starting at line {} failed to commit: {}", chunk.get(0).number(), e.getMessage());
+            status = AccountOnboardingResult.FAILED;
+            error = e.getMessage();
+        }
+        for (int k = 0; k < accounts.size(); k++) {
+            Line line = chunk.get(indexes.get(k));
+            // a failed chunk's numbers are abandoned, as after any rolled-back creation
+            String accountId = error == null ? accounts.get(k).getAccountId() : null;
+            results[indexes.get(k)] = new AccountOnboardingResult(line.number(), line.request().getCustomerId(),
+                    accountId, status, error);
+        }
+        return results;
+    }
+
+    // persist, not save(): the id is assigned, so save() would merge and SELECT each row first.
+    // The balance cache is left alone; filling it with a whole migration would evict the hot accounts
+    private void persist(List<Account> accounts) {
+        List<AccountEvent> events = new ArrayList<>(accounts.size());
+        for (Account account : accounts) {
+            entityManager.persist(account);
+            events.add(AccountEvent.of(AccountEvent.Type.CREATED, account.getAccountId(), null, account.getBalance(),
+                    account.getStatus().name(), account.getVersion()));
+        }
+        outboxPublisher.publishAll("account-updated", events);
+    }
+
+    private String validate(AccountRequest request) {
+        if (request.getCustomerId() == null || request.getCustomerId().isBlank()) {
+            return "customerId is required";
+        }
+        if (request.getType() == null) {
+            return "type is required";
+        }
+        if (request.getInitialBalance() != null && request.getInitialBalance().signum() < 0) {
+            return "initialBalance must not be negative";
+        }
+        return null;
+    }
+
+    private Account newAccount(AccountRequest request) {
+        Account account = new Account();
+        account.setAccountId(accountNumbers.next());
+        account.setCustomerId(request.getCustomerId());
+        account.setType(request.getType());
+        account.setBalance(request.getInitialBalance() != null ? request.getInitialBalance() : BigDecimal.ZERO);
+        account.setStatus(AccountStatus.ACTIVE);
+        return account;
+    }
+
+    private record Line(int number, AccountRequest request) {
+    }
+}
@@ -1,24 +1,38 @@
 package com.key.account.service;
 
+import com.key.account.cache.BalanceCache;
+import com.key.account.concurrency.BalanceUpdater;
+import com.key.account.dedup.EventDeduplicator;
 import com.key.account.dto.BalanceUpdateRequest;
 import com.key.account.entity.Account;
 import com.key.account.enums.AccountStatus;
 import com.key.account.enums.AccountType;
 import com.key.account.exception.AccountNotFoundException;
+import com.key.account.id.AccountNumberAllocator;
+import com.key.account.metrics.ListenerMetrics;
+import com.key.account.outbox.OutboxPublisher;
 import com.key.account.repository.AccountRepository;
 import com.key.account.saga.AccountSagaOrchestrator;
+import com.key.events.AccountEvent;
+import com.key.events.DepositEvent;
+import com.key.events.id.UuidV7;
+import io.micrometer.core.instrument.Timer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
 
 @Service
@@ -29,24 +43,46 @@ public class AccountService {
 //    @Autowired
     private final AccountSagaOrchestrator sagaOrchestrator;
 
-//    @Autowired
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final OutboxPublisher outboxPublisher;
+
+    private final BalanceCache balanceCache;
+
+    private final BalanceUpdater balanceUpdater;
+
+    private final ListenerMetrics listenerMetrics;
+
+    private final EventDeduplicator deduplicator;
+
+    private final AccountNumberAllocator accountNumbers;
 
-    public AccountService(AccountRepository accountRepository, AccountSagaOrchestrator sagaOrchestrator, KafkaTemplate<String, Object> kafkaTemplate) {
+    @Value("${account.balances.max-ids:500}")
+    private int maxBalanceIds;
+
+    public AccountService(AccountRepository accountRepository, AccountSagaOrchestrator sagaOrchestrator, OutboxPublisher outboxPublisher,
+                          BalanceCache balanceCache, BalanceUpdater balanceUpdater, ListenerMetrics listenerMetrics,
+                          EventDeduplicator deduplicator, AccountNumberAllocator accountNumbers) {
         this.accountRepository = accountRepository;
         this.sagaOrchestrator = sagaOrchestrator;
-        this.kafkaTemplate = kafkaTemplate;
+        this.outboxPublisher = outboxPublisher;
+        this.balanceCache = balanceCache;
+        this.balanceUpdater = balanceUpdater;
+        this.listenerMetrics = listenerMetrics;
+        this.deduplicator = deduplicator;
+        this.accountNumbers = accountNumbers;
     }
 
+    // account row and CREATED event commit together
+    @Transactional
     public Account createAccount(String customerId, AccountType type, BigDecimal initialBalance) {
         Account account = new Account();
-        account.setAccountId("KEY" + UUID.randomUUID().toString().substring(0, 8).toUpperCase());
+        account.setAccountId(accountNumbers.next());
         account.setCustomerId(customerId);
         account.setType(type);
         account.setBalance(initialBalance != null ? initialBalance : BigDecimal.ZERO);
         account.setStatus(AccountStatus.ACTIVE);
         Account saved = accountRepository.save(account);
-        publishAccountEvent(saved.getAccountId(), "CREATED", saved.getBalance());
+        publishAccountEvent(saved.getAccountId(), AccountEvent.Type.CREATED, saved.getStatus(), saved.getBalance(), saved.getVersion());
+        balanceCache.put(saved.getAccountId(), saved.getBalance());
         return saved;
 
     }
@@ -58,49 +94,71 @@ public class AccountService {
                 .orElseThrow(() -> new AccountNotFoundException("Account not found: "+accountId));
     }
 
-    // get the balance of the specified account id
+    // get the balance of the specified account id; served from cache, kept fresh by every balance write
+    @Cacheable(cacheNames = BalanceCache.NAME, key = "#accountId")
     public BigDecimal getBalance(String accountId) {
         return getAccount(accountId).getBalance();
     }
 
+    // balances of the live accounts among accountIds, read with one query; unknown and closed accounts are left out
+    public Map<String, BigDecimal> getBalances(Collection<String> accountIds) {
+        if (accountIds == null || accountIds.isEmpty() || accountIds.size() > maxBalanceIds) {
+            throw new IllegalArgumentException("Between 1 and " + maxBalanceIds + " account ids are required");
+        }
+        Map<String, BigDecimal> balances = new HashMap<>();
+        accountRepository.findBalances(new HashSet<>(accountIds)).forEach(row -> balances.put(row.accountId(), row.balance()));
+        return balances;
+    }
+
     // Delegates to Saga for balance updates
     public CompletableFuture<BigDecimal> updateBalanceAsync(String accountId, BalanceUpdateRequest eventUpdate) {
-        String updateId = "UPD" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-
-        return sagaOrchestrator.orchestrateBalanceUpdateAsync(updateId, accountId, eventUpdate.getAmount())
-                .thenApply(newBalance ->{
-                   publishAccountEvent(accountId, "UPDATED", newBalance);
-                   return newBalance;
-                });
+        // the saga publishes UPDATED itself, with this id for Deposit Service to confirm
+        String updateId = UuidV7.next().toString();
+        return sagaOrchestrator.orchestrateBalanceUpdateAsync(updateId, accountId, eventUpdate.getAmount());
     }
 
-    private void publishAccountEvent(String accountId, String eventType, BigDecimal balance) {
-        Map<String, Object> event = new HashMap<>();
-        event.put("accountId", accountId);
-        event.put("type", eventType);
-        event.put("balance", balance.toPlainString()); // ← CRITICAL: String!
-        event.put("timestamp", LocalDateTime.now().toString());
-        CompletableFuture<SendResult<String, Object>> send = kafkaTemplate.send("account-updated", accountId, event);
-       send.thenAccept(result -> {
-           System.out.println("Message sent successfully to Kafka: " + result.getRecordMetadata().offset());
-       });
-        send.exceptionally(ex -> {
-            System.err.println("Failed to send message to Kafka: " + ex.getMessage());
-            // Perform failure handling here (e.g., retry, alert, etc.)
-            return null;
-        });
+    // Applies one Kafka poll of deposit events: each is recorded as processed and skipped if it already was, the rest
+    // are summed per account into one balance update each, all in one transaction. Updates go through BalanceUpdater
+    // like the per-record listeners, in accountId order so that concurrent batches lock rows in the same order.
+    // Returns the accounts that were not found (or are deleted) so the caller can report them.
+    @Transactional
+    public List<String> applyDepositEvents(String listener, List<DepositEvent> events) {
+        Map<String, BigDecimal> deltas = new TreeMap<>();
+        for (DepositEvent event : events) {
+            if (deduplicator.claim(listener, event)) {
+                deltas.merge(event.accountId(), event.balanceDelta(), BigDecimal::add);
+            }
+        }
+        List<String> missing = new ArrayList<>();
+        deltas.forEach((accountId, delta) -> balanceUpdater.addToBalance(accountId, delta, false)
+                .ifPresentOrElse(updated -> balanceCache.put(accountId, updated.balance()),
+                        () -> missing.add(accountId)));
+        return missing;
     }
 
-    @KafkaListener(topics = "deposit-rollback", groupId = "account-group")
-    public void onDepositRollback(ConsumerRecord<String, Object> record) {
-        Map<String, Object> event = (Map<String, Object>) record.value();
-        String accountId = (String) event.get("accountId");
-        BigDecimal amount = new BigDecimal(event.get("amount").toString());
+    private void publishAccountEvent(String accountId, AccountEvent.Type eventType, AccountStatus status, BigDecimal balance,
+                                     long version) {
+        outboxPublisher.publish("account-updated", AccountEvent.of(eventType, accountId, null, balance, status.name(), version));
+    }
 
-        accountRepository.findByAccountIdAndIsDeletedFalse(accountId).ifPresent(account -> {
-            account.setBalance(account.getBalance().add(amount)); // reverse
-            accountRepository.save(account);
-        });
+    @KafkaListener(topics = "deposit-rollback", groupId = "account-group", concurrency = "${account.listener.concurrency:1}")
+    public void onDepositRollback(ConsumerRecord<String, DepositEvent> record) {
+        Timer.Sample sample = listenerMetrics.received(record.topic(), record);
+        String outcome = ListenerMetrics.ERROR;
+        try {
+            DepositEvent event = record.value();
+            String accountId = event.accountId();
+
+            outcome = deduplicator.processOnce(record.topic(), event, () ->
+                    balanceUpdater.addToBalance(accountId, event.balanceDelta(), false) // reverse
+                            .map(updated -> {
+                                balanceCache.put(accountId, updated.balance());
+                                return ListenerMetrics.APPLIED;
+                            })
+                            .orElse(ListenerMetrics.IGNORED));
+        } finally {
+            listenerMetrics.processed(sample, record.topic(), outcome);
+        }
     }
 
 }
@@ -0,0 +1,133 @@
+package com.key.account.concurrency;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Consumes a keyed topic from an embedded broker through the dispatcher and checks that every key
+ * is still seen in offset order, and that a failure is reported the way the container expects.
+ * How throughput grows with workers is measured by {@code KeyOrderedDispatchBenchmark}.
+ */
+@EmbeddedKafka(partitions = KeyOrderedDispatcherTest.PARTITIONS, topics = KeyOrderedDispatcherTest.TOPIC)
+class KeyOrderedDispatcherTest {
+
+    static final String TOPIC = "key-ordered-dispatch";
+    static final int PARTITIONS = 2;
+
+    private static final int RECORDS = 10_000;
+    private static final int KEYS = 500;
+    private static final int WORKERS = 4;
+    private static final long WORK_NANOS = TimeUnit.MICROSECONDS.toNanos(20);
+
+    @Test
+    void everyKeyIsHandledInOffsetOrder(EmbeddedKafkaBroker broker) {
+        produce(broker);
+
+        assertEquals(RECORDS, consume(broker));
+    }
+
+    @Test
+    void failureStopsOnlyItsLaneAndReportsTheEarliestFailedRecord() {
+        List<ConsumerRecord<String, String>> records = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            records.add(new ConsumerRecord<>(TOPIC, 0, i, "ACC" + (i % 8), Integer.toString(i)));
+        }
+        RuntimeException boom = new IllegalStateException("boom");
+        Set<Integer> handled = ConcurrentHashMap.newKeySet();
+
+        BatchListenerFailedException failure;
+        try (KeyOrderedDispatcher<String, String> dispatcher = new KeyOrderedDispatcher<>("failing", WORKERS)) {
+            failure = assertThrows(BatchListenerFailedException.class, () -> dispatcher.dispatch(records, record -> {
+                int sequence = Integer.parseInt(record.value());
+                if (sequence == 11 || sequence == 13) {
+                    throw boom;
+                }
+                handled.add(sequence);
+            }));
+        }
+
+        assertSame(records.get(11), failure.getRecord());
+        assertSame(boom, failure.getCause());
+        int failedLaneA = Math.floorMod("ACC3".hashCode(), WORKERS);
+        int failedLaneB = Math.floorMod("ACC5".hashCode(), WORKERS);
+        for (int i = 0; i < records.size(); i++) {
+            int lane = Math.floorMod(records.get(i).key().hashCode(), WORKERS);
+            boolean skipped = lane == failedLaneA && i >= 11 || lane == failedLaneB && i >= 13;
+            assertEquals(!skipped, handled.contains(i), "record " + i);
+        }
+    }
+
+    private void produce(EmbeddedKafkaBroker broker) {
+        Map<String, Object> props = KafkaTestUtils.producerProps(broker);
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        try (KafkaProducer<String, String> producer = new KafkaProducer<>(props)) {
+            for (int i = 0; i < RECORDS; i++) {
+                producer.send(new ProducerRecord<>(TOPIC, "ACC" + (i % KEYS), Integer.toString(i)));
+            }
+            producer.flush();
+        }
+    }
+
+    /** Reads the whole topic in a fresh group, failing on any key seen out of order; returns the records consumed. */
+    private int consume(EmbeddedKafkaBroker broker) {
+        Map<String, Object> props = KafkaTestUtils.consumerProps("dispatch", "false", broker);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 500);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+
+        Map<String, Integer> lastSeen = new ConcurrentHashMap<>();
+        int consumed = 0;
+        try (KafkaConsumer<String, String> consumer = new KafkaConsumer<>(props);
+             KeyOrderedDispatcher<String, String> dispatcher = new KeyOrderedDispatcher<>("dispatch", WORKERS)) {
+            consumer.subscribe(List.of(TOPIC));
+            long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(2);
+            while (consumed < RECORDS && System.currentTimeMillis() < deadline) {
+                ConsumerRecords<String, String> polled = consumer.poll(Duration.ofMillis(200));
+                if (polled.isEmpty()) {
+                    continue;
+                }
+                List<ConsumerRecord<String, String>> records = new ArrayList<>(polled.count());
+                polled.forEach(records::add);
+
+                dispatcher.dispatch(records, record -> {
+                    int sequence = Integer.parseInt(record.value());
+                    Integer previous = lastSeen.put(record.key(), sequence);
+                    if (previous != null && previous > sequence) {
+                        throw new AssertionError(record.key() + " saw " + sequence + " after " + previous);
+                    }
+                    LockSupport.parkNanos(WORK_NANOS);
+                });
+                consumer.commitSync();
+                consumed += records.size();
+            }
+        }
+        return consumed;
+    }
+}
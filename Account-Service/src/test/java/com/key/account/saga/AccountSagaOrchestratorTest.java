@@ -0,0 +1,190 @@
+package com.key.account.saga;
+
+import com.key.account.cache.BalanceCache;
+import com.key.account.concurrency.BalanceSnapshot;
+import com.key.account.concurrency.BalanceUpdater;
+import com.key.account.enums.AccountStatus;
+import com.key.account.enums.AccountType;
+import com.key.account.exception.AccountDeactivatedException;
+import com.key.account.exception.BalanceUpdateRejectedException;
+import com.key.account.metrics.ListenerMetrics;
+import com.key.account.outbox.OutboxPublisher;
+import com.key.account.repository.AccountRepository;
+import com.key.events.AccountEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * The saga state machine against an in-memory account_sagas table; deadlines are moved into the
+ * past to stand in for the scanner finding a saga due.
+ */
+class AccountSagaOrchestratorTest {
+
+    private static final String ACCOUNT = "KEY000000000018";
+    private static final BalanceSnapshot AFTER = new BalanceSnapshot(new BigDecimal("150.00"), 4, AccountStatus.ACTIVE, AccountType.PERSONAL);
+
+    private final Map<String, BalanceUpdateSaga> sagas = new ConcurrentHashMap<>();
+    private final BalanceUpdateSagaRepository sagaRepository = mock(BalanceUpdateSagaRepository.class);
+    private final AccountRepository accountRepository = mock(AccountRepository.class);
+    private final EntityManager entityManager = mock(EntityManager.class);
+    private final OutboxPublisher outboxPublisher = mock(OutboxPublisher.class);
+    private final BalanceUpdater balanceUpdater = mock(BalanceUpdater.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private AccountSagaOrchestrator orchestrator;
+
+    @BeforeEach
+    void setUp() {
+        doAnswer(invocation -> {
+            BalanceUpdateSaga saga = invocation.getArgument(0);
+            saga.setCreatedAt(LocalDateTime.now());
+            sagas.put(saga.getSagaId(), saga);
+            return null;
+        }).when(entityManager).persist(any(BalanceUpdateSaga.class));
+        when(sagaRepository.findForUpdate(anyString())).thenAnswer(invocation -> Optional.ofNullable(sagas.get(invocation.<String>getArgument(0))));
+        when(sagaRepository.findById(anyString())).thenAnswer(invocation -> Optional.ofNullable(sagas.get(invocation.<String>getArgument(0))));
+        when(sagaRepository.findDue(any(), any(), any())).thenAnswer(invocation -> {
+            Collection<SagaState> states = invocation.getArgument(0);
+            LocalDateTime now = invocation.getArgument(1);
+            return sagas.values().stream()
+                    .filter(saga -> states.contains(saga.getState()) && !saga.getDeadline().isAfter(now))
+                    .map(BalanceUpdateSaga::getSagaId)
+                    .toList();
+        });
+        when(sagaRepository.countByStateWithAttempts(any(), anyInt())).thenAnswer(invocation -> sagas.values().stream()
+                .filter(saga -> saga.getState() == invocation.getArgument(0) && saga.getAttempts() >= invocation.<Integer>getArgument(1))
+                .count());
+        when(balanceUpdater.addToBalance(eq(ACCOUNT), any(), anyBoolean())).thenReturn(Optional.of(AFTER));
+        when(accountRepository.findBalanceSnapshot(ACCOUNT)).thenReturn(Optional.of(AFTER));
+
+        orchestrator = new AccountSagaOrchestrator(sagaRepository, accountRepository, entityManager, outboxPublisher,
+                mock(BalanceCache.class), balanceUpdater, meterRegistry, mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(orchestrator, "startTimeout", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(orchestrator, "confirmTimeout", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(orchestrator, "maxResendInterval", Duration.ofMinutes(15));
+        ReflectionTestUtils.setField(orchestrator, "overdueAttempts", 5);
+        ReflectionTestUtils.setField(orchestrator, "scanBatchSize", 500);
+    }
+
+    @Test
+    void appliedSagaReportsTheNewBalanceAndIsCompletedByTheConfirmation() {
+        CompletableFuture<BigDecimal> result = orchestrator.orchestrateBalanceUpdateAsync("U1", ACCOUNT, new BigDecimal("50"));
+
+        assertEquals(new BigDecimal("150.00"), result.join());
+        assertEquals(SagaState.APPLIED, sagas.get("U1").getState());
+        assertEquals(new BigDecimal("50.00"), sagas.get("U1").getAmount());
+        verify(balanceUpdater).addToBalance(ACCOUNT, new BigDecimal("50.00"), true);
+        ArgumentCaptor<AccountEvent> published = ArgumentCaptor.forClass(AccountEvent.class);
+        verify(outboxPublisher).publish(eq("account-updated"), published.capture());
+        assertEquals("U1", published.getValue().updateId());
+        assertEquals(4, published.getValue().version());
+
+        assertEquals(ListenerMetrics.APPLIED, orchestrator.confirm("U1"));
+        assertEquals(SagaState.COMPLETED, sagas.get("U1").getState());
+        assertEquals(ListenerMetrics.IGNORED, orchestrator.confirm("U1"));
+    }
+
+    @Test
+    void rejectedUpdateFailsTheFutureAndTheSaga() {
+        when(balanceUpdater.addToBalance(eq(ACCOUNT), any(), eq(true))).thenThrow(new AccountDeactivatedException("Account is not active"));
+
+        CompletableFuture<BigDecimal> result = orchestrator.orchestrateBalanceUpdateAsync("U1", ACCOUNT, new BigDecimal("-500"));
+
+        CompletionException failure = assertThrows(CompletionException.class, result::join);
+        assertInstanceOf(BalanceUpdateRejectedException.class, failure.getCause());
+        assertEquals(SagaState.FAILED, sagas.get("U1").getState());
+        assertEquals("Account is not active", sagas.get("U1").getError());
+        verify(outboxPublisher, never()).publish(any(), any());
+    }
+
+    @Test
+    void startedSagaPastItsDeadlineIsAppliedByTheScanner() {
+        BalanceUpdateSaga stranded = new BalanceUpdateSaga();
+        stranded.setSagaId("U1");
+        stranded.setAccountId(ACCOUNT);
+        stranded.setAmount(new BigDecimal("50.00"));
+        stranded.setState(SagaState.STARTED);
+        stranded.setDeadline(LocalDateTime.now().minusSeconds(1));
+        stranded.setCreatedAt(LocalDateTime.now().minusMinutes(1));
+        sagas.put("U1", stranded);
+
+        orchestrator.scanTimeouts();
+
+        assertEquals(SagaState.APPLIED, stranded.getState());
+        assertEquals(new BigDecimal("150.00"), stranded.getNewBalance());
+        verify(balanceUpdater).addToBalance(ACCOUNT, new BigDecimal("50.00"), true);
+    }
+
+    @Test
+    void unconfirmedSagaIsResentWithoutLimitAndNeverReversed() {
+        orchestrator.orchestrateBalanceUpdateAsync("U1", ACCOUNT, new BigDecimal("50")).join();
+        BalanceUpdateSaga saga = sagas.get("U1");
+
+        for (int resend = 1; resend <= 8; resend++) {
+            saga.setDeadline(LocalDateTime.now().minusSeconds(1));
+            orchestrator.scanTimeouts();
+            assertEquals(resend, saga.getAttempts());
+        }
+
+        assertEquals(SagaState.APPLIED, saga.getState());
+        // backed off from 30 s, doubling, but no further than max-resend-interval
+        assertTrue(saga.getDeadline().isBefore(LocalDateTime.now().plusMinutes(15).plusSeconds(1)));
+        assertTrue(saga.getDeadline().isAfter(LocalDateTime.now().plusMinutes(14)));
+        verify(balanceUpdater, times(1)).addToBalance(any(), any(), anyBoolean());
+        verify(outboxPublisher, times(9)).publish(eq("account-updated"), any());
+        verify(outboxPublisher, never()).publish(eq("account-rollback"), any());
+        assertEquals(8, meterRegistry.counter("account.saga.resends").count());
+
+        orchestrator.countOverdue();
+        assertEquals(1, meterRegistry.get("account.saga.overdue").gauge().value());
+
+        assertEquals(ListenerMetrics.APPLIED, orchestrator.confirm("U1"));
+        orchestrator.countOverdue();
+        assertEquals(0, meterRegistry.get("account.saga.overdue").gauge().value());
+    }
+
+    @Test
+    void sagaWhoseAccountWasDeletedIsAbandoned() {
+        orchestrator.orchestrateBalanceUpdateAsync("U1", ACCOUNT, new BigDecimal("50")).join();
+        when(accountRepository.findBalanceSnapshot(ACCOUNT)).thenReturn(Optional.empty());
+        sagas.get("U1").setDeadline(LocalDateTime.now().minusSeconds(1));
+
+        orchestrator.scanTimeouts();
+
+        assertEquals(SagaState.ABANDONED, sagas.get("U1").getState());
+        assertEquals(List.of(), sagaRepository.findDue(List.of(SagaState.STARTED, SagaState.APPLIED), LocalDateTime.now(), null));
+        verify(balanceUpdater, times(1)).addToBalance(any(), any(), anyBoolean());
+        assertEquals(1, meterRegistry.counter("account.saga.abandoned").count());
+    }
+}
@@ -0,0 +1,77 @@
+package com.key.benchmark;
+
+import com.key.account.dto.AccountRequest;
+import com.key.account.enums.AccountType;
+import com.key.account.service.AccountOnboardingService;
+import com.key.account.service.AccountService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Onboards a file of new accounts (account row plus CREATED outbox event each), either one
+ * {@link AccountService#createAccount} transaction per account, as repeated {@code POST /accounts}
+ * calls would, or through {@link AccountOnboardingService} as one NDJSON stream. Each
+ * iteration adds a fresh set of accounts to the same database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class AccountOnboardingBenchmark {
+
+    public enum Path { SINGLE, BULK }
+
+    @Param({"20000"})
+    public int accounts;
+
+    @Param({"SINGLE", "BULK"})
+    public Path path;
+
+    private ConfigurableApplicationContext context;
+    private AccountService accountService;
+    private AccountOnboardingService onboardingService;
+    private byte[] file;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContexts.accountService();
+        accountService = context.getBean(AccountService.class);
+        onboardingService = context.getBean(AccountOnboardingService.class);
+
+        StringBuilder ndjson = new StringBuilder(accounts * 64);
+        for (int i = 0; i < accounts; i++) {
+            ndjson.append("{\"customerId\":\"CUST").append(i).append("\",\"type\":\"PERSONAL\",\"initialBalance\":")
+                    .append(i % 1000).append(".50}\n");
+        }
+        file = ndjson.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void onboard() throws IOException {
+        if (path == Path.BULK) {
+            onboardingService.onboard(new ByteArrayInputStream(file), OutputStream.nullOutputStream());
+            return;
+        }
+        AccountRequest request = new AccountRequest();
+        request.setType(AccountType.PERSONAL);
+        for (int i = 0; i < accounts; i++) {
+            request.setCustomerId("CUST" + i);
+            request.setInitialBalance(BigDecimal.valueOf(i % 1000).add(new BigDecimal("0.50")));
+            accountService.createAccount(request.getCustomerId(), request.getType(), request.getInitialBalance());
+        }
+    }
+}
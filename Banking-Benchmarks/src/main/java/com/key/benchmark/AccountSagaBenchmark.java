@@ -0,0 +1,73 @@
+package com.key.benchmark;
+
+import com.key.account.entity.Account;
+import com.key.account.enums.AccountStatus;
+import com.key.account.enums.AccountType;
+import com.key.account.repository.AccountRepository;
+import com.key.account.saga.AccountSagaOrchestrator;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * AccountSagaOrchestrator.orchestrateBalanceUpdateAsync on one hot account versus many.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@Threads(8)
+public class AccountSagaBenchmark {
+
+    @Param({"1", "10000"})
+    public int accounts;
+
+    private final AtomicLong updateIds = new AtomicLong();
+    private ConfigurableApplicationContext context;
+    private AccountSagaOrchestrator orchestrator;
+    private String[] accountIds;
+    private BigDecimal amount;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContexts.accountService();
+        orchestrator = context.getBean(AccountSagaOrchestrator.class);
+        AccountRepository repository = context.getBean(AccountRepository.class);
+
+        accountIds = new String[accounts];
+        List<Account> seed = new ArrayList<>(accounts);
+        for (int i = 0; i < accounts; i++) {
+            accountIds[i] = String.format("KEYBENCH%08d", i);
+            Account account = new Account();
+            account.setAccountId(accountIds[i]);
+            account.setCustomerId("CUST" + i);
+            account.setType(AccountType.PERSONAL);
+            account.setStatus(AccountStatus.ACTIVE);
+            account.setBalance(new BigDecimal("1000000000.00"));
+            seed.add(account);
+        }
+        repository.saveAll(seed);
+
+        amount = new BigDecimal("1.00");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public BigDecimal balanceUpdate() {
+        String accountId = accountIds[ThreadLocalRandom.current().nextInt(accountIds.length)];
+        return orchestrator.orchestrateBalanceUpdateAsync("UPDBENCH" + updateIds.incrementAndGet(), accountId, amount)
+                .join();
+    }
+}
@@ -0,0 +1,90 @@
+package com.key.benchmark;
+
+import com.key.account.concurrency.BalanceUpdater;
+import com.key.account.entity.Account;
+import com.key.account.enums.AccountStatus;
+import com.key.account.enums.AccountType;
+import com.key.account.repository.AccountRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BalanceUpdater under each concurrency strategy, with every thread hitting one hot account
+ * versus load spread over many. Updates that exhaust their optimistic retries are counted in
+ * the {@code conflicts} secondary result rather than failing the run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@Threads(8)
+public class BalanceContentionBenchmark {
+
+    @Param({"ATOMIC", "OPTIMISTIC", "PESSIMISTIC"})
+    public String strategy;
+
+    @Param({"1", "10000"})
+    public int accounts;
+
+    private ConfigurableApplicationContext context;
+    private BalanceUpdater balanceUpdater;
+    private String[] accountIds;
+    private BigDecimal amount;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Outcomes {
+        public long applied;
+        public long conflicts;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContexts.accountService("--account.balance.update-strategy=" + strategy);
+        balanceUpdater = context.getBean(BalanceUpdater.class);
+        AccountRepository repository = context.getBean(AccountRepository.class);
+
+        accountIds = new String[accounts];
+        List<Account> seed = new ArrayList<>(accounts);
+        for (int i = 0; i < accounts; i++) {
+            accountIds[i] = String.format("KEYLOCK%08d", i);
+            Account account = new Account();
+            account.setAccountId(accountIds[i]);
+            account.setCustomerId("CUST" + i);
+            account.setType(AccountType.PERSONAL);
+            account.setStatus(AccountStatus.ACTIVE);
+            account.setBalance(new BigDecimal("1000000000.00"));
+            seed.add(account);
+        }
+        repository.saveAll(seed);
+
+        amount = new BigDecimal("1.00");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public BigDecimal guardedCredit(Outcomes outcomes) {
+        String accountId = accountIds[ThreadLocalRandom.current().nextInt(accountIds.length)];
+        try {
+            BigDecimal balance = balanceUpdater.addToBalance(accountId, amount, true).orElseThrow().balance();
+            outcomes.applied++;
+            return balance;
+        } catch (OptimisticLockingFailureException e) {
+            outcomes.conflicts++;
+            return null;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.key.benchmark;
+
+import com.key.account.AccountServiceApplication;
+import com.key.deposite.DepositServiceApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Boots each service against its own in-memory H2 database with Kafka and Feign stubbed out,
+ * so the benchmarks measure our code and the JPA round-trips rather than the network.
+ * Overrides are passed as command-line arguments so they win over the services' own
+ * application.properties / application.yml.
+ */
+public final class BenchmarkContexts {
+
+    private BenchmarkContexts() {
+    }
+
+    public static ConfigurableApplicationContext depositService(String... extraArgs) {
+        List<String> args = commonArgs("deposit");
+        args.add("--spring.application.name=Deposit-Service");
+        args.add("--feign.account-service.url=http://localhost:0");
+        args.addAll(List.of(extraArgs));
+        return new SpringApplicationBuilder(DepositServiceApplication.class, BenchmarkStubConfig.class)
+                .web(WebApplicationType.NONE)
+                .run(args.toArray(String[]::new));
+    }
+
+    public static ConfigurableApplicationContext accountService(String... extraArgs) {
+        List<String> args = commonArgs("account");
+        args.add("--spring.application.name=Account-Service");
+        args.addAll(List.of(extraArgs));
+        return new SpringApplicationBuilder(AccountServiceApplication.class, BenchmarkStubConfig.class)
+                .web(WebApplicationType.NONE)
+                .run(args.toArray(String[]::new));
+    }
+
+    private static List<String> commonArgs(String database) {
+        List<String> args = new ArrayList<>();
+        args.add("--spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL");
+        args.add("--spring.datasource.driver-class-name=org.h2.Driver");
+        args.add("--spring.datasource.username=sa");
+        args.add("--spring.datasource.password=");
+        args.add("--spring.datasource.hikari.schema=PUBLIC");
+        args.add("--spring.datasource.hikari.maximum-pool-size=32");
+        args.add("--spring.jpa.database=h2");
+        args.add("--spring.jpa.hibernate.ddl-auto=create-drop");
+        args.add("--spring.jpa.show-sql=false");
+        args.add("--spring.kafka.bootstrap-servers=localhost:0");
+        args.add("--logging.level.root=WARN");
+        return args;
+    }
+}
@@ -0,0 +1,145 @@
+package com.key.benchmark;
+
+import com.key.account.client.DepositClient;
+import com.key.account.dto.ValidationResponse;
+import com.key.deposite.client.AccountClient;
+import com.key.events.reconcile.BalanceRow;
+import com.key.events.reconcile.KeyRange;
+import com.key.events.reconcile.RangeDigest;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.kafka.config.AbstractKafkaListenerContainerFactory;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Replaces everything that would leave the JVM: Feign clients, the Kafka producer,
+ * listener containers and topic creation. {@code @Async} methods run on the caller
+ * thread so that each benchmark invocation measures the complete posting.
+ */
+@Configuration(proxyBeanMethods = false)
+public class BenchmarkStubConfig {
+
+    @Bean
+    public static BeanDefinitionRegistryPostProcessor feignClientStubs() {
+        return new FeignClientStubs();
+    }
+
+    @Bean
+    public KafkaTemplate<String, Object> kafkaTemplate() {
+        return new NoOpKafkaTemplate();
+    }
+
+    @Bean
+    public KafkaAdmin kafkaAdmin(KafkaProperties properties) {
+        KafkaAdmin admin = new KafkaAdmin(properties.buildAdminProperties(null));
+        admin.setAutoCreate(false);
+        return admin;
+    }
+
+    @Bean
+    public static BeanPostProcessor listenerContainersStopped() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof AbstractKafkaListenerContainerFactory<?, ?, ?> factory) {
+                    factory.setAutoStartup(false);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean(name = "taskExecutor")
+    public TaskExecutor taskExecutor() {
+        return new SyncTaskExecutor();
+    }
+
+    /** Swapped before initialization so the services' thread pools are never created. */
+    @Bean
+    public static BeanPostProcessor namedExecutorsInline() {
+        Set<String> executors = Set.of("postingExecutor", "accountLookupExecutor", "sagaExecutor");
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                return executors.contains(beanName) ? new SyncTaskExecutor() : bean;
+            }
+        };
+    }
+
+    /** Answers every balance lookup locally instead of calling Account-Service. */
+    public static class StubAccountClient implements AccountClient {
+        @Override
+        public BigDecimal getBalance(String id) {
+            return BigDecimal.ZERO;
+        }
+
+        @Override
+        public Map<String, BigDecimal> getBalances(Collection<String> ids) {
+            Map<String, BigDecimal> balances = new HashMap<>();
+            ids.forEach(id -> balances.put(id, BigDecimal.ZERO));
+            return balances;
+        }
+    }
+
+    /** Deposit-Service is not running; no benchmark reaches it. */
+    public static class StubDepositClient implements DepositClient {
+        @Override
+        public ValidationResponse validateAccount(Map<String, Object> request) {
+            throw new UnsupportedOperationException("Deposit-Service is stubbed out");
+        }
+
+        @Override
+        public List<String> reconcileBoundaries(KeyRange range, int parts) {
+            throw new UnsupportedOperationException("Deposit-Service is stubbed out");
+        }
+
+        @Override
+        public List<RangeDigest> reconcileDigests(List<KeyRange> ranges) {
+            throw new UnsupportedOperationException("Deposit-Service is stubbed out");
+        }
+
+        @Override
+        public List<BalanceRow> reconcileBalances(List<KeyRange> ranges) {
+            throw new UnsupportedOperationException("Deposit-Service is stubbed out");
+        }
+    }
+
+    static class FeignClientStubs implements BeanDefinitionRegistryPostProcessor {
+
+        @Override
+        public void postProcessBeanDefinitionRegistry(BeanDefinitionRegistry registry) throws BeansException {
+            // Feign registers each client under its interface name
+            String accountClient = AccountClient.class.getName();
+            if (registry.containsBeanDefinition(accountClient)) {
+                registry.removeBeanDefinition(accountClient);
+                registry.registerBeanDefinition(accountClient, new RootBeanDefinition(StubAccountClient.class));
+            }
+            String depositClient = DepositClient.class.getName();
+            if (registry.containsBeanDefinition(depositClient)) {
+                registry.removeBeanDefinition(depositClient);
+                registry.registerBeanDefinition(depositClient, new RootBeanDefinition(StubDepositClient.class));
+            }
+        }
+
+        @Override
+        public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+        }
+    }
+}
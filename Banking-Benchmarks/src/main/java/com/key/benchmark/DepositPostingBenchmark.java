@@ -0,0 +1,88 @@
+package com.key.benchmark;
+
+import com.key.deposite.dto.DepositRequest;
+import com.key.deposite.entity.DepositAccount;
+import com.key.deposite.enums.DepositType;
+import com.key.deposite.repository.DepositAccountRepository;
+import com.key.deposite.services.DepositService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * creditDepositAsync / debitDepositAsync throughput and latency percentiles.
+ * accounts=1 puts every thread on the same row (contention), accounts=10000 spreads the load.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@Threads(8)
+public class DepositPostingBenchmark {
+
+    @Param({"1", "10000"})
+    public int accounts;
+
+    /**
+     * ATOMIC and LEDGER post directly with that balance strategy (LEDGER credits only append to the
+     * transaction table); ENGINE routes postings through the sharded single-writer PostingEngine.
+     */
+    @Param({"ATOMIC", "LEDGER", "ENGINE"})
+    public String mode;
+
+    private ConfigurableApplicationContext context;
+    private DepositService depositService;
+    private String[] accountIds;
+    private DepositRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContexts.depositService(
+                "--deposit.posting.engine.enabled=" + "ENGINE".equals(mode),
+                "--deposit.balance.update-strategy=" + ("LEDGER".equals(mode) ? "LEDGER" : "ATOMIC"));
+        depositService = context.getBean(DepositService.class);
+        DepositAccountRepository repository = context.getBean(DepositAccountRepository.class);
+
+        accountIds = new String[accounts];
+        List<DepositAccount> seed = new ArrayList<>(accounts);
+        for (int i = 0; i < accounts; i++) {
+            accountIds[i] = String.format("KEYBENCH%08d", i);
+            DepositAccount account = new DepositAccount();
+            account.setAccountId(accountIds[i]);
+            account.setType(DepositType.CHECKING);
+            // large enough that debits never run the account dry during a trial
+            account.setBalance(new BigDecimal("1000000000.00"));
+            account.setAvailableBalance(new BigDecimal("1000000000.00"));
+            seed.add(account);
+        }
+        repository.saveAll(seed);
+
+        request = new DepositRequest(new BigDecimal("1.00"), "benchmark", null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public BigDecimal credit() {
+        return depositService.creditDepositAsync(nextAccount(), request).join();
+    }
+
+    @Benchmark
+    public BigDecimal debit() {
+        return depositService.debitDepositAsync(nextAccount(), request.getAmount()).join();
+    }
+
+    private String nextAccount() {
+        return accountIds[ThreadLocalRandom.current().nextInt(accountIds.length)];
+    }
+}
@@ -0,0 +1,74 @@
+package com.key.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.key.events.DepositEvent;
+import com.key.events.codec.EventCodec;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One deposit-debited event serialized and deserialized as the old {@code HashMap} through
+ * Jackson (what JsonSerializer / JsonDeserializer did) versus the typed {@link DepositEvent}
+ * through {@link EventCodec}. The deserialize side includes reading the amount back as a
+ * BigDecimal, as the listeners do.
+ * <p>
+ * Bytes per event are printed at setup; run with {@code -prof gc} for allocation per operation
+ * ({@code gc.alloc.rate.norm}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class EventSerdeBenchmark {
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {
+    };
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BigDecimal amount = new BigDecimal("-1250.50");
+    private byte[] json;
+    private byte[] binary;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        json = jsonSerialize();
+        binary = binarySerialize();
+        System.out.printf("%nbytes per event: json map %d, binary %d%n", json.length, binary.length);
+    }
+
+    @Benchmark
+    public byte[] jsonSerialize() throws IOException {
+        Map<String, Object> event = new HashMap<>();
+        event.put("accountId", "KEY1A2B3C4D");
+        event.put("amount", amount.toString());
+        event.put("type", "DEBITED");
+        event.put("currency", "INR");
+        event.put("timestamp", LocalDateTime.now().toString());
+        return objectMapper.writeValueAsBytes(event);
+    }
+
+    @Benchmark
+    public BigDecimal jsonDeserialize() throws IOException {
+        Map<String, Object> event = objectMapper.readValue(json, MAP_TYPE);
+        return new BigDecimal(event.get("amount").toString());
+    }
+
+    @Benchmark
+    public byte[] binarySerialize() {
+        return EventCodec.encode(DepositEvent.of(DepositEvent.Type.DEBITED, "KEY1A2B3C4D", amount, null));
+    }
+
+    @Benchmark
+    public BigDecimal binaryDeserialize() {
+        return ((DepositEvent) EventCodec.decode(binary)).amount();
+    }
+}
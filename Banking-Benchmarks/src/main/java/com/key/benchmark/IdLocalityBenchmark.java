@@ -0,0 +1,109 @@
+package com.key.benchmark;
+
+import com.key.events.id.UuidV7;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Batched inserts into a deposit_transactions-shaped table that already holds {@code rows} rows,
+ * keyed by random (version 4) or time-ordered ({@link UuidV7}) UUIDs, in an on-disk H2 database.
+ * Random keys land on pages all over the primary-key index, so each batch dirties and splits
+ * many of them; time-ordered keys append to the right edge.
+ * <p>
+ * Besides inserts per second, teardown prints the database file size and bytes written per
+ * inserted row (file growth over the run divided by rows inserted), a proxy for write
+ * amplification. Point {@code -Dbenchmark.jdbc.url} at PostgreSQL to measure the same there.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class IdLocalityBenchmark {
+
+    private static final int BATCH = 1000;
+
+    @Param({"RANDOM", "V7"})
+    public String keys;
+
+    @Param({"1000000"})
+    public int rows;
+
+    private Path directory;
+    private Connection connection;
+    private PreparedStatement insert;
+    private long inserted;
+    private long sizeAfterSeed;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException {
+        directory = Files.createTempDirectory("id-locality");
+        String url = System.getProperty("benchmark.jdbc.url", "jdbc:h2:file:" + directory.resolve("ids") + ";MODE=PostgreSQL");
+        connection = DriverManager.getConnection(url, System.getProperty("benchmark.jdbc.user", "sa"),
+                System.getProperty("benchmark.jdbc.password", ""));
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS id_locality");
+            statement.execute("CREATE TABLE id_locality (id UUID PRIMARY KEY, account_id VARCHAR(32) NOT NULL, " +
+                    "amount NUMERIC(19, 2) NOT NULL, posted_at TIMESTAMP NOT NULL)");
+        }
+        connection.commit();
+        insert = connection.prepareStatement("INSERT INTO id_locality (id, account_id, amount, posted_at) VALUES (?, ?, ?, ?)");
+        for (int i = 0; i < rows; i += BATCH) {
+            insertBatch();
+        }
+        sizeAfterSeed = databaseSize();
+        inserted = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException, SQLException {
+        long size = databaseSize();
+        if (size > 0) {
+            System.out.printf("%n%s keys: %d rows seeded, %d inserted, file %d MB, %.0f bytes written per inserted row%n",
+                    keys, rows, inserted, size >> 20, (double) (size - sizeAfterSeed) / Math.max(inserted, 1));
+        }
+        connection.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void insertBatch() throws SQLException {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        for (int i = 0; i < BATCH; i++) {
+            insert.setObject(1, "V7".equals(keys) ? UuidV7.next() : UUID.randomUUID());
+            insert.setString(2, "KEY00000001234" + (i % 10));
+            insert.setBigDecimal(3, BigDecimal.ONE);
+            insert.setTimestamp(4, now);
+            insert.addBatch();
+        }
+        insert.executeBatch();
+        connection.commit();
+        inserted += BATCH;
+    }
+
+    // on-disk size of the H2 database files; 0 when benchmark.jdbc.url points elsewhere
+    private long databaseSize() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).mapToLong(path -> path.toFile().length()).sum();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.key.benchmark;
+
+import com.key.deposite.entity.DepositAccount;
+import com.key.deposite.enums.DepositType;
+import com.key.deposite.interest.InterestAccrualJob;
+import com.key.deposite.interest.InterestAccrualRun;
+import com.key.deposite.repository.DepositAccountRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One full interest accrual run over {@code accounts} accounts, each invocation for the next
+ * business date. Accounts per second is {@code accounts} divided by the reported time; compare
+ * parallelism=1 with more workers for the scaling per core.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class InterestAccrualBenchmark {
+
+    @Param({"100000"})
+    public int accounts;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    private ConfigurableApplicationContext context;
+    private InterestAccrualJob job;
+    private LocalDate businessDate = LocalDate.of(2025, 1, 1);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContexts.depositService(
+                "--deposit.interest.enabled=false",
+                "--deposit.interest.parallelism=" + parallelism);
+        job = context.getBean(InterestAccrualJob.class);
+        DepositAccountRepository repository = context.getBean(DepositAccountRepository.class);
+
+        List<DepositAccount> seed = new ArrayList<>(1000);
+        for (int i = 0; i < accounts; i++) {
+            DepositAccount account = new DepositAccount();
+            account.setAccountId(String.format("KEYINT%08d", i));
+            account.setType(DepositType.SAVINGS);
+            account.setBalance(new BigDecimal("250000.00"));
+            account.setAvailableBalance(new BigDecimal("250000.00"));
+            account.setInterestRate(new BigDecimal("0.0350"));
+            seed.add(account);
+            if (seed.size() == 1000) {
+                repository.saveAll(seed);
+                seed.clear();
+            }
+        }
+        repository.saveAll(seed);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public InterestAccrualRun accrue() {
+        businessDate = businessDate.plusDays(1);
+        return job.run(businessDate);
+    }
+}
@@ -0,0 +1,61 @@
+package com.key.benchmark;
+
+import com.key.account.concurrency.KeyOrderedDispatcher;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * One 500-record poll of deposit-credited (two partitions, {@code keys} accounts) handed to a
+ * {@link KeyOrderedDispatcher} with 1, 2, 4 and 8 lanes. Each record waits {@code workMicros},
+ * standing in for the balance UPDATE round trip, so the score shows how much of that wait the
+ * lanes overlap. Scores are records per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class KeyOrderedDispatchBenchmark {
+
+    private static final int POLL = 500;
+
+    @Param({"1", "2", "4", "8"})
+    private int workers;
+
+    @Param({"500"})
+    private int keys;
+
+    @Param({"200"})
+    private long workMicros;
+
+    private KeyOrderedDispatcher<String, Integer> dispatcher;
+    private List<ConsumerRecord<String, Integer>> poll;
+    private long workNanos;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dispatcher = new KeyOrderedDispatcher<>("bench", workers);
+        poll = new ArrayList<>(POLL);
+        for (int i = 0; i < POLL; i++) {
+            poll.add(new ConsumerRecord<>("deposit-credited", i % 2, i, "ACC" + (i % keys), i));
+        }
+        workNanos = TimeUnit.MICROSECONDS.toNanos(workMicros);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dispatcher.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POLL)
+    public void dispatch() {
+        dispatcher.dispatch(poll, record -> LockSupport.parkNanos(workNanos));
+    }
+}
@@ -0,0 +1,38 @@
+package com.key.benchmark;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * KafkaTemplate that acknowledges every send immediately without touching a broker.
+ */
+public class NoOpKafkaTemplate extends KafkaTemplate<String, Object> {
+
+    public NoOpKafkaTemplate() {
+        super(new DefaultKafkaProducerFactory<>(Map.of()));
+    }
+
+    @Override
+    public CompletableFuture<SendResult<String, Object>> send(String topic, Object data) {
+        return send(new ProducerRecord<>(topic, data));
+    }
+
+    @Override
+    public CompletableFuture<SendResult<String, Object>> send(String topic, String key, Object data) {
+        return send(new ProducerRecord<>(topic, key, data));
+    }
+
+    @Override
+    public CompletableFuture<SendResult<String, Object>> send(ProducerRecord<String, Object> record) {
+        RecordMetadata metadata = new RecordMetadata(new TopicPartition(record.topic(), 0), 0L, 0,
+                System.currentTimeMillis(), 0, 0);
+        return CompletableFuture.completedFuture(new SendResult<>(record, metadata));
+    }
+}
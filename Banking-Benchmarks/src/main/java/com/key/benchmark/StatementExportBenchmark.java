@@ -0,0 +1,94 @@
+package com.key.benchmark;
+
+import com.key.deposite.entity.DepositAccount;
+import com.key.deposite.entity.DepositTransaction;
+import com.key.deposite.enums.DepositType;
+import com.key.deposite.enums.StatementFormat;
+import com.key.deposite.enums.TransactionType;
+import com.key.deposite.repository.DepositAccountRepository;
+import com.key.deposite.repository.DepositTransactionRepository;
+import com.key.deposite.services.StatementService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A full statement export for one account with a growing number of postings, written to a
+ * discarding stream. {@code rows} in the results is the export throughput in rows/s; run with
+ * {@code -prof gc} to check that allocation per row does not grow with the statement size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx512m")
+public class StatementExportBenchmark {
+
+    private static final String ACCOUNT_ID = "KEYSTMT00000001";
+
+    @Param({"10000", "500000"})
+    public int transactions;
+
+    @Param({"CSV", "NDJSON"})
+    public StatementFormat format;
+
+    private ConfigurableApplicationContext context;
+    private StatementService statementService;
+    private final LocalDate from = LocalDate.now().minusDays(1);
+    private final LocalDate to = LocalDate.now().plusDays(1);
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Rows {
+        public long rows;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContexts.depositService();
+        statementService = context.getBean(StatementService.class);
+
+        DepositAccount account = new DepositAccount();
+        account.setAccountId(ACCOUNT_ID);
+        account.setType(DepositType.CHECKING);
+        account = context.getBean(DepositAccountRepository.class).save(account);
+
+        DepositTransactionRepository transactionRepository = context.getBean(DepositTransactionRepository.class);
+        List<DepositTransaction> batch = new ArrayList<>(1000);
+        for (int i = 0; i < transactions; i++) {
+            DepositTransaction transaction = new DepositTransaction();
+            transaction.setAccountId(ACCOUNT_ID);
+            transaction.setAmount(BigDecimal.ONE);
+            transaction.setType(TransactionType.CREDIT);
+            transaction.setDescription(i % 10 == 0 ? "seed, \"quoted\" " + i : "seed " + i);
+            transaction.setStatus("POSTED");
+            transaction.setAccount(account);
+            batch.add(transaction);
+            if (batch.size() == 1000) {
+                transactionRepository.saveAll(batch);
+                batch.clear();
+            }
+        }
+        transactionRepository.saveAll(batch);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public long export(Rows rows) throws IOException {
+        long written = statementService.writeStatement(ACCOUNT_ID, from, to, format, OutputStream.nullOutputStream());
+        rows.rows += written;
+        return written;
+    }
+}
@@ -0,0 +1,94 @@
+package com.key.benchmark;
+
+import com.key.deposite.dto.TransactionHistoryPage;
+import com.key.deposite.entity.DepositAccount;
+import com.key.deposite.entity.DepositTransaction;
+import com.key.deposite.enums.DepositType;
+import com.key.deposite.enums.TransactionType;
+import com.key.deposite.repository.DepositAccountRepository;
+import com.key.deposite.repository.DepositTransactionRepository;
+import com.key.deposite.services.DepositService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * getTransactionHistory for a single account with a growing number of postings behind it:
+ * the first page and a page continued from a (postedAt, id) cursor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@Threads(4)
+public class TransactionHistoryBenchmark {
+
+    private static final String ACCOUNT_ID = "KEYHIST00000001";
+
+    @Param({"100", "10000"})
+    public int transactions;
+
+    @Param({"10"})
+    public int limit;
+
+    private ConfigurableApplicationContext context;
+    private DepositService depositService;
+    private LocalDateTime cursorPostedAt;
+    private UUID cursorId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContexts.depositService();
+        depositService = context.getBean(DepositService.class);
+
+        DepositAccount account = new DepositAccount();
+        account.setAccountId(ACCOUNT_ID);
+        account.setType(DepositType.CHECKING);
+        account = context.getBean(DepositAccountRepository.class).save(account);
+
+        DepositTransactionRepository transactionRepository = context.getBean(DepositTransactionRepository.class);
+        List<DepositTransaction> batch = new ArrayList<>(1000);
+        for (int i = 0; i < transactions; i++) {
+            DepositTransaction transaction = new DepositTransaction();
+            transaction.setAccountId(ACCOUNT_ID);
+            transaction.setAmount(BigDecimal.ONE);
+            transaction.setType(TransactionType.CREDIT);
+            transaction.setDescription("seed " + i);
+            transaction.setStatus("POSTED");
+            transaction.setAccount(account);
+            batch.add(transaction);
+            if (batch.size() == 1000) {
+                transactionRepository.saveAll(batch);
+                batch.clear();
+            }
+        }
+        transactionRepository.saveAll(batch);
+
+        TransactionHistoryPage first = depositService.getTransactionHistory(ACCOUNT_ID, limit, null, null);
+        cursorPostedAt = first.getNextPostedAt();
+        cursorId = first.getNextId() != null ? UUID.fromString(first.getNextId()) : null;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public TransactionHistoryPage firstPage() {
+        return depositService.getTransactionHistory(ACCOUNT_ID, limit, null, null);
+    }
+
+    @Benchmark
+    public TransactionHistoryPage nextPage() {
+        return depositService.getTransactionHistory(ACCOUNT_ID, limit, cursorPostedAt, cursorId);
+    }
+}
@@ -0,0 +1,42 @@
+package com.key.events;
+
+import com.key.events.id.UuidV7;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Published by Account Service on account-updated and account-rollback.
+ *
+ * @param updateId     the balance update (saga) this event belongs to, if any
+ * @param balanceMinor the account balance after the change in minor units; for ROLLBACK the
+ *                     compensating change to the balance
+ * @param status       the account's status name
+ * @param reason       why a ROLLBACK happened
+ * @param version      the account row's version the balance and status were read at, so that a consumer can drop
+ *                     a state older than the one it holds; 0 for ROLLBACK, and for events from producers that
+ *                     predate the field
+ */
+public record AccountEvent(UUID eventId, Type type, String accountId, String updateId, long balanceMinor, String status,
+                           String currency, String reason, long occurredAt, long version) implements BankingEvent {
+
+    /** Encoded by ordinal: only ever append. */
+    public enum Type {
+        CREATED, UPDATED, CLOSED, ROLLBACK
+    }
+
+    public static AccountEvent of(Type type, String accountId, String updateId, BigDecimal balance, String status,
+                                  long version) {
+        return new AccountEvent(UuidV7.next(), type, accountId, updateId, Money.toMinor(balance), status, Money.INR,
+                null, System.currentTimeMillis(), version);
+    }
+
+    public static AccountEvent rollback(String accountId, String updateId, BigDecimal amount, String reason) {
+        return new AccountEvent(UuidV7.next(), Type.ROLLBACK, accountId, updateId, Money.toMinor(amount), null, Money.INR,
+                reason, System.currentTimeMillis(), 0);
+    }
+
+    public BigDecimal balance() {
+        return Money.fromMinor(balanceMinor);
+    }
+}
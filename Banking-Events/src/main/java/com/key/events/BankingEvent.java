@@ -0,0 +1,24 @@
+package com.key.events;
+
+import java.util.UUID;
+
+/**
+ * An event on one of the banking topics. Every event carries a unique id, the account it is
+ * keyed by and when it happened, in epoch milliseconds.
+ */
+public sealed interface BankingEvent permits AccountEvent, DepositEvent {
+
+    UUID eventId();
+
+    String accountId();
+
+    long occurredAt();
+
+    /**
+     * Version of the account state the event reports, increasing with every change to the account.
+     * Events that carry a change rather than a state leave it at 0.
+     */
+    default long version() {
+        return 0;
+    }
+}
@@ -0,0 +1,44 @@
+package com.key.events;
+
+import com.key.events.id.UuidV7;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Published by Deposit Service on deposit-credited, deposit-debited and deposit-rollback, and as
+ * ACCOUNT_SYNCED on deposit-account-synced once an account-updated event carrying an updateId
+ * has been applied to Deposit Service's copy of the account.
+ *
+ * @param amountMinor the posting amount in minor units; negative for DEBITED. For ACCOUNT_SYNCED
+ *                    the balance Deposit Service now holds
+ * @param referenceId the caller's reference, if any; for ACCOUNT_SYNCED the updateId confirmed
+ */
+public record DepositEvent(UUID eventId, Type type, String accountId, long amountMinor, String currency,
+                           String referenceId, long occurredAt) implements BankingEvent {
+
+    /** Encoded by ordinal: only ever append. */
+    public enum Type {
+        CREDITED, DEBITED, ROLLBACK_CREDIT, ACCOUNT_SYNCED
+    }
+
+    public static DepositEvent of(Type type, String accountId, BigDecimal amount, String referenceId) {
+        return new DepositEvent(UuidV7.next(), type, accountId, Money.toMinor(amount), Money.INR, referenceId,
+                System.currentTimeMillis());
+    }
+
+    public BigDecimal amount() {
+        return Money.fromMinor(amountMinor);
+    }
+
+    /** The change this event makes to the ledger balance: credits add, debits subtract, whatever the sign on the wire. */
+    public BigDecimal balanceDelta() {
+        long magnitude = Math.abs(amountMinor);
+        return switch (type) {
+            case CREDITED -> Money.fromMinor(magnitude);
+            case DEBITED -> Money.fromMinor(-magnitude);
+            case ROLLBACK_CREDIT -> Money.fromMinor(amountMinor);
+            case ACCOUNT_SYNCED -> Money.fromMinor(0);
+        };
+    }
+}
@@ -0,0 +1,26 @@
+package com.key.events;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Amounts travel as long minor units (paise for INR), so events carry no decimal strings and
+ * consumers do no parsing.
+ */
+public final class Money {
+
+    public static final String INR = "INR";
+
+    private static final int SCALE = 2;
+
+    private Money() {
+    }
+
+    public static long toMinor(BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal fromMinor(long minor) {
+        return BigDecimal.valueOf(minor, SCALE);
+    }
+}
@@ -0,0 +1,67 @@
+package com.key.events.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+final class BinaryReader {
+
+    private final byte[] bytes;
+    private int position;
+
+    BinaryReader(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    byte readByte() {
+        require(1);
+        return bytes[position++];
+    }
+
+    long readLong() {
+        long raw = readVarLong();
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    UUID readUuid() {
+        return new UUID(readFixedLong(), readFixedLong());
+    }
+
+    String readString() {
+        long length = readVarLong();
+        if (length == 0) {
+            return null;
+        }
+        int size = Math.toIntExact(length - 1);
+        require(size);
+        String value = new String(bytes, position, size, StandardCharsets.UTF_8);
+        position += size;
+        return value;
+    }
+
+    private long readVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint at offset " + position);
+    }
+
+    private long readFixedLong() {
+        require(8);
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (bytes[position++] & 0xFF);
+        }
+        return value;
+    }
+
+    private void require(int size) {
+        if (position + size > bytes.length) {
+            throw new IllegalArgumentException("Truncated event: needed " + size + " bytes at offset " + position);
+        }
+    }
+}
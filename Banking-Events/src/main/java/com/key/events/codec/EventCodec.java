@@ -0,0 +1,81 @@
+package com.key.events.codec;
+
+import com.key.events.AccountEvent;
+import com.key.events.BankingEvent;
+import com.key.events.DepositEvent;
+
+/**
+ * Binary encoding of {@link BankingEvent}s. A record is a two-byte header (schema id, schema
+ * version) followed by the fields in declaration order: UUIDs as 16 raw bytes, enums as one
+ * ordinal byte, longs as zig-zag varints and strings as a varint length (0 for null) plus UTF-8.
+ * A typical deposit event is about 50 bytes.
+ * <p>
+ * To change a schema, bump its version and keep decoding the old one, so consumers can be
+ * upgraded before producers. Account events are at version 2, which appended the account
+ * version; version 1 still decodes, with version 0.
+ */
+public final class EventCodec {
+
+    static final byte DEPOSIT_EVENT = 1;
+    static final byte ACCOUNT_EVENT = 2;
+    static final byte VERSION_1 = 1;
+    static final byte VERSION_2 = 2;
+
+    private EventCodec() {
+    }
+
+    public static byte[] encode(BankingEvent event) {
+        BinaryWriter out = BinaryWriter.get();
+        if (event instanceof DepositEvent deposit) {
+            out.writeByte(DEPOSIT_EVENT);
+            out.writeByte(VERSION_1);
+            out.writeUuid(deposit.eventId());
+            out.writeByte(deposit.type().ordinal());
+            out.writeString(deposit.accountId());
+            out.writeLong(deposit.amountMinor());
+            out.writeString(deposit.currency());
+            out.writeString(deposit.referenceId());
+            out.writeLong(deposit.occurredAt());
+        } else if (event instanceof AccountEvent account) {
+            out.writeByte(ACCOUNT_EVENT);
+            out.writeByte(VERSION_2);
+            out.writeUuid(account.eventId());
+            out.writeByte(account.type().ordinal());
+            out.writeString(account.accountId());
+            out.writeString(account.updateId());
+            out.writeLong(account.balanceMinor());
+            out.writeString(account.status());
+            out.writeString(account.currency());
+            out.writeString(account.reason());
+            out.writeLong(account.occurredAt());
+            out.writeLong(account.version());
+        }
+        return out.toByteArray();
+    }
+
+    public static BankingEvent decode(byte[] bytes) {
+        BinaryReader in = new BinaryReader(bytes);
+        byte schema = in.readByte();
+        byte version = in.readByte();
+        return switch (schema) {
+            case DEPOSIT_EVENT -> {
+                requireVersion(schema, version, VERSION_1);
+                yield new DepositEvent(in.readUuid(), DepositEvent.Type.values()[in.readByte()], in.readString(),
+                        in.readLong(), in.readString(), in.readString(), in.readLong());
+            }
+            case ACCOUNT_EVENT -> {
+                requireVersion(schema, version, VERSION_2);
+                yield new AccountEvent(in.readUuid(), AccountEvent.Type.values()[in.readByte()], in.readString(),
+                        in.readString(), in.readLong(), in.readString(), in.readString(), in.readString(), in.readLong(),
+                        version == VERSION_2 ? in.readLong() : 0);
+            }
+            default -> throw new IllegalArgumentException("Unknown event schema " + schema);
+        };
+    }
+
+    private static void requireVersion(byte schema, byte version, byte latest) {
+        if (version < VERSION_1 || version > latest) {
+            throw new IllegalArgumentException("Unsupported version " + version + " of event schema " + schema);
+        }
+    }
+}
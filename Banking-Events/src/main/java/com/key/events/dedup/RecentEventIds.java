@@ -0,0 +1,118 @@
+package com.key.events.dedup;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Bounded memory of the event IDs a consumer has processed recently: a Bloom filter over the
+ * last {@code 2 x capacity} IDs and an exact LRU window over the last {@code windowSize}.
+ * <p>
+ * The Bloom filter is kept in two generations. When the current one has taken
+ * {@code capacity} IDs it becomes the previous one and the oldest generation is dropped, so
+ * memory stays fixed and a lookup's false-positive rate stays within twice the per-generation
+ * rate it was sized for.
+ * IDs older than that are forgotten; consumers must keep an authoritative record (a table)
+ * and use this only to avoid reading it for events that are certainly new.
+ * <p>
+ * Thread-safe; every operation is a handful of array reads under one lock.
+ */
+public final class RecentEventIds {
+
+    public enum Lookup {
+        /** Definitely not among the remembered IDs. */
+        ABSENT,
+        /** In the exact window: definitely seen. */
+        SEEN,
+        /** The Bloom filter matched but the window did not: check the authoritative record. */
+        MAYBE
+    }
+
+    private final int capacity;
+    private final int bits;
+    private final int hashes;
+    private final Map<UUID, Boolean> window;
+
+    private long[] current;
+    private long[] previous;
+    private int currentCount;
+
+    /**
+     * @param capacity          IDs per Bloom generation
+     * @param falsePositiveRate target false-positive rate of each generation, e.g. 0.001
+     * @param windowSize        most recently added IDs kept exactly (0 disables the window)
+     */
+    public RecentEventIds(int capacity, double falsePositiveRate, int windowSize) {
+        if (capacity <= 0 || windowSize < 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("capacity and windowSize must be positive and falsePositiveRate in (0, 1)");
+        }
+        this.capacity = capacity;
+        // optimal m = -n ln p / (ln 2)^2 and k = m / n ln 2
+        long optimalBits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bits = (int) Math.min(Integer.MAX_VALUE - 63, Math.max(64, optimalBits));
+        this.hashes = Math.max(1, (int) Math.round((double) bits / capacity * Math.log(2)));
+        this.current = new long[(bits + 63) >>> 6];
+        this.previous = new long[current.length];
+        this.window = new LinkedHashMap<>(Math.min(windowSize, 1 << 16), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Boolean> eldest) {
+                return size() > windowSize;
+            }
+        };
+    }
+
+    public synchronized Lookup lookup(UUID eventId) {
+        long h1 = mix(eventId.getMostSignificantBits());
+        long h2 = mix(eventId.getLeastSignificantBits()) | 1;
+        if (!contains(current, h1, h2) && !contains(previous, h1, h2)) {
+            return Lookup.ABSENT;
+        }
+        return window.get(eventId) != null ? Lookup.SEEN : Lookup.MAYBE;
+    }
+
+    public synchronized void add(UUID eventId) {
+        if (window.put(eventId, Boolean.TRUE) != null) {
+            return;
+        }
+        if (currentCount == capacity) {
+            long[] recycled = previous;
+            Arrays.fill(recycled, 0L);
+            previous = current;
+            current = recycled;
+            currentCount = 0;
+        }
+        long h1 = mix(eventId.getMostSignificantBits());
+        long h2 = mix(eventId.getLeastSignificantBits()) | 1;
+        for (int i = 0; i < hashes; i++) {
+            int bit = index(h1, h2, i);
+            current[bit >>> 6] |= 1L << bit;
+        }
+        currentCount++;
+    }
+
+    private boolean contains(long[] filter, long h1, long h2) {
+        for (int i = 0; i < hashes; i++) {
+            int bit = index(h1, h2, i);
+            if ((filter[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Kirsch-Mitzenmacher double hashing: g_i = h1 + i * h2
+    private int index(long h1, long h2, int i) {
+        return (int) Long.remainderUnsigned(h1 + i * h2, bits);
+    }
+
+    // murmur3 fmix64; random UUIDs are already uniform, time-ordered ones are not
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,59 @@
+package com.key.events.id;
+
+/**
+ * Customer-facing account numbers: {@code KEY}, an 11-digit zero-padded serial and a Luhn check
+ * digit, e.g. {@code KEY000000012344}. The check digit catches every single-digit typo and most
+ * adjacent transpositions before a lookup is made. Serials come from the issuing service;
+ * formatting and validation live here so every service agrees on them.
+ */
+public final class AccountNumbers {
+
+    public static final String PREFIX = "KEY";
+    public static final int SERIAL_DIGITS = 11;
+    public static final long MAX_SERIAL = 99_999_999_999L;
+
+    private static final int LENGTH = PREFIX.length() + SERIAL_DIGITS + 1;
+
+    private AccountNumbers() {
+    }
+
+    public static String format(long serial) {
+        if (serial < 0 || serial > MAX_SERIAL) {
+            throw new IllegalArgumentException("Account serial out of range: " + serial);
+        }
+        String digits = String.format("%0" + SERIAL_DIGITS + "d", serial);
+        return PREFIX + digits + checkDigit(digits);
+    }
+
+    /** True for a number in this format whose check digit matches; older-format ids are not. */
+    public static boolean isValid(String accountNumber) {
+        if (accountNumber == null || accountNumber.length() != LENGTH || !accountNumber.startsWith(PREFIX)) {
+            return false;
+        }
+        for (int i = PREFIX.length(); i < LENGTH; i++) {
+            char c = accountNumber.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        String digits = accountNumber.substring(PREFIX.length(), LENGTH - 1);
+        return checkDigit(digits) == accountNumber.charAt(LENGTH - 1);
+    }
+
+    /** Luhn (mod 10) check digit for a string of ASCII digits. */
+    static char checkDigit(String digits) {
+        int sum = 0;
+        // doubling starts from the rightmost payload digit, the one next to the check digit
+        for (int i = digits.length() - 1, position = 0; i >= 0; i--, position++) {
+            int digit = digits.charAt(i) - '0';
+            if (position % 2 == 0) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+        }
+        return (char) ('0' + (10 - sum % 10) % 10);
+    }
+}
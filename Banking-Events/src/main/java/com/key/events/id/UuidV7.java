@@ -0,0 +1,53 @@
+package com.key.events.id;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * RFC 9562 version 7 UUIDs: a 48-bit Unix-millisecond timestamp, a 12-bit counter and 62
+ * random bits. Keys generated one after another sort one after another, so a B-tree primary key
+ * grows at its right edge instead of splitting pages all over the index, and 62 random bits keep
+ * keys from different instances apart.
+ * <p>
+ * Monotonic within the JVM: the timestamp and counter are advanced together with one CAS, and
+ * more than 4096 IDs in a millisecond (or a clock step backwards) carry into the timestamp,
+ * borrowing from the next millisecond rather than going back. Lock-free and allocation-free
+ * apart from the UUID itself. The random bits are not from a secure source; do not use these as
+ * secrets.
+ */
+public final class UuidV7 {
+
+    private static final long VERSION = 0x7000L;
+    private static final long VARIANT = 0x8000000000000000L;
+    private static final long RANDOM_MASK = 0x3FFFFFFFFFFFFFFFL;
+
+    // millis << 12 | counter
+    private static final AtomicLong state = new AtomicLong();
+
+    private UuidV7() {
+    }
+
+    public static UUID next() {
+        long now = System.currentTimeMillis() << 12;
+        long previous;
+        long next;
+        do {
+            previous = state.get();
+            // a new millisecond starts its counter at a random point in the lower half, leaving room to count up
+            next = now > previous ? now | ThreadLocalRandom.current().nextInt(2048) : previous + 1;
+        } while (!state.compareAndSet(previous, next));
+
+        long mostSignificant = (next >>> 12) << 16 | VERSION | (next & 0xFFF);
+        long leastSignificant = ThreadLocalRandom.current().nextLong() & RANDOM_MASK | VARIANT;
+        return new UUID(mostSignificant, leastSignificant);
+    }
+
+    /** The Unix-millisecond timestamp of a version 7 UUID. */
+    public static long timestamp(UUID uuid) {
+        if (uuid.version() != 7) {
+            throw new IllegalArgumentException("Not a version 7 UUID: " + uuid);
+        }
+        return uuid.getMostSignificantBits() >>> 16;
+    }
+}
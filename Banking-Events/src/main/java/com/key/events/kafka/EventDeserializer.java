@@ -0,0 +1,22 @@
+package com.key.events.kafka;
+
+import com.key.events.BankingEvent;
+import com.key.events.codec.EventCodec;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+/** Value deserializer for the banking topics; the schema id in each record picks the event type. */
+public class EventDeserializer implements Deserializer<BankingEvent> {
+
+    @Override
+    public BankingEvent deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            return EventCodec.decode(data);
+        } catch (RuntimeException e) {
+            throw new SerializationException("Cannot deserialize event from topic " + topic, e);
+        }
+    }
+}
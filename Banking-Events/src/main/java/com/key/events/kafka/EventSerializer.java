@@ -0,0 +1,27 @@
+package com.key.events.kafka;
+
+import com.key.events.BankingEvent;
+import com.key.events.codec.EventCodec;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Value serializer for the banking topics. Accepts a {@link BankingEvent}, or a {@code byte[]}
+ * that is already encoded (as stored by the outbox) and is sent unchanged.
+ */
+public class EventSerializer implements Serializer<Object> {
+
+    @Override
+    public byte[] serialize(String topic, Object data) {
+        if (data == null) {
+            return null;
+        }
+        if (data instanceof byte[] encoded) {
+            return encoded;
+        }
+        if (data instanceof BankingEvent event) {
+            return EventCodec.encode(event);
+        }
+        throw new SerializationException("Cannot serialize " + data.getClass().getName() + " to topic " + topic);
+    }
+}
@@ -0,0 +1,22 @@
+package com.key.events.outbox;
+
+import java.time.LocalDateTime;
+
+/**
+ * A row of a service's outbox table as {@link OutboxRelay} sees it: an already encoded Kafka
+ * record, the key it goes out under and the event's {@link com.key.events.BankingEvent#version()}.
+ */
+public interface OutboxRecord {
+
+    Long getId();
+
+    String getTopic();
+
+    String getMessageKey();
+
+    byte[] getPayload();
+
+    long getAggregateVersion();
+
+    LocalDateTime getCreatedAt();
+}
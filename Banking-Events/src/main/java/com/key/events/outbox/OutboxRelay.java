@@ -0,0 +1,167 @@
+package com.key.events.outbox;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains an outbox table. Each round locks the next batch in id order, issues every send without
+ * waiting (the producer pipelines them), then waits for the acks and deletes the acknowledged
+ * prefix. Anything from the first failed send onwards stays in the table and is retried on the
+ * next round, so per-key ordering is kept at the price of occasional duplicates.
+ * <p>
+ * Ids come from a sequence in blocks per instance, so id order is not commit order: a later
+ * state of an account can sit under a lower id than an earlier one. Within a batch, the events
+ * of one key are therefore sent in version order, and consumers drop a state older than the one
+ * they hold for whatever still arrives late across batches.
+ * <p>
+ * Not a component: each service registers it as a bean over its own outbox repository.
+ * <p>
+ * Metrics: outbox.relay.lag (age of the oldest unsent event), outbox.relay.sent,
+ * outbox.relay.failures, outbox.relay.batch (time per batch) and outbox.relay.send (send-to-ack
+ * latency per topic and outcome).
+ */
+public class OutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final OutboxRepository<? extends OutboxRecord> repository;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int batchSize;
+    private final long sendTimeoutMs;
+
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final Counter sent;
+    private final Counter failures;
+    private final Timer batchTimer;
+
+    public OutboxRelay(OutboxRepository<? extends OutboxRecord> repository, KafkaTemplate<String, Object> kafkaTemplate,
+                       PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                       int batchSize, long sendTimeoutMs) {
+        this.repository = repository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.batchSize = batchSize;
+        this.sendTimeoutMs = sendTimeoutMs;
+
+        Gauge.builder("outbox.relay.lag", lagMillis, lag -> lag.get() / 1000.0)
+                .description("Age in seconds of the oldest event not yet relayed")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        this.sent = meterRegistry.counter("outbox.relay.sent");
+        this.failures = meterRegistry.counter("outbox.relay.failures");
+        this.batchTimer = meterRegistry.timer("outbox.relay.batch");
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.interval-ms:100}")
+    public void relay() {
+        try {
+            // keep going while whole batches are acknowledged, i.e. while we are behind
+            Integer relayed;
+            do {
+                relayed = batchTimer.record(() -> transactionTemplate.execute(status -> relayBatch()));
+            } while (relayed != null && relayed == batchSize);
+        } catch (RuntimeException e) {
+            log.error("Outbox relay round failed", e);
+        } finally {
+            lagMillis.set(repository.findFirstByOrderByIdAsc()
+                    .map(oldest -> Duration.between(oldest.getCreatedAt(), LocalDateTime.now()).toMillis())
+                    .orElse(0L));
+        }
+    }
+
+    /** @return how many events were acknowledged and deleted */
+    private int relayBatch() {
+        List<OutboxRecord> batch = inVersionOrder(repository.findNextBatch(PageRequest.of(0, batchSize)));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        List<CompletableFuture<SendResult<String, Object>>> sends = new ArrayList<>(batch.size());
+        for (OutboxRecord event : batch) {
+            sends.add(send(event));
+        }
+
+        List<Long> acknowledged = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            try {
+                sends.get(i).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+                acknowledged.add(batch.get(i).getId());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                failures.increment();
+                log.warn("Outbox event {} to {} failed, will retry: {}", batch.get(i).getId(), batch.get(i).getTopic(), e.getMessage());
+                break;
+            }
+        }
+
+        if (!acknowledged.isEmpty()) {
+            repository.deleteAllByIdInBatch(acknowledged);
+            sent.increment(acknowledged.size());
+        }
+        return acknowledged.size();
+    }
+
+    /**
+     * The batch in id order, except that each key's events on a topic are sorted by version among the
+     * positions they already hold. The sort is stable, so events without a version keep their id order.
+     */
+    static List<OutboxRecord> inVersionOrder(List<? extends OutboxRecord> batch) {
+        Map<String, List<Integer>> positions = new HashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            OutboxRecord event = batch.get(i);
+            if (event.getMessageKey() != null) {
+                positions.computeIfAbsent(event.getTopic() + '/' + event.getMessageKey(), key -> new ArrayList<>()).add(i);
+            }
+        }
+        List<OutboxRecord> ordered = new ArrayList<>(batch);
+        for (List<Integer> slots : positions.values()) {
+            if (slots.size() > 1) {
+                List<OutboxRecord> versions = slots.stream().<OutboxRecord>map(batch::get)
+                        .sorted(Comparator.comparingLong(OutboxRecord::getAggregateVersion))
+                        .toList();
+                for (int i = 0; i < slots.size(); i++) {
+                    ordered.set(slots.get(i), versions.get(i));
+                }
+            }
+        }
+        return ordered;
+    }
+
+    private CompletableFuture<SendResult<String, Object>> send(OutboxRecord event) {
+        try {
+            // already encoded; EventSerializer passes byte[] through
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return kafkaTemplate.send(event.getTopic(), event.getMessageKey(), event.getPayload())
+                    .whenComplete((result, ex) -> sample.stop(meterRegistry.timer("outbox.relay.send",
+                            "topic", event.getTopic(), "outcome", ex == null ? "acked" : "failed")));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
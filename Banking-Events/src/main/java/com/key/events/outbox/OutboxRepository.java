@@ -0,0 +1,23 @@
+package com.key.events.outbox;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.NoRepositoryBean;
+
+import java.util.List;
+import java.util.Optional;
+
+/** The queries {@link OutboxRelay} needs; each service's outbox repository extends this for its own entity. */
+@NoRepositoryBean
+public interface OutboxRepository<E extends OutboxRecord> extends JpaRepository<E, Long> {
+
+    // FOR UPDATE makes a second relay instance wait instead of sending the same rows out of order
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM #{#entityName} e ORDER BY e.id")
+    List<E> findNextBatch(Pageable pageable);
+
+    Optional<E> findFirstByOrderByIdAsc();
+}
@@ -0,0 +1,71 @@
+package com.key.events.reconcile;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Order-independent 64-bit digest of a set of (accountId, balance) rows.
+ * <p>
+ * Each row is hashed on its own and the row hashes are added up (mod 2^64), so a range can be
+ * digested in chunks on several threads and the chunk digests {@link #merge merged} in any
+ * order, and the digest of a range is the sum of its sub-ranges' digests. Balances are hashed
+ * at scale 2, so {@code 100} and {@code 100.00} agree. Not cryptographic: it detects drift,
+ * not tampering.
+ * <p>
+ * Not thread-safe; use one per thread and merge.
+ */
+public final class BalanceDigest {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private long count;
+    private long hash;
+
+    public void add(String accountId, BigDecimal balance) {
+        hash += rowHash(accountId, balance);
+        count++;
+    }
+
+    public void merge(BalanceDigest other) {
+        hash += other.hash;
+        count += other.count;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public long hash() {
+        return hash;
+    }
+
+    public RangeDigest toRangeDigest(KeyRange range) {
+        return new RangeDigest(range, count, hash);
+    }
+
+    static long rowHash(String accountId, BigDecimal balance) {
+        long h = fnv(FNV_OFFSET, accountId);
+        h = (h ^ 0xff) * FNV_PRIME;  // separator, so ("A1", 0) and ("A", 10) differ
+        h = fnv(h, balance == null ? "null" : balance.setScale(2, RoundingMode.HALF_UP).toPlainString());
+        return mix(h);
+    }
+
+    // FNV-1a over UTF-16 code units
+    private static long fnv(long h, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            h = (h ^ s.charAt(i)) * FNV_PRIME;
+        }
+        return h;
+    }
+
+    // murmur3 fmix64, so that summing row hashes does not cancel out structure in the FNV output
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
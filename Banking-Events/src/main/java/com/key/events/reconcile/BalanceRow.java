@@ -0,0 +1,7 @@
+package com.key.events.reconcile;
+
+import java.math.BigDecimal;
+
+/** One account's balance as a service holds it, fetched once digests have narrowed a drift down. */
+public record BalanceRow(String accountId, BigDecimal balance) {
+}
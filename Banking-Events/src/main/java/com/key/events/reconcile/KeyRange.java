@@ -0,0 +1,11 @@
+package com.key.events.reconcile;
+
+/**
+ * A half-open range of accountIds, {@code from <= accountId < to}; a null bound is open.
+ * Both services evaluate it in their own database, so their accountId columns must sort the
+ * same way (same collation).
+ */
+public record KeyRange(String from, String to) {
+
+    public static final KeyRange ALL = new KeyRange(null, null);
+}
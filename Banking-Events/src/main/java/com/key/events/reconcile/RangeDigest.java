@@ -0,0 +1,12 @@
+package com.key.events.reconcile;
+
+/**
+ * Digest of the (accountId, balance) rows a service holds in {@code range}: how many there
+ * are and their {@link BalanceDigest} hash. Two services agree on the range if both match.
+ */
+public record RangeDigest(KeyRange range, long count, long hash) {
+
+    public boolean matches(RangeDigest other) {
+        return count == other.count && hash == other.hash;
+    }
+}
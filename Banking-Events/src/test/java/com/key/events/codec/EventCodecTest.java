@@ -0,0 +1,68 @@
+package com.key.events.codec;
+
+import com.key.events.AccountEvent;
+import com.key.events.DepositEvent;
+import com.key.events.Money;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventCodecTest {
+
+    @Test
+    void depositEventRoundTrips() {
+        DepositEvent event = DepositEvent.of(DepositEvent.Type.DEBITED, "KEY1A2B3C4D", new BigDecimal("-1250.5"), null);
+
+        byte[] encoded = EventCodec.encode(event);
+
+        assertEquals(event, EventCodec.decode(encoded));
+        assertEquals(new BigDecimal("-1250.50"), event.amount());
+        assertTrue(encoded.length < 64, "encoded deposit event is " + encoded.length + " bytes");
+    }
+
+    @Test
+    void accountEventRoundTripsWithNullsAndNonAsciiText() {
+        AccountEvent event = new AccountEvent(UUID.randomUUID(), AccountEvent.Type.ROLLBACK, "KEY1A2B3C4D", "UPD-7",
+                Money.toMinor(new BigDecimal("99.99")), null, Money.INR, "\u20B9 limit \u0938\u0940\u092E\u093E", System.currentTimeMillis(), 0);
+
+        assertEquals(event, EventCodec.decode(EventCodec.encode(event)));
+    }
+
+    @Test
+    void accountEventFromAVersion1ProducerDecodesWithoutAnAccountVersion() {
+        AccountEvent event = AccountEvent.of(AccountEvent.Type.UPDATED, "KEY1A2B3C4D", "UPD-7", new BigDecimal("10"), "ACTIVE", 7);
+        byte[] encoded = EventCodec.encode(event);
+        assertEquals(7, ((AccountEvent) EventCodec.decode(encoded)).version());
+
+        // version 1 had no trailing account version; 7 is a one-byte varint
+        byte[] version1 = Arrays.copyOf(encoded, encoded.length - 1);
+        version1[1] = EventCodec.VERSION_1;
+
+        AccountEvent decoded = (AccountEvent) EventCodec.decode(version1);
+        assertEquals(0, decoded.version());
+        assertEquals(event.balance(), decoded.balance());
+        assertEquals(event.occurredAt(), decoded.occurredAt());
+    }
+
+    @Test
+    void balanceDeltaFollowsTheTypeNotTheWireSign() {
+        assertEquals(new BigDecimal("-5.00"), DepositEvent.of(DepositEvent.Type.DEBITED, "A", new BigDecimal("5"), null).balanceDelta());
+        assertEquals(new BigDecimal("5.00"), DepositEvent.of(DepositEvent.Type.CREDITED, "A", new BigDecimal("-5"), null).balanceDelta());
+        assertEquals(new BigDecimal("0.00"), DepositEvent.of(DepositEvent.Type.ACCOUNT_SYNCED, "A", new BigDecimal("5"), "UPD-7").balanceDelta());
+    }
+
+    @Test
+    void truncatedOrUnknownInputIsRejected() {
+        byte[] encoded = EventCodec.encode(DepositEvent.of(DepositEvent.Type.CREDITED, "A", BigDecimal.ONE, "ref"));
+
+        assertThrows(IllegalArgumentException.class, () -> EventCodec.decode(Arrays.copyOf(encoded, encoded.length - 3)));
+        assertThrows(IllegalArgumentException.class, () -> EventCodec.decode(new byte[]{9, EventCodec.VERSION_1}));
+        assertThrows(IllegalArgumentException.class, () -> EventCodec.decode(new byte[]{EventCodec.DEPOSIT_EVENT, 2}));
+    }
+}
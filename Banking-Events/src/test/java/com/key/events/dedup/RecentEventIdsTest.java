@@ -0,0 +1,64 @@
+package com.key.events.dedup;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecentEventIdsTest {
+
+    @Test
+    void rememberedIdsAreNeverReportedAbsent() {
+        RecentEventIds recent = new RecentEventIds(10_000, 0.001, 100);
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            UUID id = UUID.randomUUID();
+            ids.add(id);
+            recent.add(id);
+        }
+
+        ids.forEach(id -> assertNotEquals(RecentEventIds.Lookup.ABSENT, recent.lookup(id)));
+        assertEquals(RecentEventIds.Lookup.SEEN, recent.lookup(ids.get(ids.size() - 1)));
+        assertEquals(RecentEventIds.Lookup.MAYBE, recent.lookup(ids.get(0)));
+    }
+
+    @Test
+    void falsePositivesStayNearTheConfiguredRate() {
+        RecentEventIds recent = new RecentEventIds(10_000, 0.001, 0);
+        for (int i = 0; i < 20_000; i++) {
+            recent.add(UUID.randomUUID());
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (recent.lookup(UUID.randomUUID()) != RecentEventIds.Lookup.ABSENT) {
+                falsePositives++;
+            }
+        }
+        // two full generations: at most ~2 x 0.001
+        assertTrue(falsePositives < 400, falsePositives + " false positives in 100000 lookups");
+    }
+
+    @Test
+    void idsOlderThanTwoGenerationsAreForgotten() {
+        RecentEventIds recent = new RecentEventIds(1_000, 0.001, 0);
+        List<UUID> oldest = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            UUID id = UUID.randomUUID();
+            oldest.add(id);
+            recent.add(id);
+        }
+        for (int i = 0; i < 2_000; i++) {
+            recent.add(UUID.randomUUID());
+        }
+
+        long forgotten = oldest.stream().filter(id -> recent.lookup(id) == RecentEventIds.Lookup.ABSENT).count();
+        // anything still matching is a false positive of the two newer generations
+        assertTrue(forgotten >= 95, forgotten + " of 100 old ids forgotten");
+    }
+}
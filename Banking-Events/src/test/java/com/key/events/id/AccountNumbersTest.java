@@ -0,0 +1,27 @@
+package com.key.events.id;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccountNumbersTest {
+
+    @Test
+    void formatsSerialWithLuhnCheckDigit() {
+        assertEquals("KEY000000012344", AccountNumbers.format(1234));
+        assertEquals('3', AccountNumbers.checkDigit("7992739871"));
+        assertTrue(AccountNumbers.isValid(AccountNumbers.format(AccountNumbers.MAX_SERIAL)));
+    }
+
+    @Test
+    void rejectsTyposTranspositionsAndOtherFormats() {
+        assertFalse(AccountNumbers.isValid("KEY000000012345"));  // wrong check digit
+        assertFalse(AccountNumbers.isValid("KEY000000021344"));  // adjacent digits swapped
+        assertFalse(AccountNumbers.isValid("KEY1A2B3C4D"));      // pre-check-digit format
+        assertFalse(AccountNumbers.isValid(null));
+        assertThrows(IllegalArgumentException.class, () -> AccountNumbers.format(-1));
+    }
+}
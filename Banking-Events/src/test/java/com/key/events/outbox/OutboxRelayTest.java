@@ -0,0 +1,69 @@
+package com.key.events.outbox;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OutboxRelayTest {
+
+    @Test
+    void eachKeysVersionedEventsGoOutInVersionOrderWithinTheirPositions() {
+        List<Row> batch = List.of(
+                new Row(1L, "account-updated", "A", 7),
+                new Row(2L, "deposit-credited", "A", 0),
+                new Row(3L, "account-updated", "B", 3),
+                new Row(4L, "account-updated", "A", 5),
+                new Row(5L, "account-updated", "B", 4),
+                new Row(6L, "account-updated", "A", 6));
+
+        List<Long> ids = OutboxRelay.inVersionOrder(batch).stream().map(OutboxRecord::getId).toList();
+
+        // A's states 5, 6, 7 take A's slots 1, 4, 6; B was already in order; the deposit event is on another topic
+        assertEquals(List.of(4L, 2L, 3L, 6L, 5L, 1L), ids);
+    }
+
+    @Test
+    void sameKeyOnAnotherTopicIsOrderedSeparately() {
+        List<Row> batch = List.of(
+                new Row(1L, "account-updated", "A", 2),
+                new Row(2L, "account-rollback", "A", 1));
+
+        assertEquals(List.of(1L, 2L), OutboxRelay.inVersionOrder(batch).stream().map(OutboxRecord::getId).toList());
+    }
+
+    private record Row(Long id, String topic, String key, long version) implements OutboxRecord {
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public String getTopic() {
+            return topic;
+        }
+
+        @Override
+        public String getMessageKey() {
+            return key;
+        }
+
+        @Override
+        public byte[] getPayload() {
+            return new byte[0];
+        }
+
+        @Override
+        public long getAggregateVersion() {
+            return version;
+        }
+
+        @Override
+        public LocalDateTime getCreatedAt() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.key.events.reconcile;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BalanceDigestTest {
+
+    @Test
+    void chunkedDigestsMergeToTheWholeInAnyOrder() {
+        BalanceDigest whole = new BalanceDigest();
+        BalanceDigest first = new BalanceDigest();
+        BalanceDigest second = new BalanceDigest();
+        for (int i = 0; i < 1_000; i++) {
+            String accountId = "KEY" + i;
+            BigDecimal balance = BigDecimal.valueOf(i, 2);
+            whole.add(accountId, balance);
+            (i % 3 == 0 ? first : second).add(accountId, balance);
+        }
+        BalanceDigest merged = new BalanceDigest();
+        merged.merge(second);
+        merged.merge(first);
+
+        assertEquals(whole.count(), merged.count());
+        assertEquals(whole.hash(), merged.hash());
+        assertTrue(whole.toRangeDigest(KeyRange.ALL).matches(merged.toRangeDigest(KeyRange.ALL)));
+    }
+
+    @Test
+    void balancesCompareAtScaleTwo() {
+        assertEquals(BalanceDigest.rowHash("KEY1", new BigDecimal("100")),
+                BalanceDigest.rowHash("KEY1", new BigDecimal("100.00")));
+    }
+
+    @Test
+    void anyChangedRowChangesTheDigest() {
+        assertNotEquals(BalanceDigest.rowHash("KEY1", new BigDecimal("100.00")),
+                BalanceDigest.rowHash("KEY1", new BigDecimal("100.01")));
+        assertNotEquals(BalanceDigest.rowHash("KEY1", BigDecimal.TEN),
+                BalanceDigest.rowHash("KEY11", BigDecimal.ZERO));
+
+        BalanceDigest expected = new BalanceDigest();
+        BalanceDigest swapped = new BalanceDigest();
+        expected.add("KEY1", BigDecimal.ONE);
+        expected.add("KEY2", BigDecimal.TEN);
+        swapped.add("KEY1", BigDecimal.TEN);
+        swapped.add("KEY2", BigDecimal.ONE);
+        assertFalse(expected.toRangeDigest(KeyRange.ALL).matches(swapped.toRangeDigest(KeyRange.ALL)));
+    }
+}
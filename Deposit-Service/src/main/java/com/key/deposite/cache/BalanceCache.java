@@ -0,0 +1,33 @@
+package com.key.deposite.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+
+/**
+ * Write-side handle on the "availableBalances" cache that backs {@code DepositService.getAvailableBalance}.
+ * Puts and evictions made inside a transaction only take effect after it commits, so a
+ * rolled-back update never reaches readers.
+ */
+@Component
+public class BalanceCache {
+
+    public static final String NAME = "availableBalances";
+
+    private final Cache cache;
+
+    public BalanceCache(CacheManager cacheManager) {
+        this.cache = new TransactionAwareCacheDecorator(cacheManager.getCache(NAME));
+    }
+
+    public void put(String accountId, BigDecimal balance) {
+        cache.put(accountId, balance);
+    }
+
+    public void evict(String accountId) {
+        cache.evict(accountId);
+    }
+}
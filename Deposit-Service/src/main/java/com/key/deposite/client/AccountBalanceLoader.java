@@ -0,0 +1,154 @@
+package com.key.deposite.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asks Account Service for balances on replica misses with as few calls as a burst allows.
+ * <p>
+ * Lookups of the same accountId share one in-flight future (single flight), so a hundred credits
+ * racing onto a new account cost one lookup. Lookups of different accounts queue up and are sent
+ * as one {@code GET /accounts/balances?ids=...} of at most {@code deposit.account-lookup.batch.max-size}
+ * ids; at most {@code deposit.account-lookup.batch.max-concurrent} such calls run on the account
+ * lookup executor at a time, and whatever arrives meanwhile goes out in the next one. An idle
+ * service therefore sends a lookup at once, and a busy one sends fewer, larger calls, without a
+ * linger timer.
+ * <p>
+ * Metrics: {@code deposit.account.lookup.batch} (per call, tagged outcome),
+ * {@code deposit.account.lookup.batch.size} and {@code deposit.account.lookup.coalesced}.
+ */
+@Component
+public class AccountBalanceLoader {
+
+    private final AccountClient accountClient;
+    private final Executor accountLookupExecutor;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, CompletableFuture<Optional<BigDecimal>>> inFlight = new ConcurrentHashMap<>();
+    private final Queue<String> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger runningCalls = new AtomicInteger();
+    private final DistributionSummary batchSizes;
+    private final Counter coalesced;
+
+    // ids are sent as query parameters; 200 keep the request line well under Tomcat's 8 KB header limit
+    @Value("${deposit.account-lookup.batch.max-size:200}")
+    private int maxBatchSize;
+
+    @Value("${deposit.account-lookup.batch.max-concurrent:4}")
+    private int maxConcurrentCalls;
+
+    public AccountBalanceLoader(AccountClient accountClient, @Qualifier("accountLookupExecutor") Executor accountLookupExecutor,
+                                MeterRegistry meterRegistry) {
+        this.accountClient = accountClient;
+        this.accountLookupExecutor = accountLookupExecutor;
+        this.meterRegistry = meterRegistry;
+        this.batchSizes = DistributionSummary.builder("deposit.account.lookup.batch.size")
+                .description("Account ids per balances call")
+                .register(meterRegistry);
+        this.coalesced = meterRegistry.counter("deposit.account.lookup.coalesced");
+    }
+
+    /**
+     * The account's balance according to Account Service, or empty if it does not know the account.
+     * Fails with whatever the call failed with.
+     */
+    public CompletableFuture<Optional<BigDecimal>> find(String accountId) {
+        CompletableFuture<Optional<BigDecimal>> created = new CompletableFuture<>();
+        CompletableFuture<Optional<BigDecimal>> existing = inFlight.putIfAbsent(accountId, created);
+        if (existing != null) {
+            coalesced.increment();
+            return existing.copy();  // a caller completing its copy cannot complete the others'
+        }
+        pending.add(accountId);
+        drainIfIdle();
+        return created.copy();
+    }
+
+    private void drainIfIdle() {
+        while (!pending.isEmpty()) {
+            int running = runningCalls.get();
+            if (running >= maxConcurrentCalls) {
+                return;  // the running calls drain the queue as they finish
+            }
+            if (runningCalls.compareAndSet(running, running + 1)) {
+                try {
+                    accountLookupExecutor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    runningCalls.decrementAndGet();
+                    failPending(e);
+                }
+                return;
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            List<String> ids = new ArrayList<>(Math.min(maxBatchSize, 64));
+            String accountId;
+            while (ids.size() < maxBatchSize && (accountId = pending.poll()) != null) {
+                ids.add(accountId);
+            }
+            if (!ids.isEmpty()) {
+                call(ids);
+            }
+        } finally {
+            runningCalls.decrementAndGet();
+            // anything queued while this call ran has to go out with the next one
+            drainIfIdle();
+        }
+    }
+
+    private void call(List<String> ids) {
+        batchSizes.record(ids.size());
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Map<String, BigDecimal> balances;
+        try {
+            balances = accountClient.getBalances(ids);
+        } catch (RuntimeException e) {
+            sample.stop(meterRegistry.timer("deposit.account.lookup.batch", "outcome", "error"));
+            ids.forEach(id -> complete(id, null, e));
+            return;
+        }
+        sample.stop(meterRegistry.timer("deposit.account.lookup.batch", "outcome", "ok"));
+        ids.forEach(id -> complete(id, Optional.ofNullable(balances.get(id)), null));
+    }
+
+    private void failPending(RuntimeException e) {
+        String accountId;
+        while ((accountId = pending.poll()) != null) {
+            complete(accountId, null, e);
+        }
+    }
+
+    // removed before completing, so a lookup arriving from now on asks again rather than reading this answer
+    private void complete(String accountId, Optional<BigDecimal> balance, RuntimeException failure) {
+        CompletableFuture<Optional<BigDecimal>> future = inFlight.remove(accountId);
+        if (future == null) {
+            return;
+        }
+        if (failure != null) {
+            future.completeExceptionally(failure);
+        } else {
+            future.complete(balance);
+        }
+    }
+}
@@ -3,13 +3,19 @@ package com.key.deposite.client;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 
 import java.math.BigDecimal;
-import java.util.concurrent.CompletableFuture;
+import java.util.Collection;
+import java.util.Map;
 
 @FeignClient(name = "account-service", url = "${feign.account-service.url}")
 public interface AccountClient {
 
     @GetMapping("/accounts/{id}/balance")
     BigDecimal getBalance(@PathVariable("id") String id);  // ← Sync return
+
+    // Balances of the ids Account Service knows; unknown or closed accounts are left out. See AccountBalanceLoader
+    @GetMapping("/accounts/balances")
+    Map<String, BigDecimal> getBalances(@RequestParam("ids") Collection<String> ids);
 }
@@ -0,0 +1,20 @@
+package com.key.deposite.concurrency;
+
+import com.key.deposite.entity.DepositAccount;
+import com.key.deposite.enums.DepositType;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/** Balances, version and type of a deposit account read straight from the database, bypassing the persistence context. */
+public record BalanceSnapshot(UUID id, BigDecimal balance, BigDecimal availableBalance, long version, DepositType type) {
+
+    public static BalanceSnapshot of(DepositAccount account) {
+        return new BalanceSnapshot(account.getId(), account.getBalance(), account.getAvailableBalance(), account.getVersion(), account.getType());
+    }
+
+    /** The same account with {@code delta} added to both balances. */
+    public BalanceSnapshot plus(BigDecimal delta) {
+        return new BalanceSnapshot(id, balance.add(delta), availableBalance.add(delta), version, type);
+    }
+}
@@ -0,0 +1,8 @@
+package com.key.deposite.concurrency;
+
+/**
+ * Outcome of {@link BalanceUpdater#addToBalance}: the balances after it, and whether it went to
+ * one of a hot account's slots, whose postings reach the daily totals when the slot is swept.
+ */
+public record BalanceUpdate(BalanceSnapshot balances, boolean inSlot) {
+}
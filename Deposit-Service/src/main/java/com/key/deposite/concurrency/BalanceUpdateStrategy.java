@@ -0,0 +1,20 @@
+package com.key.deposite.concurrency;
+
+/**
+ * How {@link BalanceUpdater} protects the read-modify-write of an account balance.
+ */
+public enum BalanceUpdateStrategy {
+    /** One conditional UPDATE; the database applies the delta and the guard under its row lock. */
+    ATOMIC,
+    /** Read balance and version, write back only if the version is unchanged, retry on conflict. */
+    OPTIMISTIC,
+    /** SELECT ... FOR UPDATE, then modify the locked entity. */
+    PESSIMISTIC,
+    /**
+     * Credits only append their transaction row to the ledger tail and never touch the account
+     * row; the balance is the row's snapshot plus the tail, rolled together by
+     * {@code LedgerSnapshotter}. Debits and overwrites roll the tail in first and then update
+     * the row like {@link #ATOMIC}.
+     */
+    LEDGER
+}
@@ -0,0 +1,255 @@
+package com.key.deposite.concurrency;
+
+import com.key.deposite.entity.DepositAccount;
+import com.key.deposite.exception.InvalidAccountBalanceException;
+import com.key.deposite.hot.BalanceSlots;
+import com.key.deposite.hot.HotAccountDetector;
+import com.key.deposite.ledger.LedgerSnapshotter;
+import com.key.deposite.repository.DepositAccountRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Changes deposit account balances with the concurrency control selected by
+ * {@code deposit.balance.update-strategy}. Joins the caller's transaction if there is one.
+ * The posting engine and bulk postings lock their rows themselves and do not go through here;
+ * under LEDGER they still see only the row's snapshot, which can only understate the balance.
+ * <p>
+ * Under the other strategies a hot account's postings go to one of its slots (see
+ * {@link BalanceSlots}) and only fall back to the row when no slot qualifies; a debit the row
+ * cannot cover moves the slots into the row and is tried once more.
+ * <p>
+ * Metrics, tagged with the strategy: {@code balance.update} (whole update),
+ * {@code balance.update.lock.wait} (the statement that takes the row lock),
+ * {@code balance.update.retries} and {@code balance.update.conflicts} (retries exhausted).
+ */
+@Component
+public class BalanceUpdater {
+
+    private final DepositAccountRepository repository;
+    private final LedgerSnapshotter ledgerSnapshotter;
+    private final BalanceSlots balanceSlots;
+    private final HotAccountDetector hotAccountDetector;
+    private final BalanceUpdateStrategy strategy;
+    private final int maxAttempts;
+
+    private final Timer updateTimer;
+    private final Timer lockWait;
+    private final Counter retries;
+    private final Counter conflicts;
+
+    public BalanceUpdater(DepositAccountRepository repository, LedgerSnapshotter ledgerSnapshotter, BalanceSlots balanceSlots,
+                          HotAccountDetector hotAccountDetector, MeterRegistry meterRegistry,
+                          @Value("${deposit.balance.update-strategy:ATOMIC}") BalanceUpdateStrategy strategy,
+                          @Value("${deposit.balance.optimistic.max-attempts:5}") int maxAttempts) {
+        this.repository = repository;
+        this.ledgerSnapshotter = ledgerSnapshotter;
+        this.balanceSlots = balanceSlots;
+        this.hotAccountDetector = hotAccountDetector;
+        this.strategy = strategy;
+        this.maxAttempts = maxAttempts;
+
+        String tag = strategy.name();
+        this.updateTimer = meterRegistry.timer("balance.update", "strategy", tag);
+        this.lockWait = meterRegistry.timer("balance.update.lock.wait", "strategy", tag);
+        this.retries = meterRegistry.counter("balance.update.retries", "strategy", tag);
+        this.conflicts = meterRegistry.counter("balance.update.conflicts", "strategy", tag);
+    }
+
+    public BalanceUpdateStrategy getStrategy() {
+        return strategy;
+    }
+
+    /** Current balances; under LEDGER, the row's snapshot plus the account's ledger tail, for a hot account row plus slots. */
+    public Optional<BalanceSnapshot> find(String accountId) {
+        if (strategy == BalanceUpdateStrategy.LEDGER) {
+            return repository.findLedgerSnapshot(accountId);
+        }
+        return balanceSlots.isSharded(accountId)
+                ? balanceSlots.find(accountId)
+                : repository.findBalanceSnapshot(accountId);
+    }
+
+    /**
+     * Whether {@link #addToBalance} leaves this delta to the caller's transaction row, which must
+     * then be saved with {@code snapshotted = false}.
+     */
+    public boolean appendsToLedger(BigDecimal delta) {
+        return strategy == BalanceUpdateStrategy.LEDGER && delta.signum() > 0;
+    }
+
+    /**
+     * Brings the whole balance into the account's row so a guard evaluated on the row sees it:
+     * under LEDGER the account's tail, otherwise a hot account's slots. The row stays locked
+     * until the caller's transaction ends; no-op for an account with neither.
+     */
+    @Transactional
+    public void rollUp(String accountId) {
+        if (strategy == BalanceUpdateStrategy.LEDGER) {
+            lockWait.record(() -> ledgerSnapshotter.rollUp(accountId));
+        } else {
+            lockWait.record(() -> balanceSlots.consolidate(accountId));
+        }
+    }
+
+    /**
+     * Adds a signed {@code delta} to both ledger and available balance. A negative delta must be
+     * covered by the available balance, otherwise {@link InvalidAccountBalanceException} is thrown.
+     *
+     * @return the balances after the update and where it went, or empty if the account does not exist or is deleted
+     */
+    @Transactional
+    public Optional<BalanceUpdate> addToBalance(String accountId, BigDecimal delta) {
+        if (strategy == BalanceUpdateStrategy.LEDGER) {
+            return updateTimer.record(() -> addToRow(accountId, delta)).map(balances -> new BalanceUpdate(balances, false));
+        }
+        hotAccountDetector.record(accountId);
+        return updateTimer.record(() -> balanceSlots.isSharded(accountId)
+                ? slotAdd(accountId, delta)
+                : withSlotFallback(accountId, delta, false).map(balances -> new BalanceUpdate(balances, false)));
+    }
+
+    private Optional<BalanceSnapshot> addToRow(String accountId, BigDecimal delta) {
+        return switch (strategy) {
+            case ATOMIC -> atomicAdd(accountId, delta);
+            case OPTIMISTIC -> optimistic(accountId, snapshot -> {
+                verify(snapshot.availableBalance(), delta);
+                return new BigDecimal[]{snapshot.balance().add(delta), snapshot.availableBalance().add(delta)};
+            });
+            case PESSIMISTIC -> pessimistic(accountId, account -> {
+                verify(account.getAvailableBalance(), delta);
+                account.setBalance(account.getBalance().add(delta));
+                account.setAvailableBalance(account.getAvailableBalance().add(delta));
+            });
+            case LEDGER -> ledgerAdd(accountId, delta);
+        };
+    }
+
+    private Optional<BalanceUpdate> slotAdd(String accountId, BigDecimal delta) {
+        // row before slot, as every writer of a hot account takes them
+        if (lockWait.record(() -> repository.lockKeyShare(accountId)).isEmpty()) {
+            return Optional.empty();
+        }
+        if (lockWait.record(() -> balanceSlots.post(accountId, delta))) {
+            return balanceSlots.find(accountId).map(balances -> new BalanceUpdate(balances, true));
+        }
+        // conditional UPDATE whatever the strategy: under PESSIMISTIC, posters holding key-share locks would each wait
+        // for the others to let go of theirs before taking the row FOR UPDATE
+        return withSlotFallback(accountId, delta, true).map(balances -> new BalanceUpdate(balances, false));
+    }
+
+    // The row alone may not cover a debit whose funds sit in the account's slots, including slots another
+    // instance gave it that this one has not heard of yet
+    private Optional<BalanceSnapshot> withSlotFallback(String accountId, BigDecimal delta, boolean atomic) {
+        try {
+            return atomic ? atomicAdd(accountId, delta) : addToRow(accountId, delta);
+        } catch (InvalidAccountBalanceException e) {
+            if (balanceSlots.consolidate(accountId).signum() == 0) {
+                throw e;
+            }
+            return atomic ? atomicAdd(accountId, delta) : addToRow(accountId, delta);
+        }
+    }
+
+    /**
+     * Overwrites the ledger balance with the figure Account Service reported, moving available
+     * balance by the same amount so active holds stay reserved.
+     *
+     * @return the balances after the update, or empty if the account does not exist or is deleted
+     */
+    @Transactional
+    public Optional<BalanceSnapshot> setBalance(String accountId, BigDecimal balance) {
+        // the overwrite replaces the whole balance, so the ledger tail or the slots have to be in the row first
+        rollUp(accountId);
+        return updateTimer.record(() -> switch (strategy) {
+            case ATOMIC, LEDGER -> atomicSet(accountId, balance);
+            case OPTIMISTIC -> optimistic(accountId, snapshot ->
+                    new BigDecimal[]{balance, snapshot.availableBalance().add(balance).subtract(snapshot.balance())});
+            case PESSIMISTIC -> pessimistic(accountId, account -> {
+                account.setAvailableBalance(account.getAvailableBalance().add(balance).subtract(account.getBalance()));
+                account.setBalance(balance);
+            });
+        });
+    }
+
+    private Optional<BalanceSnapshot> ledgerAdd(String accountId, BigDecimal delta) {
+        if (delta.signum() > 0) {
+            // nothing to lock: the caller's un-snapshotted transaction row is the whole write
+            return repository.findLedgerSnapshot(accountId).map(current -> current.plus(delta));
+        }
+        // a debit is checked against the whole balance, so it rolls the tail in and then updates the row
+        rollUp(accountId);
+        return atomicAdd(accountId, delta);
+    }
+
+    private Optional<BalanceSnapshot> atomicSet(String accountId, BigDecimal balance) {
+        return lockWait.record(() -> repository.setBalance(accountId, balance)) == 1
+                ? find(accountId)
+                : Optional.empty();
+    }
+
+    private Optional<BalanceSnapshot> atomicAdd(String accountId, BigDecimal delta) {
+        for (int attempt = 1; ; attempt++) {
+            if (lockWait.record(() -> repository.addToBalance(accountId, delta)) == 1) {
+                // our UPDATE holds the row lock until commit, so this reads our own write
+                return find(accountId);
+            }
+            Optional<BalanceSnapshot> current = repository.findBalanceSnapshot(accountId);
+            if (current.isEmpty()) {
+                return current;
+            }
+            verify(current.get().availableBalance(), delta);
+            // the guard failed against a row that has changed since; try again
+            retryOrFail(accountId, attempt);
+        }
+    }
+
+    /** Reads, computes {ledger, available} from the snapshot and writes back if the version is unchanged. */
+    private Optional<BalanceSnapshot> optimistic(String accountId, Function<BalanceSnapshot, BigDecimal[]> change) {
+        for (int attempt = 1; ; attempt++) {
+            Optional<BalanceSnapshot> current = repository.findBalanceSnapshot(accountId);
+            if (current.isEmpty()) {
+                return current;
+            }
+            BalanceSnapshot snapshot = current.get();
+            BigDecimal[] balances = change.apply(snapshot);
+            if (repository.compareAndSetBalance(snapshot.id(), balances[0], balances[1], snapshot.version()) == 1) {
+                return Optional.of(new BalanceSnapshot(snapshot.id(), balances[0], balances[1], snapshot.version() + 1, snapshot.type()));
+            }
+            retryOrFail(accountId, attempt);
+        }
+    }
+
+    private Optional<BalanceSnapshot> pessimistic(String accountId, Consumer<DepositAccount> change) {
+        Optional<DepositAccount> locked = lockWait.record(() -> repository.lockByAccountId(accountId));
+        return locked.map(account -> {
+            change.accept(account);  // flushed at commit
+            return BalanceSnapshot.of(account);
+        });
+    }
+
+    private void verify(BigDecimal availableBalance, BigDecimal delta) {
+        if (delta.signum() < 0 && availableBalance.add(delta).signum() < 0) {
+            throw new InvalidAccountBalanceException("Insufficient balance");
+        }
+    }
+
+    private void retryOrFail(String accountId, int attempt) {
+        if (attempt >= maxAttempts) {
+            conflicts.increment();
+            throw new OptimisticLockingFailureException(
+                    "Balance of " + accountId + " kept changing, gave up after " + attempt + " attempts");
+        }
+        retries.increment();
+    }
+}
@@ -1,25 +1,71 @@
 package com.key.deposite.config;
 
+import com.key.deposite.outbox.OutboxEventRepository;
+import com.key.events.outbox.OutboxRelay;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.transaction.PlatformTransactionManager;
 
+/**
+ * Deposit topics are keyed by accountId, so the partition count is the ceiling on how many
+ * consumers in a group (instances x listener concurrency) can work on them at once.
+ * KafkaAdmin adds partitions to an existing topic when the configured count is higher; it never
+ * removes them.
+ */
 @Configuration
 public class KafkaConfig {
+
+    @Value("${deposit.kafka.topics.partitions:12}")
+    private int partitions;
+
+    @Value("${deposit.kafka.topics.replicas:1}")
+    private int replicas;
+
     @Bean
     public NewTopic depositCreditedTopic() {
-        return TopicBuilder.name("deposit-credited").partitions(1).build();
+        return TopicBuilder.name("deposit-credited").partitions(partitions).replicas(replicas).build();
     }
 
     @Bean
     public NewTopic depositDebitedTopic() {
-        return TopicBuilder.name("deposit-debited").partitions(1).build();
+        return TopicBuilder.name("deposit-debited").partitions(partitions).replicas(replicas).build();
     }
 
     @Bean
     public NewTopic depositRollbackTopic() {
-        return TopicBuilder.name("deposit-rollback").partitions(1).build();
+        return TopicBuilder.name("deposit-rollback").partitions(partitions).replicas(replicas).build();
+    }
+
+    @Bean
+    public NewTopic depositAccountSyncedTopic() {
+        return TopicBuilder.name("deposit-account-synced").partitions(partitions).replicas(replicas).build();
     }
 
+    // Hands a whole poll to the listener; offsets are committed once the listener returns
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> batchKafkaListenerContainerFactory(
+            ConsumerFactory<Object, Object> consumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        return factory;
+    }
+
+    // Drains this service's outbox table to Kafka; the relay itself is shared, see Banking-Events
+    @Bean
+    public OutboxRelay outboxRelay(OutboxEventRepository repository, KafkaTemplate<String, Object> kafkaTemplate,
+                                   PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                                   @Value("${outbox.relay.batch-size:500}") int batchSize,
+                                   @Value("${outbox.relay.send-timeout-ms:10000}") long sendTimeoutMs) {
+        return new OutboxRelay(repository, kafkaTemplate, transactionManager, meterRegistry, batchSize, sendTimeoutMs);
+    }
 }
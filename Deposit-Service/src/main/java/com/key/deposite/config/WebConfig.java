@@ -0,0 +1,36 @@
+package com.key.deposite.config;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs MVC async work ({@code StreamingResponseBody} exports) on the bounded
+ * {@code streamingExecutor} instead of Spring MVC's thread-per-request fallback, and sets a
+ * timeout long enough for a year-long statement. The timeout applies to every async request,
+ * including the {@code CompletableFuture} endpoints.
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final Executor streamingExecutor;
+
+    @Value("${deposit.statement.timeout:30m}")
+    private Duration timeout;
+
+    public WebConfig(@Qualifier("streamingExecutor") Executor streamingExecutor) {
+        this.streamingExecutor = streamingExecutor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(new TaskExecutorAdapter(streamingExecutor));
+        configurer.setDefaultTimeout(timeout.toMillis());
+    }
+}
@@ -1,15 +1,41 @@
 package com.key.deposite.controller;
 
+import com.key.deposite.dto.CaptureRequest;
 import com.key.deposite.dto.DepositRequest;
 import com.key.deposite.dto.DepositResponse;
-import com.key.deposite.dto.TransactionHistoryResponse;
+import com.key.deposite.dto.HoldRequest;
+import com.key.deposite.dto.HoldResponse;
+import com.key.deposite.dto.DailyTotals;
+import com.key.deposite.dto.MonthlyTotals;
+import com.key.deposite.dto.TransactionHistoryPage;
+import com.key.deposite.enums.StatementFormat;
+import com.key.deposite.enums.TransactionType;
+import com.key.deposite.reconcile.BalanceDigestService;
+import com.key.deposite.services.BulkPostingService;
 import com.key.deposite.services.DepositService;
+import com.key.deposite.services.HoldService;
+import com.key.deposite.services.PostingTotalsService;
+import com.key.deposite.services.StatementService;
+import com.key.events.reconcile.BalanceRow;
+import com.key.events.reconcile.KeyRange;
+import com.key.events.reconcile.RangeDigest;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.List;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 
 @RestController
@@ -19,6 +45,78 @@ public class DepositController {
     @Autowired
     private DepositService depositService;
 
+    @Autowired
+    private BulkPostingService bulkPostingService;
+
+    @Autowired
+    private HoldService holdService;
+
+    @Autowired
+    private StatementService statementService;
+
+    @Autowired
+    private PostingTotalsService postingTotalsService;
+
+    @Autowired
+    private BalanceDigestService balanceDigestService;
+
+    /**
+     * POST /deposits/{accountId}/holds
+     * Reserves amount out of the available balance until captured, released or expiresAt
+     */
+    @PostMapping("/{accountId}/holds")
+    public ResponseEntity<HoldResponse> placeHold(@PathVariable String accountId, @RequestBody HoldRequest request) {
+        return ResponseEntity.ok(holdService.placeHold(accountId, request));
+    }
+
+    /**
+     * GET /deposits/{accountId}/holds
+     * Returns the account's active holds
+     */
+    @GetMapping("/{accountId}/holds")
+    public ResponseEntity<List<HoldResponse>> getActiveHolds(@PathVariable String accountId) {
+        return ResponseEntity.ok(holdService.getActiveHolds(accountId));
+    }
+
+    /**
+     * POST /deposits/holds/{holdId}/release
+     * Returns the held amount to the available balance
+     */
+    @PostMapping("/holds/{holdId}/release")
+    public ResponseEntity<HoldResponse> releaseHold(@PathVariable UUID holdId) {
+        return ResponseEntity.ok(holdService.releaseHold(holdId));
+    }
+
+    /**
+     * POST /deposits/holds/{holdId}/capture
+     * Debits the hold (or the given part of it) and releases the remainder
+     */
+    @PostMapping("/holds/{holdId}/capture")
+    public ResponseEntity<HoldResponse> captureHold(@PathVariable UUID holdId,
+                                                    @RequestBody(required = false) CaptureRequest request) {
+        return ResponseEntity.ok(holdService.captureHold(holdId, request != null ? request.getAmount() : null));
+    }
+
+    /**
+     * POST /deposits/credit/batch
+     * Credits a JSON array of {accountId, amount, description, referenceId}; streams back a per-line report
+     */
+    @PostMapping(value = "/credit/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public void creditBatch(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        bulkPostingService.post(TransactionType.CREDIT, request.getInputStream(), response.getOutputStream());
+    }
+
+    /**
+     * POST /deposits/debit/batch
+     * Debits a JSON array of {accountId, amount, description, referenceId}; streams back a per-line report
+     */
+    @PostMapping(value = "/debit/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public void debitBatch(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        bulkPostingService.post(TransactionType.DEBIT, request.getInputStream(), response.getOutputStream());
+    }
+
     /**
      * POST /deposits/credit/{accountId}
      * Credits amount to deposit account (async)
@@ -44,18 +142,97 @@ public class DepositController {
     }
 
     /**
-     * GET /deposits/{accountId}/history?limit=10
-     * Returns recent transaction history
+     * GET /deposits/{accountId}/history?limit=10&postedAt=...&id=...
+     * Returns transaction history newest first; pass the previous page's nextPostedAt / nextId
+     * as postedAt / id to continue
      */
     @GetMapping("/{accountId}/history")
-    public ResponseEntity<List<TransactionHistoryResponse>> getHistory(
+    public ResponseEntity<TransactionHistoryPage> getHistory(
             @PathVariable String accountId,
-            @RequestParam(defaultValue = "10") int limit) {
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime postedAt,
+            @RequestParam(required = false) UUID id) {
 
-        List<TransactionHistoryResponse> history = depositService.getTransactionHistory(accountId, limit);
+        TransactionHistoryPage history = depositService.getTransactionHistory(accountId, limit, postedAt, id);
         return ResponseEntity.ok(history);
     }
 
+    /**
+     * GET /deposits/{accountId}/statement?from=2025-01-01&to=2025-12-31&format=csv|ndjson
+     * Streams every transaction posted from `from` through `to`, oldest first, straight from a
+     * database cursor; memory use does not depend on how many rows the period holds
+     */
+    @GetMapping("/{accountId}/statement")
+    public ResponseEntity<StreamingResponseBody> getStatement(
+            @PathVariable String accountId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "csv") String format) {
+
+        // validated up front: once rows are streaming the status can no longer change
+        StatementFormat statementFormat = StatementFormat.parse(format);
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("Statement period ends before it starts: " + from + " to " + to);
+        }
+        StreamingResponseBody body = out -> statementService.writeStatement(accountId, from, to, statementFormat, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(statementFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"statement-" + accountId + "-" + from + "-" + to
+                        + "." + statementFormat.getExtension() + "\"")
+                .body(body);
+    }
+
+    /**
+     * GET /deposits/{accountId}/totals/daily?from=2025-06-01&to=2025-06-30
+     * Credit and debit totals per day with postings, from the daily rollup
+     */
+    @GetMapping("/{accountId}/totals/daily")
+    public ResponseEntity<List<DailyTotals>> getDailyTotals(
+            @PathVariable String accountId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(postingTotalsService.getDailyTotals(accountId, from, to));
+    }
+
+    /**
+     * GET /deposits/{accountId}/totals/monthly?from=2025-01&to=2025-12
+     * Credit and debit totals per month with postings, summed from the daily rollup
+     */
+    @GetMapping("/{accountId}/totals/monthly")
+    public ResponseEntity<List<MonthlyTotals>> getMonthlyTotals(
+            @PathVariable String accountId,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth from,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth to) {
+        return ResponseEntity.ok(postingTotalsService.getMonthlyTotals(accountId, from, to));
+    }
+
+    /**
+     * POST /deposits/reconcile/boundaries?parts=64
+     * Splits a {from, to} accountId range into parts of about equal size; used by Account Service's reconciler
+     */
+    @PostMapping("/reconcile/boundaries")
+    public ResponseEntity<List<String>> getReconcileBoundaries(@RequestBody KeyRange range, @RequestParam int parts) {
+        return ResponseEntity.ok(balanceDigestService.boundaries(range, parts));
+    }
+
+    /**
+     * POST /deposits/reconcile/digests
+     * Count and hash of the live accounts' balances in each [{from, to}, ...] range, computed in parallel
+     */
+    @PostMapping("/reconcile/digests")
+    public ResponseEntity<List<RangeDigest>> getReconcileDigests(@RequestBody List<KeyRange> ranges) {
+        return ResponseEntity.ok(balanceDigestService.digests(ranges));
+    }
+
+    /**
+     * POST /deposits/reconcile/balances
+     * The balances themselves, for ranges whose digests did not match
+     */
+    @PostMapping("/reconcile/balances")
+    public ResponseEntity<List<BalanceRow>> getReconcileBalances(@RequestBody List<KeyRange> ranges) {
+        return ResponseEntity.ok(balanceDigestService.balances(ranges));
+    }
+
     /**
      * GET /deposits/{accountId}/balance
      * Returns available balance (ledger - holds)
@@ -75,13 +252,8 @@ public class DepositController {
             @PathVariable String accountId,
             @RequestBody DepositRequest request) {
 
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                depositService.debitDepositAsync(accountId, request.getAmount());
-                return ResponseEntity.ok("Debited successfully");
-            } catch (Exception e) {
-                return ResponseEntity.badRequest().body("Debit failed: " + e.getMessage());
-            }
-        });
+        return depositService.debitDepositAsync(accountId, request.getAmount())
+                .thenApply(newBalance -> ResponseEntity.ok("Debited successfully"))
+                .exceptionally(ex -> ResponseEntity.badRequest().body("Debit failed: " + ex.getMessage()));
     }
-}
\ No newline at end of file
+}
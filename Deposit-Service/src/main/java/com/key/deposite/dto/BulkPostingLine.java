@@ -0,0 +1,18 @@
+package com.key.deposite.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/** One element of the JSON array posted to /deposits/credit/batch or /deposits/debit/batch. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkPostingLine {
+    private String accountId;
+    private BigDecimal amount;
+    private String description;
+    private String referenceId;
+}
@@ -0,0 +1,27 @@
+package com.key.deposite.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Outcome of one line of a bulk posting file. Line numbers are 1-based positions in the
+ * submitted array; status is POSTED, REJECTED (business rule) or FAILED (the chunk holding
+ * the line could not be committed).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkPostingResult {
+    public static final String POSTED = "POSTED";
+    public static final String REJECTED = "REJECTED";
+    public static final String FAILED = "FAILED";
+
+    private int line;
+    private String accountId;
+    private String status;
+    private BigDecimal newBalance;
+    private String error;
+}
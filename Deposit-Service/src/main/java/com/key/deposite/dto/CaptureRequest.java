@@ -0,0 +1,14 @@
+package com.key.deposite.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CaptureRequest {
+    private BigDecimal amount;  // optional, defaults to the full hold amount
+}
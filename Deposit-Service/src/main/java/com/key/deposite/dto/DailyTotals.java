@@ -0,0 +1,8 @@
+package com.key.deposite.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/** One day of an account's postings; debits as a positive sum. */
+public record DailyTotals(LocalDate date, BigDecimal credits, BigDecimal debits, long postings) {
+}
@@ -0,0 +1,18 @@
+package com.key.deposite.dto;
+
+import com.key.deposite.enums.HoldReason;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HoldRequest {
+    private BigDecimal amount;
+    private HoldReason reason;
+    private LocalDateTime expiresAt;  // optional, defaults to now + deposit.holds.default-ttl
+}
@@ -0,0 +1,20 @@
+package com.key.deposite.dto;
+
+import com.key.deposite.enums.HoldReason;
+import com.key.deposite.enums.HoldStatus;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+public class HoldResponse {
+    private UUID holdId;
+    private String accountId;
+    private BigDecimal amount;
+    private HoldReason reason;
+    private HoldStatus status;
+    private LocalDateTime expiresAt;
+    private BigDecimal availableBalance;  // after the operation; null in listings
+}
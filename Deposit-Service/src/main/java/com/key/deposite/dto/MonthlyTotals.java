@@ -0,0 +1,13 @@
+package com.key.deposite.dto;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+
+/** One month of an account's postings, summed from its daily totals; debits as a positive sum. */
+public record MonthlyTotals(YearMonth month, BigDecimal credits, BigDecimal debits, long postings) {
+
+    // JPQL constructor projection used by DailyPostingTotalRepository
+    public MonthlyTotals(int year, int month, BigDecimal credits, BigDecimal debits, long postings) {
+        this(YearMonth.of(year, month), credits, debits, postings);
+    }
+}
@@ -0,0 +1,12 @@
+package com.key.deposite.dto;
+
+import com.key.deposite.enums.TransactionType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/** One statement row, read as a JPQL constructor projection so exports never load entities. */
+public record StatementLine(UUID id, LocalDateTime postedAt, TransactionType type, BigDecimal amount,
+                            String description, String referenceId) {
+}
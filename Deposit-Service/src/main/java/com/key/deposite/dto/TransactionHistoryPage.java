@@ -0,0 +1,17 @@
+package com.key.deposite.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * One page of history, newest first. Pass nextPostedAt / nextId back as postedAt / id to get
+ * the following page; both are null once the end of the history has been reached.
+ */
+@Data
+public class TransactionHistoryPage {
+    private List<TransactionHistoryResponse> transactions;
+    private LocalDateTime nextPostedAt;
+    private String nextId;
+}
@@ -1,15 +1,28 @@
 package com.key.deposite.dto;
 
+import com.key.deposite.enums.TransactionType;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 @Data
+@NoArgsConstructor
 public class TransactionHistoryResponse {
     private String id;
     private BigDecimal amount;
     private String type;
     private String description;
     private LocalDateTime postedAt;
+
+    // JPQL constructor projection used by DepositTransactionRepository
+    public TransactionHistoryResponse(UUID id, BigDecimal amount, TransactionType type, String description, LocalDateTime postedAt) {
+        this.id = id.toString();
+        this.amount = amount;
+        this.type = type != null ? type.toString() : null;
+        this.description = description;
+        this.postedAt = postedAt;
+    }
 }
@@ -0,0 +1,43 @@
+package com.key.deposite.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Per-account, per-day posting totals, maintained alongside every posting (see
+ * {@code PostingRollup}). Debits are summed as positive amounts.
+ */
+@Entity
+@Table(name = "daily_posting_totals")
+@IdClass(DailyPostingTotal.Key.class)
+@Data
+public class DailyPostingTotal {
+    @Id
+    private String accountId;
+
+    @Id
+    private LocalDate postingDate;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal creditTotal = BigDecimal.ZERO;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal debitTotal = BigDecimal.ZERO;
+
+    @Column(nullable = false)
+    private long postingCount;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String accountId;
+        private LocalDate postingDate;
+    }
+}
@@ -2,6 +2,7 @@ package com.key.deposite.entity;
 
 import com.key.deposite.enums.DepositStatus;
 import com.key.deposite.enums.DepositType;
+import com.key.deposite.id.TimeOrderedId;
 import jakarta.persistence.*;
 import lombok.Data;
 import org.hibernate.annotations.CreationTimestamp;
@@ -9,6 +10,7 @@ import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -19,7 +21,7 @@ import java.util.UUID;
 @Data
 public class DepositAccount {
     @Id
-    @GeneratedValue
+    @TimeOrderedId
     private UUID id;
 
     @Column(unique = true, nullable = false)
@@ -42,6 +44,9 @@ public class DepositAccount {
 
     private String currency = "INR";  // Manual INR default
 
+    // Last business date interest was accrued for; InterestAccrualJob skips accounts already at its date
+    private LocalDate interestAccruedThrough;
+
     @CreationTimestamp
     private LocalDateTime createdAt;
 
@@ -56,6 +61,14 @@ public class DepositAccount {
 
     private boolean isDeleted = false;
 
+    // AccountEvent.version of the Account Service state last applied; account-updated events older than it are dropped
+    @Column(columnDefinition = "bigint default 0 not null")
+    private long accountVersion;
+
+    @Version
+    @Column(columnDefinition = "bigint default 0 not null")
+    private long version;
+
     // Pre-persist: Enforce INR precision (manual scale=2)
     @PrePersist
     @PreUpdate
@@ -2,6 +2,7 @@ package com.key.deposite.entity;
 
 import com.key.deposite.enums.HoldReason;
 import com.key.deposite.enums.HoldStatus;
+import com.key.deposite.id.TimeOrderedId;
 import jakarta.persistence.*;
 import lombok.Data;
 import org.hibernate.annotations.CreationTimestamp;
@@ -12,11 +13,14 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "deposit_holds")
+@Table(name = "deposit_holds", indexes = {
+        @Index(columnList = "accountId, status"),
+        @Index(columnList = "status, id"),
+        @Index(columnList = "status, expiresAt")})
 @Data
 public class DepositHold {
     @Id
-    @GeneratedValue
+    @TimeOrderedId
     private UUID id;
 
     @Column(nullable = false)
@@ -1,6 +1,7 @@
 package com.key.deposite.entity;
 
 import com.key.deposite.enums.TransactionType;
+import com.key.deposite.id.TimeOrderedId;
 import jakarta.persistence.*;
 import lombok.Data;
 import org.hibernate.annotations.CreationTimestamp;
@@ -11,11 +12,15 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "deposit_transactions", indexes = {@Index(columnList = "accountId"), @Index(columnList = "postedAt")})
+@Table(name = "deposit_transactions", indexes = {
+        // renamed with the id order fixed so schema update creates it; idx_deposit_txn_account_posted_id can be dropped
+        @Index(name = "idx_deposit_txn_account_posted_id_desc", columnList = "accountId, postedAt DESC, id DESC"),
+        @Index(columnList = "postedAt"),
+        @Index(name = "idx_deposit_txn_ledger_tail", columnList = "snapshotted, accountId")})
 @Data
 public class DepositTransaction {
     @Id
-    @GeneratedValue
+    @TimeOrderedId
     private UUID id;
 
     @Column(nullable = false)
@@ -36,6 +41,10 @@ public class DepositTransaction {
     @CreationTimestamp
     private LocalDateTime postedAt;
 
+    // false = ledger tail: the amount is not in the account's balance columns yet (LEDGER strategy credits)
+    @Column(columnDefinition = "boolean default true not null")
+    private boolean snapshotted = true;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "deposit_account_id")  // Fixed: Unique FK to avoid conflict
     private DepositAccount account;
@@ -1,5 +1,5 @@
 package com.key.deposite.enums;
 
 public enum HoldReason {
-    ACH_PENDING, CHECK_CLEARING
+    ACH_PENDING, CHECK_CLEARING, CARD_AUTHORIZATION
 }
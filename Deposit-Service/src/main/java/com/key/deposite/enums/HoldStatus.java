@@ -1,5 +1,5 @@
 package com.key.deposite.enums;
 
 public enum HoldStatus {
-    ACTIVE, EXPIRED, RELEASED
+    ACTIVE, EXPIRED, RELEASED, CAPTURED
 }
@@ -1,5 +1,5 @@
 package com.key.deposite.enums;
 
 public enum TransactionType {
-    CREDIT, DEBIT, HOLD, RELEASE
+    CREDIT, DEBIT, HOLD, RELEASE, INTEREST
 }
@@ -0,0 +1,194 @@
+package com.key.deposite.events;
+
+import com.key.deposite.cache.BalanceCache;
+import com.key.deposite.concurrency.BalanceUpdater;
+import com.key.deposite.dedup.EventDeduplicator;
+import com.key.deposite.entity.DepositAccount;
+import com.key.deposite.enums.DepositStatus;
+import com.key.deposite.enums.DepositType;
+import com.key.deposite.metrics.ListenerMetrics;
+import com.key.deposite.repository.DepositAccountRepository;
+import com.key.events.AccountEvent;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Batch replacement for {@link DepositEventListener#onAccountEvent}, for when Account Service
+ * creates accounts faster than one insert per record keeps up with (bulk onboarding).
+ * <p>
+ * A whole poll of account-updated records is applied in one transaction: events already
+ * processed are dropped, the rest are folded to the newest state per account (highest account
+ * version, as the relay can send an account's states out of order), accounts this
+ * service has never seen are inserted with one {@code saveAll} (JDBC batches, ids generated in
+ * memory), existing ones get their balance overwritten as on the record path unless the row
+ * already holds a newer account version, and closed ones
+ * are soft-deleted with one UPDATE. Every event carrying an updateId is confirmed on
+ * deposit-account-synced in that transaction, as on the record path. Offsets are committed only after that transaction, so a
+ * failure redelivers the whole poll and nothing is half-applied. The balance cache is refreshed
+ * once it has committed; the account replica is fed by
+ * {@link com.key.deposite.replica.AccountReplicaListener}.
+ */
+@Component
+@ConditionalOnProperty(name = "deposit.listener.mode", havingValue = "BATCH")
+public class AccountEventBatchListener {
+
+    private static final Logger log = LoggerFactory.getLogger(AccountEventBatchListener.class);
+
+    private static final String LISTENER = "account-updated-batch";
+
+    private final DepositAccountRepository repo;
+    private final BalanceCache balanceCache;
+    private final BalanceUpdater balanceUpdater;
+    private final ListenerMetrics listenerMetrics;
+    private final EventDeduplicator deduplicator;
+    private final DepositEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    public AccountEventBatchListener(DepositAccountRepository repo, BalanceCache balanceCache, BalanceUpdater balanceUpdater, ListenerMetrics listenerMetrics,
+                                     EventDeduplicator deduplicator, DepositEventPublisher eventPublisher,
+                                     PlatformTransactionManager transactionManager) {
+        this.repo = repo;
+        this.balanceCache = balanceCache;
+        this.balanceUpdater = balanceUpdater;
+        this.listenerMetrics = listenerMetrics;
+        this.deduplicator = deduplicator;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @KafkaListener(topics = "account-updated", groupId = "deposit-group",
+            containerFactory = "batchKafkaListenerContainerFactory", concurrency = "${deposit.listener.concurrency:1}",
+            properties = "max.poll.records=${deposit.listener.batch.max-poll-records:2000}")
+    public void onAccountEvents(List<ConsumerRecord<String, AccountEvent>> records) {
+        Timer.Sample sample = listenerMetrics.received(LISTENER, records);
+        String outcome = ListenerMetrics.ERROR;
+        try {
+            outcome = apply(records);
+        } finally {
+            listenerMetrics.processed(sample, LISTENER, outcome);
+        }
+    }
+
+    private String apply(List<ConsumerRecord<String, AccountEvent>> records) {
+        List<AccountEvent> events = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, AccountEvent> record : records) {
+            if (!deduplicator.isDuplicate(LISTENER, record.value().eventId())) {
+                events.add(record.value());
+            }
+        }
+        if (events.isEmpty()) {
+            return records.isEmpty() ? ListenerMetrics.IGNORED : ListenerMetrics.DUPLICATE;
+        }
+
+        Map<String, AccountState> states = transactionTemplate.execute(status -> sync(events));
+        states.forEach((accountId, state) -> {
+            if (state.closed) {
+                balanceCache.evict(accountId);
+            } else if (state.availableBalance != null) {
+                balanceCache.put(accountId, state.availableBalance);
+            }
+        });
+        log.debug("Applied {} of {} account events to {} accounts", events.size(), records.size(), states.size());
+        return states.isEmpty() ? ListenerMetrics.IGNORED : ListenerMetrics.APPLIED;
+    }
+
+    private Map<String, AccountState> sync(List<AccountEvent> events) {
+        // one partition per account, so a poll holds each account's events in the order they were sent,
+        // which is not always version order
+        Map<String, AccountState> states = new LinkedHashMap<>();
+        List<AccountEvent> sagaUpdates = new ArrayList<>();
+        for (AccountEvent event : events) {
+            if (!deduplicator.claim(LISTENER, event)) {
+                continue;
+            }
+            switch (event.type()) {
+                case CREATED, UPDATED -> {
+                    states.computeIfAbsent(event.accountId(), id -> new AccountState())
+                            .set(event.balance(), event.version());
+                    if (event.updateId() != null) {
+                        sagaUpdates.add(event);
+                    }
+                }
+                case CLOSED -> states.computeIfAbsent(event.accountId(), id -> new AccountState()).closed = true;
+                default -> log.debug("Ignoring event type {} for account {}", event.type(), event.accountId());
+            }
+        }
+        if (states.isEmpty()) {
+            return states;
+        }
+
+        Set<String> existing = new HashSet<>(repo.findExistingAccountIds(states.keySet()));
+        List<DepositAccount> created = new ArrayList<>();
+        List<String> closed = new ArrayList<>();
+        states.forEach((accountId, state) -> {
+            if (!existing.contains(accountId)) {
+                if (state.balance != null) {
+                    created.add(newDepositAccount(accountId, state));
+                    state.availableBalance = state.balance;
+                }
+            } else {
+                if (state.balance != null && repo.advanceAccountVersion(accountId, state.version) == 0) {
+                    log.debug("Dropped account {} state at version {}, the row is newer", accountId, state.version);
+                } else if (state.balance != null) {
+                    // deleted accounts come back empty and are left as they are
+                    balanceUpdater.setBalance(accountId, state.balance)
+                            .ifPresent(updated -> state.availableBalance = updated.availableBalance());
+                }
+                if (state.closed) {
+                    closed.add(accountId);
+                }
+            }
+        });
+        repo.saveAll(created);
+        if (!closed.isEmpty()) {
+            repo.markDeleted(closed);
+        }
+        // the folded balance, or a newer one, is already applied, so each update the poll held is confirmed
+        sagaUpdates.forEach(event -> eventPublisher.publishAccountSynced(event.accountId(), event.balance(), event.updateId()));
+        log.debug("Account sync: {} created, {} updated or closed", created.size(), states.size() - created.size());
+        return states;
+    }
+
+    private DepositAccount newDepositAccount(String accountId, AccountState state) {
+        DepositAccount acc = new DepositAccount();
+        acc.setAccountId(accountId);
+        acc.setBalance(state.balance);
+        acc.setAvailableBalance(state.balance);
+        acc.setType(DepositType.CHECKING);
+        acc.setStatus(DepositStatus.ACTIVE);
+        acc.setAccountVersion(state.version);
+        // created and closed within the same poll: kept as a deleted row, as the record path would leave it
+        acc.setDeleted(state.closed);
+        return acc;
+    }
+
+    /** Newest state of one account within a poll; closing is final, as a deleted row is never revived. */
+    private static final class AccountState {
+        private BigDecimal balance;
+        private long version;
+        private BigDecimal availableBalance;
+        private boolean closed;
+
+        private void set(BigDecimal balance, long version) {
+            if (this.balance == null || version >= this.version) {
+                this.balance = balance;
+                this.version = version;
+            }
+        }
+    }
+}
@@ -1,86 +1,110 @@
 package com.key.deposite.events;
 
+import com.key.deposite.cache.BalanceCache;
+import com.key.deposite.concurrency.BalanceUpdater;
+import com.key.deposite.dedup.EventDeduplicator;
 import com.key.deposite.dto.DepositRequest;
 import com.key.deposite.entity.DepositAccount;
 import com.key.deposite.enums.DepositStatus;
 import com.key.deposite.enums.DepositType;
+import com.key.deposite.metrics.ListenerMetrics;
 import com.key.deposite.repository.DepositAccountRepository;
+import com.key.events.AccountEvent;
+import io.micrometer.core.instrument.Timer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
-import java.util.Map;
 
 @Component
+@ConditionalOnProperty(name = "deposit.listener.mode", havingValue = "RECORD", matchIfMissing = true)
 public class DepositEventListener {
 
     private static final Logger log = LoggerFactory.getLogger(DepositEventListener.class);
     private final DepositAccountRepository repo;
+    private final BalanceCache balanceCache;
+    private final BalanceUpdater balanceUpdater;
+    private final ListenerMetrics listenerMetrics;
+    private final EventDeduplicator deduplicator;
+    private final DepositEventPublisher eventPublisher;
 
-    public DepositEventListener(DepositAccountRepository repo) {
+    public DepositEventListener(DepositAccountRepository repo, BalanceCache balanceCache, BalanceUpdater balanceUpdater,
+                                ListenerMetrics listenerMetrics, EventDeduplicator deduplicator,
+                                DepositEventPublisher eventPublisher) {
         this.repo = repo;
+        this.balanceCache = balanceCache;
+        this.balanceUpdater = balanceUpdater;
+        this.listenerMetrics = listenerMetrics;
+        this.deduplicator = deduplicator;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
-     * Listens to the **account-updated** topic.
-     * Payload format (sent by Account Service):
-     * ->
-     *   { "accountId": "KEY123ABC",
-     *   "type": "CREATED|UPDATED|CLOSED",   // we care about CREATED & UPDATED
-     *   "balance": "1500.00",
-     *   "currency": "INR"
-     * }
+     * Listens to the **account-updated** topic for {@link AccountEvent}s sent by Account Service:
+     * CREATED and UPDATED carry the account's balance and status, CLOSED retires the deposit account.
+     * The account replica is fed separately, by {@link com.key.deposite.replica.AccountReplicaListener}.
+     * A redelivered event is skipped, and so is a state older than the account version the row already holds
+     * (the outbox relay can send an account's states out of order), so an old balance cannot
+     * overwrite a newer one.
+     * An event with an updateId comes from Account Service's balance-update saga and is confirmed
+     * on deposit-account-synced in the same transaction.
      */
-    @KafkaListener(topics = "account-updated", groupId = "deposit-group")
-    public void onAccountEvent(ConsumerRecord<String, Object> record) {
-        @SuppressWarnings("unchecked")
-        Map<String, Object> payload = (Map<String, Object>) record.value();
-
-        String accountId = (String) payload.get("accountId");
-        String type      = (String) payload.get("type");
-        String balanceStr= (String) payload.getOrDefault("balance", "0");
-
-        if (accountId == null || type == null) {
-            log.warn("Invalid account-updated payload – missing fields: {}", payload);
-            return;
-        }
-
-        // -------------------------------------------------
-        // 1. Parse balance safely
-        // -------------------------------------------------
-        BigDecimal balance;
+    @KafkaListener(topics = "account-updated", groupId = "deposit-group", concurrency = "${deposit.listener.concurrency:1}")
+    public void onAccountEvent(ConsumerRecord<String, AccountEvent> record) {
+        Timer.Sample sample = listenerMetrics.received(record.topic(), record);
+        String outcome = ListenerMetrics.ERROR;
         try {
-            balance = new BigDecimal(balanceStr);
-        } catch (NumberFormatException e) {
-            log.warn("Invalid balance value '{}' for account {} – skipping", balanceStr, accountId);
-            return;
+            outcome = deduplicator.processOnce(record.topic(), record.value(), () -> handle(record.value()));
+        } finally {
+            listenerMetrics.processed(sample, record.topic(), outcome);
         }
+    }
 
-        // -------------------------------------------------
-        // 2. Decide what to do
-        // -------------------------------------------------
-        switch (type) {
-            case "CREATED", "UPDATED" -> syncDepositAccount(accountId, balance);
-            case "CLOSED"            -> markDeleted(accountId);
-            default                  -> log.debug("Ignoring event type {} for account {}", type, accountId);
+    private String handle(AccountEvent event) {
+        String accountId = event.accountId();
+        switch (event.type()) {
+            case CREATED, UPDATED -> {
+                BigDecimal balance = event.balance();
+                boolean stale = isStale(event);
+                if (!stale) {
+                    syncDepositAccount(accountId, balance, event.version());
+                }
+                // a newer state already includes this update, so a stale one is still confirmed
+                if (event.updateId() != null) {
+                    eventPublisher.publishAccountSynced(accountId, balance, event.updateId());
+                }
+                if (stale) {
+                    log.debug("Dropped account {} state at version {}, the row is newer", accountId, event.version());
+                    return ListenerMetrics.IGNORED;
+                }
+            }
+            case CLOSED -> markDeleted(accountId);
+            default -> {
+                log.debug("Ignoring event type {} for account {}", event.type(), accountId);
+                return ListenerMetrics.IGNORED;
+            }
         }
+        return ListenerMetrics.APPLIED;
+    }
+
+    private boolean isStale(AccountEvent event) {
+        return repo.advanceAccountVersion(event.accountId(), event.version()) == 0 && repo.existsByAccountId(event.accountId());
     }
 
     /** -------------------------------------------------
      *  CREATE or UPDATE the local DepositAccount
      *  ------------------------------------------------- */
-    private void syncDepositAccount(String accountId, BigDecimal balance) {
-        repo.findByAccountIdAndIsDeletedFalse(accountId)
+    private void syncDepositAccount(String accountId, BigDecimal balance, long accountVersion) {
+        balanceUpdater.setBalance(accountId, balance)
                 .ifPresentOrElse(
-                        existing -> {
+                        updated -> {
                             // ---- UPDATE ----
-                            existing.setBalance(balance);
-                            existing.setAvailableBalance(balance);
-                            repo.save(existing);
-                            log.info("DepositAccount {} balance UPDATED to {}", accountId, balance);
+                            balanceCache.put(accountId, updated.availableBalance());
+                            log.debug("DepositAccount {} balance UPDATED to {}", accountId, balance);
                         },
                         () -> {
                             // ---- CREATE ----
@@ -90,7 +114,9 @@ public class DepositEventListener {
                             acc.setAvailableBalance(balance);
                             acc.setType(DepositType.CHECKING);
                             acc.setStatus(DepositStatus.ACTIVE);
+                            acc.setAccountVersion(accountVersion);
                             repo.save(acc);
+                            balanceCache.put(accountId, balance);
                             log.info("DepositAccount {} CREATED with balance {}", accountId, balance);
                         });
     }
@@ -103,6 +129,7 @@ public class DepositEventListener {
                 .ifPresent(acc -> {
                     acc.setDeleted(true);
                     repo.save(acc);
+                    balanceCache.evict(accountId);
                     log.info("DepositAccount {} marked DELETED (account closed)", accountId);
                 });
     }
@@ -0,0 +1,39 @@
+package com.key.deposite.events;
+
+import com.key.deposite.outbox.OutboxPublisher;
+import com.key.events.DepositEvent;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+
+/**
+ * Builds the deposit-credited / deposit-debited / deposit-rollback / deposit-account-synced events
+ * consumed by Account Service and writes them to the outbox in the caller's transaction.
+ */
+@Component
+public class DepositEventPublisher {
+
+    private final OutboxPublisher outboxPublisher;
+
+    public DepositEventPublisher(OutboxPublisher outboxPublisher) {
+        this.outboxPublisher = outboxPublisher;
+    }
+
+    public void publishCredited(String accountId, BigDecimal amount) {
+        outboxPublisher.publish("deposit-credited", DepositEvent.of(DepositEvent.Type.CREDITED, accountId, amount, null));
+    }
+
+    /** @param amount the signed (negative) posting amount */
+    public void publishDebited(String accountId, BigDecimal amount) {
+        outboxPublisher.publish("deposit-debited", DepositEvent.of(DepositEvent.Type.DEBITED, accountId, amount, null));
+    }
+
+    public void publishRollback(String accountId, BigDecimal amount, String referenceId) {
+        outboxPublisher.publish("deposit-rollback", DepositEvent.of(DepositEvent.Type.ROLLBACK_CREDIT, accountId, amount, referenceId));
+    }
+
+    /** Confirms to Account Service's saga that the account-updated event {@code updateId} has been applied. */
+    public void publishAccountSynced(String accountId, BigDecimal balance, String updateId) {
+        outboxPublisher.publish("deposit-account-synced", DepositEvent.of(DepositEvent.Type.ACCOUNT_SYNCED, accountId, balance, updateId));
+    }
+}
@@ -0,0 +1,7 @@
+package com.key.deposite.exception;
+
+public class AccountDeactivatedException extends RuntimeException {
+    public AccountDeactivatedException(String message) {
+        super(message);
+    }
+}
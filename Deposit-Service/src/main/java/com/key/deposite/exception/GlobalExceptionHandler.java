@@ -25,6 +25,30 @@ public class GlobalExceptionHandler {
         return ResponseEntity.badRequest().body(response);
     }
 
+    @ExceptionHandler(AccountDeactivatedException.class)
+    public ResponseEntity<DepositResponse> handleAccountDeactivated(AccountDeactivatedException e) {
+        DepositResponse response = new DepositResponse();
+        response.setMessage(e.getMessage());
+        response.setNewBalance(null);
+        return ResponseEntity.badRequest().body(response);
+    }
+
+    @ExceptionHandler(HoldNotFoundException.class)
+    public ResponseEntity<DepositResponse> handleHoldNotFound(HoldNotFoundException e) {
+        DepositResponse response = new DepositResponse();
+        response.setMessage(e.getMessage());
+        response.setNewBalance(null);
+        return ResponseEntity.badRequest().body(response);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<DepositResponse> handleIllegalArgument(IllegalArgumentException e) {
+        DepositResponse response = new DepositResponse();
+        response.setMessage(e.getMessage());
+        response.setNewBalance(null);
+        return ResponseEntity.badRequest().body(response);
+    }
+
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<DepositResponse> handleRuntime(RuntimeException e) {
         DepositResponse response = new DepositResponse();
@@ -0,0 +1,180 @@
+package com.key.deposite.holds;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel: {@code levels} wheels of {@code wheelSize} buckets, each level's
+ * tick being a whole turn of the level below. Scheduling and cancelling are O(1) (a linked-list
+ * insert or unlink into the right bucket); each entry is moved down at most once per level
+ * before it fires, so expiry is O(levels) per entry no matter how many are pending.
+ * <p>
+ * Entries never fire early. An entry fires on the first {@link #advance(long)} past the end of
+ * the tick its deadline falls in, so at most one tick late when advanced on tick boundaries, and
+ * in any case by the first advance a whole tick after its deadline. Deadlines beyond the top
+ * level's range park in its farthest bucket and are re-placed when that bucket comes round.
+ * All methods are synchronized; the wheel does no work between calls to {@code advance}.
+ */
+public class HierarchicalTimingWheel<T> {
+
+    private final long[] ticks;
+    private final Bucket<T>[][] buckets;
+    private final int wheelSize;
+    private long currentTime;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public HierarchicalTimingWheel(long tickMs, int wheelSize, int levels, long startMs) {
+        this.wheelSize = wheelSize;
+        this.ticks = new long[levels];
+        this.buckets = new Bucket[levels][wheelSize];
+        long tick = tickMs;
+        for (int level = 0; level < levels; level++) {
+            ticks[level] = tick;
+            for (int slot = 0; slot < wheelSize; slot++) {
+                buckets[level][slot] = new Bucket<>();
+            }
+            tick = Math.multiplyExact(tick, (long) wheelSize);
+        }
+        this.currentTime = startMs - Math.floorMod(startMs, tickMs);
+    }
+
+    public synchronized Timeout<T> schedule(T payload, long deadlineMs) {
+        Timeout<T> timeout = new Timeout<>(this, payload, deadlineMs);
+        place(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Moves time forward to {@code nowMs} and returns the payloads whose deadline has passed, in
+     * no particular order.
+     */
+    public synchronized List<T> advance(long nowMs) {
+        List<T> due = new ArrayList<>();
+        while (currentTime + ticks[0] <= nowMs) {
+            expire(buckets[0][slot(0, currentTime)], due);
+            currentTime += ticks[0];
+            // cascade from the top so entries can fall through several levels in one step
+            for (int level = ticks.length - 1; level > 0; level--) {
+                if (currentTime % ticks[level] == 0) {
+                    Bucket<T> bucket = buckets[level][slot(level, currentTime)];
+                    for (Timeout<T> timeout = bucket.drain(); timeout != null; ) {
+                        Timeout<T> next = timeout.next;
+                        timeout.next = null;
+                        place(timeout);
+                        timeout = next;
+                    }
+                }
+            }
+        }
+        size -= due.size();
+        return due;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private synchronized boolean cancel(Timeout<T> timeout) {
+        if (timeout.bucket == null) {
+            return false;
+        }
+        timeout.bucket.remove(timeout);
+        size--;
+        return true;
+    }
+
+    private void place(Timeout<T> timeout) {
+        // already past: goes into the current slot and fires on the next advance
+        long deadline = Math.max(timeout.deadline, currentTime);
+        int top = ticks.length - 1;
+        for (int level = 0; level <= top; level++) {
+            long levelStart = currentTime - Math.floorMod(currentTime, ticks[level]);
+            long span = ticks[level] * wheelSize;
+            if (level == 0 ? deadline < currentTime + span : deadline < levelStart + span) {
+                buckets[level][slot(level, deadline)].add(timeout);
+                return;
+            }
+        }
+        long topStart = currentTime - Math.floorMod(currentTime, ticks[top]);
+        buckets[top][slot(top, topStart + ticks[top] * (wheelSize - 1))].add(timeout);
+    }
+
+    private void expire(Bucket<T> bucket, List<T> due) {
+        for (Timeout<T> timeout = bucket.drain(); timeout != null; timeout = timeout.next) {
+            due.add(timeout.payload);
+        }
+    }
+
+    private int slot(int level, long time) {
+        return (int) Math.floorMod(time / ticks[level], (long) wheelSize);
+    }
+
+    public static final class Timeout<T> {
+        private final HierarchicalTimingWheel<T> wheel;
+        private final T payload;
+        private final long deadline;
+        private Bucket<T> bucket;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+
+        private Timeout(HierarchicalTimingWheel<T> wheel, T payload, long deadline) {
+            this.wheel = wheel;
+            this.payload = payload;
+            this.deadline = deadline;
+        }
+
+        public T payload() {
+            return payload;
+        }
+
+        public long deadline() {
+            return deadline;
+        }
+
+        /** @return false if the timeout already fired or was cancelled */
+        public boolean cancel() {
+            return wheel.cancel(this);
+        }
+    }
+
+    private static final class Bucket<T> {
+        private Timeout<T> head;
+
+        void add(Timeout<T> timeout) {
+            timeout.bucket = this;
+            timeout.prev = null;
+            timeout.next = head;
+            if (head != null) {
+                head.prev = timeout;
+            }
+            head = timeout;
+        }
+
+        void remove(Timeout<T> timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.bucket = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+
+        /** Detaches and returns the whole chain; entries keep their next links for iteration. */
+        Timeout<T> drain() {
+            Timeout<T> chain = head;
+            head = null;
+            for (Timeout<T> timeout = chain; timeout != null; timeout = timeout.next) {
+                timeout.bucket = null;
+                timeout.prev = null;
+            }
+            return chain;
+        }
+    }
+}
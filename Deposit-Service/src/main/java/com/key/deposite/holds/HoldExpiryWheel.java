@@ -0,0 +1,138 @@
+package com.key.deposite.holds;
+
+import com.key.deposite.entity.DepositHold;
+import com.key.deposite.enums.HoldStatus;
+import com.key.deposite.repository.DepositHoldRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory expiry schedule for active holds, kept in a {@link HierarchicalTimingWheel} so
+ * placing, releasing and expiring a hold are O(1) no matter how many are outstanding. Nothing
+ * here is durable: on startup the wheel is rebuilt from the ACTIVE holds in deposit_holds, and
+ * holds whose expiry passed while the service was down fire on the first tick.
+ * <p>
+ * A hold is scheduled only on the instance that placed it (or, after a restart, on every instance,
+ * from the startup rebuild). A hold whose instance went away would otherwise never expire, so every
+ * {@code catch-up-interval-ms} each instance reads the ACTIVE holds more than {@code catch-up-grace}
+ * past their expiry, through the (status, expiresAt) index, and schedules them to fire on the next
+ * tick. Only missed expiries are read, never the whole active set, and they leave the wheel as
+ * soon as they fire. Expiring is idempotent (the hold row is locked and must still be ACTIVE), so
+ * several instances catching up the same hold only cost duplicate no-op attempts.
+ */
+@Component
+public class HoldExpiryWheel {
+
+    private static final Logger log = LoggerFactory.getLogger(HoldExpiryWheel.class);
+    private static final UUID MIN_ID = new UUID(0L, 0L);
+
+    private final DepositHoldRepository holdRepository;
+    private final HierarchicalTimingWheel<UUID> wheel;
+    private final Map<UUID, HierarchicalTimingWheel.Timeout<UUID>> timeouts = new ConcurrentHashMap<>();
+
+    @Value("${deposit.holds.expiry.rebuild-page-size:1000}")
+    private int rebuildPageSize;
+
+    // longer than the placing instance's own lateness, retries included, so a live instance's holds are not read
+    @Value("${deposit.holds.expiry.catch-up-grace:2m}")
+    private Duration catchUpGrace;
+
+    public HoldExpiryWheel(DepositHoldRepository holdRepository, MeterRegistry meterRegistry,
+                           @Value("${deposit.holds.expiry.tick-ms:100}") long tickMs,
+                           @Value("${deposit.holds.expiry.wheel-size:512}") int wheelSize) {
+        this.holdRepository = holdRepository;
+        this.wheel = new HierarchicalTimingWheel<>(tickMs, wheelSize, 4, System.currentTimeMillis());
+        Gauge.builder("deposit.holds.pending", wheel, HierarchicalTimingWheel::size)
+                .description("Active holds waiting for expiry")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        int scheduled = 0;
+        UUID after = MIN_ID;
+        List<DepositHold> page;
+        do {
+            page = holdRepository.findExpiringAfter(HoldStatus.ACTIVE, after, PageRequest.of(0, rebuildPageSize));
+            for (DepositHold hold : page) {
+                after = hold.getId();
+                scheduled += scheduleIfUntracked(hold);
+            }
+        } while (page.size() == rebuildPageSize);
+        log.info("Hold expiry wheel rebuilt with {} active holds", scheduled);
+    }
+
+    // holds whose placing instance went away without expiring them; one page per run, they are gone by the next
+    @Scheduled(fixedDelayString = "${deposit.holds.expiry.catch-up-interval-ms:60000}",
+            initialDelayString = "${deposit.holds.expiry.catch-up-interval-ms:60000}")
+    public void catchUp() {
+        try {
+            int scheduled = 0;
+            List<DepositHold> overdue = holdRepository.findOverdue(HoldStatus.ACTIVE, LocalDateTime.now().minus(catchUpGrace),
+                    PageRequest.of(0, rebuildPageSize));
+            for (DepositHold hold : overdue) {
+                scheduled += scheduleIfUntracked(hold);
+            }
+            if (scheduled > 0) {
+                log.info("Hold expiry catch-up scheduled {} holds past their expiry", scheduled);
+            }
+        } catch (RuntimeException e) {
+            log.error("Hold expiry catch-up failed", e);
+        }
+    }
+
+    public void schedule(UUID holdId, LocalDateTime expiresAt) {
+        HierarchicalTimingWheel.Timeout<UUID> previous = timeouts.put(holdId, wheel.schedule(holdId, toMillis(expiresAt)));
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    public void cancel(UUID holdId) {
+        HierarchicalTimingWheel.Timeout<UUID> timeout = timeouts.remove(holdId);
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    /** Advances the wheel and returns the holds whose expiry has passed; they are no longer tracked. */
+    public List<UUID> due(long nowMs) {
+        List<UUID> due = wheel.advance(nowMs);
+        due.forEach(timeouts::remove);
+        return due;
+    }
+
+    /** Schedules {@code hold} at its expiry unless it is already in the wheel; returns 1 if it was scheduled. */
+    private int scheduleIfUntracked(DepositHold hold) {
+        if (timeouts.containsKey(hold.getId())) {
+            return 0;
+        }
+        HierarchicalTimingWheel.Timeout<UUID> timeout = wheel.schedule(hold.getId(), toMillis(hold.getExpiresAt()));
+        // scheduled by the placing or retry path in the meantime: that one stays
+        if (timeouts.putIfAbsent(hold.getId(), timeout) != null) {
+            timeout.cancel();
+            return 0;
+        }
+        return 1;
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,51 @@
+package com.key.deposite.hot;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * One of a hot account's sub-balances (see {@link BalanceSlots}). The account's balance is its
+ * deposit_accounts row plus all of its slots; a slot's balance is fully available and never
+ * negative. The day totals count the postings made on the slot since the last sweep, all on
+ * {@code postingDate}; the sweep adds them to daily_posting_totals.
+ */
+@Entity
+@Table(name = "deposit_balance_slots")
+@IdClass(BalanceSlot.Key.class)
+@Data
+public class BalanceSlot {
+    @Id
+    private String accountId;
+
+    @Id
+    private int slot;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal balance = BigDecimal.ZERO;
+
+    @Column(nullable = false)
+    private LocalDate postingDate;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal creditTotal = BigDecimal.ZERO;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal debitTotal = BigDecimal.ZERO;
+
+    @Column(nullable = false)
+    private long postingCount;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String accountId;
+        private int slot;
+    }
+}
@@ -0,0 +1,66 @@
+package com.key.deposite.hot;
+
+import com.key.deposite.concurrency.BalanceSnapshot;
+import com.key.events.reconcile.BalanceRow;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BalanceSlotRepository extends JpaRepository<BalanceSlot, BalanceSlot.Key> {
+
+    // Posts a signed delta to one random slot that nobody else holds, counting it on `date`. A debit only goes to a
+    // slot that covers it; 0 means no free slot qualified (or the slots still count an earlier day) and nothing changed
+    @Modifying
+    @Query(value = "UPDATE deposit_balance_slots s SET balance = s.balance + :delta, credit_total = s.credit_total + :credit, " +
+            "debit_total = s.debit_total + :debit, posting_count = s.posting_count + 1 " +
+            "WHERE (s.account_id, s.slot) = (SELECT c.account_id, c.slot FROM deposit_balance_slots c " +
+            "WHERE c.account_id = :accountId AND c.posting_date = :date AND c.balance + :delta >= 0 " +
+            "ORDER BY random() LIMIT 1 FOR UPDATE SKIP LOCKED)", nativeQuery = true)
+    int post(@Param("accountId") String accountId, @Param("date") LocalDate date, @Param("delta") BigDecimal delta,
+             @Param("credit") BigDecimal credit, @Param("debit") BigDecimal debit);
+
+    @Modifying
+    @Query(value = "INSERT INTO deposit_balance_slots (account_id, slot, balance, posting_date, credit_total, debit_total, " +
+            "posting_count) VALUES (:accountId, :slot, 0, :date, 0, 0, 0) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("accountId") String accountId, @Param("slot") int slot, @Param("date") LocalDate date);
+
+    // Callers hold the account row lock first, so sweeps and posters never wait on each other in opposite orders
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM BalanceSlot s WHERE s.accountId = :accountId ORDER BY s.slot")
+    List<BalanceSlot> lockByAccountId(@Param("accountId") String accountId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM BalanceSlot s WHERE s.accountId IN :accountIds ORDER BY s.accountId, s.slot")
+    List<BalanceSlot> lockByAccountIdIn(@Param("accountIds") Collection<String> accountIds);
+
+    // Row plus slots in one statement, so a concurrent sweep is seen either entirely or not at all
+    @Query("SELECT new com.key.deposite.concurrency.BalanceSnapshot(a.id, a.balance + COALESCE(SUM(s.balance), 0), " +
+            "a.availableBalance + COALESCE(SUM(s.balance), 0), a.version, a.type) " +
+            "FROM DepositAccount a LEFT JOIN BalanceSlot s ON s.accountId = a.accountId " +
+            "WHERE a.accountId = :accountId AND a.isDeleted = false " +
+            "GROUP BY a.id, a.balance, a.availableBalance, a.version, a.type")
+    Optional<BalanceSnapshot> findSnapshot(@Param("accountId") String accountId);
+
+    // Reconciliation: what the slots add to each of these accounts' rows; accounts without slots are left out
+    @Query("SELECT new com.key.events.reconcile.BalanceRow(s.accountId, SUM(s.balance)) FROM BalanceSlot s " +
+            "WHERE s.accountId IN :accountIds GROUP BY s.accountId")
+    List<BalanceRow> sumByAccountIdIn(@Param("accountIds") Collection<String> accountIds);
+
+    @Query("SELECT DISTINCT s.accountId FROM BalanceSlot s")
+    List<String> findAccountIds();
+
+    @Modifying
+    @Query("DELETE FROM BalanceSlot s WHERE s.accountId = :accountId")
+    int deleteByAccountId(@Param("accountId") String accountId);
+}
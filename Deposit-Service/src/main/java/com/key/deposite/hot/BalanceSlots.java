@@ -0,0 +1,298 @@
+package com.key.deposite.hot;
+
+import com.key.deposite.concurrency.BalanceSnapshot;
+import com.key.deposite.concurrency.BalanceUpdateStrategy;
+import com.key.deposite.entity.DepositAccount;
+import com.key.deposite.repository.DepositAccountRepository;
+import com.key.deposite.rollup.PostingRollup;
+import com.key.events.reconcile.BalanceRow;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Sub-balances of hot accounts. A sharded account's balance is split between its deposit_accounts
+ * row and {@code deposit.hot-accounts.slots} deposit_balance_slots rows, so postings to it stop
+ * queueing behind one row lock: each credit or debit updates one free slot picked at random,
+ * skipping slots other postings hold, and a debit only takes a slot that covers it. Holds and
+ * balance overwrites act on the row only, so they first move the slots back into the row.
+ * <p>
+ * Every writer locks the account row before its slots: posters take the row's key-share lock
+ * (which the sweep's row lock does not conflict with), sweeps and the batch writers take the
+ * row lock. A slot's postings are counted in its day totals and reach daily_posting_totals
+ * when the slot is swept, like ledger-tail credits do on roll-up.
+ * <p>
+ * Every {@code sweep-interval-ms} the set of sharded accounts is reloaded (other instances
+ * promote accounts too) and each sharded account is rebalanced: its available balance is
+ * spread evenly over its slots, so debits find funds in every slot.
+ * <p>
+ * Metrics: {@code deposit.hot-accounts} (sharded accounts), {@code deposit.hot-accounts.sweep}
+ * (time per round), {@code deposit.hot-accounts.slot.postings} (tagged outcome: posted, or
+ * missed when no slot qualified and the posting went to the row) and
+ * {@code deposit.hot-accounts.consolidations} (slots moved back into the row on demand).
+ */
+@Component
+public class BalanceSlots {
+
+    private static final Logger log = LoggerFactory.getLogger(BalanceSlots.class);
+
+    private final BalanceSlotRepository repository;
+    private final DepositAccountRepository accountRepository;
+    private final PostingRollup postingRollup;
+    private final TransactionTemplate transactionTemplate;
+    private final BalanceUpdateStrategy strategy;
+    private final Set<String> sharded = ConcurrentHashMap.newKeySet();
+
+    private final Timer sweepTimer;
+    private final Counter slotPostings;
+    private final Counter slotMisses;
+    private final Counter consolidations;
+
+    @Value("${deposit.hot-accounts.enabled:false}")
+    private boolean enabled;
+
+    @Value("${deposit.hot-accounts.slots:16}")
+    private int slotCount;
+
+    public BalanceSlots(BalanceSlotRepository repository, DepositAccountRepository accountRepository, PostingRollup postingRollup,
+                        PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                        @Value("${deposit.balance.update-strategy:ATOMIC}") BalanceUpdateStrategy strategy) {
+        this.repository = repository;
+        this.accountRepository = accountRepository;
+        this.postingRollup = postingRollup;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.strategy = strategy;
+        this.sweepTimer = meterRegistry.timer("deposit.hot-accounts.sweep");
+        this.slotPostings = meterRegistry.counter("deposit.hot-accounts.slot.postings", "outcome", "posted");
+        this.slotMisses = meterRegistry.counter("deposit.hot-accounts.slot.postings", "outcome", "missed");
+        this.consolidations = meterRegistry.counter("deposit.hot-accounts.consolidations");
+        meterRegistry.gauge("deposit.hot-accounts", sharded, Set::size);
+    }
+
+    /** Whether this instance knows the account to be sharded; accounts sharded elsewhere show up within a sweep interval. */
+    public boolean isSharded(String accountId) {
+        return sharded.contains(accountId);
+    }
+
+    // slots can outlive a disabled detector, and another instance may have created some this one has not loaded yet
+    private boolean mayHaveSlots() {
+        return enabled || !sharded.isEmpty();
+    }
+
+    /** Row plus slots, read in one statement. */
+    public Optional<BalanceSnapshot> find(String accountId) {
+        return repository.findSnapshot(accountId);
+    }
+
+    /**
+     * Posts a signed delta to one of the account's slots in the caller's transaction. The caller
+     * must already hold the account row's key-share lock.
+     *
+     * @return false if no slot qualified, in which case nothing was written
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean post(String accountId, BigDecimal delta) {
+        // postedAt is stamped when the row is saved, a moment later: a posting straddling midnight counts on the day before
+        boolean posted = repository.post(accountId, LocalDate.now(), delta, delta.max(BigDecimal.ZERO),
+                delta.negate().max(BigDecimal.ZERO)) == 1;
+        (posted ? slotPostings : slotMisses).increment();
+        return posted;
+    }
+
+    /**
+     * Moves the account's slots into its row, which stays locked until the caller's transaction
+     * ends, so a guard evaluated on the row sees the whole balance.
+     *
+     * @return the amount moved, zero if the account has no slots (or no row)
+     */
+    @Transactional
+    public BigDecimal consolidate(String accountId) {
+        if (!mayHaveSlots() || accountRepository.lockForRollUp(accountId) == 0) {
+            return BigDecimal.ZERO;
+        }
+        BigDecimal moved = drain(accountId, repository.lockByAccountId(accountId), BigDecimal.ZERO);
+        if (moved.signum() != 0) {
+            accountRepository.addToSnapshot(accountId, moved);
+            consolidations.increment();
+        }
+        return moved;
+    }
+
+    /**
+     * Batch writers: moves the slots of accounts the caller has just locked into the managed rows,
+     * which the caller's transaction then flushes.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void consolidate(Collection<DepositAccount> lockedAccounts) {
+        if (!mayHaveSlots() || lockedAccounts.isEmpty()) {
+            return;
+        }
+        Map<String, DepositAccount> accounts = lockedAccounts.stream()
+                .collect(Collectors.toMap(DepositAccount::getAccountId, Function.identity()));
+        Map<String, List<BalanceSlot>> slotsByAccount = repository.lockByAccountIdIn(accounts.keySet()).stream()
+                .collect(Collectors.groupingBy(BalanceSlot::getAccountId, LinkedHashMap::new, Collectors.toList()));
+        slotsByAccount.forEach((accountId, slots) -> {
+            BigDecimal moved = drain(accountId, slots, BigDecimal.ZERO);
+            if (moved.signum() != 0) {
+                DepositAccount account = accounts.get(accountId);
+                account.setBalance(account.getBalance().add(moved));
+                account.setAvailableBalance(account.getAvailableBalance().add(moved));
+                consolidations.increment();
+            }
+        });
+    }
+
+    /** Reconciliation rows with the sharded accounts' slots added to their balances. */
+    public List<BalanceRow> withSlotBalances(List<BalanceRow> rows) {
+        Set<String> accountIds = new HashSet<>();
+        rows.forEach(row -> {
+            if (isSharded(row.accountId())) {
+                accountIds.add(row.accountId());
+            }
+        });
+        if (accountIds.isEmpty()) {
+            return rows;
+        }
+        Map<String, BigDecimal> inSlots = repository.sumByAccountIdIn(accountIds).stream()
+                .collect(Collectors.toMap(BalanceRow::accountId, BalanceRow::balance));
+        return rows.stream()
+                .map(row -> inSlots.containsKey(row.accountId())
+                        ? new BalanceRow(row.accountId(), row.balance().add(inSlots.get(row.accountId())))
+                        : row)
+                .toList();
+    }
+
+    /**
+     * Gives an existing account its slots, empty; the next sweep spreads its balance over them.
+     *
+     * @return false if there is no such account
+     */
+    @Transactional
+    public boolean shard(String accountId) {
+        if (accountRepository.findBalanceSnapshot(accountId).isEmpty()) {
+            return false;
+        }
+        LocalDate today = LocalDate.now();
+        for (int slot = 0; slot < slotCount; slot++) {
+            repository.insertIfAbsent(accountId, slot, today);
+        }
+        sharded.add(accountId);
+        log.info("Sharded hot account {} over {} slots", accountId, slotCount);
+        return true;
+    }
+
+    /** Moves the account's slots back into its row and drops them. */
+    @Transactional
+    public void unshard(String accountId) {
+        accountRepository.lockForRollUp(accountId);
+        BigDecimal moved = drain(accountId, repository.lockByAccountId(accountId), BigDecimal.ZERO);
+        if (moved.signum() != 0) {
+            accountRepository.addToSnapshot(accountId, moved);
+        }
+        repository.deleteByAccountId(accountId);
+        sharded.remove(accountId);
+        log.info("Unsharded account {}", accountId);
+    }
+
+    @Scheduled(fixedDelayString = "${deposit.hot-accounts.sweep-interval-ms:5000}")
+    public void sweep() {
+        try {
+            sweepTimer.record(() -> {
+                List<String> accountIds = repository.findAccountIds();
+                sharded.addAll(accountIds);
+                sharded.retainAll(new HashSet<>(accountIds));
+                for (String accountId : accountIds) {
+                    // one short transaction per account keeps each row lock brief
+                    transactionTemplate.executeWithoutResult(status -> {
+                        if (strategy == BalanceUpdateStrategy.LEDGER) {
+                            unshard(accountId);  // LEDGER credits are append-only already; slots only get in its way
+                        } else {
+                            rebalance(accountId);
+                        }
+                    });
+                }
+            });
+        } catch (RuntimeException e) {
+            log.error("Hot account sweep failed", e);
+        }
+    }
+
+    private void rebalance(String accountId) {
+        accountRepository.lockForRollUp(accountId);
+        Optional<BalanceSnapshot> row = accountRepository.findBalanceSnapshot(accountId);
+        if (row.isEmpty()) {
+            unshard(accountId);  // deleted meanwhile
+            return;
+        }
+        List<BalanceSlot> slots = repository.lockByAccountId(accountId);
+        if (slots.isEmpty()) {
+            return;
+        }
+        BigDecimal inSlots = slots.stream().map(BalanceSlot::getBalance).reduce(BigDecimal.ZERO, BigDecimal::add);
+        // rounded down, the remainder stays on the row; held funds are never spread
+        BigDecimal share = row.get().availableBalance().add(inSlots).max(BigDecimal.ZERO)
+                .divide(BigDecimal.valueOf(slots.size()), 2, RoundingMode.DOWN);
+        BigDecimal moved = drain(accountId, slots, share);
+        if (moved.signum() != 0) {
+            accountRepository.addToSnapshot(accountId, moved);
+        }
+    }
+
+    /**
+     * Sets each locked slot to {@code target}, adds the slots' day totals to daily_posting_totals and
+     * starts them afresh on today.
+     *
+     * @return what left the slots, i.e. what the row has to gain (negative if it funded them)
+     */
+    private BigDecimal drain(String accountId, List<BalanceSlot> slots, BigDecimal target) {
+        LocalDate today = LocalDate.now();
+        BigDecimal moved = BigDecimal.ZERO;
+        Map<LocalDate, DayTotals> byDay = new TreeMap<>();
+        for (BalanceSlot slot : slots) {
+            moved = moved.add(slot.getBalance()).subtract(target);
+            slot.setBalance(target);
+            if (slot.getPostingCount() > 0) {
+                DayTotals day = byDay.computeIfAbsent(slot.getPostingDate(), date -> new DayTotals());
+                day.credits = day.credits.add(slot.getCreditTotal());
+                day.debits = day.debits.add(slot.getDebitTotal());
+                day.postings += slot.getPostingCount();
+            }
+            slot.setPostingDate(today);
+            slot.setCreditTotal(BigDecimal.ZERO);
+            slot.setDebitTotal(BigDecimal.ZERO);
+            slot.setPostingCount(0);
+        }
+        byDay.forEach((date, totals) -> postingRollup.add(accountId, date, totals.credits, totals.debits, totals.postings));
+        return moved;
+    }
+
+    private static final class DayTotals {
+        private BigDecimal credits = BigDecimal.ZERO;
+        private BigDecimal debits = BigDecimal.ZERO;
+        private long postings;
+    }
+}
@@ -0,0 +1,116 @@
+package com.key.deposite.hot;
+
+import com.key.deposite.concurrency.BalanceUpdateStrategy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides which accounts get sub-balances (see {@link BalanceSlots}). Accounts listed in
+ * {@code deposit.hot-accounts.designated} are sharded as soon as the detector runs; any other
+ * account is sharded once its postings through this instance reach
+ * {@code threshold-per-second} over one {@code window-ms} window, and unsharded again after
+ * {@code cool-down-windows} windows in a row below half that rate. Only accounts this instance
+ * promoted are demoted by it, and designated accounts never are.
+ * <p>
+ * Off unless {@code deposit.hot-accounts.enabled}, and under the LEDGER strategy, whose credits
+ * do not touch the row in the first place. The posting engine, which writes rows without
+ * {@code BalanceUpdater}, does not start with hot accounts enabled.
+ * <p>
+ * Metrics: {@code deposit.hot-accounts.promotions} and {@code deposit.hot-accounts.demotions}.
+ */
+@Component
+public class HotAccountDetector {
+
+    private static final Logger log = LoggerFactory.getLogger(HotAccountDetector.class);
+
+    private final BalanceSlots balanceSlots;
+    private final boolean active;
+    private final Counter promotions;
+    private final Counter demotions;
+
+    // postings per account in the current window; swapped out whole at the end of it
+    private volatile Map<String, LongAdder> window = new ConcurrentHashMap<>();
+    // accounts promoted here -> windows in a row spent below the demotion rate
+    private final Map<String, Integer> promoted = new ConcurrentHashMap<>();
+
+    @Value("${deposit.hot-accounts.designated:}")
+    private List<String> designated;
+
+    @Value("${deposit.hot-accounts.threshold-per-second:500}")
+    private double thresholdPerSecond;
+
+    @Value("${deposit.hot-accounts.window-ms:1000}")
+    private long windowMs;
+
+    @Value("${deposit.hot-accounts.cool-down-windows:60}")
+    private int coolDownWindows;
+
+    public HotAccountDetector(BalanceSlots balanceSlots, MeterRegistry meterRegistry,
+                              @Value("${deposit.hot-accounts.enabled:false}") boolean enabled,
+                              @Value("${deposit.balance.update-strategy:ATOMIC}") BalanceUpdateStrategy strategy) {
+        this.balanceSlots = balanceSlots;
+        this.active = enabled && strategy != BalanceUpdateStrategy.LEDGER;
+        this.promotions = meterRegistry.counter("deposit.hot-accounts.promotions");
+        this.demotions = meterRegistry.counter("deposit.hot-accounts.demotions");
+    }
+
+    /** Counts one posting to the account. */
+    public void record(String accountId) {
+        if (active) {
+            window.computeIfAbsent(accountId, id -> new LongAdder()).increment();
+        }
+    }
+
+    @Scheduled(fixedRateString = "${deposit.hot-accounts.window-ms:1000}")
+    public void evaluate() {
+        if (!active) {
+            return;
+        }
+        try {
+            Map<String, LongAdder> closed = window;
+            window = new ConcurrentHashMap<>();
+            double seconds = windowMs / 1000.0;
+
+            for (String accountId : designated) {
+                if (!accountId.isBlank() && !balanceSlots.isSharded(accountId)) {
+                    balanceSlots.shard(accountId);  // false until the account exists; tried again next window
+                }
+            }
+            closed.forEach((accountId, postings) -> {
+                if (postings.sum() / seconds >= thresholdPerSecond && !balanceSlots.isSharded(accountId)
+                        && balanceSlots.shard(accountId)) {
+                    promoted.put(accountId, 0);
+                    promotions.increment();
+                    log.info("Promoted hot account {} at {} postings/s", accountId, postings.sum() / seconds);
+                }
+            });
+            for (Map.Entry<String, Integer> entry : promoted.entrySet()) {
+                String accountId = entry.getKey();
+                LongAdder postings = closed.get(accountId);
+                double rate = postings == null ? 0 : postings.sum() / seconds;
+                int quietWindows = rate < thresholdPerSecond / 2 ? entry.getValue() + 1 : 0;
+                if (quietWindows < coolDownWindows || designated.contains(accountId)) {
+                    entry.setValue(quietWindows);
+                    continue;
+                }
+                promoted.remove(accountId);
+                if (balanceSlots.isSharded(accountId)) {
+                    balanceSlots.unshard(accountId);
+                    demotions.increment();
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Hot account evaluation failed", e);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.key.deposite.id;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a UUID primary key to be assigned a {@link com.key.events.id.UuidV7} on persist, in
+ * place of {@code @GeneratedValue}'s random version 4 UUID. Rows inserted in order then sit
+ * next to each other in the primary-key index.
+ */
+@IdGeneratorType(UuidV7Generator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface TimeOrderedId {
+}
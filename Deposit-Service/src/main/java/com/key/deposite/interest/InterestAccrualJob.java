@@ -0,0 +1,299 @@
+package com.key.deposite.interest;
+
+import com.key.deposite.cache.BalanceCache;
+import com.key.deposite.concurrency.BalanceUpdateStrategy;
+import com.key.deposite.concurrency.BalanceUpdater;
+import com.key.deposite.entity.DepositAccount;
+import com.key.deposite.entity.DepositTransaction;
+import com.key.deposite.enums.DepositStatus;
+import com.key.deposite.enums.TransactionType;
+import com.key.deposite.events.DepositEventPublisher;
+import com.key.deposite.hot.BalanceSlots;
+import com.key.deposite.repository.DepositAccountRepository;
+import com.key.deposite.repository.DepositTransactionRepository;
+import com.key.deposite.rollup.PostingRollup;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Daily interest accrual: credits every active account with a positive balance and interest
+ * rate {@code balance x interestRate / day-count} (the rate is annual, e.g. 0.0350 for 3.5%;
+ * rounded half-even to the paisa) for one business date.
+ * <p>
+ * Account ids are read in keyset order, {@code chunk-size} at a time, by one coordinator thread;
+ * each chunk is accrued as one task on a {@link ForkJoinPool} of {@code parallelism} workers,
+ * with up to two chunks per worker in flight. A chunk locks its rows with one IN query, updates
+ * them in memory and flushes accounts, INTEREST transactions, daily totals and outbox events as
+ * JDBC batches in a single transaction. Interest is on the whole balance, so a hot account's
+ * slots and, under LEDGER, each account's ledger tail are rolled into the rows first.
+ * <p>
+ * Restartable: each account records the date it has been accrued through, and a chunk re-checks
+ * it under the row lock, so an account is never credited twice for a date however often the run
+ * is repeated. The run's checkpoint (interest_accrual_runs) is the accountId up to which every
+ * chunk has committed; an interrupted run is resumed from it on startup or with the next
+ * scheduled run, which also finishes older dates first.
+ * <p>
+ * Metrics: {@code deposit.interest.accrual} (time per run), {@code deposit.interest.chunk}
+ * (time per chunk) and {@code deposit.interest.accounts} (accounts accrued).
+ */
+@Component
+public class InterestAccrualJob {
+
+    private static final Logger log = LoggerFactory.getLogger(InterestAccrualJob.class);
+
+    private final DepositAccountRepository accountRepository;
+    private final DepositTransactionRepository transactionRepository;
+    private final InterestAccrualRunRepository runRepository;
+    private final DepositEventPublisher eventPublisher;
+    private final PostingRollup postingRollup;
+    private final BalanceCache balanceCache;
+    private final BalanceSlots balanceSlots;
+    private final BalanceUpdater balanceUpdater;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Timer chunkTimer;
+    private final Counter accountsAccrued;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final ExecutorService coordinator = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "interest-accrual");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${deposit.interest.enabled:true}")
+    private boolean enabled;
+
+    @Value("${deposit.interest.chunk-size:1000}")
+    private int chunkSize;
+
+    // each worker holds a pooled connection while its chunk runs
+    @Value("${deposit.interest.parallelism:4}")
+    private int parallelism;
+
+    @Value("${deposit.interest.day-count:365}")
+    private int dayCount;
+
+    public InterestAccrualJob(DepositAccountRepository accountRepository, DepositTransactionRepository transactionRepository,
+                              InterestAccrualRunRepository runRepository, DepositEventPublisher eventPublisher,
+                              PostingRollup postingRollup, BalanceCache balanceCache, BalanceSlots balanceSlots,
+                              BalanceUpdater balanceUpdater, PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.runRepository = runRepository;
+        this.eventPublisher = eventPublisher;
+        this.postingRollup = postingRollup;
+        this.balanceCache = balanceCache;
+        this.balanceSlots = balanceSlots;
+        this.balanceUpdater = balanceUpdater;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.chunkTimer = meterRegistry.timer("deposit.interest.chunk");
+        this.accountsAccrued = meterRegistry.counter("deposit.interest.accounts");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterrupted() {
+        if (enabled) {
+            start(null);
+        }
+    }
+
+    @Scheduled(cron = "${deposit.interest.cron:0 15 0 * * *}")
+    public void accrueYesterday() {
+        if (enabled) {
+            start(LocalDate.now().minusDays(1));
+        }
+    }
+
+    /**
+     * Finishes any interrupted runs, then accrues {@code businessDate} (if not null), in the
+     * background; the scheduler thread is never held for the length of a run.
+     *
+     * @return false if a run is already in progress on this instance
+     */
+    public boolean start(LocalDate businessDate) {
+        if (!running.compareAndSet(false, true)) {
+            log.warn("Interest accrual already in progress, not starting {}", businessDate);
+            return false;
+        }
+        coordinator.execute(() -> {
+            try {
+                for (InterestAccrualRun unfinished : runRepository.findByStatusNotOrderByBusinessDate(InterestAccrualRun.COMPLETED)) {
+                    if (!unfinished.getBusinessDate().equals(businessDate)) {
+                        run(unfinished.getBusinessDate());
+                    }
+                }
+                if (businessDate != null) {
+                    run(businessDate);
+                }
+            } catch (RuntimeException e) {
+                log.error("Interest accrual failed", e);
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Accrues interest for {@code businessDate}, resuming from its checkpoint if it was
+     * interrupted, and blocks until done.
+     */
+    public InterestAccrualRun run(LocalDate businessDate) {
+        transactionTemplate.executeWithoutResult(status -> runRepository.insertIfAbsent(businessDate, LocalDateTime.now()));
+        InterestAccrualRun run = runRepository.findById(businessDate).orElseThrow();
+        if (InterestAccrualRun.COMPLETED.equals(run.getStatus())) {
+            return run;
+        }
+        setStatus(businessDate, InterestAccrualRun.RUNNING, null);
+        log.info("Interest accrual for {} starting after '{}' with {} workers", businessDate, run.getCheckpoint(), parallelism);
+
+        long startNanos = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        Deque<ForkJoinTask<String>> inFlight = new ArrayDeque<>();
+        String status = InterestAccrualRun.FAILED;
+        try {
+            String after = run.getCheckpoint();
+            List<String> accountIds;
+            do {
+                accountIds = accountRepository.findAccrualCandidates(after, businessDate, PageRequest.of(0, chunkSize));
+                if (accountIds.isEmpty()) {
+                    break;
+                }
+                List<String> chunk = accountIds;
+                String chunkEnd = chunk.get(chunk.size() - 1);
+                inFlight.addLast(pool.submit(() -> {
+                    accrueChunk(businessDate, chunk);
+                    return chunkEnd;
+                }));
+                after = chunkEnd;
+                if (inFlight.size() >= 2 * parallelism) {
+                    checkpoint(businessDate, inFlight.removeFirst().join());
+                }
+            } while (accountIds.size() == chunkSize);
+
+            // oldest first, so the checkpoint only ever moves past chunks that have all committed
+            while (!inFlight.isEmpty()) {
+                checkpoint(businessDate, inFlight.removeFirst().join());
+            }
+            status = InterestAccrualRun.COMPLETED;
+        } catch (RuntimeException e) {
+            log.error("Interest accrual for {} stopped; it resumes from its checkpoint on the next run", businessDate, e);
+            // let the chunks already running commit or fail on their own; they are safe to repeat either way
+            inFlight.forEach(ForkJoinTask::quietlyJoin);
+        } finally {
+            pool.shutdown();
+            setStatus(businessDate, status, InterestAccrualRun.COMPLETED.equals(status) ? LocalDateTime.now() : null);
+        }
+
+        long elapsedNanos = System.nanoTime() - startNanos;
+        meterRegistry.timer("deposit.interest.accrual").record(elapsedNanos, TimeUnit.NANOSECONDS);
+        run = runRepository.findById(businessDate).orElseThrow();
+        log.info("Interest accrual for {} {}: {} accounts, {} interest, {} s", businessDate, status, run.getAccountsAccrued(),
+                run.getInterestTotal(), TimeUnit.NANOSECONDS.toSeconds(elapsedNanos));
+        return run;
+    }
+
+    private void accrueChunk(LocalDate businessDate, List<String> accountIds) {
+        long startNanos = System.nanoTime();
+        Long accrued = transactionTemplate.execute(status -> {
+            List<DepositTransaction> postings = new ArrayList<>(accountIds.size());
+            BigDecimal chunkInterest = BigDecimal.ZERO;
+            long chunkAccounts = 0;
+            if (balanceUpdater.getStrategy() == BalanceUpdateStrategy.LEDGER) {
+                // before the rows are loaded: the roll-up updates them with a query the loaded entities would not see.
+                // The ids are in keyset order, so the chunk still takes its row locks in accountId order
+                accountIds.forEach(balanceUpdater::rollUp);
+            }
+            List<DepositAccount> locked = accountRepository.lockByAccountIdIn(accountIds);
+            balanceSlots.consolidate(locked);  // interest is on the whole balance
+            for (DepositAccount account : locked) {
+                // re-checked under the lock: another run, or a retry of this chunk, may have got here first
+                if (!accrues(account, businessDate)) {
+                    continue;
+                }
+                account.setInterestAccruedThrough(businessDate);
+                chunkAccounts++;
+                BigDecimal interest = dailyInterest(account.getBalance(), account.getInterestRate(), dayCount);
+                if (interest.signum() == 0) {
+                    continue;
+                }
+                account.setBalance(account.getBalance().add(interest));
+                account.setAvailableBalance(account.getAvailableBalance().add(interest));
+                balanceCache.put(account.getAccountId(), account.getAvailableBalance());
+
+                DepositTransaction transaction = new DepositTransaction();
+                transaction.setAccountId(account.getAccountId());
+                transaction.setAmount(interest);
+                transaction.setType(TransactionType.INTEREST);
+                transaction.setDescription("Interest for " + businessDate);
+                transaction.setReferenceId("interest-" + businessDate);
+                transaction.setStatus("POSTED");
+                transaction.setAccount(account);
+                postings.add(transaction);
+
+                eventPublisher.publishCredited(account.getAccountId(), interest);
+                chunkInterest = chunkInterest.add(interest);
+            }
+            // the locked accounts are managed: their updates are flushed as one batch at commit
+            transactionRepository.saveAll(postings);
+            postingRollup.record(postings);
+            runRepository.addProgress(businessDate, chunkAccounts, chunkInterest);
+            return chunkAccounts;
+        });
+        accountsAccrued.increment(accrued != null ? accrued : 0);
+        chunkTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static boolean accrues(DepositAccount account, LocalDate businessDate) {
+        return account.getStatus() == DepositStatus.ACTIVE
+                && account.getInterestRate() != null && account.getInterestRate().signum() > 0
+                && account.getBalance().signum() > 0
+                && (account.getInterestAccruedThrough() == null || account.getInterestAccruedThrough().isBefore(businessDate));
+    }
+
+    /** One day's interest on {@code balance} at the annual {@code rate}, half-even to two decimals. */
+    static BigDecimal dailyInterest(BigDecimal balance, BigDecimal rate, int dayCount) {
+        return balance.multiply(rate).divide(BigDecimal.valueOf(dayCount), 2, RoundingMode.HALF_EVEN);
+    }
+
+    private void checkpoint(LocalDate businessDate, String accountId) {
+        transactionTemplate.executeWithoutResult(status -> runRepository.saveCheckpoint(businessDate, accountId));
+    }
+
+    private void setStatus(LocalDate businessDate, String status, LocalDateTime finishedAt) {
+        transactionTemplate.executeWithoutResult(s -> runRepository.setStatus(businessDate, status, finishedAt));
+    }
+
+    @PreDestroy
+    void stop() {
+        coordinator.shutdownNow();
+    }
+}
@@ -0,0 +1,45 @@
+package com.key.deposite.interest;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Progress of the interest accrual for one business date. {@code checkpoint} is the accountId
+ * up to which every chunk has committed; a restarted run continues after it.
+ */
+@Entity
+@Table(name = "interest_accrual_runs")
+@Data
+public class InterestAccrualRun {
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    @Id
+    private LocalDate businessDate;
+
+    @Column(nullable = false)
+    private String status = RUNNING;
+
+    @Column(nullable = false)
+    private String checkpoint = "";
+
+    // counted in each chunk's own transaction, so they stay exact across restarts
+    @Column(nullable = false)
+    private long accountsAccrued;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal interestTotal = BigDecimal.ZERO;
+
+    private LocalDateTime startedAt;
+
+    private LocalDateTime finishedAt;
+
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,39 @@
+package com.key.deposite.interest;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface InterestAccrualRunRepository extends JpaRepository<InterestAccrualRun, LocalDate> {
+
+    // Opens the run for a date; 0 if it already exists (finished, or interrupted and about to be resumed)
+    @Modifying
+    @Query(value = "INSERT INTO interest_accrual_runs (business_date, status, checkpoint, accounts_accrued, interest_total, " +
+            "started_at, updated_at) VALUES (:date, 'RUNNING', '', 0, 0, :now, :now) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("date") LocalDate date, @Param("now") LocalDateTime now);
+
+    List<InterestAccrualRun> findByStatusNotOrderByBusinessDate(String status);
+
+    // Joins the chunk's transaction: the counters move exactly when the chunk's postings commit
+    @Modifying
+    @Query("UPDATE InterestAccrualRun r SET r.accountsAccrued = r.accountsAccrued + :accounts, " +
+            "r.interestTotal = r.interestTotal + :interest WHERE r.businessDate = :date")
+    int addProgress(@Param("date") LocalDate date, @Param("accounts") long accounts, @Param("interest") BigDecimal interest);
+
+    @Modifying
+    @Query("UPDATE InterestAccrualRun r SET r.checkpoint = :checkpoint, r.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE r.businessDate = :date")
+    int saveCheckpoint(@Param("date") LocalDate date, @Param("checkpoint") String checkpoint);
+
+    @Modifying
+    @Query("UPDATE InterestAccrualRun r SET r.status = :status, r.finishedAt = :finishedAt WHERE r.businessDate = :date")
+    int setStatus(@Param("date") LocalDate date, @Param("status") String status, @Param("finishedAt") LocalDateTime finishedAt);
+}
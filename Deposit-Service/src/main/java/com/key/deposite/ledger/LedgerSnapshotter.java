@@ -0,0 +1,127 @@
+package com.key.deposite.ledger;
+
+import com.key.deposite.repository.DepositAccountRepository;
+import com.key.deposite.repository.DepositTransactionRepository;
+import com.key.deposite.rollup.PostingRollup;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Rolls the ledger tail (deposit_transactions rows with {@code snapshotted = false}, written by
+ * credits under the LEDGER balance strategy) into the account's balance columns, so reads stay a
+ * snapshot plus a short tail.
+ * <p>
+ * A roll-up locks the account row, reads the tail rows committed so far, marks exactly those
+ * rows and adds their sum to the row and to the account's daily totals (which is where tail
+ * credits are first counted), all in one transaction. Rows committed meanwhile are left
+ * for the next roll-up. It runs on a schedule for every account with a tail, and on demand before
+ * anything that checks the balance on the row itself (debits, holds, overwrites).
+ * <p>
+ * Metrics: {@code deposit.ledger.snapshot} (time per round) and {@code deposit.ledger.snapshotted}
+ * (tail rows rolled in).
+ */
+@Component
+public class LedgerSnapshotter {
+
+    private static final Logger log = LoggerFactory.getLogger(LedgerSnapshotter.class);
+
+    // keeps the IN list of one UPDATE well under the driver's bind-parameter limit
+    private static final int MARK_CHUNK = 1000;
+
+    private final DepositAccountRepository accountRepository;
+    private final DepositTransactionRepository transactionRepository;
+    private final PostingRollup postingRollup;
+    private final TransactionTemplate transactionTemplate;
+    private final Timer roundTimer;
+    private final Counter snapshotted;
+
+    @Value("${deposit.ledger.snapshot.accounts-per-round:500}")
+    private int accountsPerRound;
+
+    public LedgerSnapshotter(DepositAccountRepository accountRepository, DepositTransactionRepository transactionRepository,
+                             PostingRollup postingRollup, PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.postingRollup = postingRollup;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.roundTimer = meterRegistry.timer("deposit.ledger.snapshot");
+        this.snapshotted = meterRegistry.counter("deposit.ledger.snapshotted");
+    }
+
+    /**
+     * Rolls the account's tail into its row in the caller's transaction, holding the row lock
+     * until it ends.
+     *
+     * @return false if there is no such account
+     */
+    @Transactional
+    public boolean rollUp(String accountId) {
+        if (accountRepository.lockForRollUp(accountId) == 0) {
+            return false;
+        }
+        // read after taking the lock: no other roll-up of this account can be in flight
+        List<TailEntry> tail = transactionRepository.findLedgerTail(accountId);
+        if (tail.isEmpty()) {
+            return true;
+        }
+        BigDecimal total = BigDecimal.ZERO;
+        Map<LocalDate, List<BigDecimal>> byDay = new TreeMap<>();
+        List<UUID> ids = new ArrayList<>(Math.min(tail.size(), MARK_CHUNK));
+        for (TailEntry entry : tail) {
+            total = total.add(entry.amount());
+            byDay.computeIfAbsent(entry.postedAt().toLocalDate(), day -> new ArrayList<>()).add(entry.amount());
+            ids.add(entry.id());
+            if (ids.size() == MARK_CHUNK) {
+                transactionRepository.markSnapshotted(ids);
+                ids.clear();
+            }
+        }
+        if (!ids.isEmpty()) {
+            transactionRepository.markSnapshotted(ids);
+        }
+        accountRepository.addToSnapshot(accountId, total);
+        // tail rows are all credits
+        byDay.forEach((day, amounts) -> postingRollup.add(accountId, day,
+                amounts.stream().reduce(BigDecimal.ZERO, BigDecimal::add), BigDecimal.ZERO, amounts.size()));
+        snapshotted.increment(tail.size());
+        log.debug("Rolled {} ledger entries ({}) into account {}", tail.size(), total, accountId);
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${deposit.ledger.snapshot.interval-ms:1000}")
+    public void snapshot() {
+        try {
+            roundTimer.record(() -> {
+                List<String> accountIds;
+                do {
+                    accountIds = transactionRepository.findAccountsWithLedgerTail(PageRequest.of(0, accountsPerRound));
+                    // one short transaction per account keeps each row lock brief
+                    for (String accountId : accountIds) {
+                        transactionTemplate.executeWithoutResult(status -> rollUp(accountId));
+                    }
+                } while (accountIds.size() == accountsPerRound);
+            });
+        } catch (RuntimeException e) {
+            log.error("Ledger snapshot round failed", e);
+        }
+    }
+}
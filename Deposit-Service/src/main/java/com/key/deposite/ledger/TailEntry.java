@@ -0,0 +1,9 @@
+package com.key.deposite.ledger;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/** A deposit_transactions row still in the ledger tail: its id, signed amount and posting time. */
+public record TailEntry(UUID id, BigDecimal amount, LocalDateTime postedAt) {
+}
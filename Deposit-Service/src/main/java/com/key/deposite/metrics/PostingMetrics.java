@@ -0,0 +1,58 @@
+package com.key.deposite.metrics;
+
+import com.key.deposite.concurrency.BalanceSnapshot;
+import com.key.deposite.enums.TransactionType;
+import com.key.deposite.exception.AccountDeactivatedException;
+import com.key.deposite.exception.AccountNotFoundException;
+import com.key.deposite.exception.InvalidAccountBalanceException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Posting-stage telemetry:
+ * <ul>
+ *     <li>{@code deposit.posting}: request to committed posting, tagged operation, outcome and accountType</li>
+ *     <li>{@code deposit.account.lookup}: AccountClient.getBalance latency, tagged outcome</li>
+ *     <li>{@code deposit.bulk.lines}: bulk file lines, tagged operation and outcome</li>
+ * </ul>
+ * Repository timings come from Spring Boot's {@code spring.data.repository.invocations}.
+ */
+@Component
+public class PostingMetrics {
+
+    public static final String POSTED = "posted";
+    public static final String REJECTED = "rejected";
+    public static final String FAILED = "failed";
+
+    private final MeterRegistry meterRegistry;
+
+    public PostingMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /** @param posted the account after the posting, or null if {@code failure} is set */
+    public void posting(long startNanos, TransactionType operation, BalanceSnapshot posted, Throwable failure) {
+        String outcome = failure == null ? POSTED : outcomeOf(failure);
+        String accountType = posted != null ? String.valueOf(posted.type()) : "UNKNOWN";
+        meterRegistry.timer("deposit.posting", "operation", operation.name(), "outcome", outcome, "accountType", accountType)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void accountLookup(long startNanos, String outcome) {
+        meterRegistry.timer("deposit.account.lookup", "outcome", outcome)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void bulkLine(TransactionType operation, String outcome) {
+        meterRegistry.counter("deposit.bulk.lines", "operation", operation.name(), "outcome", outcome).increment();
+    }
+
+    private static String outcomeOf(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+        return cause instanceof AccountNotFoundException || cause instanceof InvalidAccountBalanceException
+                || cause instanceof AccountDeactivatedException ? REJECTED : FAILED;
+    }
+}
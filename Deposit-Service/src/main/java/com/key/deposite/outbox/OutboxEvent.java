@@ -0,0 +1,38 @@
+package com.key.deposite.outbox;
+
+import com.key.events.outbox.OutboxRecord;
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * A Kafka record written in the same transaction as the state change it describes and
+ * relayed to the broker by {@link com.key.events.outbox.OutboxRelay}. The payload is stored
+ * already encoded, so relaying it costs no serialization.
+ */
+@Entity
+@Table(name = "outbox_messages")
+@Data
+public class OutboxEvent implements OutboxRecord {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_events_seq")
+    @SequenceGenerator(name = "outbox_events_seq", sequenceName = "outbox_events_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private String topic;
+
+    private String messageKey;
+
+    @Column(nullable = false)
+    private byte[] payload;  // EventCodec-encoded BankingEvent, sent as is
+
+    // BankingEvent.version(): the relay sends a key's states in this order within a batch
+    @Column(columnDefinition = "bigint default 0 not null")
+    private long aggregateVersion;
+
+    @CreationTimestamp
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,30 @@
+package com.key.deposite.outbox;
+
+import com.key.events.BankingEvent;
+import com.key.events.codec.EventCodec;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Writes events to the outbox table instead of sending them to Kafka directly. Joins the
+ * caller's transaction, so the event is relayed only if the state change commits.
+ */
+@Component
+public class OutboxPublisher {
+
+    private final OutboxEventRepository repository;
+
+    public OutboxPublisher(OutboxEventRepository repository) {
+        this.repository = repository;
+    }
+
+    @Transactional
+    public void publish(String topic, BankingEvent event) {
+        OutboxEvent outboxEvent = new OutboxEvent();
+        outboxEvent.setTopic(topic);
+        outboxEvent.setMessageKey(event.accountId());
+        outboxEvent.setAggregateVersion(event.version());
+        outboxEvent.setPayload(EventCodec.encode(event));
+        repository.save(outboxEvent);
+    }
+}
@@ -0,0 +1,43 @@
+package com.key.deposite.posting;
+
+import com.key.deposite.concurrency.BalanceSnapshot;
+import com.key.deposite.enums.TransactionType;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A single credit or debit waiting on its shard. The amount is signed: positive for
+ * credits, negative for debits. {@link #getResult()} completes with the account as it was
+ * right after this posting, once the batch holding it has been committed.
+ */
+@Getter
+public class Posting {
+    private final String accountId;
+    private final BigDecimal amount;
+    private final TransactionType type;
+    private final String description;
+    private final String referenceId;
+    private final CompletableFuture<BalanceSnapshot> result = new CompletableFuture<>();
+
+    private Posting(String accountId, BigDecimal amount, TransactionType type, String description, String referenceId) {
+        this.accountId = accountId;
+        this.amount = amount;
+        this.type = type;
+        this.description = description;
+        this.referenceId = referenceId;
+    }
+
+    public static Posting credit(String accountId, BigDecimal amount, String description, String referenceId) {
+        return new Posting(accountId, amount, TransactionType.CREDIT, description, referenceId);
+    }
+
+    public static Posting debit(String accountId, BigDecimal amount, String description, String referenceId) {
+        return new Posting(accountId, amount.negate(), TransactionType.DEBIT, description, referenceId);
+    }
+
+    public boolean isCredit() {
+        return type == TransactionType.CREDIT;
+    }
+}
@@ -0,0 +1,285 @@
+package com.key.deposite.posting;
+
+import com.key.deposite.cache.BalanceCache;
+import com.key.deposite.concurrency.BalanceUpdateStrategy;
+import com.key.deposite.concurrency.BalanceSnapshot;
+import com.key.deposite.entity.DepositAccount;
+import com.key.deposite.entity.DepositTransaction;
+import com.key.deposite.enums.DepositType;
+import com.key.deposite.events.DepositEventPublisher;
+import com.key.deposite.exception.AccountNotFoundException;
+import com.key.deposite.exception.InvalidAccountBalanceException;
+import com.key.deposite.hot.BalanceSlots;
+import com.key.deposite.repository.DepositAccountRepository;
+import com.key.deposite.repository.DepositTransactionRepository;
+import com.key.deposite.rollup.PostingRollup;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-writer posting engine. Every accountId hashes onto exactly one shard and each shard
+ * is drained by one thread, so postings for an account are applied strictly in submission
+ * order and never race each other for the deposit_accounts row.
+ * <p>
+ * A shard drains up to {@code batch-size} queued postings, loads the touched accounts with one
+ * IN query, applies the postings in memory and persists accounts, transactions, daily totals
+ * and outbox events in a single transaction. Business rejections (unknown account, insufficient funds) fail only their own
+ * posting; if the commit itself fails the batch is replayed one posting at a time so a single
+ * bad row cannot fail its neighbours. Rows are locked in accountId order, as every batch writer does.
+ * <p>
+ * The engine is its own concurrency control: it writes the rows directly rather than through
+ * {@code BalanceUpdater}, so {@code deposit.balance.update-strategy} does not apply to its postings.
+ * It refuses to start with the LEDGER strategy or with hot accounts enabled, both of which need
+ * credits to go through {@code BalanceUpdater}.
+ */
+@Component
+public class PostingEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(PostingEngine.class);
+
+    private final DepositAccountRepository accountRepository;
+    private final DepositTransactionRepository transactionRepository;
+    private final DepositEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final BalanceCache balanceCache;
+    private final PostingRollup postingRollup;
+    private final BalanceSlots balanceSlots;
+
+    @Value("${deposit.posting.engine.enabled:false}")
+    private boolean enabled;
+
+    @Value("${deposit.posting.engine.shards:0}")
+    private int shardCount;
+
+    @Value("${deposit.posting.engine.batch-size:256}")
+    private int batchSize;
+
+    @Value("${deposit.posting.engine.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${deposit.balance.update-strategy:ATOMIC}")
+    private BalanceUpdateStrategy strategy;
+
+    @Value("${deposit.hot-accounts.enabled:false}")
+    private boolean hotAccountsEnabled;
+
+    private Shard[] shards;
+    private volatile boolean running;
+
+    public PostingEngine(DepositAccountRepository accountRepository, DepositTransactionRepository transactionRepository,
+                         DepositEventPublisher eventPublisher, PlatformTransactionManager transactionManager,
+                         BalanceCache balanceCache, PostingRollup postingRollup, BalanceSlots balanceSlots) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.balanceCache = balanceCache;
+        this.postingRollup = postingRollup;
+        this.balanceSlots = balanceSlots;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        if (strategy == BalanceUpdateStrategy.LEDGER || hotAccountsEnabled) {
+            throw new IllegalStateException("deposit.posting.engine.enabled cannot be combined with "
+                    + (hotAccountsEnabled ? "deposit.hot-accounts.enabled" : "deposit.balance.update-strategy=LEDGER")
+                    + ": the engine does not post through BalanceUpdater");
+        }
+        int count = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+        shards = new Shard[count];
+        running = true;
+        for (int i = 0; i < count; i++) {
+            shards[i] = new Shard(i);
+            shards[i].thread.start();
+        }
+        log.info("Posting engine started with {} shards, batch size {}", count, batchSize);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (shards == null) {
+            return;
+        }
+        running = false;
+        for (Shard shard : shards) {
+            shard.thread.join(TimeUnit.SECONDS.toMillis(30));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues the posting on its account's shard, blocking while the shard is full.
+     *
+     * @return future completing with the account's balances after this posting, once committed
+     */
+    public CompletableFuture<BalanceSnapshot> submit(Posting posting) {
+        if (!running) {
+            posting.getResult().completeExceptionally(new RejectedExecutionException("Posting engine is not running"));
+            return posting.getResult();
+        }
+        Shard shard = shards[Math.floorMod(posting.getAccountId().hashCode(), shards.length)];
+        try {
+            shard.queue.put(posting);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            posting.getResult().completeExceptionally(e);
+        }
+        return posting.getResult();
+    }
+
+    private void process(List<Posting> batch) {
+        Map<Posting, Object> outcomes;
+        try {
+            outcomes = transactionTemplate.execute(status -> apply(batch));
+        } catch (RuntimeException e) {
+            if (batch.size() > 1) {
+                log.warn("Posting batch of {} failed to commit, replaying individually: {}", batch.size(), e.getMessage());
+                for (Posting posting : batch) {
+                    process(List.of(posting));
+                }
+            } else {
+                batch.get(0).getResult().completeExceptionally(e);
+            }
+            return;
+        }
+
+        for (Map.Entry<Posting, Object> outcome : outcomes.entrySet()) {
+            Posting posting = outcome.getKey();
+            if (outcome.getValue() instanceof Applied applied) {
+                // built after commit so newly created accounts have their id
+                DepositAccount account = applied.account();
+                posting.getResult().complete(new BalanceSnapshot(account.getId(), applied.balance(), applied.availableBalance(),
+                        account.getVersion(), account.getType()));
+            } else {
+                posting.getResult().completeExceptionally((Throwable) outcome.getValue());
+            }
+        }
+    }
+
+    /** Applies the batch in order; each posting maps to {@link Applied} or the reason it was rejected. */
+    private Map<Posting, Object> apply(List<Posting> batch) {
+        Map<String, DepositAccount> accounts = new HashMap<>();
+        List<String> accountIds = batch.stream().map(Posting::getAccountId).distinct().sorted().toList();
+        List<DepositAccount> locked = accountRepository.lockByAccountIdIn(accountIds);
+        balanceSlots.consolidate(locked);  // debits are checked against the rows
+        for (DepositAccount account : locked) {
+            accounts.put(account.getAccountId(), account);
+        }
+
+        Map<Posting, Object> outcomes = new LinkedHashMap<>();
+        Map<String, DepositAccount> touched = new LinkedHashMap<>();
+        List<DepositTransaction> transactions = new ArrayList<>(batch.size());
+        for (Posting posting : batch) {
+            DepositAccount account = accounts.get(posting.getAccountId());
+            if (account == null) {
+                if (!posting.isCredit()) {
+                    outcomes.put(posting, new AccountNotFoundException("Account not found: " + posting.getAccountId()));
+                    continue;
+                }
+                account = newDepositAccount(posting.getAccountId());
+                accounts.put(account.getAccountId(), account);
+            }
+            if (!posting.isCredit() && account.getAvailableBalance().add(posting.getAmount()).signum() < 0) {
+                outcomes.put(posting, new InvalidAccountBalanceException("Insufficient balance"));
+                continue;
+            }
+
+            account.setBalance(account.getBalance().add(posting.getAmount()));
+            account.setAvailableBalance(account.getAvailableBalance().add(posting.getAmount()));
+            touched.put(account.getAccountId(), account);
+
+            DepositTransaction transaction = new DepositTransaction();
+            transaction.setAccountId(posting.getAccountId());
+            transaction.setAmount(posting.getAmount());
+            transaction.setType(posting.getType());
+            transaction.setDescription(posting.getDescription());
+            transaction.setReferenceId(posting.getReferenceId());
+            transaction.setStatus("POSTED");
+            transaction.setAccount(account);
+            transactions.add(transaction);
+
+            if (posting.isCredit()) {
+                eventPublisher.publishCredited(posting.getAccountId(), posting.getAmount());
+            } else {
+                eventPublisher.publishDebited(posting.getAccountId(), posting.getAmount());
+            }
+            outcomes.put(posting, new Applied(account, account.getBalance(), account.getAvailableBalance()));
+        }
+
+        accountRepository.saveAll(touched.values());
+        transactionRepository.saveAll(transactions);
+        postingRollup.record(transactions);
+        touched.values().forEach(account -> balanceCache.put(account.getAccountId(), account.getAvailableBalance()));
+        return outcomes;
+    }
+
+    private DepositAccount newDepositAccount(String accountId) {
+        DepositAccount depositAccount = new DepositAccount();
+        depositAccount.setAccountId(accountId);
+        depositAccount.setType(DepositType.CHECKING);  // Default
+        depositAccount.setBalance(BigDecimal.ZERO);
+        depositAccount.setAvailableBalance(BigDecimal.ZERO);
+        return depositAccount;
+    }
+
+    /** Balances right after one posting; later postings in the batch keep moving the account itself. */
+    private record Applied(DepositAccount account, BigDecimal balance, BigDecimal availableBalance) {
+    }
+
+    private final class Shard implements Runnable {
+        private final BlockingQueue<Posting> queue = new LinkedBlockingQueue<>(queueCapacity);
+        private final Thread thread;
+
+        private Shard(int index) {
+            this.thread = new Thread(this, "posting-shard-" + index);
+        }
+
+        @Override
+        public void run() {
+            List<Posting> batch = new ArrayList<>(batchSize);
+            while (running || !queue.isEmpty()) {
+                try {
+                    Posting first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    process(batch);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (RuntimeException e) {
+                    log.error("Posting shard {} failed to process batch", thread.getName(), e);
+                    batch.forEach(posting -> posting.getResult().completeExceptionally(e));
+                } finally {
+                    batch.clear();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.key.deposite.reconcile;
+
+import com.key.deposite.concurrency.BalanceUpdateStrategy;
+import com.key.deposite.concurrency.BalanceUpdater;
+import com.key.deposite.hot.BalanceSlots;
+import com.key.deposite.repository.DepositAccountRepository;
+import com.key.events.reconcile.BalanceDigest;
+import com.key.events.reconcile.BalanceRow;
+import com.key.events.reconcile.KeyRange;
+import com.key.events.reconcile.RangeDigest;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Deposit Service's side of balance reconciliation with Account Service: {@link RangeDigest}s
+ * of the live accounts' (accountId, balance) over key ranges, the boundaries that split a range
+ * into parts of equal size, and the rows themselves once a range is small enough to diff.
+ * <p>
+ * Each range of a digest request is read on the reconcile executor in keyset pages of
+ * {@code deposit.reconcile.page-size}, so ranges are digested in parallel and only the
+ * count and hash of each leave the service. Under the LEDGER strategy the balance includes
+ * the un-snapshotted tail, and a hot account's balance includes its slots, i.e. it is the
+ * balance a posting would see.
+ */
+@Service
+public class BalanceDigestService {
+
+    private final DepositAccountRepository accountRepository;
+    private final BalanceUpdater balanceUpdater;
+    private final BalanceSlots balanceSlots;
+    private final Executor reconcileExecutor;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${deposit.reconcile.page-size:5000}")
+    private int pageSize;
+
+    // ranges per request, so one caller cannot fill the executor's queue
+    @Value("${deposit.reconcile.max-ranges:256}")
+    private int maxRanges;
+
+    @Value("${deposit.reconcile.max-rows:100000}")
+    private int maxRows;
+
+    public BalanceDigestService(DepositAccountRepository accountRepository, BalanceUpdater balanceUpdater,
+                                BalanceSlots balanceSlots, @Qualifier("reconcileExecutor") Executor reconcileExecutor,
+                                MeterRegistry meterRegistry) {
+        this.accountRepository = accountRepository;
+        this.balanceUpdater = balanceUpdater;
+        this.balanceSlots = balanceSlots;
+        this.reconcileExecutor = reconcileExecutor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Up to {@code parts - 1} accountIds splitting {@code range} into parts of about equal
+     * count, ascending; empty if the range holds fewer than two accounts.
+     */
+    public List<String> boundaries(KeyRange range, int parts) {
+        if (parts < 2 || parts > maxRanges) {
+            throw new IllegalArgumentException("parts must be between 2 and " + maxRanges);
+        }
+        long count = accountRepository.countInRange(range.from(), range.to());
+        long step = (count + parts - 1) / parts;
+        List<String> boundaries = new ArrayList<>(parts - 1);
+        if (count < 2) {
+            return boundaries;
+        }
+        // each seek starts at the previous boundary, so the whole split reads the range's index entries once
+        String lower = range.from();
+        for (int i = 1; i < parts; i++) {
+            List<String> next = accountRepository.findAccountIdsInRange(lower, range.to(),
+                    PageRequest.of(Math.toIntExact(step), 1));
+            if (next.isEmpty()) {
+                break;
+            }
+            lower = next.get(0);
+            boundaries.add(lower);
+        }
+        return boundaries;
+    }
+
+    public List<RangeDigest> digests(List<KeyRange> ranges) {
+        checkRanges(ranges);
+        List<CompletableFuture<RangeDigest>> futures = new ArrayList<>(ranges.size());
+        for (KeyRange range : ranges) {
+            futures.add(CompletableFuture.supplyAsync(() -> digest(range), reconcileExecutor));
+        }
+        List<RangeDigest> digests = new ArrayList<>(ranges.size());
+        futures.forEach(future -> digests.add(future.join()));
+        meterRegistry.counter("deposit.reconcile.ranges").increment(ranges.size());
+        return digests;
+    }
+
+    /** Every live account's balance in the ranges, at most {@code deposit.reconcile.max-rows} in all. */
+    public List<BalanceRow> balances(List<KeyRange> ranges) {
+        checkRanges(ranges);
+        List<BalanceRow> rows = new ArrayList<>();
+        for (KeyRange range : ranges) {
+            String after = null;
+            List<BalanceRow> page;
+            do {
+                page = page(range, after);
+                rows.addAll(page);
+                if (rows.size() > maxRows) {
+                    throw new IllegalArgumentException("Ranges hold more than " + maxRows + " accounts; digest them first");
+                }
+                after = page.isEmpty() ? null : page.get(page.size() - 1).accountId();
+            } while (page.size() == pageSize);
+        }
+        return rows;
+    }
+
+    private RangeDigest digest(KeyRange range) {
+        BalanceDigest digest = new BalanceDigest();
+        String after = null;
+        List<BalanceRow> page;
+        do {
+            page = page(range, after);
+            page.forEach(row -> digest.add(row.accountId(), row.balance()));
+            after = page.isEmpty() ? null : page.get(page.size() - 1).accountId();
+        } while (page.size() == pageSize);
+        meterRegistry.counter("deposit.reconcile.rows").increment(digest.count());
+        return digest.toRangeDigest(range);
+    }
+
+    private List<BalanceRow> page(KeyRange range, String after) {
+        PageRequest first = PageRequest.of(0, pageSize);
+        return balanceUpdater.getStrategy() == BalanceUpdateStrategy.LEDGER
+                ? accountRepository.findLedgerBalancesInRange(range.from(), after, range.to(), first)
+                : balanceSlots.withSlotBalances(accountRepository.findBalancesInRange(range.from(), after, range.to(), first));
+    }
+
+    private void checkRanges(List<KeyRange> ranges) {
+        if (ranges == null || ranges.isEmpty() || ranges.size() > maxRanges) {
+            throw new IllegalArgumentException("Between 1 and " + maxRanges + " key ranges are required");
+        }
+    }
+}
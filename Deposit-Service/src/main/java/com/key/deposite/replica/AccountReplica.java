@@ -0,0 +1,73 @@
+package com.key.deposite.replica;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Local copy of Account Service's view of each account (status and balance), built from the
+ * account-updated topic by {@link AccountReplicaListener}, which every instance consumes in full.
+ * The credit path validates against it and only calls {@code AccountClient} when an account is
+ * not in the replica yet.
+ * <p>
+ * An event only replaces an entry of an older account version; closing is final. An entry
+ * filled from an Account Service lookup has no version, so any event replaces it and it never
+ * replaces an existing one. Entries expire {@code ttl} after they were written, which bounds how
+ * long a missed event can leave an account looking ACTIVE; the replica is also bounded by size,
+ * so cold accounts may be evicted and are fetched again on their next posting.
+ */
+@Component
+public class AccountReplica {
+
+    public static final String ACTIVE = "ACTIVE";
+    public static final String CLOSED = "CLOSED";
+
+    private static final long FETCHED = -1;
+
+    private final Cache<String, AccountSnapshot> accounts;
+
+    public AccountReplica(@Value("${deposit.account-replica.max-size:1000000}") long maxSize,
+                          @Value("${deposit.account-replica.ttl:10m}") Duration ttl,
+                          MeterRegistry meterRegistry) {
+        this.accounts = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, accounts, "accountReplica");
+    }
+
+    public Optional<AccountSnapshot> find(String accountId) {
+        return Optional.ofNullable(accounts.getIfPresent(accountId));
+    }
+
+    /** Applies the account's state at {@code version} from an account-updated event, unless a newer one is held. */
+    public void update(String accountId, String status, BigDecimal balance, long version) {
+        accounts.asMap().compute(accountId, (id, snapshot) -> snapshot == null || snapshot.version() <= version
+                ? new AccountSnapshot(status, balance, version)
+                : snapshot);
+    }
+
+    /** Fills a miss with what Account Service answered; an entry an event put there in the meantime wins. */
+    public void putFetched(String accountId, String status, BigDecimal balance) {
+        accounts.asMap().putIfAbsent(accountId, new AccountSnapshot(status, balance, FETCHED));
+    }
+
+    public void markClosed(String accountId) {
+        accounts.asMap().compute(accountId, (id, snapshot) ->
+                new AccountSnapshot(CLOSED, snapshot != null ? snapshot.balance() : BigDecimal.ZERO, Long.MAX_VALUE));
+    }
+
+    public record AccountSnapshot(String status, BigDecimal balance, long version) {
+        public boolean isActive() {
+            return ACTIVE.equals(status);
+        }
+    }
+}
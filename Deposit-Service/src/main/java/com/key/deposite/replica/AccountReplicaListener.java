@@ -0,0 +1,53 @@
+package com.key.deposite.replica;
+
+import com.key.deposite.metrics.ListenerMetrics;
+import com.key.events.AccountEvent;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Feeds {@link AccountReplica} from account-updated. The deposit-group listeners only see the
+ * partitions assigned to their instance, so this one consumes the whole topic under a group of
+ * its own per instance, from the latest offset: the replica starts empty and fills misses from
+ * Account Service anyway. It writes nothing to the database, so the replica only ever reflects
+ * states Account Service has committed, never a local transaction that later rolled back.
+ */
+@Component
+public class AccountReplicaListener {
+
+    private static final String LISTENER = "account-replica";
+
+    private final AccountReplica accountReplica;
+    private final ListenerMetrics listenerMetrics;
+
+    public AccountReplicaListener(AccountReplica accountReplica, ListenerMetrics listenerMetrics) {
+        this.accountReplica = accountReplica;
+        this.listenerMetrics = listenerMetrics;
+    }
+
+    @KafkaListener(topics = "account-updated", groupId = "deposit-replica-${random.uuid}",
+            properties = "auto.offset.reset=latest")
+    public void onAccountEvent(ConsumerRecord<String, AccountEvent> record) {
+        Timer.Sample sample = listenerMetrics.received(LISTENER, record);
+        String outcome = ListenerMetrics.ERROR;
+        try {
+            AccountEvent event = record.value();
+            outcome = switch (event.type()) {
+                case CREATED, UPDATED -> {
+                    accountReplica.update(event.accountId(), event.status() != null ? event.status() : AccountReplica.ACTIVE,
+                            event.balance(), event.version());
+                    yield ListenerMetrics.APPLIED;
+                }
+                case CLOSED -> {
+                    accountReplica.markClosed(event.accountId());
+                    yield ListenerMetrics.APPLIED;
+                }
+                default -> ListenerMetrics.IGNORED;
+            };
+        } finally {
+            listenerMetrics.processed(sample, LISTENER, outcome);
+        }
+    }
+}
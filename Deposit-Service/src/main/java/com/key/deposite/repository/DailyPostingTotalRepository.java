@@ -0,0 +1,72 @@
+package com.key.deposite.repository;
+
+import com.key.deposite.dto.DailyTotals;
+import com.key.deposite.dto.MonthlyTotals;
+import com.key.deposite.entity.DailyPostingTotal;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface DailyPostingTotalRepository extends JpaRepository<DailyPostingTotal, DailyPostingTotal.Key> {
+
+    // Adds to an existing day in place; 0 means the day has no row yet
+    @Modifying
+    @Query("UPDATE DailyPostingTotal d SET d.creditTotal = d.creditTotal + :credits, d.debitTotal = d.debitTotal + :debits, " +
+            "d.postingCount = d.postingCount + :postings WHERE d.accountId = :accountId AND d.postingDate = :date")
+    int addToDay(@Param("accountId") String accountId, @Param("date") LocalDate date, @Param("credits") BigDecimal credits,
+                 @Param("debits") BigDecimal debits, @Param("postings") long postings);
+
+    // Opens a day; returns 0 if a concurrent posting opened it first, without failing the transaction
+    @Modifying
+    @Query(value = "INSERT INTO daily_posting_totals (account_id, posting_date, credit_total, debit_total, posting_count) " +
+            "VALUES (:accountId, :date, :credits, :debits, :postings) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertDay(@Param("accountId") String accountId, @Param("date") LocalDate date, @Param("credits") BigDecimal credits,
+                  @Param("debits") BigDecimal debits, @Param("postings") long postings);
+
+    // Batch writers: every row of these accounts on these days, locked for an in-memory update (a superset is fine)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT d FROM DailyPostingTotal d WHERE d.accountId IN :accountIds AND d.postingDate IN :dates")
+    List<DailyPostingTotal> lockDays(@Param("accountIds") Collection<String> accountIds,
+                                     @Param("dates") Collection<LocalDate> dates);
+
+    // Served by the primary key (accountId, postingDate): one row per day in the range
+    @Query("SELECT new com.key.deposite.dto.DailyTotals(d.postingDate, d.creditTotal, d.debitTotal, d.postingCount) " +
+            "FROM DailyPostingTotal d WHERE d.accountId = :accountId AND d.postingDate BETWEEN :from AND :to " +
+            "ORDER BY d.postingDate")
+    List<DailyTotals> findDailyTotals(@Param("accountId") String accountId, @Param("from") LocalDate from,
+                                      @Param("to") LocalDate to);
+
+    @Query("SELECT new com.key.deposite.dto.MonthlyTotals(YEAR(d.postingDate), MONTH(d.postingDate), SUM(d.creditTotal), " +
+            "SUM(d.debitTotal), SUM(d.postingCount)) " +
+            "FROM DailyPostingTotal d WHERE d.accountId = :accountId AND d.postingDate BETWEEN :from AND :to " +
+            "GROUP BY YEAR(d.postingDate), MONTH(d.postingDate) ORDER BY YEAR(d.postingDate), MONTH(d.postingDate)")
+    List<MonthlyTotals> findMonthlyTotals(@Param("accountId") String accountId, @Param("from") LocalDate from,
+                                          @Param("to") LocalDate to);
+
+    // Backfill: days before the cutoff are rebuilt from deposit_transactions once the account's slots are swept into them
+    @Modifying
+    @Query("DELETE FROM DailyPostingTotal d WHERE d.accountId = :accountId AND d.postingDate < :before")
+    int deleteDaysBefore(@Param("accountId") String accountId, @Param("before") LocalDate before);
+
+    // Ledger-tail credits are left out: LedgerSnapshotter adds them when it rolls them in. Slot postings are counted,
+    // so the caller sweeps the slots first
+    @Modifying
+    @Query(value = "INSERT INTO daily_posting_totals (account_id, posting_date, credit_total, debit_total, posting_count) " +
+            "SELECT account_id, CAST(posted_at AS DATE), " +
+            "COALESCE(SUM(CASE WHEN amount > 0 THEN amount END), 0), COALESCE(SUM(CASE WHEN amount < 0 THEN -amount END), 0), " +
+            "COUNT(*) FROM deposit_transactions " +
+            "WHERE account_id = :accountId AND posted_at < :before AND status = 'POSTED' AND snapshotted = true " +
+            "GROUP BY account_id, CAST(posted_at AS DATE)", nativeQuery = true)
+    int rebuildDaysBefore(@Param("accountId") String accountId, @Param("before") LocalDateTime before);
+}
@@ -1,12 +1,156 @@
 package com.key.deposite.repository;
 
+import com.key.deposite.concurrency.BalanceSnapshot;
 import com.key.deposite.entity.DepositAccount;
+import com.key.events.reconcile.BalanceRow;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 @Repository
 public interface DepositAccountRepository extends JpaRepository<DepositAccount, UUID> {
     Optional<DepositAccount> findByAccountIdAndIsDeletedFalse(String accountId);
+
+    List<DepositAccount> findByAccountIdInAndIsDeletedFalse(Collection<String> accountIds);
+
+    // rows are locked in accountId order so concurrent batch writers cannot deadlock each other
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM DepositAccount a WHERE a.accountId IN :accountIds AND a.isDeleted = false ORDER BY a.accountId")
+    List<DepositAccount> lockByAccountIdIn(@Param("accountIds") Collection<String> accountIds);
+
+    // Signed delta applied in the database; a debit only applies if the available balance covers it
+    @Modifying
+    @Query("UPDATE DepositAccount a SET a.balance = a.balance + :delta, a.availableBalance = a.availableBalance + :delta, " +
+            "a.version = a.version + 1 WHERE a.accountId = :accountId AND a.isDeleted = false " +
+            "AND (:delta >= 0 OR a.availableBalance + :delta >= 0)")
+    int addToBalance(@Param("accountId") String accountId, @Param("delta") BigDecimal delta);
+
+    // available keeps its distance from the ledger balance, i.e. active holds survive the overwrite
+    @Modifying
+    @Query("UPDATE DepositAccount a SET a.availableBalance = a.availableBalance + :balance - a.balance, a.balance = :balance, " +
+            "a.version = a.version + 1 WHERE a.accountId = :accountId AND a.isDeleted = false")
+    int setBalance(@Param("accountId") String accountId, @Param("balance") BigDecimal balance);
+
+    // Optimistic write: succeeds only if nobody has changed the row since it was read at `version`
+    @Modifying
+    @Query("UPDATE DepositAccount a SET a.balance = :balance, a.availableBalance = :availableBalance, a.version = a.version + 1 " +
+            "WHERE a.id = :id AND a.version = :version")
+    int compareAndSetBalance(@Param("id") UUID id, @Param("balance") BigDecimal balance,
+                             @Param("availableBalance") BigDecimal availableBalance, @Param("version") long version);
+
+    @Query("SELECT new com.key.deposite.concurrency.BalanceSnapshot(a.id, a.balance, a.availableBalance, a.version, a.type) " +
+            "FROM DepositAccount a WHERE a.accountId = :accountId AND a.isDeleted = false")
+    Optional<BalanceSnapshot> findBalanceSnapshot(@Param("accountId") String accountId);
+
+    // LEDGER strategy: the row is a snapshot, the rest of the balance is the account's un-snapshotted transactions.
+    // One statement, so a concurrent roll-up is seen either entirely or not at all
+    @Query("SELECT new com.key.deposite.concurrency.BalanceSnapshot(a.id, a.balance + COALESCE(SUM(t.amount), 0), " +
+            "a.availableBalance + COALESCE(SUM(t.amount), 0), a.version, a.type) " +
+            "FROM DepositAccount a LEFT JOIN DepositTransaction t ON t.accountId = a.accountId AND t.snapshotted = false " +
+            "WHERE a.accountId = :accountId AND a.isDeleted = false " +
+            "GROUP BY a.id, a.balance, a.availableBalance, a.version, a.type")
+    Optional<BalanceSnapshot> findLedgerSnapshot(@Param("accountId") String accountId);
+
+    // account-updated: records that the row now follows the account state at `accountVersion`, unless it already
+    // follows a newer one; 0 if the event is stale or the account has no row
+    @Modifying
+    @Query("UPDATE DepositAccount a SET a.accountVersion = :accountVersion " +
+            "WHERE a.accountId = :accountId AND a.accountVersion <= :accountVersion")
+    int advanceAccountVersion(@Param("accountId") String accountId, @Param("accountVersion") long accountVersion);
+
+    boolean existsByAccountId(String accountId);
+
+    // Bulk account-updated sync: which of these accounts have a row at all (deleted ones included)
+    @Query("SELECT a.accountId FROM DepositAccount a WHERE a.accountId IN :accountIds")
+    List<String> findExistingAccountIds(@Param("accountIds") Collection<String> accountIds);
+
+    @Modifying
+    @Query("UPDATE DepositAccount a SET a.isDeleted = true, a.version = a.version + 1 " +
+            "WHERE a.accountId IN :accountIds AND a.isDeleted = false")
+    int markDeleted(@Param("accountIds") Collection<String> accountIds);
+
+    // Keyset walk over every account (deleted ones included), served by the unique accountId index
+    @Query("SELECT a.accountId FROM DepositAccount a WHERE a.accountId > :after ORDER BY a.accountId")
+    List<String> findAccountIdsAfter(@Param("after") String after, Pageable pageable);
+
+    // Reconciliation (BalanceDigestService): live accounts in [from, to), a null bound being open
+    @Query("SELECT COUNT(a) FROM DepositAccount a WHERE a.isDeleted = false " +
+            "AND (:from IS NULL OR a.accountId >= :from) AND (:to IS NULL OR a.accountId < :to)")
+    long countInRange(@Param("from") String from, @Param("to") String to);
+
+    // the page's offset is the seek: page n of size 1 is the n-th live accountId from `from`, read off the index
+    @Query("SELECT a.accountId FROM DepositAccount a WHERE a.isDeleted = false " +
+            "AND (:from IS NULL OR a.accountId >= :from) AND (:to IS NULL OR a.accountId < :to) ORDER BY a.accountId")
+    List<String> findAccountIdsInRange(@Param("from") String from, @Param("to") String to, Pageable pageable);
+
+    // Keyset pages of balances in [from, to) after `after` (null on the first page)
+    @Query("SELECT new com.key.events.reconcile.BalanceRow(a.accountId, a.balance) FROM DepositAccount a " +
+            "WHERE a.isDeleted = false AND (:from IS NULL OR a.accountId >= :from) AND (:after IS NULL OR a.accountId > :after) " +
+            "AND (:to IS NULL OR a.accountId < :to) ORDER BY a.accountId")
+    List<BalanceRow> findBalancesInRange(@Param("from") String from, @Param("after") String after, @Param("to") String to,
+                                         Pageable pageable);
+
+    // Same for the LEDGER strategy, whose balance is the row plus the un-snapshotted tail
+    @Query("SELECT new com.key.events.reconcile.BalanceRow(a.accountId, a.balance + COALESCE(SUM(t.amount), 0)) " +
+            "FROM DepositAccount a LEFT JOIN DepositTransaction t ON t.accountId = a.accountId AND t.snapshotted = false " +
+            "WHERE a.isDeleted = false AND (:from IS NULL OR a.accountId >= :from) AND (:after IS NULL OR a.accountId > :after) " +
+            "AND (:to IS NULL OR a.accountId < :to) GROUP BY a.accountId, a.balance ORDER BY a.accountId")
+    List<BalanceRow> findLedgerBalancesInRange(@Param("from") String from, @Param("after") String after,
+                                               @Param("to") String to, Pageable pageable);
+
+    // Interest accrual: the next keyset chunk of accounts still to accrue for `date`; ids only, rows are locked per chunk.
+    // A hot account's row, or under LEDGER an account's snapshot, may hold little of its balance, so having slots or a
+    // ledger tail qualifies too
+    @Query("SELECT a.accountId FROM DepositAccount a WHERE a.accountId > :after AND a.isDeleted = false " +
+            "AND a.status = com.key.deposite.enums.DepositStatus.ACTIVE AND a.interestRate > 0 " +
+            "AND (a.balance > 0 OR EXISTS (SELECT 1 FROM BalanceSlot s WHERE s.accountId = a.accountId) " +
+            "OR EXISTS (SELECT 1 FROM DepositTransaction t WHERE t.accountId = a.accountId AND t.snapshotted = false)) " +
+            "AND (a.interestAccruedThrough IS NULL OR a.interestAccruedThrough < :date) ORDER BY a.accountId")
+    List<String> findAccrualCandidates(@Param("after") String after, @Param("date") LocalDate date, Pageable pageable);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM DepositAccount a WHERE a.accountId = :accountId AND a.isDeleted = false")
+    Optional<DepositAccount> lockByAccountId(@Param("accountId") String accountId);
+
+    // Row lock for a ledger roll-up or a slot sweep, taken with a plain UPDATE rather than SELECT ... FOR UPDATE so that
+    // credits inserting transaction rows (their foreign-key check only needs FOR KEY SHARE) are not blocked by it
+    @Modifying
+    @Query("UPDATE DepositAccount a SET a.version = a.version + 1 WHERE a.accountId = :accountId")
+    int lockForRollUp(@Param("accountId") String accountId);
+
+    // Hot-account postings (BalanceSlots) hold this before their slot: it keeps batch writers' FOR UPDATE off the row
+    // but lets sweeps, whose UPDATE of the row does not touch its key, go ahead
+    @Query(value = "SELECT a.id FROM deposit_accounts a WHERE a.account_id = :accountId AND a.is_deleted = false FOR KEY SHARE",
+            nativeQuery = true)
+    Optional<UUID> lockKeyShare(@Param("accountId") String accountId);
+
+    // Moves a rolled-up ledger tail, or what a hot account's slots hand back, into both balance columns
+    @Modifying
+    @Query("UPDATE DepositAccount a SET a.balance = a.balance + :amount, a.availableBalance = a.availableBalance + :amount " +
+            "WHERE a.accountId = :accountId")
+    int addToSnapshot(@Param("accountId") String accountId, @Param("amount") BigDecimal amount);
+
+    // Hold placement: only takes the amount out of available if it is covered
+    @Modifying
+    @Query("UPDATE DepositAccount a SET a.availableBalance = a.availableBalance - :amount, a.version = a.version + 1 " +
+            "WHERE a.accountId = :accountId AND a.isDeleted = false AND a.availableBalance >= :amount")
+    int reserveAvailable(@Param("accountId") String accountId, @Param("amount") BigDecimal amount);
+
+    // Hold capture (and, with captured = 0, release/expiry): the ledger drops by what was captured and
+    // the rest of the hold goes back to available
+    @Modifying
+    @Query("UPDATE DepositAccount a SET a.balance = a.balance - :captured, a.availableBalance = a.availableBalance + :released, " +
+            "a.version = a.version + 1 WHERE a.accountId = :accountId AND a.isDeleted = false")
+    int settleHold(@Param("accountId") String accountId, @Param("captured") BigDecimal captured, @Param("released") BigDecimal released);
 }
@@ -1,14 +1,33 @@
 package com.key.deposite.repository;
 
 import com.key.deposite.entity.DepositHold;
+import com.key.deposite.enums.HoldStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface DepositHoldRepository extends JpaRepository<DepositHold, UUID> {
-    List<DepositHold> findByAccountIdAndStatus(String accountId, String status);
+    List<DepositHold> findByAccountIdAndStatus(String accountId, HoldStatus status);
 
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT h FROM DepositHold h WHERE h.id = :id")
+    Optional<DepositHold> lockById(@Param("id") UUID id);
+
+    // keyset page over all holds in a status that have an expiry, used to rebuild the expiry wheel
+    @Query("SELECT h FROM DepositHold h WHERE h.status = :status AND h.expiresAt IS NOT NULL AND h.id > :afterId ORDER BY h.id")
+    List<DepositHold> findExpiringAfter(@Param("status") HoldStatus status, @Param("afterId") UUID afterId, Pageable pageable);
+
+    // holds in a status whose expiry passed before the cutoff, oldest first; a range scan of the (status, expiresAt) index
+    @Query("SELECT h FROM DepositHold h WHERE h.status = :status AND h.expiresAt < :cutoff ORDER BY h.expiresAt")
+    List<DepositHold> findOverdue(@Param("status") HoldStatus status, @Param("cutoff") LocalDateTime cutoff, Pageable pageable);
 }
@@ -1,20 +1,67 @@
 package com.key.deposite.repository;
 
+import com.key.deposite.dto.StatementLine;
+import com.key.deposite.dto.TransactionHistoryResponse;
 import com.key.deposite.entity.DepositTransaction;
-import feign.Param;
+import com.key.deposite.ledger.TailEntry;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface DepositTransactionRepository extends JpaRepository<DepositTransaction, UUID> {
 
     List<DepositTransaction> findByAccountIdAndPostedAtAfterOrderByPostedAtDesc(String accountId, LocalDateTime fromDate);
 
-    @Query("SELECT t FROM DepositTransaction t WHERE t.accountId = :accountId ORDER BY t.postedAt DESC")
-    List<DepositTransaction> findRecentByAccountId(@Param("accountId") String accountId);
+    // Keyset pages served from the (accountId, postedAt DESC, id DESC) index; the Pageable only carries the LIMIT. The row
+    // comparison lets the planner start the index scan at the cursor rather than filter up to it
+    @Query("SELECT new com.key.deposite.dto.TransactionHistoryResponse(t.id, t.amount, t.type, t.description, t.postedAt) " +
+            "FROM DepositTransaction t WHERE t.accountId = :accountId " +
+            "ORDER BY t.postedAt DESC, t.id DESC")
+    List<TransactionHistoryResponse> findHistoryFirstPage(@Param("accountId") String accountId, Pageable pageable);
+
+    @Query("SELECT new com.key.deposite.dto.TransactionHistoryResponse(t.id, t.amount, t.type, t.description, t.postedAt) " +
+            "FROM DepositTransaction t WHERE t.accountId = :accountId " +
+            "AND (t.postedAt, t.id) < (:postedAt, :id) " +
+            "ORDER BY t.postedAt DESC, t.id DESC")
+    List<TransactionHistoryResponse> findHistoryPageBefore(@Param("accountId") String accountId,
+                                                           @Param("postedAt") LocalDateTime postedAt,
+                                                           @Param("id") UUID id,
+                                                           Pageable pageable);
+
+    // Oldest first over [from, to), read through a server-side cursor: the caller must consume and close the stream
+    // inside a transaction. Walks the (accountId, postedAt DESC, id DESC) index backwards, which yields postedAt, id ascending
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT new com.key.deposite.dto.StatementLine(t.id, t.postedAt, t.type, t.amount, t.description, t.referenceId) " +
+            "FROM DepositTransaction t WHERE t.accountId = :accountId AND t.postedAt >= :from AND t.postedAt < :to " +
+            "ORDER BY t.postedAt, t.id")
+    Stream<StatementLine> streamStatement(@Param("accountId") String accountId,
+                                          @Param("from") LocalDateTime from,
+                                          @Param("to") LocalDateTime to);
+
+    // Ledger tail (rows not yet rolled into the account's balance columns), served by idx_deposit_txn_ledger_tail
+    @Query("SELECT DISTINCT t.accountId FROM DepositTransaction t WHERE t.snapshotted = false")
+    List<String> findAccountsWithLedgerTail(Pageable pageable);
+
+    @Query("SELECT new com.key.deposite.ledger.TailEntry(t.id, t.amount, t.postedAt) " +
+            "FROM DepositTransaction t WHERE t.accountId = :accountId AND t.snapshotted = false")
+    List<TailEntry> findLedgerTail(@Param("accountId") String accountId);
+
+    @Modifying
+    @Query("UPDATE DepositTransaction t SET t.snapshotted = true WHERE t.id IN :ids")
+    int markSnapshotted(@Param("ids") Collection<UUID> ids);
 }
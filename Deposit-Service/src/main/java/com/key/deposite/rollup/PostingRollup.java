@@ -0,0 +1,119 @@
+package com.key.deposite.rollup;
+
+import com.key.deposite.entity.DailyPostingTotal;
+import com.key.deposite.entity.DepositTransaction;
+import com.key.deposite.repository.DailyPostingTotalRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps daily_posting_totals in step with deposit_transactions: every posting path calls it in
+ * the transaction that saves the transaction rows, so a day's totals commit or roll back with
+ * its postings.
+ * <p>
+ * Each (account, day) costs one in-place UPDATE; only the first posting of a day inserts, with a
+ * conflict-tolerant INSERT and a second UPDATE if a concurrent posting inserted first. Callers
+ * already hold the account's row lock (or, for ledger credits, the roll-up lock), so a row only
+ * ever waits behind postings to the same account. Batch writers pass all their rows at once:
+ * the days they touch are locked with one query, changed in memory and flushed as JDBC batches
+ * together with the days they open.
+ */
+@Component
+public class PostingRollup {
+
+    private final DailyPostingTotalRepository repository;
+    private final EntityManager entityManager;
+
+    public PostingRollup(DailyPostingTotalRepository repository, EntityManager entityManager) {
+        this.repository = repository;
+        this.entityManager = entityManager;
+    }
+
+    /** Adds saved, posted transactions to their days' totals in the caller's transaction. */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(Collection<DepositTransaction> transactions) {
+        Map<Day, Totals> byDay = new LinkedHashMap<>();
+        for (DepositTransaction transaction : transactions) {
+            byDay.computeIfAbsent(new Day(transaction.getAccountId(), dayOf(transaction.getPostedAt())),
+                    day -> new Totals()).add(transaction.getAmount());
+        }
+        if (byDay.size() == 1) {
+            byDay.forEach((day, totals) -> add(day.accountId(), day.date(), totals.credits, totals.debits, totals.postings));
+            return;
+        }
+
+        Set<String> accountIds = new HashSet<>();
+        Set<LocalDate> dates = new HashSet<>();
+        byDay.keySet().forEach(day -> {
+            accountIds.add(day.accountId());
+            dates.add(day.date());
+        });
+        for (DailyPostingTotal existing : repository.lockDays(accountIds, dates)) {
+            Totals totals = byDay.remove(new Day(existing.getAccountId(), existing.getPostingDate()));
+            if (totals != null) {
+                existing.setCreditTotal(existing.getCreditTotal().add(totals.credits));
+                existing.setDebitTotal(existing.getDebitTotal().add(totals.debits));
+                existing.setPostingCount(existing.getPostingCount() + totals.postings);
+            }
+        }
+        // what is left has no row yet; the callers' account locks keep anyone else from opening it meanwhile.
+        // persist, not save: the id is assigned, and save() would merge with a SELECT per row
+        byDay.forEach((day, totals) -> {
+            DailyPostingTotal total = new DailyPostingTotal();
+            total.setAccountId(day.accountId());
+            total.setPostingDate(day.date());
+            total.setCreditTotal(totals.credits);
+            total.setDebitTotal(totals.debits);
+            total.setPostingCount(totals.postings);
+            entityManager.persist(total);
+        });
+    }
+
+    /**
+     * Adds to one day's totals in the caller's transaction.
+     *
+     * @param debits positive sum of the debits
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void add(String accountId, LocalDate date, BigDecimal credits, BigDecimal debits, long postings) {
+        if (repository.addToDay(accountId, date, credits, debits, postings) == 0
+                && repository.insertDay(accountId, date, credits, debits, postings) == 0) {
+            // lost the race to open the day: the row exists now
+            repository.addToDay(accountId, date, credits, debits, postings);
+        }
+    }
+
+    // postedAt is stamped when the row is persisted; the fallback only covers an unsaved row
+    static LocalDate dayOf(LocalDateTime postedAt) {
+        return postedAt != null ? postedAt.toLocalDate() : LocalDate.now();
+    }
+
+    private record Day(String accountId, LocalDate date) {
+    }
+
+    private static final class Totals {
+        private BigDecimal credits = BigDecimal.ZERO;
+        private BigDecimal debits = BigDecimal.ZERO;
+        private long postings;
+
+        private void add(BigDecimal amount) {
+            if (amount.signum() >= 0) {
+                credits = credits.add(amount);
+            } else {
+                debits = debits.subtract(amount);
+            }
+            postings++;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.key.deposite.rollup;
+
+import com.key.deposite.hot.BalanceSlots;
+import com.key.deposite.repository.DailyPostingTotalRepository;
+import com.key.deposite.repository.DepositAccountRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One-shot rebuild of daily_posting_totals from deposit_transactions, for data posted before the
+ * totals were maintained. Enabled with {@code deposit.rollup.backfill.enabled=true}; it starts
+ * once the application is ready and runs in the background on its own
+ * {@code deposit.rollup.backfill.threads} threads, one transaction per account.
+ * <p>
+ * Only days before {@code deposit.rollup.backfill.before} (default: the day the job starts) are
+ * rebuilt: their rows are deleted and re-inserted from one grouped INSERT ... SELECT over the
+ * account's transactions, and running it again gives the same result. Postings to the row never
+ * land on a past day, but a hot account's slots hold postings that only reach the totals when the
+ * slots are swept, so each account's slots are consolidated first in the same transaction: their
+ * totals are counted before the rows are deleted, and the slots stay locked, restarted on today,
+ * until the days are rebuilt. Run it on the day after the upgrade or later, so the upgrade day
+ * itself is rebuilt in full.
+ * <p>
+ * Metrics: {@code deposit.rollup.backfill} (total time) and {@code deposit.rollup.backfill.days}
+ * (rows written).
+ */
+@Component
+public class PostingRollupBackfill {
+
+    private static final Logger log = LoggerFactory.getLogger(PostingRollupBackfill.class);
+
+    private final DepositAccountRepository accountRepository;
+    private final DailyPostingTotalRepository totalRepository;
+    private final BalanceSlots balanceSlots;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${deposit.rollup.backfill.enabled:false}")
+    private boolean enabled;
+
+    @Value("${deposit.rollup.backfill.threads:4}")
+    private int threads;
+
+    @Value("${deposit.rollup.backfill.page-size:1000}")
+    private int pageSize;
+
+    // ISO date; empty means the day the job starts
+    @Value("${deposit.rollup.backfill.before:}")
+    private String before;
+
+    public PostingRollupBackfill(DepositAccountRepository accountRepository, DailyPostingTotalRepository totalRepository,
+                                 BalanceSlots balanceSlots, PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry) {
+        this.accountRepository = accountRepository;
+        this.totalRepository = totalRepository;
+        this.balanceSlots = balanceSlots;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        LocalDate cutoff = before.isBlank() ? LocalDate.now() : LocalDate.parse(before);
+        Thread job = new Thread(() -> run(cutoff), "rollup-backfill");
+        job.setDaemon(true);
+        job.start();
+    }
+
+    /**
+     * Rebuilds the totals of every account for the days before {@code before}, blocking until done.
+     *
+     * @return accounts rebuilt
+     */
+    public int run(LocalDate before) {
+        long startNanos = System.nanoTime();
+        AtomicInteger accounts = new AtomicInteger();
+        AtomicLong days = new AtomicLong();
+        AtomicInteger failed = new AtomicInteger();
+        log.info("Rollup backfill started for days before {} on {} threads", before, threads);
+
+        AtomicInteger workers = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "rollup-backfill-" + workers.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            String after = "";
+            List<String> page;
+            do {
+                page = accountRepository.findAccountIdsAfter(after, PageRequest.of(0, pageSize));
+                // one page in flight at a time keeps the queue bounded
+                CompletableFuture.allOf(page.stream()
+                        .map(accountId -> CompletableFuture.runAsync(() -> {
+                            try {
+                                days.addAndGet(rebuild(accountId, before));
+                                accounts.incrementAndGet();
+                            } catch (RuntimeException e) {
+                                failed.incrementAndGet();
+                                log.error("Rollup backfill failed for account {}", accountId, e);
+                            }
+                        }, pool))
+                        .toArray(CompletableFuture[]::new)).join();
+                if (!page.isEmpty()) {
+                    after = page.get(page.size() - 1);
+                }
+            } while (page.size() == pageSize);
+        } catch (RuntimeException e) {
+            log.error("Rollup backfill aborted after {} accounts", accounts.get(), e);
+        } finally {
+            pool.shutdown();
+        }
+
+        long elapsedNanos = System.nanoTime() - startNanos;
+        meterRegistry.timer("deposit.rollup.backfill").record(elapsedNanos, TimeUnit.NANOSECONDS);
+        meterRegistry.counter("deposit.rollup.backfill.days").increment(days.get());
+        log.info("Rollup backfill finished: {} accounts, {} days, {} failed, in {} s", accounts.get(), days.get(),
+                failed.get(), TimeUnit.NANOSECONDS.toSeconds(elapsedNanos));
+        return accounts.get();
+    }
+
+    private int rebuild(String accountId, LocalDate before) {
+        Integer written = transactionTemplate.execute(status -> {
+            // otherwise a later sweep would add slot postings the rebuild has already counted
+            balanceSlots.consolidate(accountId);
+            totalRepository.deleteDaysBefore(accountId, before);
+            return totalRepository.rebuildDaysBefore(accountId, before.atStartOfDay());
+        });
+        return written != null ? written : 0;
+    }
+}
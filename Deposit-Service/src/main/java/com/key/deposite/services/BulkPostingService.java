@@ -0,0 +1,302 @@
+package com.key.deposite.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.key.deposite.cache.BalanceCache;
+import com.key.deposite.client.AccountBalanceLoader;
+import com.key.deposite.dto.BulkPostingLine;
+import com.key.deposite.dto.BulkPostingResult;
+import com.key.deposite.entity.DepositAccount;
+import com.key.deposite.entity.DepositTransaction;
+import com.key.deposite.enums.DepositType;
+import com.key.deposite.enums.TransactionType;
+import com.key.deposite.events.DepositEventPublisher;
+import com.key.deposite.hot.BalanceSlots;
+import com.key.deposite.metrics.PostingMetrics;
+import com.key.deposite.replica.AccountReplica;
+import com.key.deposite.repository.DepositAccountRepository;
+import com.key.deposite.repository.DepositTransactionRepository;
+import com.key.deposite.rollup.PostingRollup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Posts a streamed JSON array of credits or debits, e.g. a payroll file.
+ * <p>
+ * The array is read incrementally and handled in chunks of {@code deposit.bulk.chunk-size}
+ * lines, one transaction per chunk. Each chunk locks its accounts with one IN query, applies
+ * the lines grouped per account in file order, and writes the transactions as JDBC batches.
+ * Their UUIDs are generated in memory, so no round trip per row is needed. Each account then
+ * gets one outbox event carrying the net amount of the chunk instead of one event per line.
+ * <p>
+ * The per-line report is streamed back as each chunk commits.
+ */
+@Service
+public class BulkPostingService {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkPostingService.class);
+
+    private final DepositAccountRepository accountRepository;
+    private final DepositTransactionRepository transactionRepository;
+    private final AccountBalanceLoader balanceLoader;
+    private final DepositEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final BalanceCache balanceCache;
+    private final AccountReplica accountReplica;
+    private final ObjectMapper objectMapper;
+    private final PostingMetrics postingMetrics;
+    private final PostingRollup postingRollup;
+    private final BalanceSlots balanceSlots;
+
+    @Value("${deposit.bulk.chunk-size:1000}")
+    private int chunkSize;
+
+    public BulkPostingService(DepositAccountRepository accountRepository, DepositTransactionRepository transactionRepository,
+                              AccountBalanceLoader balanceLoader, DepositEventPublisher eventPublisher,
+                              PlatformTransactionManager transactionManager, BalanceCache balanceCache,
+                              AccountReplica accountReplica, ObjectMapper objectMapper, PostingMetrics postingMetrics,
+                              PostingRollup postingRollup, BalanceSlots balanceSlots) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.balanceLoader = balanceLoader;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.balanceCache = balanceCache;
+        this.accountReplica = accountReplica;
+        this.objectMapper = objectMapper;
+        this.postingMetrics = postingMetrics;
+        this.postingRollup = postingRollup;
+        this.balanceSlots = balanceSlots;
+    }
+
+    /**
+     * Reads {@code [{accountId, amount, description, referenceId}, ...]} from {@code in} and
+     * writes {@code {"results": [...], "total": n, "posted": n, "rejected": n, "failed": n}} to {@code out}.
+     */
+    public void post(TransactionType type, InputStream in, OutputStream out) throws IOException {
+        try (JsonParser parser = objectMapper.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Expected a JSON array of postings");
+            }
+            try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+                Map<String, Integer> counts = new LinkedHashMap<>();
+                counts.put(BulkPostingResult.POSTED, 0);
+                counts.put(BulkPostingResult.REJECTED, 0);
+                counts.put(BulkPostingResult.FAILED, 0);
+
+                generator.writeStartObject();
+                generator.writeArrayFieldStart("results");
+                int lineNumber = 0;
+                List<Line> chunk = new ArrayList<>(chunkSize);
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    chunk.add(new Line(++lineNumber, parser.readValueAs(BulkPostingLine.class)));
+                    if (chunk.size() == chunkSize) {
+                        writeResults(type, generator, postChunk(type, chunk), counts);
+                        chunk.clear();
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    writeResults(type, generator, postChunk(type, chunk), counts);
+                }
+                generator.writeEndArray();
+                generator.writeNumberField("total", lineNumber);
+                generator.writeNumberField("posted", counts.get(BulkPostingResult.POSTED));
+                generator.writeNumberField("rejected", counts.get(BulkPostingResult.REJECTED));
+                generator.writeNumberField("failed", counts.get(BulkPostingResult.FAILED));
+                generator.writeEndObject();
+                log.info("Bulk {} file of {} lines processed: {}", type, lineNumber, counts);
+            }
+        }
+    }
+
+    private void writeResults(TransactionType type, JsonGenerator generator, BulkPostingResult[] results,
+                              Map<String, Integer> counts) throws IOException {
+        for (BulkPostingResult result : results) {
+            generator.writeObject(result);
+            counts.merge(result.getStatus(), 1, Integer::sum);
+            postingMetrics.bulkLine(type, result.getStatus().toLowerCase());
+        }
+        generator.flush();
+    }
+
+    private BulkPostingResult[] postChunk(TransactionType type, List<Line> chunk) {
+        BulkPostingResult[] results = new BulkPostingResult[chunk.size()];
+        Map<String, List<Integer>> linesByAccount = new LinkedHashMap<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            Line line = chunk.get(i);
+            String error = validate(line.posting());
+            if (error != null) {
+                results[i] = rejected(line, error);
+            } else {
+                linesByAccount.computeIfAbsent(line.posting().getAccountId(), id -> new ArrayList<>()).add(i);
+            }
+        }
+
+        if (type == TransactionType.CREDIT) {
+            // same validation as a single credit; replica misses are all asked for up front, so the loader batches them
+            long startNanos = System.nanoTime();
+            Map<String, CompletableFuture<Optional<BigDecimal>>> lookups = new HashMap<>();
+            for (String accountId : linesByAccount.keySet()) {
+                if (accountReplica.find(accountId).isEmpty()) {
+                    lookups.put(accountId, balanceLoader.find(accountId));
+                }
+            }
+            linesByAccount.entrySet().removeIf(entry -> {
+                String error = checkAccount(entry.getKey(), lookups.get(entry.getKey()), startNanos);
+                if (error != null) {
+                    entry.getValue().forEach(i -> results[i] = rejected(chunk.get(i), error));
+                }
+                return error != null;
+            });
+        }
+        if (linesByAccount.isEmpty()) {
+            return results;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> apply(type, chunk, linesByAccount, results));
+        } catch (RuntimeException e) {
+            log.warn("Bulk {} chunk starting at line {} failed to commit: {}", type, chunk.get(0).number(), e.getMessage());
+            linesByAccount.values().forEach(indexes -> indexes.forEach(i -> {
+                Line line = chunk.get(i);
+                results[i] = new BulkPostingResult(line.number(), line.posting().getAccountId(),
+                        BulkPostingResult.FAILED, null, e.getMessage());
+            }));
+        }
+        return results;
+    }
+
+    private void apply(TransactionType type, List<Line> chunk, Map<String, List<Integer>> linesByAccount,
+                       BulkPostingResult[] results) {
+        Map<String, DepositAccount> accounts = new HashMap<>();
+        List<DepositAccount> locked = accountRepository.lockByAccountIdIn(linesByAccount.keySet());
+        balanceSlots.consolidate(locked);  // debits are checked against the rows
+        for (DepositAccount account : locked) {
+            accounts.put(account.getAccountId(), account);
+        }
+
+        List<DepositAccount> touched = new ArrayList<>();
+        List<DepositTransaction> transactions = new ArrayList<>(chunk.size());
+        for (Map.Entry<String, List<Integer>> entry : linesByAccount.entrySet()) {
+            String accountId = entry.getKey();
+            DepositAccount account = accounts.get(accountId);
+            if (account == null) {
+                if (type == TransactionType.DEBIT) {
+                    entry.getValue().forEach(i -> results[i] = rejected(chunk.get(i), "Account not found: " + accountId));
+                    continue;
+                }
+                account = newDepositAccount(accountId);
+            }
+
+            BigDecimal net = BigDecimal.ZERO;
+            for (int i : entry.getValue()) {
+                Line line = chunk.get(i);
+                BigDecimal amount = line.posting().getAmount().setScale(2, RoundingMode.HALF_UP);
+                if (type == TransactionType.DEBIT) {
+                    if (account.getAvailableBalance().compareTo(amount) < 0) {
+                        results[i] = rejected(line, "Insufficient balance");
+                        continue;
+                    }
+                    amount = amount.negate();
+                }
+
+                account.setBalance(account.getBalance().add(amount));
+                account.setAvailableBalance(account.getAvailableBalance().add(amount));
+                net = net.add(amount);
+
+                DepositTransaction transaction = new DepositTransaction();
+                transaction.setAccountId(accountId);
+                transaction.setAmount(amount);
+                transaction.setType(type);
+                transaction.setDescription(line.posting().getDescription());
+                transaction.setReferenceId(line.posting().getReferenceId());
+                transaction.setStatus("POSTED");
+                transaction.setAccount(account);
+                transactions.add(transaction);
+
+                results[i] = new BulkPostingResult(line.number(), accountId, BulkPostingResult.POSTED, account.getBalance(), null);
+            }
+
+            if (net.signum() != 0) {
+                touched.add(account);
+                if (type == TransactionType.CREDIT) {
+                    eventPublisher.publishCredited(accountId, net);
+                } else {
+                    eventPublisher.publishDebited(accountId, net);
+                }
+            }
+        }
+
+        accountRepository.saveAll(touched);
+        transactionRepository.saveAll(transactions);
+        postingRollup.record(transactions);
+        touched.forEach(account -> balanceCache.put(account.getAccountId(), account.getAvailableBalance()));
+    }
+
+    private String validate(BulkPostingLine posting) {
+        if (posting.getAccountId() == null || posting.getAccountId().isBlank()) {
+            return "accountId is required";
+        }
+        if (posting.getAmount() == null || posting.getAmount().signum() <= 0) {
+            return "amount must be positive";
+        }
+        return null;
+    }
+
+    private String checkAccount(String accountId, CompletableFuture<Optional<BigDecimal>> lookup, long startNanos) {
+        if (lookup == null) {
+            return accountReplica.find(accountId)
+                    .map(snapshot -> snapshot.isActive() ? null : "Account is not active: " + accountId)
+                    .orElse(null);
+        }
+        try {
+            Optional<BigDecimal> balance = lookup.join();
+            if (balance.isEmpty()) {
+                postingMetrics.accountLookup(startNanos, "not_found");
+                return null;  // treated as new, as on the single credit path
+            }
+            accountReplica.putFetched(accountId, AccountReplica.ACTIVE, balance.get());
+            postingMetrics.accountLookup(startNanos, "found");
+            return null;
+        } catch (CompletionException ex) {
+            postingMetrics.accountLookup(startNanos, "error");
+            return "Account validation failed: " + ex.getCause().getMessage();
+        }
+    }
+
+    private BulkPostingResult rejected(Line line, String error) {
+        return new BulkPostingResult(line.number(), line.posting().getAccountId(), BulkPostingResult.REJECTED, null, error);
+    }
+
+    private DepositAccount newDepositAccount(String accountId) {
+        DepositAccount depositAccount = new DepositAccount();
+        depositAccount.setAccountId(accountId);
+        depositAccount.setType(DepositType.CHECKING);  // Default
+        depositAccount.setBalance(BigDecimal.ZERO);
+        depositAccount.setAvailableBalance(BigDecimal.ZERO);
+        return depositAccount;
+    }
+
+    private record Line(int number, BulkPostingLine posting) {
+    }
+}
@@ -1,185 +1,243 @@
 package com.key.deposite.services;
 
-import com.key.deposite.client.AccountClient;
+import com.key.deposite.cache.BalanceCache;
+import com.key.deposite.client.AccountBalanceLoader;
+import com.key.deposite.concurrency.BalanceSnapshot;
+import com.key.deposite.concurrency.BalanceUpdate;
+import com.key.deposite.concurrency.BalanceUpdater;
 import com.key.deposite.dto.DepositRequest;
+import com.key.deposite.dto.TransactionHistoryPage;
 import com.key.deposite.dto.TransactionHistoryResponse;
 import com.key.deposite.entity.DepositAccount;
 import com.key.deposite.entity.DepositTransaction;
 import com.key.deposite.enums.DepositType;
 import com.key.deposite.enums.TransactionType;
+import com.key.deposite.events.DepositEventPublisher;
+import com.key.deposite.exception.AccountDeactivatedException;
 import com.key.deposite.exception.AccountNotFoundException;
 import com.key.deposite.exception.InvalidAccountBalanceException;
+import com.key.deposite.metrics.PostingMetrics;
+import com.key.deposite.posting.Posting;
+import com.key.deposite.posting.PostingEngine;
+import com.key.deposite.replica.AccountReplica;
 import com.key.deposite.repository.DepositAccountRepository;
 import com.key.deposite.repository.DepositTransactionRepository;
-import org.springframework.kafka.core.KafkaTemplate;
+import com.key.deposite.rollup.PostingRollup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
-import java.util.stream.Collectors;
+import java.util.concurrent.Executor;
 
 @Service
 public class DepositService {
+    private static final Logger log = LoggerFactory.getLogger(DepositService.class);
+    private static final int MAX_HISTORY_PAGE = 500;
+
     private final DepositAccountRepository accountRepository;
     private final DepositTransactionRepository transactionRepository;
-    private final AccountClient accountClient;
-    private final KafkaTemplate<String, Object> kafkaTemplate;
-
-    public DepositService(DepositAccountRepository accountRepository, DepositTransactionRepository transactionRepository, AccountClient accountClient, KafkaTemplate<String, Object> kafkaTemplate) {
+    private final AccountBalanceLoader balanceLoader;
+    private final DepositEventPublisher eventPublisher;
+    private final PostingEngine postingEngine;
+    private final TransactionTemplate transactionTemplate;
+    private final BalanceCache balanceCache;
+    private final AccountReplica accountReplica;
+    private final BalanceUpdater balanceUpdater;
+    private final PostingMetrics postingMetrics;
+    private final PostingRollup postingRollup;
+    private final Executor postingExecutor;
+
+    public DepositService(DepositAccountRepository accountRepository, DepositTransactionRepository transactionRepository, AccountBalanceLoader balanceLoader,
+                          DepositEventPublisher eventPublisher, PostingEngine postingEngine, PlatformTransactionManager transactionManager,
+                          BalanceCache balanceCache, AccountReplica accountReplica, BalanceUpdater balanceUpdater,
+                          PostingMetrics postingMetrics, PostingRollup postingRollup,
+                          @Qualifier("postingExecutor") Executor postingExecutor) {
         this.accountRepository = accountRepository;
         this.transactionRepository = transactionRepository;
-        this.accountClient = accountClient;
-        this.kafkaTemplate = kafkaTemplate;
+        this.balanceLoader = balanceLoader;
+        this.eventPublisher = eventPublisher;
+        this.postingEngine = postingEngine;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.balanceCache = balanceCache;
+        this.accountReplica = accountReplica;
+        this.balanceUpdater = balanceUpdater;
+        this.postingMetrics = postingMetrics;
+        this.postingRollup = postingRollup;
+        this.postingExecutor = postingExecutor;
     }
 
-    @Async
-    @Transactional
+    // Not @Transactional: the posting commits in its own transaction once the account lookup has answered
+    @Async("postingExecutor")
     public CompletableFuture<BigDecimal> creditDepositAsync(String accountId, DepositRequest request) {
-        return CompletableFuture.supplyAsync(() -> {
-                    try {
-                        BigDecimal currentBalance = accountClient.getBalance(accountId);
-                        System.out.println("Account balance fetched: " + currentBalance);
-                        return currentBalance;
-                    } catch (feign.FeignException.NotFound ex) {
-                        System.out.println("Account not found, treating as new: " + accountId);
-                        return BigDecimal.ZERO;
-                    } catch (Exception ex) {
-                        throw new RuntimeException("Account validation failed: " + ex.getMessage(), ex);
-                    }
-                }).orTimeout(60, TimeUnit.SECONDS)  // Timeout after 60s
+        long startNanos = System.nanoTime();
+        // validate against the account-updated replica; only a miss costs a call to Account Service
+        CompletableFuture<BigDecimal> accountBalance = accountReplica.find(accountId)
+                .map(snapshot -> snapshot.isActive()
+                        ? CompletableFuture.completedFuture(snapshot.balance())
+                        : CompletableFuture.<BigDecimal>failedFuture(new AccountDeactivatedException("Account is not active: " + accountId)))
+                .orElseGet(() -> fetchAccountBalance(accountId));
+
+        return accountBalance
                 .thenCompose(currentBalance -> {
                     if (currentBalance.compareTo(BigDecimal.ZERO) < 0) {
                         throw new InvalidAccountBalanceException("Invalid account balance");
                     }
 
-                    DepositAccount depositAccount = accountRepository.findByAccountIdAndIsDeletedFalse(accountId)
-                            .orElseGet(() -> createDepositAccount(accountId));
-
                     BigDecimal preciseAmount = request.getAmount().setScale(2, RoundingMode.HALF_UP);
-                    BigDecimal newBalance = depositAccount.getBalance().add(preciseAmount);
-                    depositAccount.setBalance(newBalance);
-                    depositAccount.setAvailableBalance(depositAccount.getAvailableBalance().add(preciseAmount));
-                    accountRepository.save(depositAccount);
-
-                    DepositTransaction transaction = new DepositTransaction();
-                    transaction.setAccountId(accountId);
-                    transaction.setAmount(preciseAmount);
-                    transaction.setType(TransactionType.CREDIT);
-                    transaction.setDescription(request.getDescription());
-                    transaction.setReferenceId(request.getReferenceId());
-                    transaction.setStatus("POSTED");
-                    transaction.setAccount(depositAccount);
-                    transactionRepository.save(transaction);
-
-                    Map<String, Object> event = new HashMap<>();
-                    event.put("accountId", accountId);
-                    event.put("amount", preciseAmount.toString());
-                    event.put("type", "CREDITED");
-                    event.put("currency", "INR");
-                    event.put("timestamp", LocalDateTime.now().toString());
-                    kafkaTemplate.send("deposit-credited", accountId, event);
-                    System.out.println("Event published to deposit-credited for " + accountId);
-
-                    return CompletableFuture.completedFuture(newBalance);
-                }).exceptionally(ex -> {
-                    if (ex.getCause() instanceof TimeoutException) {
-                        // Timeout → Trigger rollback
-                        publishRollback(accountId, request.getAmount(), request.getReferenceId());
-                        return BigDecimal.ZERO;  // Fallback
+                    if (postingEngine.isEnabled()) {
+                        return postingEngine.submit(Posting.credit(accountId, preciseAmount, request.getDescription(), request.getReferenceId()));
                     }
+
+                    // account row, transaction row and outbox event commit together
+                    return CompletableFuture.completedFuture(
+                            transactionTemplate.execute(status -> postCredit(accountId, preciseAmount, request)));
+                })
+                .whenComplete((posted, ex) -> postingMetrics.posting(startNanos, TransactionType.CREDIT, posted, ex))
+                .thenApply(BalanceSnapshot::balance)
+                // nothing is posted before the lookup answers, so a failed lookup has nothing to roll back
+                .exceptionally(ex -> {
                     throw new RuntimeException("Credit failed: " + ex.getMessage(), ex);
                 });
     }
 
-    private void publishRollback(String accountId, BigDecimal amount, String referenceId) {
-        Map<String, Object> rollbackEvent = new HashMap<>();
-        rollbackEvent.put("accountId", accountId);
-        rollbackEvent.put("amount", amount.toString());
-        rollbackEvent.put("type", "ROLLBACK_CREDIT");
-        rollbackEvent.put("referenceId", referenceId);
-        rollbackEvent.put("timestamp", LocalDateTime.now().toString());
-        rollbackEvent.put("ttl", 86400L);  // 24hr in seconds
-        kafkaTemplate.send("deposit-rollback", accountId, rollbackEvent);
-        System.out.println("Rollback event published for " + accountId);
+    // Coalesced with concurrent lookups; the posting continues on the posting executor, not on the lookup's thread
+    private CompletableFuture<BigDecimal> fetchAccountBalance(String accountId) {
+        long startNanos = System.nanoTime();
+        return balanceLoader.find(accountId)
+                .handleAsync((balance, ex) -> {
+                    if (ex != null) {
+                        postingMetrics.accountLookup(startNanos, "error");
+                        throw new RuntimeException("Account validation failed: " + ex.getMessage(), ex);
+                    }
+                    if (balance.isEmpty()) {
+                        postingMetrics.accountLookup(startNanos, "not_found");
+                        log.debug("Account not found, treating as new accountId={}", accountId);
+                        return BigDecimal.ZERO;
+                    }
+                    postingMetrics.accountLookup(startNanos, "found");
+                    log.debug("Account balance fetched accountId={} balance={}", accountId, balance.get());
+                    accountReplica.putFetched(accountId, AccountReplica.ACTIVE, balance.get());
+                    return balance.get();
+                }, postingExecutor);  // bounded by the Feign client's connect and read timeouts
+    }
+
+    private BalanceSnapshot postCredit(String accountId, BigDecimal preciseAmount, DepositRequest request) {
+        Optional<BalanceUpdate> existing = balanceUpdater.addToBalance(accountId, preciseAmount);
+        BalanceSnapshot updated = existing.map(BalanceUpdate::balances)
+                .orElseGet(() -> createDepositAccount(accountId, preciseAmount));
+        balanceCache.put(accountId, updated.availableBalance());
+
+        DepositTransaction transaction = new DepositTransaction();
+        transaction.setAccountId(accountId);
+        transaction.setAmount(preciseAmount);
+        transaction.setType(TransactionType.CREDIT);
+        transaction.setDescription(request.getDescription());
+        transaction.setReferenceId(request.getReferenceId());
+        transaction.setStatus("POSTED");
+        // a ledger credit lives only in this row until the snapshotter rolls it in; a new account already opened with it
+        transaction.setSnapshotted(existing.isEmpty() || !balanceUpdater.appendsToLedger(preciseAmount));
+        transaction.setAccount(accountRepository.getReferenceById(updated.id()));
+        transactionRepository.save(transaction);
+        // tail credits are counted when they are rolled in, slot postings when their slot is swept
+        if (transaction.isSnapshotted() && existing.map(update -> !update.inSlot()).orElse(true)) {
+            postingRollup.record(List.of(transaction));
+        }
+
+        eventPublisher.publishCredited(accountId, preciseAmount);
+        log.debug("Credit posted accountId={} amount={}", accountId, preciseAmount);
+
+        return updated;
     }
 
-    private DepositAccount createDepositAccount(String accountId) {
+    private BalanceSnapshot createDepositAccount(String accountId, BigDecimal openingBalance) {
         DepositAccount depositAccount = new DepositAccount();
         depositAccount.setAccountId(accountId);
         depositAccount.setType(DepositType.CHECKING);  // Default
-        depositAccount.setBalance(BigDecimal.ZERO);
-        depositAccount.setAvailableBalance(BigDecimal.ZERO);
-        return accountRepository.save(depositAccount);
+        depositAccount.setBalance(openingBalance);
+        depositAccount.setAvailableBalance(openingBalance);
+        DepositAccount saved = accountRepository.save(depositAccount);
+        return BalanceSnapshot.of(saved);
     }
 
-    public List<TransactionHistoryResponse> getTransactionHistory(String accountId, int limit) {
-        System.out.println("Fetching history for " + accountId + ", limit: " + limit);
-        List<DepositTransaction> transactionHistory = transactionRepository.findRecentByAccountId(accountId);
-        System.out.println("Raw transactions found: " + transactionHistory.size());
-
-        List<TransactionHistoryResponse> list = transactionHistory.stream()
-                .limit(limit)
-                .map(transaction -> {
-                    TransactionHistoryResponse transactionResponse = new TransactionHistoryResponse();
-                    transactionResponse.setId(transaction.getId().toString());
-                    transactionResponse.setAmount(transaction.getAmount());
-                    transactionResponse.setType(transaction.getType().toString());
-                    transactionResponse.setDescription(transaction.getDescription());
-                    transactionResponse.setPostedAt(transaction.getPostedAt());
-                    return transactionResponse;
-                })
-                .collect(Collectors.toList());
-        System.out.println("Mapped responses: " + list.size());
-        return list;
+    /**
+     * Keyset-paged history, newest first. The limit is applied in SQL and rows are read as DTO
+     * projections, so cost depends on the page size rather than on how many postings the account has.
+     */
+    public TransactionHistoryPage getTransactionHistory(String accountId, int limit, LocalDateTime beforePostedAt, UUID beforeId) {
+        Pageable page = PageRequest.of(0, Math.min(Math.max(limit, 1), MAX_HISTORY_PAGE));
+        List<TransactionHistoryResponse> transactions = beforePostedAt == null || beforeId == null
+                ? transactionRepository.findHistoryFirstPage(accountId, page)
+                : transactionRepository.findHistoryPageBefore(accountId, beforePostedAt, beforeId, page);
+
+        TransactionHistoryPage historyPage = new TransactionHistoryPage();
+        historyPage.setTransactions(transactions);
+        if (transactions.size() == page.getPageSize()) {
+            TransactionHistoryResponse last = transactions.get(transactions.size() - 1);
+            historyPage.setNextPostedAt(last.getPostedAt());
+            historyPage.setNextId(last.getId());
+        }
+        return historyPage;
     }
 
+    @Cacheable(cacheNames = BalanceCache.NAME, key = "#accountId")
     public BigDecimal getAvailableBalance(String accountId) {
-        DepositAccount depositAccount = accountRepository.findByAccountIdAndIsDeletedFalse(accountId)
+        return balanceUpdater.find(accountId)
+                .map(BalanceSnapshot::availableBalance)
                 .orElseThrow(() -> new AccountNotFoundException("Account not found: " + accountId));
-        return depositAccount.getAvailableBalance();
     }
 
-    @Async
-    @Transactional
-    public void debitDepositAsync(String accountId, BigDecimal amount) {
-        DepositAccount depositAccount = accountRepository.findByAccountIdAndIsDeletedFalse(accountId)
-                .orElseThrow(() -> new AccountNotFoundException("Account not found: " + accountId));
+    // Not @Transactional: waiting on the posting engine must not pin a pooled connection
+    @Async("postingExecutor")
+    public CompletableFuture<BigDecimal> debitDepositAsync(String accountId, BigDecimal amount) {
+        long startNanos = System.nanoTime();
         BigDecimal preciseAmount = amount.setScale(2, RoundingMode.HALF_UP);
-        if (depositAccount.getAvailableBalance().compareTo(preciseAmount) < 0) {
-            throw new InvalidAccountBalanceException("Insufficient balance");
+        try {
+            BalanceSnapshot posted = postingEngine.isEnabled()
+                    // surfaces rejections (insufficient balance, unknown account) the same way as the direct path
+                    ? postingEngine.submit(Posting.debit(accountId, preciseAmount, null, null)).join()
+                    : transactionTemplate.execute(status -> postDebit(accountId, preciseAmount));
+            postingMetrics.posting(startNanos, TransactionType.DEBIT, posted, null);
+            return CompletableFuture.completedFuture(posted.balance());
+        } catch (RuntimeException e) {
+            postingMetrics.posting(startNanos, TransactionType.DEBIT, null, e);
+            throw e;
         }
+    }
 
-        BigDecimal newBalance = depositAccount.getBalance().subtract(preciseAmount);
-        depositAccount.setBalance(newBalance);
-        depositAccount.setAvailableBalance(depositAccount.getAvailableBalance().subtract(preciseAmount));
-        accountRepository.save(depositAccount);
+    private BalanceSnapshot postDebit(String accountId, BigDecimal preciseAmount) {
+        // throws InvalidAccountBalanceException when the available balance does not cover the debit
+        BalanceUpdate update = balanceUpdater.addToBalance(accountId, preciseAmount.negate())
+                .orElseThrow(() -> new AccountNotFoundException("Account not found: " + accountId));
+        BalanceSnapshot updated = update.balances();
+        balanceCache.put(accountId, updated.availableBalance());
 
         DepositTransaction transaction = new DepositTransaction();
         transaction.setAccountId(accountId);
         transaction.setAmount(preciseAmount.negate());
         transaction.setType(TransactionType.DEBIT);
         transaction.setStatus("POSTED");
-        transaction.setAccount(depositAccount);
+        transaction.setAccount(accountRepository.getReferenceById(updated.id()));
         transactionRepository.save(transaction);
+        if (!update.inSlot()) {
+            postingRollup.record(List.of(transaction));
+        }
 
-        Map<String, Object> event = new HashMap<>();
-        event.put("accountId", accountId);
-        event.put("amount", preciseAmount.negate().toString());
-        event.put("type", "DEBITED");
-        event.put("currency", "INR");
-        event.put("timestamp", LocalDateTime.now().toString());
-        kafkaTemplate.send("deposit-debited", accountId, event);
-        System.out.println("Event published to deposit-debited for " + accountId);
+        eventPublisher.publishDebited(accountId, preciseAmount.negate());
+        log.debug("Debit posted accountId={} amount={}", accountId, preciseAmount);
+        return updated;
     }
-}
\ No newline at end of file
+}
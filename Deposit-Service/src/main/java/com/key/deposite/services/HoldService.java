@@ -0,0 +1,218 @@
+package com.key.deposite.services;
+
+import com.key.deposite.cache.BalanceCache;
+import com.key.deposite.concurrency.BalanceSnapshot;
+import com.key.deposite.concurrency.BalanceUpdater;
+import com.key.deposite.dto.HoldRequest;
+import com.key.deposite.dto.HoldResponse;
+import com.key.deposite.entity.DepositHold;
+import com.key.deposite.entity.DepositTransaction;
+import com.key.deposite.enums.HoldReason;
+import com.key.deposite.enums.HoldStatus;
+import com.key.deposite.enums.TransactionType;
+import com.key.deposite.events.DepositEventPublisher;
+import com.key.deposite.exception.AccountNotFoundException;
+import com.key.deposite.exception.HoldNotFoundException;
+import com.key.deposite.exception.InvalidAccountBalanceException;
+import com.key.deposite.holds.HoldExpiryWheel;
+import com.key.deposite.repository.DepositAccountRepository;
+import com.key.deposite.repository.DepositHoldRepository;
+import com.key.deposite.repository.DepositTransactionRepository;
+import com.key.deposite.rollup.PostingRollup;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Places, releases, captures and expires holds. A hold takes its amount out of
+ * availableBalance when placed; release and expiry give it back, capture turns (part of) it
+ * into a debit of the ledger balance and gives back the rest. Each of these is a single
+ * conditional UPDATE on the account row in the same transaction as the hold row.
+ * <p>
+ * Expiry is driven by {@link HoldExpiryWheel}; the wheel only learns about a hold once its
+ * transaction has committed.
+ */
+@Service
+public class HoldService {
+
+    private static final Logger log = LoggerFactory.getLogger(HoldService.class);
+
+    private final DepositHoldRepository holdRepository;
+    private final DepositAccountRepository accountRepository;
+    private final DepositTransactionRepository transactionRepository;
+    private final DepositEventPublisher eventPublisher;
+    private final BalanceCache balanceCache;
+    private final BalanceUpdater balanceUpdater;
+    private final HoldExpiryWheel expiryWheel;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final PostingRollup postingRollup;
+
+    @Value("${deposit.holds.default-ttl:7d}")
+    private Duration defaultTtl;
+
+    public HoldService(DepositHoldRepository holdRepository, DepositAccountRepository accountRepository,
+                       DepositTransactionRepository transactionRepository, DepositEventPublisher eventPublisher,
+                       BalanceCache balanceCache, BalanceUpdater balanceUpdater, HoldExpiryWheel expiryWheel,
+                       PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                       PostingRollup postingRollup) {
+        this.holdRepository = holdRepository;
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.eventPublisher = eventPublisher;
+        this.balanceCache = balanceCache;
+        this.balanceUpdater = balanceUpdater;
+        this.expiryWheel = expiryWheel;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.postingRollup = postingRollup;
+    }
+
+    @Transactional
+    public HoldResponse placeHold(String accountId, HoldRequest request) {
+        if (request.getAmount() == null || request.getAmount().signum() <= 0) {
+            throw new IllegalArgumentException("Hold amount must be positive");
+        }
+        BigDecimal amount = request.getAmount().setScale(2, RoundingMode.HALF_UP);
+        balanceUpdater.rollUp(accountId);  // the reserve below checks the row
+        if (accountRepository.reserveAvailable(accountId, amount) == 0) {
+            throw accountRepository.findBalanceSnapshot(accountId).isPresent()
+                    ? new InvalidAccountBalanceException("Insufficient available balance")
+                    : new AccountNotFoundException("Account not found: " + accountId);
+        }
+        BalanceSnapshot account = balanceUpdater.find(accountId).orElseThrow();
+
+        DepositHold hold = new DepositHold();
+        hold.setAccountId(accountId);
+        hold.setAmount(amount);
+        hold.setReason(request.getReason() != null ? request.getReason() : HoldReason.CARD_AUTHORIZATION);
+        hold.setExpiresAt(request.getExpiresAt() != null ? request.getExpiresAt() : LocalDateTime.now().plus(defaultTtl));
+        hold.setAccount(accountRepository.getReferenceById(account.id()));
+        holdRepository.save(hold);
+
+        balanceCache.put(accountId, account.availableBalance());
+        afterCommit(() -> expiryWheel.schedule(hold.getId(), hold.getExpiresAt()));
+        count("placed");
+        log.debug("Hold placed holdId={} accountId={} amount={}", hold.getId(), accountId, amount);
+        return toResponse(hold, account.availableBalance());
+    }
+
+    @Transactional
+    public HoldResponse releaseHold(UUID holdId) {
+        DepositHold hold = lockActive(holdId);
+        BigDecimal availableBalance = settle(hold, BigDecimal.ZERO, HoldStatus.RELEASED);
+        return toResponse(hold, availableBalance);
+    }
+
+    /** @param amount how much of the hold to debit; null captures all of it */
+    @Transactional
+    public HoldResponse captureHold(UUID holdId, BigDecimal amount) {
+        DepositHold hold = lockActive(holdId);
+        BigDecimal captured = amount != null ? amount.setScale(2, RoundingMode.HALF_UP) : hold.getAmount();
+        if (captured.signum() <= 0 || captured.compareTo(hold.getAmount()) > 0) {
+            throw new InvalidAccountBalanceException("Capture amount must be positive and at most the held " + hold.getAmount());
+        }
+        BigDecimal availableBalance = settle(hold, captured, HoldStatus.CAPTURED);
+
+        DepositTransaction transaction = new DepositTransaction();
+        transaction.setAccountId(hold.getAccountId());
+        transaction.setAmount(captured.negate());
+        transaction.setType(TransactionType.DEBIT);
+        transaction.setDescription("Hold capture (" + hold.getReason() + ")");
+        transaction.setReferenceId(hold.getId().toString());
+        transaction.setStatus("POSTED");
+        transaction.setAccount(hold.getAccount());
+        transactionRepository.save(transaction);
+        postingRollup.record(List.of(transaction));
+        eventPublisher.publishDebited(hold.getAccountId(), captured.negate());
+        return toResponse(hold, availableBalance);
+    }
+
+    public List<HoldResponse> getActiveHolds(String accountId) {
+        return holdRepository.findByAccountIdAndStatus(accountId, HoldStatus.ACTIVE).stream()
+                .map(hold -> toResponse(hold, null))
+                .toList();
+    }
+
+    @Scheduled(fixedDelayString = "${deposit.holds.expiry.tick-ms:100}")
+    public void expireDueHolds() {
+        for (UUID holdId : expiryWheel.due(System.currentTimeMillis())) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> expire(holdId));
+            } catch (RuntimeException e) {
+                log.warn("Expiring hold {} failed, retrying in 30s: {}", holdId, e.getMessage());
+                expiryWheel.schedule(holdId, LocalDateTime.now().plusSeconds(30));
+            }
+        }
+    }
+
+    private void expire(UUID holdId) {
+        // released or captured since it was scheduled: nothing to do
+        holdRepository.lockById(holdId)
+                .filter(hold -> hold.getStatus() == HoldStatus.ACTIVE)
+                .ifPresent(hold -> settle(hold, BigDecimal.ZERO, HoldStatus.EXPIRED));
+    }
+
+    private DepositHold lockActive(UUID holdId) {
+        return holdRepository.lockById(holdId)
+                .filter(hold -> hold.getStatus() == HoldStatus.ACTIVE)
+                .orElseThrow(() -> new HoldNotFoundException("Active hold not found: " + holdId));
+    }
+
+    /** Debits {@code captured}, returns the rest of the hold to available and closes the hold. */
+    private BigDecimal settle(DepositHold hold, BigDecimal captured, HoldStatus outcome) {
+        accountRepository.settleHold(hold.getAccountId(), captured, hold.getAmount().subtract(captured));
+        hold.setStatus(outcome);
+
+        BigDecimal availableBalance = balanceUpdater.find(hold.getAccountId())
+                .map(BalanceSnapshot::availableBalance)
+                .orElse(null);
+        if (availableBalance != null) {
+            balanceCache.put(hold.getAccountId(), availableBalance);
+        }
+        afterCommit(() -> expiryWheel.cancel(hold.getId()));
+        count(outcome.name().toLowerCase());
+        log.debug("Hold {} holdId={} accountId={} captured={}", outcome, hold.getId(), hold.getAccountId(), captured);
+        return availableBalance;
+    }
+
+    private void count(String action) {
+        meterRegistry.counter("deposit.holds", "action", action).increment();
+    }
+
+    private static void afterCommit(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static HoldResponse toResponse(DepositHold hold, BigDecimal availableBalance) {
+        HoldResponse response = new HoldResponse();
+        response.setHoldId(hold.getId());
+        response.setAccountId(hold.getAccountId());
+        response.setAmount(hold.getAmount());
+        response.setReason(hold.getReason());
+        response.setStatus(hold.getStatus());
+        response.setExpiresAt(hold.getExpiresAt());
+        response.setAvailableBalance(availableBalance);
+        return response;
+    }
+}
@@ -0,0 +1,53 @@
+package com.key.deposite.services;
+
+import com.key.deposite.dto.DailyTotals;
+import com.key.deposite.dto.MonthlyTotals;
+import com.key.deposite.repository.DailyPostingTotalRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Credit and debit totals per day or month, read from daily_posting_totals: a range costs one
+ * row per day that had postings, however many transactions those days hold.
+ * <p>
+ * Days with no postings are omitted. Credits posted under the LEDGER strategy appear once the
+ * snapshotter rolls them in, i.e. within {@code deposit.ledger.snapshot.interval-ms}.
+ */
+@Service
+public class PostingTotalsService {
+
+    private final DailyPostingTotalRepository repository;
+
+    @Value("${deposit.rollup.max-days:3660}")
+    private long maxDays;
+
+    public PostingTotalsService(DailyPostingTotalRepository repository) {
+        this.repository = repository;
+    }
+
+    public List<DailyTotals> getDailyTotals(String accountId, LocalDate from, LocalDate to) {
+        checkRange(from, to);
+        return repository.findDailyTotals(accountId, from, to);
+    }
+
+    public List<MonthlyTotals> getMonthlyTotals(String accountId, YearMonth from, YearMonth to) {
+        LocalDate firstDay = from.atDay(1);
+        LocalDate lastDay = to.atEndOfMonth();
+        checkRange(firstDay, lastDay);
+        return repository.findMonthlyTotals(accountId, firstDay, lastDay);
+    }
+
+    private void checkRange(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("Range ends before it starts: " + from + " to " + to);
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= maxDays) {
+            throw new IllegalArgumentException("Range is longer than " + maxDays + " days");
+        }
+    }
+}
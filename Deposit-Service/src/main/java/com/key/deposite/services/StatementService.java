@@ -0,0 +1,141 @@
+package com.key.deposite.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.key.deposite.dto.StatementLine;
+import com.key.deposite.enums.StatementFormat;
+import com.key.deposite.repository.DepositTransactionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Writes an account statement straight from a database cursor to the response.
+ * <p>
+ * Rows arrive {@code fetch size} at a time as {@link StatementLine} projections, so nothing is
+ * attached to the persistence context, and each row is written out before the next is read:
+ * memory stays flat however many rows the period holds.
+ * <p>
+ * Metrics, tagged with the format: {@code deposit.statement.export} (time per export) and
+ * {@code deposit.statement.rows} (rows written; its rate is the export throughput).
+ */
+@Service
+public class StatementService {
+
+    private static final Logger log = LoggerFactory.getLogger(StatementService.class);
+
+    private static final String CSV_HEADER = "posted_at,transaction_id,type,amount,reference_id,description\n";
+
+    private final DepositTransactionRepository transactionRepository;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    public StatementService(DepositTransactionRepository transactionRepository, ObjectMapper objectMapper,
+                            MeterRegistry meterRegistry) {
+        this.transactionRepository = transactionRepository;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Writes the account's transactions posted from {@code from} through {@code to} (whole days),
+     * oldest first.
+     *
+     * @return rows written
+     */
+    @Transactional(readOnly = true)
+    public long writeStatement(String accountId, LocalDate from, LocalDate to, StatementFormat format, OutputStream out)
+            throws IOException {
+        long startNanos = System.nanoTime();
+        long rows;
+        try (Stream<StatementLine> lines = transactionRepository.streamStatement(accountId, from.atStartOfDay(),
+                to.plusDays(1).atStartOfDay())) {
+            rows = switch (format) {
+                case CSV -> writeCsv(lines.iterator(), out);
+                case NDJSON -> writeNdjson(lines.iterator(), out);
+            };
+        }
+
+        long elapsedNanos = System.nanoTime() - startNanos;
+        String tag = format.name().toLowerCase();
+        meterRegistry.timer("deposit.statement.export", "format", tag).record(elapsedNanos, TimeUnit.NANOSECONDS);
+        meterRegistry.counter("deposit.statement.rows", "format", tag).increment(rows);
+        log.debug("Statement accountId={} {}..{} {}: {} rows in {} ms ({} rows/s)", accountId, from, to, tag, rows,
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos), rows * 1_000_000_000L / Math.max(elapsedNanos, 1));
+        return rows;
+    }
+
+    private long writeCsv(Iterator<StatementLine> lines, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        writer.write(CSV_HEADER);
+        long rows = 0;
+        while (lines.hasNext()) {
+            StatementLine line = lines.next();
+            writer.write(String.valueOf(line.postedAt()));
+            writer.write(',');
+            writer.write(line.id().toString());
+            writer.write(',');
+            writer.write(line.type() != null ? line.type().name() : "");
+            writer.write(',');
+            writer.write(line.amount().toPlainString());
+            writer.write(',');
+            writeCsvField(writer, line.referenceId());
+            writer.write(',');
+            writeCsvField(writer, line.description());
+            writer.write('\n');
+            rows++;
+        }
+        writer.flush();
+        return rows;
+    }
+
+    // RFC 4180: quote fields holding a separator, quote or line break, doubling inner quotes
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private long writeNdjson(Iterator<StatementLine> lines, OutputStream out) throws IOException {
+        long rows = 0;
+        try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+            // the response stream is closed by the container, not by us
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);  // one object per line, each ended by the '\n' below
+            while (lines.hasNext()) {
+                StatementLine line = lines.next();
+                generator.writeStartObject();
+                generator.writeStringField("postedAt", String.valueOf(line.postedAt()));
+                generator.writeStringField("transactionId", line.id().toString());
+                generator.writeStringField("type", line.type() != null ? line.type().name() : null);
+                generator.writeNumberField("amount", line.amount());
+                generator.writeStringField("referenceId", line.referenceId());
+                generator.writeStringField("description", line.description());
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+                rows++;
+            }
+        }
+        return rows;
+    }
+}
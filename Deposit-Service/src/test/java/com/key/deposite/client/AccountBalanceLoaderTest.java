@@ -0,0 +1,178 @@
+package com.key.deposite.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * AccountBalanceLoader with a stubbed AccountClient and an executor that only queues tasks, so
+ * the test decides when each balances call runs and can see how many are in flight.
+ */
+class AccountBalanceLoaderTest {
+
+    private final List<List<String>> calls = new CopyOnWriteArrayList<>();
+    private final Queue<Runnable> submitted = new ConcurrentLinkedQueue<>();
+    private final AccountClient accountClient = mock(AccountClient.class);
+    private Executor executor = submitted::add;
+    private AccountBalanceLoader loader;
+
+    @BeforeEach
+    void setUp() {
+        when(accountClient.getBalances(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> ids = invocation.getArgument(0);
+            calls.add(List.copyOf(ids));
+            return Map.of("A", new BigDecimal("10.00"), "B", new BigDecimal("20.00"));
+        });
+        loader = loader(200, 4);
+    }
+
+    @Test
+    void concurrentLookupsOfOneAccountShareOneCall() {
+        CompletableFuture<Optional<BigDecimal>> first = loader.find("A");
+        CompletableFuture<Optional<BigDecimal>> second = loader.find("A");
+        CompletableFuture<Optional<BigDecimal>> third = loader.find("A");
+        // a caller completing its own future must not answer the others
+        second.complete(Optional.empty());
+
+        runAll();
+
+        assertEquals(List.of(List.of("A")), calls);
+        assertEquals(Optional.of(new BigDecimal("10.00")), first.join());
+        assertEquals(Optional.of(new BigDecimal("10.00")), third.join());
+
+        // answered: the next lookup asks again
+        assertEquals(Optional.of(new BigDecimal("10.00")), runAllThen(loader.find("A")).join());
+        assertEquals(2, calls.size());
+    }
+
+    @Test
+    void lookupsOfOneAccountFromManyThreadsMakeOneCall() throws Exception {
+        int threads = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<CompletableFuture<Optional<BigDecimal>>>> lookups = new CopyOnWriteArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                lookups.add(callers.submit(() -> {
+                    start.await();
+                    return loader.find("A");
+                }));
+            }
+            start.countDown();
+            List<CompletableFuture<Optional<BigDecimal>>> futures = new CopyOnWriteArrayList<>();
+            for (Future<CompletableFuture<Optional<BigDecimal>>> lookup : lookups) {
+                futures.add(lookup.get());
+            }
+
+            runAll();
+
+            assertEquals(List.of(List.of("A")), calls);
+            futures.forEach(future -> assertEquals(Optional.of(new BigDecimal("10.00")), future.join()));
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void distinctAccountsAreBatchedUpToMaxSize() {
+        loader = loader(2, 1);
+        List<CompletableFuture<Optional<BigDecimal>>> lookups = List.of("A", "B", "C", "D", "E").stream().map(loader::find).toList();
+
+        runAll();
+
+        assertEquals(List.of(List.of("A", "B"), List.of("C", "D"), List.of("E")), calls);
+        assertEquals(Optional.of(new BigDecimal("20.00")), lookups.get(1).join());
+        assertEquals(Optional.empty(), lookups.get(4).join());
+    }
+
+    @Test
+    void noMoreThanMaxConcurrentCallsRunAndTheQueueDrainsAsTheyFinish() {
+        loader = loader(1, 2);
+        List<CompletableFuture<Optional<BigDecimal>>> lookups = List.of("A", "B", "C", "D").stream().map(loader::find).toList();
+        assertEquals(2, submitted.size());
+
+        int maxInFlight = 0;
+        while (!submitted.isEmpty()) {
+            maxInFlight = Math.max(maxInFlight, submitted.size());
+            submitted.poll().run();
+        }
+
+        assertEquals(2, maxInFlight);
+        assertEquals(4, calls.size());
+        lookups.forEach(lookup -> assertTrue(lookup.isDone()));
+    }
+
+    @Test
+    void failedCallFailsEveryWaiter() {
+        RuntimeException down = new IllegalStateException("Account Service unavailable");
+        when(accountClient.getBalances(anyCollection())).thenThrow(down);
+        CompletableFuture<Optional<BigDecimal>> first = loader.find("A");
+        CompletableFuture<Optional<BigDecimal>> second = loader.find("A");
+        CompletableFuture<Optional<BigDecimal>> other = loader.find("B");
+
+        runAll();
+
+        for (CompletableFuture<Optional<BigDecimal>> lookup : List.of(first, second, other)) {
+            assertSame(down, assertThrows(CompletionException.class, lookup::join).getCause());
+        }
+    }
+
+    @Test
+    void rejectedSubmissionFailsThePendingLookups() {
+        RejectedExecutionException rejected = new RejectedExecutionException("queue full");
+        executor = task -> {
+            throw rejected;
+        };
+        loader = loader(200, 4);
+
+        CompletableFuture<Optional<BigDecimal>> lookup = loader.find("A");
+
+        assertSame(rejected, assertThrows(CompletionException.class, lookup::join).getCause());
+        assertEquals(List.of(), calls);
+    }
+
+    private AccountBalanceLoader loader(int maxBatchSize, int maxConcurrentCalls) {
+        AccountBalanceLoader loader = new AccountBalanceLoader(accountClient, task -> executor.execute(task), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(loader, "maxBatchSize", maxBatchSize);
+        ReflectionTestUtils.setField(loader, "maxConcurrentCalls", maxConcurrentCalls);
+        return loader;
+    }
+
+    private void runAll() {
+        Runnable task;
+        while ((task = submitted.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private <T> T runAllThen(T value) {
+        runAll();
+        return value;
+    }
+}
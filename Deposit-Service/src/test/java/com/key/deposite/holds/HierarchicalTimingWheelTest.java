@@ -0,0 +1,106 @@
+package com.key.deposite.holds;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HierarchicalTimingWheelTest {
+
+    private static final long TICK = 10;
+    private static final int WHEEL_SIZE = 8;
+    private static final long START = 1_000_003;  // not on a tick boundary
+
+    @Test
+    void entriesFireNeverEarlyAndAtMostOneTickLateOnTickBoundaries() {
+        Map<Integer, Long> deadlines = new HashMap<>();
+        Map<Integer, Long> firedAt = runRandomSchedule(START - START % TICK + TICK, deadlines);
+
+        for (Map.Entry<Integer, Long> entry : deadlines.entrySet()) {
+            long late = firedAt.get(entry.getKey()) - entry.getValue();
+            assertTrue(late >= 0 && late <= TICK, "entry " + entry.getKey() + " fired " + late + " ms after its deadline");
+        }
+    }
+
+    @Test
+    void offBoundaryAdvancesFireNoLaterThanTheFirstOneAWholeTickPastTheDeadline() {
+        Map<Integer, Long> deadlines = new HashMap<>();
+        Map<Integer, Long> firedAt = runRandomSchedule(START, deadlines);
+
+        for (Map.Entry<Integer, Long> entry : deadlines.entrySet()) {
+            long late = firedAt.get(entry.getKey()) - entry.getValue();
+            // the advance before the one that fired it was less than a tick past the deadline
+            assertTrue(late >= 0 && late - TICK < TICK, "entry " + entry.getKey() + " fired " + late + " ms after its deadline");
+        }
+    }
+
+    @Test
+    void pastDeadlineFiresOnTheNextAdvance() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(TICK, WHEEL_SIZE, 3, START);
+        wheel.schedule("late", START - 5000);
+
+        assertEquals(List.of("late"), wheel.advance(START + TICK));
+    }
+
+    @Test
+    void cancelAfterCascadingDownStillRemovesTheEntry() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(TICK, WHEEL_SIZE, 3, 0);
+        // starts on the top level (1000 ms is past level 1's 640 ms), moves to level 1 at 640 and level 0 at 960
+        HierarchicalTimingWheel.Timeout<String> timeout = wheel.schedule("hold", 1000);
+        HierarchicalTimingWheel.Timeout<String> other = wheel.schedule("other", 1000);
+
+        assertTrue(wheel.advance(990).isEmpty());
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+        assertEquals(1, wheel.size());
+
+        assertEquals(List.of("other"), wheel.advance(1010));
+        assertFalse(other.cancel());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void deadlineBeyondTheTopLevelParksUntilItIsInRange() {
+        // two levels cover only 10 x 8^2 = 640 ms
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(TICK, WHEEL_SIZE, 2, 0);
+        HierarchicalTimingWheel.Timeout<String> cancelled = wheel.schedule("cancelled", 7000);
+        wheel.schedule("far", 5000);
+
+        for (long now = 0; now < 5000; now += TICK) {
+            assertTrue(wheel.advance(now).isEmpty(), "fired early at " + now);
+            if (now == 3000) {
+                // re-parked several times by now
+                assertTrue(cancelled.cancel());
+            }
+        }
+        assertEquals(List.of("far"), wheel.advance(5010));
+        assertTrue(wheel.advance(8000).isEmpty());
+        assertEquals(0, wheel.size());
+    }
+
+    /** Random deadlines, some past the 10 x 8^3 = 5120 ms three levels cover, advanced a tick at a time from firstAdvance. */
+    private static Map<Integer, Long> runRandomSchedule(long firstAdvance, Map<Integer, Long> deadlines) {
+        HierarchicalTimingWheel<Integer> wheel = new HierarchicalTimingWheel<>(TICK, WHEEL_SIZE, 3, START);
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            deadlines.put(i, START + random.nextInt(8000));
+            wheel.schedule(i, deadlines.get(i));
+        }
+
+        Map<Integer, Long> firedAt = new HashMap<>();
+        for (long now = firstAdvance; now <= START + 8000 + 2 * TICK; now += TICK) {
+            for (int fired : wheel.advance(now)) {
+                firedAt.put(fired, now);
+            }
+        }
+        assertEquals(deadlines.keySet(), firedAt.keySet());
+        assertEquals(0, wheel.size());
+        return firedAt;
+    }
+}
@@ -0,0 +1,55 @@
+package com.key.deposite.holds;
+
+import com.key.deposite.entity.DepositHold;
+import com.key.deposite.enums.HoldStatus;
+import com.key.deposite.repository.DepositHoldRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HoldExpiryWheelTest {
+
+    private final DepositHoldRepository holdRepository = mock(DepositHoldRepository.class);
+    private final HoldExpiryWheel expiryWheel = new HoldExpiryWheel(holdRepository, new SimpleMeterRegistry(), 100, 512);
+
+    @Test
+    void catchUpReadsOnlyMissedExpiriesAndFiresThemOnTheNextTick() {
+        ReflectionTestUtils.setField(expiryWheel, "rebuildPageSize", 1000);
+        ReflectionTestUtils.setField(expiryWheel, "catchUpGrace", Duration.ofMinutes(2));
+        DepositHold missed = hold(LocalDateTime.now().minusMinutes(10));
+        DepositHold retrying = hold(LocalDateTime.now().minusMinutes(5));
+        // a failed expiry this instance already rescheduled stays where it is
+        expiryWheel.schedule(retrying.getId(), LocalDateTime.now().plusSeconds(30));
+        when(holdRepository.findOverdue(eq(HoldStatus.ACTIVE), any(), any())).thenReturn(List.of(missed, retrying));
+
+        expiryWheel.catchUp();
+
+        ArgumentCaptor<LocalDateTime> cutoff = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(holdRepository).findOverdue(eq(HoldStatus.ACTIVE), cutoff.capture(), any());
+        assertTrue(cutoff.getValue().isBefore(LocalDateTime.now().minusSeconds(119)));
+        verify(holdRepository, never()).findExpiringAfter(any(), any(), any());
+        assertEquals(List.of(missed.getId()), expiryWheel.due(System.currentTimeMillis() + 200));
+    }
+
+    private static DepositHold hold(LocalDateTime expiresAt) {
+        DepositHold hold = new DepositHold();
+        hold.setId(UUID.randomUUID());
+        hold.setExpiresAt(expiresAt);
+        return hold;
+    }
+}
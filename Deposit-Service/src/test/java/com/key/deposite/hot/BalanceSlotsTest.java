@@ -0,0 +1,188 @@
+package com.key.deposite.hot;
+
+import com.key.deposite.concurrency.BalanceSnapshot;
+import com.key.deposite.concurrency.BalanceUpdateStrategy;
+import com.key.deposite.entity.DepositAccount;
+import com.key.deposite.enums.DepositType;
+import com.key.deposite.repository.DepositAccountRepository;
+import com.key.deposite.rollup.PostingRollup;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * The arithmetic of moving money between a hot account's row and its slots. Which slot a posting
+ * takes (a free one that covers it, skipping locked ones) is decided by the UPDATE itself, so
+ * here only its arguments and the fallback on a miss are checked.
+ */
+class BalanceSlotsTest {
+
+    private static final String ACCOUNT = "ACC0001";
+    private static final LocalDate TODAY = LocalDate.now();
+    private static final LocalDate YESTERDAY = TODAY.minusDays(1);
+
+    private final BalanceSlotRepository repository = mock(BalanceSlotRepository.class);
+    private final DepositAccountRepository accountRepository = mock(DepositAccountRepository.class);
+    private final PostingRollup postingRollup = mock(PostingRollup.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private BalanceSlots balanceSlots;
+
+    @BeforeEach
+    void setUp() {
+        when(accountRepository.lockForRollUp(ACCOUNT)).thenReturn(1);
+        when(repository.findAccountIds()).thenReturn(List.of(ACCOUNT));
+        balanceSlots = balanceSlots(BalanceUpdateStrategy.ATOMIC);
+    }
+
+    @Test
+    void postSplitsTheDeltaIntoDayTotalsAndReportsAMissWhenNoSlotQualified() {
+        when(repository.post(ACCOUNT, TODAY, new BigDecimal("-25.00"), BigDecimal.ZERO, new BigDecimal("25.00"))).thenReturn(1);
+        when(repository.post(ACCOUNT, TODAY, new BigDecimal("-900.00"), BigDecimal.ZERO, new BigDecimal("900.00"))).thenReturn(0);
+
+        assertTrue(balanceSlots.post(ACCOUNT, new BigDecimal("-25.00")));
+        assertFalse(balanceSlots.post(ACCOUNT, new BigDecimal("-900.00")));
+
+        assertEquals(1, meterRegistry.counter("deposit.hot-accounts.slot.postings", "outcome", "posted").count());
+        assertEquals(1, meterRegistry.counter("deposit.hot-accounts.slot.postings", "outcome", "missed").count());
+    }
+
+    @Test
+    void consolidateMovesEverySlotIntoTheRowAndAddsTheirDayTotalsOnTheirOwnDays() {
+        BalanceSlot yesterdays = slot(0, "50.00", YESTERDAY, "60.00", "10.00", 3);
+        BalanceSlot todays = slot(1, "30.00", TODAY, "30.00", "0.00", 1);
+        BalanceSlot idle = slot(2, "0.00", YESTERDAY, "0.00", "0.00", 0);
+        when(repository.lockByAccountId(ACCOUNT)).thenReturn(List.of(yesterdays, todays, idle));
+
+        assertEquals(new BigDecimal("80.00"), balanceSlots.consolidate(ACCOUNT));
+
+        verify(accountRepository).addToSnapshot(ACCOUNT, new BigDecimal("80.00"));
+        verify(postingRollup).add(ACCOUNT, YESTERDAY, new BigDecimal("60.00"), new BigDecimal("10.00"), 3);
+        verify(postingRollup).add(ACCOUNT, TODAY, new BigDecimal("30.00"), new BigDecimal("0.00"), 1);
+        for (BalanceSlot slot : List.of(yesterdays, todays, idle)) {
+            assertEquals(0, slot.getBalance().signum());
+            assertEquals(TODAY, slot.getPostingDate());
+            assertEquals(0, slot.getPostingCount());
+        }
+        assertEquals(1, meterRegistry.counter("deposit.hot-accounts.consolidations").count());
+    }
+
+    @Test
+    void consolidateOfAnAccountWithoutSlotsLeavesTheRowAlone() {
+        when(repository.lockByAccountId(ACCOUNT)).thenReturn(List.of());
+
+        assertEquals(BigDecimal.ZERO, balanceSlots.consolidate(ACCOUNT));
+
+        verify(accountRepository, never()).addToSnapshot(anyString(), any());
+        verify(postingRollup, never()).add(anyString(), any(), any(), any(), anyLong());
+    }
+
+    @Test
+    void batchConsolidateAddsTheSlotsToTheLockedRows() {
+        DepositAccount account = new DepositAccount();
+        account.setAccountId(ACCOUNT);
+        account.setBalance(new BigDecimal("500.00"));
+        account.setAvailableBalance(new BigDecimal("400.00"));
+        when(repository.lockByAccountIdIn(anyCollection())).thenReturn(List.of(
+                slot(0, "20.00", TODAY, "20.00", "0.00", 1), slot(1, "5.50", TODAY, "0.00", "4.50", 1)));
+
+        balanceSlots.consolidate(List.of(account));
+
+        assertEquals(new BigDecimal("525.50"), account.getBalance());
+        assertEquals(new BigDecimal("425.50"), account.getAvailableBalance());
+        verify(postingRollup).add(ACCOUNT, TODAY, new BigDecimal("20.00"), new BigDecimal("4.50"), 2);
+    }
+
+    @Test
+    void sweepSpreadsTheAvailableBalanceEvenlyAndKeepsHeldFundsAndTheRemainderOnTheRow() {
+        // 1000.00 on the row of which 299.99 is held, 150.00 in the slots: 850.01 to spread over three
+        when(accountRepository.findBalanceSnapshot(ACCOUNT)).thenReturn(Optional.of(row("1000.00", "700.01")));
+        List<BalanceSlot> slots = List.of(slot(0, "0.00", TODAY, "0.00", "0.00", 0),
+                slot(1, "50.00", TODAY, "50.00", "0.00", 1), slot(2, "100.00", YESTERDAY, "100.00", "0.00", 2));
+        when(repository.lockByAccountId(ACCOUNT)).thenReturn(slots);
+
+        balanceSlots.sweep();
+
+        slots.forEach(slot -> assertEquals(new BigDecimal("283.33"), slot.getBalance()));
+        // the row funds the slots: 849.99 leaves it, 0.02 of the available balance stays
+        verify(accountRepository).addToSnapshot(ACCOUNT, new BigDecimal("-699.99"));
+        verify(postingRollup).add(ACCOUNT, YESTERDAY, new BigDecimal("100.00"), new BigDecimal("0.00"), 2);
+        assertTrue(balanceSlots.isSharded(ACCOUNT));
+    }
+
+    @Test
+    void sweepEmptiesTheSlotsWhenHoldsExceedTheAvailableBalance() {
+        when(accountRepository.findBalanceSnapshot(ACCOUNT)).thenReturn(Optional.of(row("100.00", "-40.00")));
+        List<BalanceSlot> slots = List.of(slot(0, "10.00", TODAY, "10.00", "0.00", 1), slot(1, "20.00", TODAY, "20.00", "0.00", 1));
+        when(repository.lockByAccountId(ACCOUNT)).thenReturn(slots);
+
+        balanceSlots.sweep();
+
+        slots.forEach(slot -> assertEquals(new BigDecimal("0.00"), slot.getBalance()));
+        verify(accountRepository).addToSnapshot(ACCOUNT, new BigDecimal("30.00"));
+    }
+
+    @Test
+    void sweepUnshardsAccountsThatNoLongerExistOrRunUnderLedger() {
+        when(accountRepository.findBalanceSnapshot(ACCOUNT)).thenReturn(Optional.empty());
+        when(repository.lockByAccountId(ACCOUNT)).thenReturn(List.of(slot(0, "0.00", TODAY, "0.00", "0.00", 0)));
+
+        balanceSlots.sweep();
+
+        verify(repository).deleteByAccountId(ACCOUNT);
+        assertFalse(balanceSlots.isSharded(ACCOUNT));
+
+        BalanceSlots ledger = balanceSlots(BalanceUpdateStrategy.LEDGER);
+        when(accountRepository.findBalanceSnapshot(ACCOUNT)).thenReturn(Optional.of(row("10.00", "10.00")));
+        when(repository.lockByAccountId(ACCOUNT)).thenReturn(List.of(slot(0, "7.00", TODAY, "7.00", "0.00", 1)));
+
+        ledger.sweep();
+
+        verify(accountRepository).addToSnapshot(ACCOUNT, new BigDecimal("7.00"));
+        assertFalse(ledger.isSharded(ACCOUNT));
+    }
+
+    private BalanceSlots balanceSlots(BalanceUpdateStrategy strategy) {
+        BalanceSlots balanceSlots = new BalanceSlots(repository, accountRepository, postingRollup,
+                mock(PlatformTransactionManager.class), meterRegistry, strategy);
+        ReflectionTestUtils.setField(balanceSlots, "enabled", true);
+        ReflectionTestUtils.setField(balanceSlots, "slotCount", 3);
+        return balanceSlots;
+    }
+
+    private static BalanceSnapshot row(String balance, String availableBalance) {
+        return new BalanceSnapshot(UUID.randomUUID(), new BigDecimal(balance), new BigDecimal(availableBalance), 1, DepositType.CHECKING);
+    }
+
+    private static BalanceSlot slot(int index, String balance, LocalDate postingDate, String credits, String debits, long postings) {
+        BalanceSlot slot = new BalanceSlot();
+        slot.setAccountId(ACCOUNT);
+        slot.setSlot(index);
+        slot.setBalance(new BigDecimal(balance));
+        slot.setPostingDate(postingDate);
+        slot.setCreditTotal(new BigDecimal(credits));
+        slot.setDebitTotal(new BigDecimal(debits));
+        slot.setPostingCount(postings);
+        return slot;
+    }
+}
@@ -0,0 +1,143 @@
+package com.key.deposite.hot;
+
+import com.key.deposite.concurrency.BalanceUpdateStrategy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/** Promotion and demotion over windows of 1 s at 10 postings/s, with a cool-down of three windows. */
+class HotAccountDetectorTest {
+
+    private final Set<String> sharded = ConcurrentHashMap.newKeySet();
+    private final BalanceSlots balanceSlots = mock(BalanceSlots.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private HotAccountDetector detector;
+
+    @BeforeEach
+    void setUp() {
+        when(balanceSlots.isSharded(anyString())).thenAnswer(invocation -> sharded.contains(invocation.<String>getArgument(0)));
+        when(balanceSlots.shard(anyString())).thenAnswer(invocation -> {
+            sharded.add(invocation.getArgument(0));
+            return true;
+        });
+        doAnswer(invocation -> sharded.remove(invocation.<String>getArgument(0))).when(balanceSlots).unshard(anyString());
+        detector = detector(List.of(), BalanceUpdateStrategy.ATOMIC);
+    }
+
+    @Test
+    void accountReachingTheThresholdInOneWindowIsPromotedOnce() {
+        post("ACC0001", 10);
+        post("ACC0002", 9);
+        detector.evaluate();
+
+        post("ACC0001", 20);
+        detector.evaluate();
+
+        verify(balanceSlots, times(1)).shard("ACC0001");
+        verify(balanceSlots, never()).shard("ACC0002");
+        assertEquals(1, meterRegistry.counter("deposit.hot-accounts.promotions").count());
+    }
+
+    @Test
+    void promotedAccountIsDemotedAfterTheCoolDownBelowHalfTheRate() {
+        post("ACC0001", 10);
+        detector.evaluate();
+
+        post("ACC0001", 4);
+        detector.evaluate();
+        detector.evaluate();
+        // half the threshold is not quiet and starts the cool-down again
+        post("ACC0001", 5);
+        detector.evaluate();
+        detector.evaluate();
+        detector.evaluate();
+        assertTrue(sharded.contains("ACC0001"));
+
+        detector.evaluate();
+
+        verify(balanceSlots).unshard("ACC0001");
+        assertFalse(sharded.contains("ACC0001"));
+        assertEquals(1, meterRegistry.counter("deposit.hot-accounts.demotions").count());
+
+        // demoted for good: more quiet windows do nothing
+        detector.evaluate();
+        verify(balanceSlots, times(1)).unshard("ACC0001");
+    }
+
+    @Test
+    void accountUnshardedElsewhereIsForgottenWithoutADemotion() {
+        post("ACC0001", 10);
+        detector.evaluate();
+        sharded.remove("ACC0001");
+
+        detector.evaluate();
+        detector.evaluate();
+        detector.evaluate();
+
+        verify(balanceSlots, never()).unshard(anyString());
+        assertEquals(0, meterRegistry.counter("deposit.hot-accounts.demotions").count());
+    }
+
+    @Test
+    void designatedAccountIsShardedWithoutPostingsRetriedUntilItExistsAndNeverDemoted() {
+        detector = detector(List.of("ACC0009", " "), BalanceUpdateStrategy.ATOMIC);
+        doReturn(false).doAnswer(invocation -> sharded.add("ACC0009")).when(balanceSlots).shard("ACC0009");
+
+        detector.evaluate();
+        assertFalse(sharded.contains("ACC0009"));
+        detector.evaluate();
+        assertTrue(sharded.contains("ACC0009"));
+
+        post("ACC0009", 50);
+        for (int window = 0; window < 10; window++) {
+            detector.evaluate();
+        }
+
+        verify(balanceSlots, times(2)).shard("ACC0009");
+        verify(balanceSlots, never()).shard(" ");
+        verify(balanceSlots, never()).unshard(anyString());
+        assertEquals(0, meterRegistry.counter("deposit.hot-accounts.promotions").count());
+    }
+
+    @Test
+    void detectorDoesNothingUnderLedger() {
+        detector = detector(List.of("ACC0009"), BalanceUpdateStrategy.LEDGER);
+
+        post("ACC0001", 100);
+        detector.evaluate();
+
+        verify(balanceSlots, never()).shard(anyString());
+    }
+
+    private HotAccountDetector detector(List<String> designated, BalanceUpdateStrategy strategy) {
+        HotAccountDetector detector = new HotAccountDetector(balanceSlots, meterRegistry, true, strategy);
+        ReflectionTestUtils.setField(detector, "designated", designated);
+        ReflectionTestUtils.setField(detector, "thresholdPerSecond", 10.0);
+        ReflectionTestUtils.setField(detector, "windowMs", 1000L);
+        ReflectionTestUtils.setField(detector, "coolDownWindows", 3);
+        return detector;
+    }
+
+    private void post(String accountId, int postings) {
+        for (int i = 0; i < postings; i++) {
+            detector.record(accountId);
+        }
+    }
+}
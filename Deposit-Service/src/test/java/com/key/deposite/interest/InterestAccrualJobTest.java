@@ -0,0 +1,140 @@
+package com.key.deposite.interest;
+
+import com.key.deposite.cache.BalanceCache;
+import com.key.deposite.concurrency.BalanceUpdateStrategy;
+import com.key.deposite.concurrency.BalanceUpdater;
+import com.key.deposite.entity.DepositAccount;
+import com.key.deposite.events.DepositEventPublisher;
+import com.key.deposite.hot.BalanceSlots;
+import com.key.deposite.repository.DepositAccountRepository;
+import com.key.deposite.repository.DepositTransactionRepository;
+import com.key.deposite.rollup.PostingRollup;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InterestAccrualJobTest {
+
+    private static final LocalDate DATE = LocalDate.of(2026, 3, 31);
+
+    private final DepositAccountRepository accountRepository = mock(DepositAccountRepository.class);
+    private final InterestAccrualRunRepository runRepository = mock(InterestAccrualRunRepository.class);
+    private final BalanceUpdater balanceUpdater = mock(BalanceUpdater.class);
+    private final Map<String, DepositAccount> accounts = Map.of(
+            "ACC0005", account("ACC0005", "36500.00", null),
+            "ACC0006", account("ACC0006", "73000.00", DATE),  // a retried chunk already got here
+            "ACC0007", account("ACC0007", "3650.00", DATE.minusDays(1)));
+    private InterestAccrualJob job;
+
+    @BeforeEach
+    void setUp() {
+        when(accountRepository.lockByAccountIdIn(anyCollection())).thenAnswer(invocation -> {
+            List<String> accountIds = List.copyOf(invocation.getArgument(0));
+            return accountIds.stream().map(accounts::get).toList();
+        });
+        when(balanceUpdater.getStrategy()).thenReturn(BalanceUpdateStrategy.ATOMIC);
+
+        job = new InterestAccrualJob(accountRepository, mock(DepositTransactionRepository.class), runRepository,
+                mock(DepositEventPublisher.class), mock(PostingRollup.class), mock(BalanceCache.class), mock(BalanceSlots.class),
+                balanceUpdater, mock(PlatformTransactionManager.class), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(job, "chunkSize", 2);
+        ReflectionTestUtils.setField(job, "parallelism", 1);
+        ReflectionTestUtils.setField(job, "dayCount", 365);
+    }
+
+    @Test
+    void dailyInterestIsTheAnnualRateOverTheDayCountRoundedHalfEven() {
+        assertEquals(new BigDecimal("9.59"), InterestAccrualJob.dailyInterest(new BigDecimal("100000.00"), new BigDecimal("0.0350"), 365));
+        assertEquals(new BigDecimal("0.00"), InterestAccrualJob.dailyInterest(new BigDecimal("365.00"), new BigDecimal("0.0050"), 365));
+        assertEquals(new BigDecimal("0.02"), InterestAccrualJob.dailyInterest(new BigDecimal("1095.00"), new BigDecimal("0.0050"), 365));
+        assertEquals(new BigDecimal("0.01"), InterestAccrualJob.dailyInterest(new BigDecimal("360.00"), new BigDecimal("0.0100"), 360));
+    }
+
+    @Test
+    void interruptedRunResumesAfterItsCheckpointAndSkipsAccountsAlreadyAccrued() {
+        InterestAccrualRun interrupted = new InterestAccrualRun();
+        interrupted.setBusinessDate(DATE);
+        interrupted.setStatus(InterestAccrualRun.FAILED);
+        interrupted.setCheckpoint("ACC0004");
+        when(runRepository.findById(DATE)).thenReturn(Optional.of(interrupted));
+        when(accountRepository.findAccrualCandidates(eq("ACC0004"), eq(DATE), any(Pageable.class)))
+                .thenReturn(List.of("ACC0005", "ACC0006"));
+        when(accountRepository.findAccrualCandidates(eq("ACC0006"), eq(DATE), any(Pageable.class)))
+                .thenReturn(List.of("ACC0007"));
+
+        job.run(DATE);
+
+        // 36500 and 3650 at 3.65% for one day (0.365 rounds half-even to 0.36); ACC0006 was already accrued through DATE
+        assertEquals(new BigDecimal("36503.65"), accounts.get("ACC0005").getBalance());
+        assertEquals(new BigDecimal("73000.00"), accounts.get("ACC0006").getBalance());
+        assertEquals(new BigDecimal("3650.36"), accounts.get("ACC0007").getBalance());
+        assertEquals(DATE, accounts.get("ACC0007").getInterestAccruedThrough());
+        verify(accountRepository, never()).findAccrualCandidates(eq(""), any(), any());
+        verify(runRepository).addProgress(DATE, 1, new BigDecimal("3.65"));
+        verify(runRepository).addProgress(DATE, 1, new BigDecimal("0.36"));
+        InOrder checkpoints = inOrder(runRepository);
+        checkpoints.verify(runRepository).saveCheckpoint(DATE, "ACC0006");
+        checkpoints.verify(runRepository).saveCheckpoint(DATE, "ACC0007");
+        checkpoints.verify(runRepository).setStatus(eq(DATE), eq(InterestAccrualRun.COMPLETED), any());
+    }
+
+    @Test
+    void completedRunIsNotRepeated() {
+        InterestAccrualRun completed = new InterestAccrualRun();
+        completed.setBusinessDate(DATE);
+        completed.setStatus(InterestAccrualRun.COMPLETED);
+        when(runRepository.findById(DATE)).thenReturn(Optional.of(completed));
+
+        job.run(DATE);
+
+        verify(accountRepository, never()).findAccrualCandidates(any(), any(), any());
+        verify(runRepository, never()).addProgress(any(), anyLong(), any());
+    }
+
+    @Test
+    void underLedgerEachAccountsTailIsRolledUpBeforeTheRowsAreLoaded() {
+        when(balanceUpdater.getStrategy()).thenReturn(BalanceUpdateStrategy.LEDGER);
+        InterestAccrualRun run = new InterestAccrualRun();
+        run.setBusinessDate(DATE);
+        when(runRepository.findById(DATE)).thenReturn(Optional.of(run));
+        when(accountRepository.findAccrualCandidates(eq(""), eq(DATE), any(Pageable.class)))
+                .thenReturn(List.of("ACC0005"));
+
+        job.run(DATE);
+
+        InOrder order = inOrder(balanceUpdater, accountRepository);
+        order.verify(balanceUpdater).rollUp("ACC0005");
+        order.verify(accountRepository).lockByAccountIdIn(List.of("ACC0005"));
+    }
+
+    private static DepositAccount account(String accountId, String balance, LocalDate accruedThrough) {
+        DepositAccount account = new DepositAccount();
+        account.setAccountId(accountId);
+        account.setBalance(new BigDecimal(balance));
+        account.setAvailableBalance(new BigDecimal(balance));
+        account.setInterestRate(new BigDecimal("0.0365"));
+        account.setInterestAccruedThrough(accruedThrough);
+        return account;
+    }
+}
@@ -0,0 +1,169 @@
+package com.key.deposite.posting;
+
+import com.key.deposite.cache.BalanceCache;
+import com.key.deposite.concurrency.BalanceSnapshot;
+import com.key.deposite.concurrency.BalanceUpdateStrategy;
+import com.key.deposite.entity.DepositAccount;
+import com.key.deposite.entity.DepositTransaction;
+import com.key.deposite.events.DepositEventPublisher;
+import com.key.deposite.exception.InvalidAccountBalanceException;
+import com.key.deposite.hot.BalanceSlots;
+import com.key.deposite.repository.DepositAccountRepository;
+import com.key.deposite.repository.DepositTransactionRepository;
+import com.key.deposite.rollup.PostingRollup;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * PostingEngine against an in-memory stand-in for deposit_accounts: rows are copied out on
+ * lock and written back on commit, so a rolled-back batch leaves no trace.
+ */
+class PostingEngineTest {
+
+    private final Map<String, BigDecimal> committed = new ConcurrentHashMap<>();
+    private final List<List<String>> lockCalls = new CopyOnWriteArrayList<>();
+    private final DepositAccountRepository accountRepository = mock(DepositAccountRepository.class);
+    private final DepositTransactionRepository transactionRepository = mock(DepositTransactionRepository.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    private volatile List<DepositAccount> locked = List.of();
+    private volatile CountDownLatch firstLockEntered;
+    private volatile CountDownLatch releaseFirstLock;
+    private PostingEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        when(accountRepository.lockByAccountIdIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> accountIds = invocation.getArgument(0);
+            if (lockCalls.isEmpty() && releaseFirstLock != null) {
+                firstLockEntered.countDown();
+                releaseFirstLock.await(5, TimeUnit.SECONDS);
+            }
+            lockCalls.add(List.copyOf(accountIds));
+            locked = accountIds.stream().filter(committed::containsKey).map(this::load).toList();
+            return locked;
+        });
+        doAnswer(invocation -> {
+            locked.forEach(account -> committed.put(account.getAccountId(), account.getBalance()));
+            return null;
+        }).when(transactionManager).commit(any());
+
+        engine = new PostingEngine(accountRepository, transactionRepository, mock(DepositEventPublisher.class),
+                transactionManager, mock(BalanceCache.class), mock(PostingRollup.class), mock(BalanceSlots.class));
+        ReflectionTestUtils.setField(engine, "enabled", true);
+        ReflectionTestUtils.setField(engine, "shardCount", 1);
+        ReflectionTestUtils.setField(engine, "batchSize", 256);
+        ReflectionTestUtils.setField(engine, "queueCapacity", 1000);
+        ReflectionTestUtils.setField(engine, "strategy", BalanceUpdateStrategy.ATOMIC);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        engine.stop();
+    }
+
+    @Test
+    void queuedPostingsAreAppliedAsOneBatchInSubmissionOrder() throws Exception {
+        committed.put("A", new BigDecimal("50.00"));
+        committed.put("B", new BigDecimal("100.00"));
+        firstLockEntered = new CountDownLatch(1);
+        releaseFirstLock = new CountDownLatch(1);
+        engine.start();
+
+        // the first posting holds the shard, so everything after it queues up behind it
+        CompletableFuture<BalanceSnapshot> first = engine.submit(Posting.credit("B", new BigDecimal("10.00"), null, null));
+        assertTrue(firstLockEntered.await(5, TimeUnit.SECONDS));
+        CompletableFuture<BalanceSnapshot> debitB = engine.submit(Posting.debit("B", new BigDecimal("30.00"), null, null));
+        CompletableFuture<BalanceSnapshot> creditA = engine.submit(Posting.credit("A", new BigDecimal("5.00"), null, null));
+        CompletableFuture<BalanceSnapshot> overdraw = engine.submit(Posting.debit("B", new BigDecimal("200.00"), null, null));
+        CompletableFuture<BalanceSnapshot> emptyB = engine.submit(Posting.debit("B", new BigDecimal("80.00"), null, null));
+        releaseFirstLock.countDown();
+
+        assertEquals(new BigDecimal("110.00"), first.get(5, TimeUnit.SECONDS).balance());
+        assertEquals(new BigDecimal("80.00"), debitB.get(5, TimeUnit.SECONDS).balance());
+        assertEquals(new BigDecimal("55.00"), creditA.get(5, TimeUnit.SECONDS).balance());
+        ExecutionException rejected = assertThrows(ExecutionException.class, () -> overdraw.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(InvalidAccountBalanceException.class, rejected.getCause());
+        // a rejection fails only its own posting; the next debit still sees the balance before it
+        assertEquals(new BigDecimal("0.00"), emptyB.get(5, TimeUnit.SECONDS).balance());
+
+        // one lock query per batch, each account once and in accountId order
+        assertEquals(List.of(List.of("B"), List.of("A", "B")), lockCalls);
+        assertEquals(new BigDecimal("55.00"), committed.get("A"));
+        assertEquals(new BigDecimal("0.00"), committed.get("B"));
+    }
+
+    @Test
+    void batchThatFailsToCommitIsReplayedOnePostingAtATime() throws Exception {
+        committed.put("A", new BigDecimal("50.00"));
+        committed.put("BAD", new BigDecimal("50.00"));
+        when(transactionRepository.saveAll(anyCollection())).thenAnswer(invocation -> {
+            Collection<DepositTransaction> transactions = invocation.getArgument(0);
+            if (transactions.stream().anyMatch(transaction -> transaction.getAccountId().equals("BAD"))) {
+                throw new IllegalStateException("constraint violated");
+            }
+            return List.copyOf(transactions);
+        });
+        firstLockEntered = new CountDownLatch(1);
+        releaseFirstLock = new CountDownLatch(1);
+        engine.start();
+
+        CompletableFuture<BalanceSnapshot> warmUp = engine.submit(Posting.credit("A", new BigDecimal("1.00"), null, null));
+        assertTrue(firstLockEntered.await(5, TimeUnit.SECONDS));
+        CompletableFuture<BalanceSnapshot> good = engine.submit(Posting.credit("A", new BigDecimal("10.00"), null, null));
+        CompletableFuture<BalanceSnapshot> bad = engine.submit(Posting.credit("BAD", new BigDecimal("10.00"), null, null));
+        releaseFirstLock.countDown();
+
+        assertEquals(new BigDecimal("51.00"), warmUp.get(5, TimeUnit.SECONDS).balance());
+        assertEquals(new BigDecimal("61.00"), good.get(5, TimeUnit.SECONDS).balance());
+        ExecutionException failed = assertThrows(ExecutionException.class, () -> bad.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, failed.getCause());
+
+        // the batch of two, then each posting on its own
+        assertEquals(List.of(List.of("A"), List.of("A", "BAD"), List.of("A"), List.of("BAD")), lockCalls);
+        assertEquals(new BigDecimal("61.00"), committed.get("A"));
+        assertEquals(new BigDecimal("50.00"), committed.get("BAD"));
+    }
+
+    @Test
+    void refusesToStartWhenPostingsMustGoThroughBalanceUpdater() {
+        ReflectionTestUtils.setField(engine, "strategy", BalanceUpdateStrategy.LEDGER);
+        assertThrows(IllegalStateException.class, engine::start);
+
+        ReflectionTestUtils.setField(engine, "strategy", BalanceUpdateStrategy.ATOMIC);
+        ReflectionTestUtils.setField(engine, "hotAccountsEnabled", true);
+        assertThrows(IllegalStateException.class, engine::start);
+    }
+
+    private DepositAccount load(String accountId) {
+        DepositAccount account = new DepositAccount();
+        account.setAccountId(accountId);
+        account.setBalance(committed.get(accountId));
+        account.setAvailableBalance(committed.get(accountId));
+        return account;
+    }
+}
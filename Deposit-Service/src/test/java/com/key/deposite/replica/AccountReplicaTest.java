@@ -0,0 +1,43 @@
+package com.key.deposite.replica;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class AccountReplicaTest {
+
+    private final AccountReplica replica = new AccountReplica(1000, Duration.ofMinutes(10), new SimpleMeterRegistry());
+
+    @Test
+    void olderAccountStateDoesNotReplaceANewerOne() {
+        replica.update("A", AccountReplica.ACTIVE, new BigDecimal("20"), 4);
+        replica.update("A", AccountReplica.ACTIVE, new BigDecimal("10"), 3);
+
+        assertEquals(new BigDecimal("20"), replica.find("A").orElseThrow().balance());
+    }
+
+    @Test
+    void lookupFillsOnlyAMissAndAnyEventReplacesIt() {
+        replica.update("A", AccountReplica.ACTIVE, new BigDecimal("20"), 0);
+        replica.putFetched("A", AccountReplica.ACTIVE, new BigDecimal("5"));
+        assertEquals(new BigDecimal("20"), replica.find("A").orElseThrow().balance());
+
+        replica.putFetched("B", AccountReplica.ACTIVE, new BigDecimal("5"));
+        replica.update("B", AccountReplica.ACTIVE, new BigDecimal("7"), 0);
+        assertEquals(new BigDecimal("7"), replica.find("B").orElseThrow().balance());
+    }
+
+    @Test
+    void closingIsFinal() {
+        replica.update("A", AccountReplica.ACTIVE, new BigDecimal("20"), 4);
+        replica.markClosed("A");
+        replica.update("A", AccountReplica.ACTIVE, new BigDecimal("30"), 9);
+
+        assertFalse(replica.find("A").orElseThrow().isActive());
+    }
+}